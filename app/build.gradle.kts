@@ -46,7 +46,12 @@ java {
 
 application {
     // Define the main class for the application.
-    mainClass = "io.github.autocompletedemo.App"
+    mainClass = "io.github.autocompletedemo.Launcher"
+}
+
+tasks.named<JavaExec>("run") {
+    // Forward metrics export settings, e.g. ./gradlew run -Dautocomplete.metrics=jmx
+    System.getProperty("autocomplete.metrics")?.let { systemProperty("autocomplete.metrics", it) }
 }
 
 tasks.named<Test>("test") {
@@ -60,9 +65,60 @@ javafx {
     modules = listOf("javafx.controls", "javafx.fxml")
 }
 
+// Compile the bundled dictionary into a ready-to-load index (dict.acds) at build time, so the
+// app does not build the trie on every launch. It lands next to dict in the resources, hence in
+// the jar and the jlink image.
+val compileDictionaryIndex by tasks.registering(JavaExec::class) {
+    description = "Compiles src/main/resources/dict into a binary dictionary index."
+    group = "build"
+    val dictionary = layout.projectDirectory.file("src/main/resources/dict")
+    val index = layout.buildDirectory.file("generated/dictionary-index/dict.acds")
+    // Compiled classes only: the main output also holds resources, which depend on this task
+    classpath = files(sourceSets.main.get().java.classesDirectory) + configurations.runtimeClasspath.get()
+    mainClass = "io.github.autocompletedemo.dictionary.BundledDictionary"
+    inputs.file(dictionary)
+    outputs.file(index)
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(dictionary.asFile.path, index.get().asFile.path)
+    })
+}
+
+tasks.named<ProcessResources>("processResources") {
+    from(compileDictionaryIndex)
+}
+
+// Cold start to the first suggestion: the precompiled index with the default backend and with the
+// library backend, and indexing at startup; every measurement is a fresh JVM. The report is
+// printed and kept in build/reports. The median of five launches per variant (fifteen JVMs) runs
+// only when asked for: ./gradlew measureColdStart. The build itself takes one launch per variant
+// (coldStartSmoke, part of check): a rough number, and a failure if startup is broken.
+fun registerColdStart(name: String, runs: Int, reportName: String) =
+    tasks.register<JavaExec>(name) {
+        group = "verification"
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass = "io.github.autocompletedemo.ColdStartProbe"
+        val report = layout.buildDirectory.file("reports/$reportName")
+        outputs.file(report)
+        // A measurement, not a build step: never up to date
+        outputs.upToDateWhen { false }
+        argumentProviders.add(CommandLineArgumentProvider {
+            listOf("--runs", runs.toString(), "--output", report.get().asFile.path)
+        })
+    }
+
+val measureColdStart = registerColdStart("measureColdStart", 5, "cold-start.txt")
+measureColdStart.configure { description = "Measures cold start to the first suggestion." }
+
+val coldStartSmoke = registerColdStart("coldStartSmoke", 1, "cold-start-smoke.txt")
+coldStartSmoke.configure { description = "Measures cold start once per variant." }
+
+tasks.named("check") {
+    dependsOn(coldStartSmoke)
+}
+
 tasks.named<Jar>("jar") {
     manifest {
-        attributes["Main-Class"] = "io.github.autocompletedemo.App"
+        attributes["Main-Class"] = "io.github.autocompletedemo.Launcher"
     }
     duplicatesStrategy = org.gradle.api.file.DuplicatesStrategy.EXCLUDE
 }
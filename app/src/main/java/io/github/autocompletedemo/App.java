@@ -1,69 +1,153 @@
 package io.github.autocompletedemo;
 
-import io.github.autocomplete.AutocompleteProvider;
-import io.github.autocomplete.TextAnalyzer;
 import io.github.autocomplete.config.AutocompleteConfig;
 import io.github.autocomplete.model.Candidate;
-import io.github.autocomplete.tokenizer.SimpleTokenizer;
-import io.github.autocomplete.tokenizer.Tokenizer;
+import io.github.autocompletedemo.dictionary.BundledDictionary;
+import io.github.autocompletedemo.dictionary.DictionaryJournal;
+import io.github.autocompletedemo.dictionary.DictionarySnapshot;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+import io.github.autocompletedemo.dictionary.SnapshotFile;
+import io.github.autocompletedemo.dictionary.TrieFileFormat;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.dictionary.WordLearner;
+import io.github.autocompletedemo.distance.DistanceMetric;
+import io.github.autocompletedemo.document.Document;
+import io.github.autocompletedemo.document.LargeFile;
+import io.github.autocompletedemo.ingest.CorpusIngestor;
+import io.github.autocompletedemo.ingest.DictionaryBuilderMain;
+import io.github.autocompletedemo.ingest.IngestProgress;
+import io.github.autocompletedemo.jfr.FlightRecording;
+import io.github.autocompletedemo.jfr.PopupLayoutEvent;
+import io.github.autocompletedemo.metrics.LatencyHistogram;
+import io.github.autocompletedemo.metrics.Metrics;
+import io.github.autocompletedemo.metrics.MetricsExporter;
+import io.github.autocompletedemo.metrics.MetricsSnapshot;
+import io.github.autocompletedemo.server.ServerMain;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Popup;
 import javafx.stage.Stage;
 import javafx.stage.Modality;
+import javafx.util.Duration;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.BiFunction;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class App extends Application {
 
+  // Сколько разделителей может стоять между предыдущим словом и курсором
+  private static final int NEXT_WORD_MAX_GAP = 16;
+
   private TextArea textArea;
+  // Копия текста TextArea с индексом строк; поддерживается по изменениям, а не копированием
+  private Document document;
+  // Правка, которую TextArea применит к тексту сразу после фильтра форматтера
+  private TextFormatter.Change pendingEdit;
   private ListView<String> suggestionsList;
   private Popup suggestionsPopup;
   private VBox root;
   private MenuBar menuBar;
   private Label statusBar;
+  // Пометка о неполных подсказках и текст, который она заменила; снимается полным ответом
+  private String degradedStatus;
+  private String statusBeforeDegraded;
 
   // Autocomplete компоненты
-  private TextAnalyzer textAnalyzer;
-  private AutocompleteProvider autocompleteProvider;
   private AutocompleteConfig autocompleteConfig;
+  private DictionaryStore dictionaryStore;
+  private IndexedSuggestionSource indexedSource;
+  private LibrarySuggestionSource librarySource;
+  private volatile SuggestionSource backend;
+
+  // Фоновая операция со словарём (загрузка, импорт текста)
+  private CorpusIngestor runningIngestor;
+  private MenuItem cancelDictionaryTask;
+  // Автосохранение словаря журналом; по --journal=каталог словарь восстанавливается при запуске
+  private volatile DictionaryJournal dictionaryJournal;
+  private CheckMenuItem autosaveDictionary;
+  private SuggestionCache suggestionCache;
+  // Обучение с бюджетом: новые слова попадают в словарь, только став частыми
+  private final WordLearner wordLearner = new WordLearner();
+  private volatile boolean budgetedLearning;
+  // Предсказание следующего слова, когда текущее слово пустое (например, после пробела)
+  private volatile boolean nextWordPrediction = true;
+  private long nextWordBudgetBytes = Vocabulary.DEFAULT_BIGRAM_BUDGET_BYTES;
+  private SuggestionSource nextWordSource;
+  private SuggestionService suggestionService;
+  // Бюджет задержки поиска с опечатками, 0 - без срока
+  private long latencyBudgetMillis = LatencyBudget.DEFAULT_BUDGET.toMillis();
+
+  // Метрики и их вывод
+  private final Metrics metrics = new Metrics();
+  private final LatencyHistogram lookupLatency = metrics.histogram(Metrics.SUGGESTION_LOOKUP);
+  private final LatencyHistogram nextWordLatency = metrics.histogram(Metrics.NEXT_WORD_LOOKUP);
+  private final LatencyHistogram popupShowLatency = metrics.histogram(Metrics.POPUP_SHOW);
+  private final LatencyHistogram popupHideLatency = metrics.histogram(Metrics.POPUP_HIDE);
+  private final LatencyHistogram dictionaryLoadLatency =
+      metrics.histogram(Metrics.DICTIONARY_LOAD);
+  private List<MetricsExporter> metricsExporters = List.of();
+  private Label metricsOverlay;
+  private Timeline metricsRefresh;
+  // Запись JFR из меню или по --jfr=файл; файл из командной строки пишется при выходе
+  private FlightRecording flightRecording;
+  private Path flightRecordingFile;
+  private CheckMenuItem flightRecordingItem;
+  private MenuItem dumpFlightRecording;
 
   // Обработка файлов
   private File currentFile;
   private boolean isModified = false;
 
+  // Режим больших файлов: файл отображён в память, в TextArea только текущая страница
+  private LargeFile largeFile;
+  private int largeFilePage;
+  private boolean pageEdited;
+  private boolean loadingPage;
+  private HBox pageBar;
+  private Label pageLabel;
+
   // Настройки
-  private int maxSuggestions = 10;
-  private int toleranceThreshold = 0;
-  private int tolerance = 0;
-  private double similarWeight = 0.5;
-  private double originalWeight = 1.0;
+  private AutocompleteSettings settings = AutocompleteSettings.DEFAULT;
 
   private boolean suggestionsDisabled = false;
 
   @Override
   public void start(Stage primaryStage) {
+    String jfrFile = getParameters().getNamed().get("jfr");
+    if (jfrFile != null) {
+      flightRecordingFile = Path.of(jfrFile);
+      startFlightRecording();
+    }
     initializeAutocomplete();
     createUI();
     setupEventHandlers();
-    loadDefaultDictionary();
 
     Scene scene = new Scene(root, 800, 600);
     primaryStage.setTitle("Untitled - Autocomplete Text Editor");
@@ -72,6 +156,16 @@ public class App extends Application {
     setupWindowResizeHandlers(primaryStage);
 
     primaryStage.show();
+    metrics.setGauge("startup.windowShownMillis",
+        ManagementFactory.getRuntimeMXBean().getUptime());
+
+    // Словарь подключается в фоне, окно уже на экране
+    String journalDirectory = getParameters().getNamed().get("journal");
+    if (journalDirectory != null) {
+      openJournal(Path.of(journalDirectory));
+    } else {
+      loadDefaultDictionary();
+    }
 
     // Обработка закрытия окна
     primaryStage.setOnCloseRequest(event -> {
@@ -106,16 +200,100 @@ public class App extends Application {
   }
 
   private void initializeAutocomplete() {
-    autocompleteConfig = new AutocompleteConfig();
-    Tokenizer tokenizer = new SimpleTokenizer();
-    textAnalyzer = new TextAnalyzer(tokenizer);
-    autocompleteProvider = new AutocompleteProvider(textAnalyzer, autocompleteConfig);
+    autocompleteConfig = settings.toConfig();
+    dictionaryStore = new DictionaryStore(autocompleteConfig,
+        settings.backend() == SuggestionBackend.LIBRARY);
+    indexedSource = new IndexedSuggestionSource(dictionaryStore, settings);
+    librarySource = new LibrarySuggestionSource(dictionaryStore, settings);
+    // Один бюджет на оба backend: его счётчики - это suggestion.degraded
+    LatencyBudget budget = LatencyBudget.ofMillis(latencyBudgetMillis);
+    indexedSource.setLatencyBudget(budget);
+    librarySource.setLatencyBudget(budget);
+    selectBackend();
+    suggestionCache = new SuggestionCache((prefix, max) -> backend.getAutocomplete(prefix, max),
+        1024, autocompleteConfig, settings);
+    // Каждая новая версия словаря делает закэшированные подсказки устаревшими
+    dictionaryStore.addListener(snapshot -> suggestionCache.invalidate());
+    // Оценка памяти обходит весь индекс, поэтому считается один раз на версию в потоке записи
+    dictionaryStore.addListener(snapshot -> {
+      metrics.setGauge("dictionary.words", snapshot.size());
+      metrics.setGauge("dictionary.indexBytes", snapshot.index().estimatedBytes());
+      metrics.setGauge("nextword.pairs", snapshot.nextWords().size());
+      metrics.setGauge("nextword.indexBytes", snapshot.nextWords().estimatedBytes());
+    });
+    nextWordSource = (previous, max) -> {
+      long start = System.nanoTime();
+      try {
+        return dictionaryStore.current().nextWords()
+            .predict(previous.toLowerCase(Locale.ROOT), max, settings.originalWeight());
+      } finally {
+        nextWordLatency.record(System.nanoTime() - start);
+      }
+    };
+    suggestionService = new SuggestionService((prefix, max) -> {
+      long start = System.nanoTime();
+      try {
+        return suggestionCache.getAutocomplete(prefix, max);
+      } finally {
+        lookupLatency.record(System.nanoTime() - start);
+      }
+    });
+    initializeMetrics();
+  }
+
+  private void initializeMetrics() {
+    metrics.gauge("cache.hitRate", () -> suggestionCache.stats().hitRate());
+    metrics.gauge("cache.entries", () -> suggestionCache.stats().size());
+    metrics.gauge("dictionary.journal.bytes", () -> journalStats().journalBytes());
+    metrics.gauge("dictionary.journal.batches", () -> journalStats().batches());
+    metrics.gauge("dictionary.journal.compactions", () -> journalStats().compactions());
+    metrics.gauge("learning.candidates", () -> wordLearner.stats().candidates());
+    metrics.gauge("learning.usedBytes", () -> wordLearner.stats().usedBytes());
+    metrics.gauge("learning.promoted", () -> wordLearner.stats().promoted());
+    metrics.gauge("learning.evicted", () -> wordLearner.stats().evicted());
+    metrics.gauge("suggestion.degraded", () -> latencyStats().degraded());
+    metrics.gauge("suggestion.deadlineMisses", () -> latencyStats().deadlineMisses());
+    metrics.gauge("suggestion.effortLevel", () -> latencyStats().level());
+    try {
+      metricsExporters = MetricsExporter.parse(System.getProperty(MetricsExporter.PROPERTY));
+      metricsExporters.forEach(exporter -> exporter.start(metrics));
+    } catch (RuntimeException e) {
+      System.err.println("Metrics export disabled: " + e.getMessage());
+      metricsExporters = List.of();
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (suggestionService != null) {
+      suggestionService.close();
+    }
+    if (dictionaryJournal != null) {
+      // Записывает изменения, накопленные с последней фиксации
+      dictionaryJournal.close();
+    }
+    if (dictionaryStore != null) {
+      dictionaryStore.close();
+    }
+    metricsExporters.forEach(MetricsExporter::close);
+    if (flightRecording != null) {
+      if (flightRecordingFile != null) {
+        try {
+          flightRecording.dump(flightRecordingFile);
+        } catch (IOException e) {
+          System.err.println("Cannot write flight recording: " + e.getMessage());
+        }
+      }
+      flightRecording.close();
+    }
   }
 
   private void createUI() {
     createMenuBar();
 
     textArea = new TextArea();
+    document = new Document();
+    textArea.setTextFormatter(new TextFormatter<>(this::trackEdit));
     textArea.setPromptText("Start typing to see autocomplete suggestions...");
     textArea.setWrapText(true);
 
@@ -180,8 +358,15 @@ public class App extends Application {
 
     createStatusBar();
 
+    createPageBar();
+
+    metricsOverlay = new Label();
+    metricsOverlay.setStyle("-fx-font-family: monospace; -fx-font-size: 11px;");
+    metricsOverlay.setVisible(false);
+    metricsOverlay.setManaged(false);
+
     VBox editorContainer = new VBox(5);
-    editorContainer.getChildren().addAll(textArea);
+    editorContainer.getChildren().addAll(textArea, pageBar, metricsOverlay);
     VBox.setVgrow(textArea, Priority.ALWAYS);
 
     root = new VBox(5);
@@ -190,6 +375,19 @@ public class App extends Application {
     VBox.setVgrow(editorContainer, Priority.ALWAYS);
   }
 
+  private void createPageBar() {
+    Button previousPage = new Button("< Previous");
+    Button nextPage = new Button("Next >");
+    pageLabel = new Label();
+    previousPage.setOnAction(e -> showPage(largeFilePage - 1));
+    nextPage.setOnAction(e -> showPage(largeFilePage + 1));
+
+    pageBar = new HBox(10, previousPage, pageLabel, nextPage);
+    pageBar.setAlignment(Pos.CENTER_LEFT);
+    pageBar.setVisible(false);
+    pageBar.setManaged(false);
+  }
+
   private void createMenuBar() {
     menuBar = new MenuBar();
 
@@ -206,16 +404,34 @@ public class App extends Application {
     Menu dictionaryMenu = new Menu("Dictionary");
     MenuItem loadDictionary = new MenuItem("Load Dictionary...");
     MenuItem saveDictionary = new MenuItem("Save Dictionary...");
+    MenuItem loadSnapshot = new MenuItem("Load Snapshot...");
+    MenuItem saveSnapshot = new MenuItem("Save Snapshot...");
     MenuItem clearDictionary = new MenuItem("Clear Dictionary");
     MenuItem addTextToDictionary = new MenuItem("Add Current Text to Dictionary");
+    MenuItem importCorpus = new MenuItem("Import Text Corpus...");
+    cancelDictionaryTask = new MenuItem("Cancel Import");
+    cancelDictionaryTask.setDisable(true);
+    autosaveDictionary = new CheckMenuItem("Autosave Dictionary...");
+    MenuItem compareBackendMemory = new MenuItem("Compare Backend Memory...");
 
-    dictionaryMenu.getItems().addAll(loadDictionary, saveDictionary, clearDictionary,
-        addTextToDictionary);
+    dictionaryMenu.getItems().addAll(loadDictionary, saveDictionary, loadSnapshot, saveSnapshot,
+        clearDictionary,
+        addTextToDictionary, importCorpus, cancelDictionaryTask, new SeparatorMenuItem(),
+        autosaveDictionary, compareBackendMemory);
 
     Menu settingsMenu = new Menu("Settings");
     MenuItem autocompleteSettings = new MenuItem("Autocomplete Settings...");
-
-    settingsMenu.getItems().addAll(autocompleteSettings);
+    MenuItem cacheStatistics = new MenuItem("Cache Statistics...");
+    CheckMenuItem performanceOverlay = new CheckMenuItem("Performance Overlay");
+    MenuItem resetMetrics = new MenuItem("Reset Metrics");
+    flightRecordingItem = new CheckMenuItem("Flight Recording");
+    flightRecordingItem.setSelected(flightRecording != null);
+    dumpFlightRecording = new MenuItem("Dump Flight Recording...");
+    dumpFlightRecording.setDisable(flightRecording == null);
+
+    settingsMenu.getItems().addAll(autocompleteSettings, cacheStatistics, new SeparatorMenuItem(),
+        performanceOverlay, resetMetrics, new SeparatorMenuItem(), flightRecordingItem,
+        dumpFlightRecording);
 
     Menu helpMenu = new Menu("Help");
     MenuItem about = new MenuItem("About");
@@ -225,6 +441,19 @@ public class App extends Application {
 
     // Обработка событий
     newFile.setOnAction(e -> newFile());
+    performanceOverlay.setOnAction(e -> setMetricsOverlayVisible(performanceOverlay.isSelected()));
+    resetMetrics.setOnAction(e -> {
+      metrics.reset();
+      refreshMetricsOverlay();
+    });
+    flightRecordingItem.setOnAction(e -> {
+      if (flightRecordingItem.isSelected()) {
+        startFlightRecording();
+      } else {
+        stopFlightRecording();
+      }
+    });
+    dumpFlightRecording.setOnAction(e -> dumpFlightRecording());
     openFile.setOnAction(e -> openFile());
     saveFile.setOnAction(e -> saveFile());
     saveAsFile.setOnAction(e -> saveAsFile());
@@ -232,10 +461,23 @@ public class App extends Application {
 
     loadDictionary.setOnAction(e -> loadDictionary());
     saveDictionary.setOnAction(e -> saveDictionary());
+    loadSnapshot.setOnAction(e -> loadSnapshot());
+    saveSnapshot.setOnAction(e -> saveSnapshot());
     clearDictionary.setOnAction(e -> clearDictionary());
     addTextToDictionary.setOnAction(e -> addTextToDictionary());
+    importCorpus.setOnAction(e -> importCorpus());
+    cancelDictionaryTask.setOnAction(e -> cancelDictionaryTask());
+    autosaveDictionary.setOnAction(e -> {
+      if (autosaveDictionary.isSelected()) {
+        chooseJournalDirectory();
+      } else {
+        closeJournal();
+      }
+    });
+    compareBackendMemory.setOnAction(e -> compareBackendMemory());
 
     autocompleteSettings.setOnAction(e -> showAutocompleteSettings());
+    cacheStatistics.setOnAction(e -> showCacheStatistics());
 
     about.setOnAction(e -> showAbout());
   }
@@ -248,7 +490,15 @@ public class App extends Application {
   private void setupEventHandlers() {
     textArea.addEventFilter(KeyEvent.KEY_PRESSED, this::handleKeyPress);
     textArea.setOnKeyReleased(this::handleKeyRelease);
-    textArea.textProperty().addListener((observable, oldValue, newValue) -> {
+    // InvalidationListener не запрашивает новое значение, так что текст не копируется
+    textArea.textProperty().addListener(observable -> {
+      syncDocument();
+      if (loadingPage) {
+        return;
+      }
+      if (largeFile != null) {
+        pageEdited = true;
+      }
       isModified = true;
       updateStatusBar();
       updateWindowTitle();
@@ -320,47 +570,92 @@ public class App extends Application {
       return;
     }
 
-    String currentText = textArea.getText();
     int caretPosition = textArea.getCaretPosition();
-
-    String currentWord = getCurrentWord(currentText, caretPosition);
+    String currentWord = document.wordBefore(caretPosition);
 
     if (currentWord.length() > 0) {
-      try {
-        List<Candidate> candidates =
-            autocompleteProvider.getAutocomplete(currentWord, maxSuggestions);
-        if (!candidates.isEmpty()) {
-          ObservableList<String> suggestions = FXCollections.observableArrayList();
-          for (Candidate candidate : candidates) {
-            suggestions.add(candidate.word());
-          }
-          suggestionsList.setItems(suggestions);
-          suggestionsList.getSelectionModel().selectFirst();
-          showSuggestions();
-        } else {
-          hideSuggestions();
-        }
-      } catch (Exception e) {
-        hideSuggestions();
+      // Поиск идёт в фоне, результат придёт в поток JavaFX
+      suggestionService.request(currentWord, settings.maxSuggestions(), this::applySuggestions);
+      return;
+    }
+    String previousWord = nextWordPrediction
+        ? document.previousWord(caretPosition, NEXT_WORD_MAX_GAP) : "";
+    if (previousWord.length() > 0) {
+      suggestionService.request(nextWordSource, previousWord, settings.maxSuggestions(),
+          this::applySuggestions);
+    } else {
+      hideSuggestions();
+    }
+  }
+
+  private void applySuggestions(List<Candidate> candidates) {
+    if (suggestionsDisabled) {
+      return;
+    }
+    showDegradedStatus(DegradedSuggestions.isDegraded(candidates));
+
+    if (!candidates.isEmpty()) {
+      PopupLayoutEvent event = new PopupLayoutEvent();
+      event.begin();
+      boolean wasShowing = suggestionsPopup.isShowing();
+      ObservableList<String> suggestions = FXCollections.observableArrayList();
+      for (Candidate candidate : candidates) {
+        suggestions.add(candidate.word());
+      }
+      suggestionsList.setItems(suggestions);
+      suggestionsList.getSelectionModel().selectFirst();
+      showSuggestions();
+      event.end();
+      if (event.shouldCommit()) {
+        event.candidateCount = candidates.size();
+        event.wasShowing = wasShowing;
+        event.shown = suggestionsPopup.isShowing();
+        event.commit();
       }
     } else {
       hideSuggestions();
     }
   }
 
+  /**
+   * Показывает или снимает пометку о неполных подсказках. Если строку состояния с тех пор
+   * заняло другое сообщение, оно остаётся.
+   */
+  private void showDegradedStatus(boolean degraded) {
+    if (degraded) {
+      if (degradedStatus == null || !degradedStatus.equals(statusBar.getText())) {
+        statusBeforeDegraded = statusBar.getText();
+      }
+      degradedStatus = String.format("Suggestions limited to meet the %d ms latency budget",
+          latencyBudgetMillis);
+      statusBar.setText(degradedStatus);
+    } else if (degradedStatus != null) {
+      if (degradedStatus.equals(statusBar.getText())) {
+        statusBar.setText(statusBeforeDegraded);
+      }
+      degradedStatus = null;
+      statusBeforeDegraded = null;
+    }
+  }
+
   private void showSuggestions() {
     if (!suggestionsPopup.isShowing()) {
       Point2D caretPosition = getCaretScreenPosition();
       if (caretPosition != null) {
+        long start = System.nanoTime();
         suggestionsPopup.show(textArea, caretPosition.getX(), caretPosition.getY() + 20);
         suggestionsList.requestFocus();
+        popupShowLatency.record(System.nanoTime() - start);
       }
     }
   }
 
   private void hideSuggestions() {
+    suggestionService.cancel();
     if (suggestionsPopup.isShowing()) {
+      long start = System.nanoTime();
       suggestionsPopup.hide();
+      popupHideLatency.record(System.nanoTime() - start);
       suggestionsDisabled = true;
       new Thread(() -> {
         try {
@@ -381,18 +676,8 @@ public class App extends Application {
       }
 
       int caretPosition = textArea.getCaretPosition();
-      String text = textArea.getText();
-
-      int line = 0;
-      int column = 0;
-      for (int i = 0; i < caretPosition && i < text.length(); i++) {
-        if (text.charAt(i) == '\n') {
-          line++;
-          column = 0;
-        } else {
-          column++;
-        }
-      }
+      int line = document.lineOfOffset(caretPosition);
+      int column = caretPosition - document.lineStart(line);
 
       double charWidth = 6.0;
       double lineHeight = 16.0;
@@ -420,35 +705,45 @@ public class App extends Application {
     }
   }
 
-  private String getCurrentWord(String text, int caretPosition) {
-    if (caretPosition == 0)
-      return "";
-
-    int start = caretPosition - 1;
-    while (start >= 0 && Character.isLetterOrDigit(text.charAt(start))) {
-      start--;
-    }
-    start++;
-
-    return text.substring(start, caretPosition);
-  }
-
   private void insertSuggestion(String suggestion) {
-    String currentText = textArea.getText();
     int caretPosition = textArea.getCaretPosition();
+    int start = document.wordStart(caretPosition);
+
+    // Замена диапазона сохраняет историю отмены и ставит курсор после вставки
+    textArea.replaceText(start, caretPosition, suggestion);
+    hideSuggestions();
+  }
 
-    int start = caretPosition - 1;
-    while (start >= 0 && Character.isLetterOrDigit(currentText.charAt(start))) {
-      start--;
+  private TextFormatter.Change trackEdit(TextFormatter.Change change) {
+    if (change.isContentChange()) {
+      pendingEdit = change;
     }
-    start++;
+    return change;
+  }
 
-    String newText =
-        currentText.substring(0, start) + suggestion + currentText.substring(caretPosition);
+  /**
+   * Переносит в {@link Document} изменение текста TextArea. Отмена и повтор проходят мимо
+   * форматтера, а управляющие символы TextArea выбрасывает сама; в этих случаях документ
+   * перечитывается целиком.
+   */
+  private void syncDocument() {
+    TextFormatter.Change edit = pendingEdit;
+    pendingEdit = null;
+    if (edit != null && !hasControlCharacters(edit.getText())) {
+      document.replace(edit.getRangeStart(), edit.getRangeEnd(), edit.getText());
+    } else {
+      document.setText(textArea.getText());
+    }
+  }
 
-    textArea.setText(newText);
-    textArea.positionCaret(start + suggestion.length());
-    hideSuggestions();
+  private static boolean hasControlCharacters(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == 0x7F || (c < 0x20 && c != '\n' && c != '\t')) {
+        return true;
+      }
+    }
+    return false;
   }
 
   // Операции с файлами
@@ -472,12 +767,14 @@ public class App extends Application {
       if (result.isPresent()) {
         if (result.get() == saveButton) {
           saveFile();
+          closeLargeFile();
           textArea.clear();
           currentFile = null;
           isModified = false;
           updateStatusBar();
           updateWindowTitle();
         } else if (result.get() == dontSaveButton) {
+          closeLargeFile();
           textArea.clear();
           currentFile = null;
           isModified = false;
@@ -486,6 +783,7 @@ public class App extends Application {
         }
       }
     } else {
+      closeLargeFile();
       textArea.clear();
       currentFile = null;
       isModified = false;
@@ -503,8 +801,13 @@ public class App extends Application {
     File file = fileChooser.showOpenDialog(textArea.getScene().getWindow());
     if (file != null) {
       try {
-        String content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
-        textArea.setText(content);
+        if (Files.size(file.toPath()) >= LargeFile.DEFAULT_THRESHOLD) {
+          openLargeFile(file);
+        } else {
+          String content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+          closeLargeFile();
+          textArea.setText(content);
+        }
         currentFile = file;
         isModified = false;
         updateStatusBar();
@@ -520,7 +823,7 @@ public class App extends Application {
       saveAsFile();
     } else {
       try {
-        Files.write(currentFile.toPath(), textArea.getText().getBytes(StandardCharsets.UTF_8));
+        writeFile(currentFile);
         isModified = false;
         updateStatusBar();
         updateWindowTitle();
@@ -539,7 +842,7 @@ public class App extends Application {
     File file = fileChooser.showSaveDialog(textArea.getScene().getWindow());
     if (file != null) {
       try {
-        Files.write(file.toPath(), textArea.getText().getBytes(StandardCharsets.UTF_8));
+        writeFile(file);
         currentFile = file;
         isModified = false;
         updateStatusBar();
@@ -550,6 +853,81 @@ public class App extends Application {
     }
   }
 
+  private void writeFile(File file) throws IOException {
+    if (largeFile != null) {
+      commitPage();
+      largeFile.save(file.toPath());
+      // После сохранения границы страниц могли сдвинуться
+      int caret = textArea.getCaretPosition();
+      showPage(Math.min(largeFilePage, largeFile.pageCount() - 1));
+      textArea.positionCaret(Math.min(caret, textArea.getLength()));
+    } else {
+      Files.write(file.toPath(), textArea.getText().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  // Большие файлы
+  private void openLargeFile(File file) throws IOException {
+    LargeFile opened = LargeFile.open(file.toPath());
+    closeLargeFile();
+    largeFile = opened;
+    pageBar.setVisible(true);
+    pageBar.setManaged(true);
+    showPage(0);
+  }
+
+  private void showPage(int page) {
+    if (largeFile == null || page < 0 || page >= largeFile.pageCount()) {
+      return;
+    }
+    commitPage();
+    String text;
+    try {
+      text = largeFile.page(page);
+    } catch (IOException e) {
+      showError("Error reading file", e.getMessage());
+      return;
+    }
+    hideSuggestions();
+    loadingPage = true;
+    try {
+      textArea.setText(text);
+    } finally {
+      loadingPage = false;
+    }
+    largeFilePage = page;
+    pageEdited = false;
+    textArea.positionCaret(0);
+    pageLabel.setText(String.format("Page %d of %d (bytes %,d-%,d of %,d)", page + 1,
+        largeFile.pageCount(), largeFile.pageStart(page), largeFile.pageEnd(page),
+        largeFile.size()));
+  }
+
+  /**
+   * Переносит правки текущей страницы в файл-оверлей.
+   */
+  private void commitPage() {
+    if (largeFile != null && pageEdited) {
+      largeFile.setPage(largeFilePage, textArea.getText());
+      pageEdited = false;
+    }
+  }
+
+  private void closeLargeFile() {
+    if (largeFile == null) {
+      return;
+    }
+    try {
+      largeFile.close();
+    } catch (IOException e) {
+      showError("Error closing file", e.getMessage());
+    }
+    largeFile = null;
+    pageEdited = false;
+    pageBar.setVisible(false);
+    pageBar.setManaged(false);
+  }
+
   // Операции со словарем
   private void loadDictionary() {
     FileChooser fileChooser = new FileChooser();
@@ -558,12 +936,18 @@ public class App extends Application {
 
     File file = fileChooser.showOpenDialog(textArea.getScene().getWindow());
     if (file != null) {
-      try {
-        textAnalyzer.loadFromFile(file);
-        statusBar.setText("Dictionary loaded from: " + file.getName());
-      } catch (IOException e) {
-        showError("Error loading dictionary", e.getMessage());
-      }
+      runDictionaryTask("Loading " + file.getName(), "Error loading dictionary", ingestor -> {
+        Vocabulary loaded = new Vocabulary();
+        loaded.loadFromFile(file);
+        if (ingestor.isCancelled()) {
+          throw new CancellationException();
+        }
+        dictionaryStore.update(vocabulary -> {
+          vocabulary.clear();
+          vocabulary.addAll(loaded);
+        }).join();
+        return () -> statusBar.setText("Dictionary loaded from: " + file.getName());
+      });
     }
   }
 
@@ -574,12 +958,49 @@ public class App extends Application {
 
     File file = fileChooser.showSaveDialog(textArea.getScene().getWindow());
     if (file != null) {
-      try {
-        textAnalyzer.saveToFile(file);
-        statusBar.setText("Dictionary saved to: " + file.getName());
-      } catch (IOException e) {
-        showError("Error saving dictionary", e.getMessage());
-      }
+      DictionarySnapshot snapshot = dictionaryStore.current();
+      runDictionaryTask("Saving " + file.getName(), "Error saving dictionary", ingestor -> {
+        TrieFileFormat.write(snapshot.index(), file);
+        return () -> statusBar.setText("Dictionary saved to: " + file.getName());
+      });
+    }
+  }
+
+  private void loadSnapshot() {
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Load Snapshot");
+    fileChooser.getExtensionFilters().addAll(
+        new FileChooser.ExtensionFilter("Dictionary Snapshots", "*.acds"),
+        new FileChooser.ExtensionFilter("All Files", "*.*"));
+
+    File file = fileChooser.showOpenDialog(textArea.getScene().getWindow());
+    if (file != null) {
+      // Проверка контрольной суммы и строки слов - на весь файл, поэтому не в потоке JavaFX
+      runDictionaryTask("Loading " + file.getName(), "Error loading snapshot", ingestor -> {
+        SnapshotFile.Contents contents = SnapshotFile.read(file);
+        if (ingestor.isCancelled()) {
+          throw new CancellationException();
+        }
+        dictionaryStore.replace(contents).join();
+        return () -> statusBar.setText("Snapshot loaded from: " + file.getName());
+      });
+    }
+  }
+
+  private void saveSnapshot() {
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Save Snapshot");
+    fileChooser.getExtensionFilters().addAll(
+        new FileChooser.ExtensionFilter("Dictionary Snapshots", "*.acds"),
+        new FileChooser.ExtensionFilter("All Files", "*.*"));
+
+    File file = fileChooser.showSaveDialog(textArea.getScene().getWindow());
+    if (file != null) {
+      DictionarySnapshot snapshot = dictionaryStore.current();
+      runDictionaryTask("Saving " + file.getName(), "Error saving snapshot", ingestor -> {
+        SnapshotFile.write(file, snapshot.index(), true);
+        return () -> statusBar.setText("Snapshot saved to: " + file.getName());
+      });
     }
   }
 
@@ -591,41 +1012,317 @@ public class App extends Application {
 
     Optional<ButtonType> result = alert.showAndWait();
     if (result.isPresent() && result.get() == ButtonType.OK) {
-      textAnalyzer.clear();
-      statusBar.setText("Dictionary cleared");
+      wordLearner.clear();
+      publishDictionary(dictionaryStore.update(Vocabulary::clear), "Dictionary cleared",
+          "Error clearing dictionary");
     }
   }
 
   private void addTextToDictionary() {
     String currentText = textArea.getText();
     if (!currentText.isEmpty()) {
-      textAnalyzer.addText(currentText);
-      statusBar.setText("Current text added to dictionary");
-    }
-  }
-
-  private void loadDefaultDictionary() {
-    try (InputStream in = getClass().getResourceAsStream("/dict")) {
-        if (in != null) {
-            File tempFile = File.createTempFile("dict", null);
-            tempFile.deleteOnExit();
-            try (OutputStream out = new FileOutputStream(tempFile)) {
-                byte[] buffer = new byte[8192];
-                int len;
-                while ((len = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, len);
-                }
-            }
-            textAnalyzer.loadFromFile(tempFile);
-            statusBar.setText("Default dictionary loaded from JAR resource.");
-        } else {
-            statusBar.setText("Default dictionary resource not found in JAR.");
-        }
+      String label = "Adding current text";
+      runDictionaryTask(label, "Error adding text", ingestor -> {
+        Vocabulary added = ingestor.ingest(currentText, progress -> reportProgress(label, progress));
+        learn(added);
+        return () -> statusBar.setText("Current text added to dictionary");
+      });
+    }
+  }
+
+  private void importCorpus() {
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Import Text Corpus");
+    fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("Text Files", "*.txt"),
+        new FileChooser.ExtensionFilter("All Files", "*.*"));
+
+    File file = fileChooser.showOpenDialog(textArea.getScene().getWindow());
+    if (file != null) {
+      String label = "Importing " + file.getName();
+      runDictionaryTask(label, "Error importing text", ingestor -> {
+        Vocabulary added =
+            ingestor.ingest(file.toPath(), progress -> reportProgress(label, progress));
+        learn(added);
+        return () -> statusBar.setText(String.format("Imported %d distinct words from: %s",
+            added.size(), file.getName()));
+      });
+    }
+  }
+
+  /**
+   * Добавляет частоты в словарь: все сразу или, при обучении с бюджетом, через кандидатов
+   * {@link WordLearner}.
+   */
+  private void learn(Vocabulary added) {
+    dictionaryStore.update(vocabulary -> {
+      if (budgetedLearning) {
+        wordLearner.learn(added, vocabulary);
+      } else {
+        vocabulary.addAll(added);
+      }
+    }).join();
+  }
+
+  /**
+   * Фоновая часть операции со словарём. Публикует новую версию словаря и возвращает действие для
+   * потока JavaFX (обычно - сообщение в строке состояния).
+   */
+  @FunctionalInterface
+  private interface DictionaryTask {
+    Runnable run(CorpusIngestor ingestor) throws IOException;
+  }
+
+  private void runDictionaryTask(String label, String errorTitle, DictionaryTask task) {
+    if (runningIngestor != null) {
+      showError(errorTitle, "Another dictionary operation is in progress");
+      return;
+    }
+    CorpusIngestor ingestor = new CorpusIngestor();
+    runningIngestor = ingestor;
+    cancelDictionaryTask.setDisable(false);
+    statusBar.setText(label + "...");
+
+    Thread thread = new Thread(() -> {
+      // Error (например, нехватка памяти) пролетает мимо catch: тогда остаётся это сообщение
+      Runnable outcome = () -> statusBar.setText(label + " failed");
+      try {
+        long start = System.nanoTime();
+        outcome = task.run(ingestor);
+        long elapsed = System.nanoTime() - start;
+        dictionaryLoadLatency.record(elapsed);
+        metrics.setGauge("dictionary.load.lastMillis", elapsed / 1e6);
+      } catch (CancellationException e) {
+        outcome = () -> statusBar.setText(label + " cancelled");
+      } catch (IOException | RuntimeException e) {
+        String message = rootMessage(e);
+        outcome = () -> showError(errorTitle, message);
+      } finally {
+        // Операция снимается при любом исходе, иначе следующие навсегда считали бы её идущей
+        Runnable shown = outcome;
+        Platform.runLater(() -> {
+          finishDictionaryTask();
+          shown.run();
+        });
+      }
+    }, "dictionary-task");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Показывает результат асинхронного обновления словаря, когда новая версия опубликована.
+   */
+  private void publishDictionary(CompletableFuture<DictionarySnapshot> update, String status,
+      String errorTitle) {
+    update.whenComplete((snapshot, error) -> Platform.runLater(() -> {
+      if (error != null) {
+        showError(errorTitle, rootMessage(error));
+      } else {
+        statusBar.setText(status);
+      }
+    }));
+  }
+
+  private static String rootMessage(Throwable error) {
+    while (error.getCause() != null
+        && (error instanceof CompletionException || error instanceof UncheckedIOException)) {
+      error = error.getCause();
+    }
+    return error.getMessage();
+  }
+
+  private void reportProgress(String label, IngestProgress progress) {
+    metrics.setGauge("dictionary.load.megabytesPerSecond", progress.megabytesPerSecond());
+    metrics.setGauge("dictionary.load.wordsPerSecond", progress.wordsPerSecond());
+    Platform.runLater(() -> {
+      if (runningIngestor != null) {
+        statusBar.setText(String.format("%s: %.0f%% - %.1f MB/s, %.0f words/s", label,
+            progress.fraction() * 100, progress.megabytesPerSecond(),
+            progress.wordsPerSecond()));
+      }
+    });
+  }
+
+  private void cancelDictionaryTask() {
+    if (runningIngestor != null) {
+      runningIngestor.cancel();
+      statusBar.setText("Cancelling...");
+    }
+  }
+
+  private void finishDictionaryTask() {
+    runningIngestor = null;
+    cancelDictionaryTask.setDisable(true);
+  }
+
+  /**
+   * Загружает встроенный словарь в фоновом потоке: готовый индекс из jar, если он собран, иначе
+   * исходный словарь.
+   */
+  private CompletableFuture<DictionarySnapshot> loadDefaultDictionary() {
+    long start = System.nanoTime();
+    CompletableFuture<DictionarySnapshot> loaded = CompletableFuture.supplyAsync(() -> {
+      try {
+        CompletableFuture<DictionarySnapshot> published = BundledDictionary.load(dictionaryStore);
+        return published == null ? null : published.join();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, task -> {
+      Thread thread = new Thread(task, "default-dictionary");
+      thread.setDaemon(true);
+      thread.start();
+    });
+    loaded.whenComplete((snapshot, error) -> Platform.runLater(() -> {
+      if (error != null) {
+        showError("Error loading default dictionary", rootMessage(error));
+      } else if (snapshot == null) {
+        statusBar.setText("Default dictionary resource not found in JAR.");
+      } else {
+        metrics.setGauge("startup.dictionaryReadyMillis",
+            ManagementFactory.getRuntimeMXBean().getUptime());
+        statusBar.setText(String.format("Default dictionary loaded: %d words in %d ms",
+            snapshot.size(), (System.nanoTime() - start) / 1_000_000));
+      }
+    }));
+    return loaded;
+  }
+
+
+  // Автосохранение словаря
+  private void chooseJournalDirectory() {
+    DirectoryChooser chooser = new DirectoryChooser();
+    chooser.setTitle("Dictionary Autosave Directory");
+    File directory = chooser.showDialog(textArea.getScene().getWindow());
+    if (directory == null) {
+      autosaveDictionary.setSelected(false);
+      return;
+    }
+    openJournal(directory.toPath());
+  }
+
+  /**
+   * Открывает журнал в фоне. Если в каталоге уже есть сохранённый словарь, он заменяет текущий;
+   * иначе при запуске сначала загружается встроенный словарь, и он становится первым снимком.
+   */
+  private void openJournal(Path directory) {
+    autosaveDictionary.setSelected(true);
+    autosaveDictionary.setDisable(true);
+    statusBar.setText("Opening dictionary autosave in " + directory + "...");
+    boolean empty = dictionaryStore.current().version() == 0;
+    boolean recovering;
+    try {
+      recovering = DictionaryJournal.exists(directory);
     } catch (IOException e) {
-        showError("Error loading default dictionary", e.getMessage());
+      recovering = false;
+    }
+    // Встроенный словарь загружается до журнала и становится его первым снимком
+    CompletableFuture<?> before = !recovering && empty
+        ? loadDefaultDictionary().exceptionally(error -> null)
+        : CompletableFuture.completedFuture(null);
+    boolean loadDefaultOnError = recovering && empty;
+    before.thenApplyAsync(ignored -> {
+      try {
+        return DictionaryJournal.open(directory, dictionaryStore);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }).whenComplete((journal, error) -> Platform.runLater(() -> {
+      autosaveDictionary.setDisable(false);
+      if (error != null) {
+        autosaveDictionary.setSelected(false);
+        showError("Error opening dictionary autosave", rootMessage(error));
+        if (loadDefaultOnError) {
+          loadDefaultDictionary();
+        }
+        return;
+      }
+      dictionaryJournal = journal;
+      DictionaryJournal.Stats stats = journal.stats();
+      statusBar.setText(String.format("Dictionary autosaved to %s (%d words, %d changes replayed)",
+          directory, dictionaryStore.current().size(), stats.recovered()));
+    }));
+  }
+
+  private void closeJournal() {
+    DictionaryJournal journal = dictionaryJournal;
+    if (journal == null) {
+      return;
+    }
+    dictionaryJournal = null;
+    autosaveDictionary.setDisable(true);
+    CompletableFuture.runAsync(journal::close).whenComplete((ignored, error) ->
+        Platform.runLater(() -> {
+          autosaveDictionary.setDisable(false);
+          if (error != null) {
+            showError("Error closing dictionary autosave", rootMessage(error));
+          } else {
+            statusBar.setText("Dictionary autosave stopped");
+          }
+        }));
+  }
+
+  private LatencyBudget.Stats latencyStats() {
+    LatencyBudget budget = indexedSource.latencyBudget();
+    return budget != null ? budget.stats() : new LatencyBudget.Stats(0, 0, 0, 0);
+  }
+
+  private DictionaryJournal.Stats journalStats() {
+    DictionaryJournal journal = dictionaryJournal;
+    return journal != null ? journal.stats() : new DictionaryJournal.Stats(0, 0, 0, 0, 0, 0);
+  }
+
+  private void selectBackend() {
+    indexedSource.setSettings(settings);
+    librarySource.setSettings(settings);
+    // TextAnalyzer ведётся вместе со словарём, только пока выбран библиотечный backend
+    dictionaryStore.setLibraryEnabled(settings.backend() == SuggestionBackend.LIBRARY);
+    if (settings.backend() == SuggestionBackend.RADIX_TRIE) {
+      backend = indexedSource;
+    } else {
+      backend = librarySource;
     }
   }
 
+  private void compareBackendMemory() {
+    DictionarySnapshot snapshot = dictionaryStore.current();
+    statusBar.setText("Measuring backend memory...");
+    new Thread(() -> {
+      File tempFile = null;
+      try {
+        tempFile = File.createTempFile("dict", null);
+        TrieFileFormat.write(snapshot.index(), tempFile);
+        BackendMemoryReport.Result result = BackendMemoryReport.measure(tempFile);
+        Platform.runLater(() -> showBackendMemory(result));
+      } catch (IOException e) {
+        Platform.runLater(() -> showError("Error measuring memory", e.getMessage()));
+      } finally {
+        if (tempFile != null) {
+          tempFile.delete();
+        }
+      }
+    }).start();
+  }
+
+  private void showBackendMemory(BackendMemoryReport.Result result) {
+    statusBar.setText("Backend memory measured");
+    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+    alert.setTitle("Backend Memory");
+    alert.setHeaderText("Dictionary of " + result.words() + " words");
+    alert.setContentText(String.format(
+        "%s: %.1f MB%n%s: %.1f MB (estimated %.1f MB), words read from the dictionary "
+            + "buffer%nThe same words as String[]: %.1f MB%n%n"
+            + "Word counts as Map<String, Integer>: %.1f MB heap%n"
+            + "Word counts off-heap: %.1f MB heap + %.1f MB off-heap%n%nCurrent backend: %s",
+        SuggestionBackend.LIBRARY, result.libraryBytes() / 1048576.0,
+        SuggestionBackend.RADIX_TRIE, result.trieBytes() / 1048576.0,
+        result.trieEstimatedBytes() / 1048576.0, result.wordStringsBytes() / 1048576.0,
+        result.mapBytes() / 1048576.0,
+        result.vocabularyBytes() / 1048576.0, result.vocabularyOffHeapBytes() / 1048576.0,
+        settings.backend()));
+    alert.showAndWait();
+  }
+
   // Диалоги настроек
   private void showAutocompleteSettings() {
     Stage settingsStage = new Stage();
@@ -636,42 +1333,110 @@ public class App extends Application {
     settingsPane.setPadding(new Insets(20));
 
     Label maxSuggestionsLabel = new Label("Maximum suggestions:");
-    Spinner<Integer> maxSuggestionsSpinner = new Spinner<>(1, 50, maxSuggestions);
+    Spinner<Integer> maxSuggestionsSpinner = new Spinner<>(1, 50, settings.maxSuggestions());
     maxSuggestionsSpinner.setEditable(true);
 
     Label toleranceThresholdLabel = new Label("Tolerance threshold:");
-    Spinner<Integer> toleranceThresholdSpinner = new Spinner<>(0, 100, toleranceThreshold);
+    Spinner<Integer> toleranceThresholdSpinner = new Spinner<>(0, 100, settings.toleranceThreshold());
     toleranceThresholdSpinner.setEditable(true);
 
     Label toleranceLabel = new Label("Tolerance:");
-    Spinner<Integer> toleranceSpinner = new Spinner<>(0, 10, tolerance);
+    Spinner<Integer> toleranceSpinner = new Spinner<>(0, 10, settings.tolerance());
     toleranceSpinner.setEditable(true);
 
     Label similarWeightLabel = new Label("Similar weight:");
-    Spinner<Double> similarWeightSpinner = new Spinner<>(0.0, 2.0, similarWeight, 0.1);
+    Spinner<Double> similarWeightSpinner = new Spinner<>(0.0, 2.0, settings.similarWeight(), 0.1);
     similarWeightSpinner.setEditable(true);
 
     Label originalWeightLabel = new Label("Original weight:");
-    Spinner<Double> originalWeightSpinner = new Spinner<>(0.0, 2.0, originalWeight, 0.1);
+    Spinner<Double> originalWeightSpinner = new Spinner<>(0.0, 2.0, settings.originalWeight(), 0.1);
     originalWeightSpinner.setEditable(true);
 
+    Label backendLabel = new Label("Backend:");
+    ComboBox<SuggestionBackend> backendComboBox =
+        new ComboBox<>(FXCollections.observableArrayList(SuggestionBackend.values()));
+    backendComboBox.setValue(settings.backend());
+
+    Label metricLabel = new Label("Typo distance:");
+    ComboBox<DistanceMetric> metricComboBox =
+        new ComboBox<>(FXCollections.observableArrayList(DistanceMetric.values()));
+    metricComboBox.setValue(settings.metric());
+
+    Label latencyBudgetLabel = new Label("Fuzzy search latency budget (ms, 0 = unlimited):");
+    Spinner<Integer> latencyBudgetSpinner = new Spinner<>(0, 10_000, (int) latencyBudgetMillis);
+    latencyBudgetSpinner.setEditable(true);
+    LatencyBudget.Stats latency = latencyStats();
+    Label latencyUsageLabel = new Label(String.format(
+        "Degraded: %d of %d fuzzy lookups (%d over budget); effort level %d",
+        latency.degraded(), latency.queries(), latency.deadlineMisses(), latency.level()));
+
+    Label shardsLabel = new Label("Index shards (parallel fuzzy search):");
+    Spinner<Integer> shardsSpinner = new Spinner<>(1, 256, dictionaryStore.shardCount());
+    shardsSpinner.setEditable(true);
+
+    WordLearner.Stats learning = wordLearner.stats();
+    CheckBox learningCheckBox =
+        new CheckBox("Budgeted learning (add new words only once they are frequent)");
+    learningCheckBox.setSelected(budgetedLearning);
+    Label learningBudgetLabel = new Label("Learning memory budget (KB):");
+    Spinner<Integer> learningBudgetSpinner =
+        new Spinner<>(0, 1 << 20, (int) (learning.budgetBytes() / 1024), 64);
+    learningBudgetSpinner.setEditable(true);
+    Label promotionThresholdLabel = new Label("Promotion threshold (occurrences):");
+    Spinner<Integer> promotionThresholdSpinner =
+        new Spinner<>(1, 1000, learning.promotionThreshold());
+    promotionThresholdSpinner.setEditable(true);
+    Label learningUsageLabel = new Label(String.format(
+        "Candidates: %d words, %.1f of %.1f KB used; promoted %d, evicted %d",
+        learning.candidates(), learning.usedBytes() / 1024.0, learning.budgetBytes() / 1024.0,
+        learning.promoted(), learning.evicted()));
+
+    CheckBox nextWordCheckBox = new CheckBox("Predict the next word after a space");
+    nextWordCheckBox.setSelected(nextWordPrediction);
+    Label nextWordBudgetLabel = new Label("Next-word memory budget (KB):");
+    Spinner<Integer> nextWordBudgetSpinner =
+        new Spinner<>(0, 1 << 20, (int) (nextWordBudgetBytes / 1024), 256);
+    nextWordBudgetSpinner.setEditable(true);
+    Label nextWordUsageLabel = new Label(String.format("Word pairs: %d predicted, %.1f KB",
+        dictionaryStore.current().nextWords().size(),
+        dictionaryStore.current().nextWords().estimatedBytes() / 1024.0));
+
     HBox buttons = new HBox(10);
     Button applyButton = new Button("Apply");
     Button cancelButton = new Button("Cancel");
     buttons.getChildren().addAll(applyButton, cancelButton);
 
     applyButton.setOnAction(e -> {
-      maxSuggestions = maxSuggestionsSpinner.getValue();
-      toleranceThreshold = toleranceThresholdSpinner.getValue();
-      tolerance = toleranceSpinner.getValue();
-      similarWeight = similarWeightSpinner.getValue();
-      originalWeight = originalWeightSpinner.getValue();
-
-      BiFunction<String, String, Integer> distanceFunction =
-          (s1, s2) -> io.github.autocomplete.distance.Levenshtein.distance(s1, s2);
-      autocompleteConfig = new AutocompleteConfig(distanceFunction, toleranceThreshold, tolerance,
-          similarWeight, originalWeight);
-      autocompleteProvider.setConfig(autocompleteConfig);
+      settings = new AutocompleteSettings(maxSuggestionsSpinner.getValue(),
+          toleranceThresholdSpinner.getValue(), toleranceSpinner.getValue(),
+          similarWeightSpinner.getValue(), originalWeightSpinner.getValue(),
+          backendComboBox.getValue(), metricComboBox.getValue());
+
+      autocompleteConfig = settings.toConfig();
+      dictionaryStore.setLibraryConfig(autocompleteConfig);
+      if (latencyBudgetSpinner.getValue() != latencyBudgetMillis) {
+        latencyBudgetMillis = latencyBudgetSpinner.getValue();
+        LatencyBudget budget =
+            latencyBudgetMillis > 0 ? LatencyBudget.ofMillis(latencyBudgetMillis) : null;
+        indexedSource.setLatencyBudget(budget);
+        librarySource.setLatencyBudget(budget);
+      }
+      selectBackend();
+      suggestionCache.setConfig(autocompleteConfig, settings);
+      budgetedLearning = learningCheckBox.isSelected();
+      wordLearner.configure(learningBudgetSpinner.getValue() * 1024L,
+          promotionThresholdSpinner.getValue());
+      nextWordPrediction = nextWordCheckBox.isSelected();
+      if (nextWordBudgetSpinner.getValue() * 1024L != nextWordBudgetBytes) {
+        nextWordBudgetBytes = nextWordBudgetSpinner.getValue() * 1024L;
+        publishDictionary(dictionaryStore.setBigramBudget(nextWordBudgetBytes),
+            "Next-word memory budget updated", "Error updating next-word budget");
+      }
+      if (shardsSpinner.getValue() != dictionaryStore.shardCount()) {
+        publishDictionary(dictionaryStore.setShardCount(shardsSpinner.getValue()),
+            "Dictionary split into " + shardsSpinner.getValue() + " shard(s)",
+            "Error splitting dictionary");
+      }
 
       settingsStage.close();
       statusBar.setText("Autocomplete settings updated");
@@ -682,13 +1447,109 @@ public class App extends Application {
     settingsPane.getChildren().addAll(maxSuggestionsLabel, maxSuggestionsSpinner,
         toleranceThresholdLabel, toleranceThresholdSpinner, toleranceLabel, toleranceSpinner,
         similarWeightLabel, similarWeightSpinner, originalWeightLabel, originalWeightSpinner,
-        buttons);
+        backendLabel, backendComboBox, metricLabel, metricComboBox, latencyBudgetLabel,
+        latencyBudgetSpinner, latencyUsageLabel, shardsLabel, shardsSpinner, new Separator(),
+        learningCheckBox, learningBudgetLabel, learningBudgetSpinner, promotionThresholdLabel,
+        promotionThresholdSpinner, learningUsageLabel, new Separator(), nextWordCheckBox,
+        nextWordBudgetLabel, nextWordBudgetSpinner, nextWordUsageLabel, buttons);
 
     Scene settingsScene = new Scene(settingsPane);
     settingsStage.setScene(settingsScene);
     settingsStage.showAndWait();
   }
 
+  private void setMetricsOverlayVisible(boolean visible) {
+    metricsOverlay.setVisible(visible);
+    metricsOverlay.setManaged(visible);
+    if (metricsRefresh == null) {
+      metricsRefresh =
+          new Timeline(new KeyFrame(Duration.millis(500), e -> refreshMetricsOverlay()));
+      metricsRefresh.setCycleCount(Animation.INDEFINITE);
+    }
+    if (visible) {
+      refreshMetricsOverlay();
+      metricsRefresh.play();
+    } else {
+      metricsRefresh.stop();
+    }
+  }
+
+  private void refreshMetricsOverlay() {
+    MetricsSnapshot snapshot = metrics.snapshot();
+    StringBuilder text = new StringBuilder();
+    snapshot.latencies().forEach((name, summary) -> text.append(String.format(
+        "%-18s n=%-7d p50 %8.1f us  p95 %8.1f us  p99 %8.1f us  max %8.1f us%n", name,
+        summary.count(), summary.p50() / 1e3, summary.p95() / 1e3, summary.p99() / 1e3,
+        summary.max() / 1e3)));
+    StringBuilder gauges = new StringBuilder();
+    snapshot.gauges().forEach((name, value) -> {
+      if (!gauges.isEmpty()) {
+        gauges.append("  ");
+      }
+      if (name.equals("cache.hitRate")) {
+        gauges.append(String.format("%s %.1f%%", name, value * 100));
+      } else if (name.endsWith("Bytes")) {
+        gauges.append(String.format("%s %.1f MB", name, value / 1048576.0));
+      } else {
+        gauges.append(String.format("%s %.0f", name, value));
+      }
+    });
+    metricsOverlay.setText(text.append(gauges).toString());
+  }
+
+  private void startFlightRecording() {
+    try {
+      flightRecording = FlightRecording.start();
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Cannot start flight recording: " + e.getMessage());
+    }
+    if (flightRecordingItem != null) {
+      flightRecordingItem.setSelected(flightRecording != null);
+      dumpFlightRecording.setDisable(flightRecording == null);
+      statusBar.setText(flightRecording != null ? "Flight recording started"
+          : "Flight recording is not available");
+    }
+  }
+
+  private void stopFlightRecording() {
+    if (flightRecording != null) {
+      flightRecording.close();
+      flightRecording = null;
+    }
+    flightRecordingFile = null;
+    dumpFlightRecording.setDisable(true);
+    statusBar.setText("Flight recording stopped");
+  }
+
+  private void dumpFlightRecording() {
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Dump Flight Recording");
+    fileChooser.getExtensionFilters().addAll(
+        new FileChooser.ExtensionFilter("Flight Recordings", "*.jfr"),
+        new FileChooser.ExtensionFilter("All Files", "*.*"));
+
+    File file = fileChooser.showSaveDialog(textArea.getScene().getWindow());
+    if (file != null) {
+      try {
+        flightRecording.dump(file.toPath());
+        statusBar.setText("Flight recording written to: " + file.getName());
+      } catch (IOException e) {
+        showError("Error writing flight recording", e.getMessage());
+      }
+    }
+  }
+
+  private void showCacheStatistics() {
+    SuggestionCache.Stats stats = suggestionCache.stats();
+    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+    alert.setTitle("Cache Statistics");
+    alert.setHeaderText("Suggestion cache");
+    alert.setContentText(String.format(
+        "Hits: %d%nRefined from shorter prefix: %d%nMisses: %d%nHit rate: %.1f%%%nEntries: %d",
+        stats.hits(), stats.refinements(), stats.misses(), stats.hitRate() * 100, stats.size()));
+    alert.showAndWait();
+  }
+
   private void showAbout() {
     Alert alert = new Alert(Alert.AlertType.INFORMATION);
     alert.setTitle("About");
@@ -734,7 +1595,17 @@ public class App extends Application {
     alert.showAndWait();
   }
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws Exception {
+    if (Arrays.asList(args).contains("--server")) {
+      // Без JavaFX: тот же словарь и индекс обслуживают других клиентов через сокет
+      ServerMain.run(args);
+      return;
+    }
+    if (Arrays.asList(args).contains("--build-dictionary")) {
+      // Построение словаря из корпуса больше памяти, тоже без окна
+      DictionaryBuilderMain.run(args);
+      return;
+    }
     launch(args);
   }
 }
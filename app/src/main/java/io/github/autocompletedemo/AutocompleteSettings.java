@@ -0,0 +1,68 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocompletedemo.distance.DistanceMetric;
+import io.github.autocompletedemo.jfr.LevenshteinEvent;
+
+/**
+ * Настройки автодополнения из диалога "Autocomplete Settings".
+ *
+ * @param maxSuggestions максимальное число подсказок
+ * @param toleranceThreshold длина префикса, начиная с которой допускаются опечатки
+ * @param tolerance максимальное расстояние Левенштейна для похожих слов
+ * @param similarWeight вес похожих (найденных с опечаткой) слов
+ * @param originalWeight вес слов, точно совпавших по префиксу
+ * @param backend реализация, которая ищет подсказки
+ * @param metric расстояние между словами для поиска с опечатками
+ */
+public record AutocompleteSettings(int maxSuggestions, int toleranceThreshold, int tolerance,
+    double similarWeight, double originalWeight, SuggestionBackend backend,
+    DistanceMetric metric) {
+
+  /**
+   * По умолчанию - индекс приложения: он обновляется по изменённым словам, а библиотечный
+   * анализатор загружается заново для каждой изменённой версии словаря.
+   */
+  public static final AutocompleteSettings DEFAULT =
+      new AutocompleteSettings(10, 0, 0, 0.5, 1.0, SuggestionBackend.RADIX_TRIE);
+
+  /**
+   * Настройки с библиотечным расстоянием Левенштейна.
+   */
+  public AutocompleteSettings(int maxSuggestions, int toleranceThreshold, int tolerance,
+      double similarWeight, double originalWeight, SuggestionBackend backend) {
+    this(maxSuggestions, toleranceThreshold, tolerance, similarWeight, originalWeight, backend,
+        DistanceMetric.LIBRARY);
+  }
+
+  public AutocompleteConfig toConfig() {
+    return new AutocompleteConfig((s1, s2) -> distance(s1, s2), toleranceThreshold, tolerance,
+        similarWeight, originalWeight);
+  }
+
+  /**
+   * Расстояние выбранной метрики с событием JFR на вызов. Библиотеке важно только, не больше ли
+   * оно {@code tolerance}, поэтому счёт останавливается на {@code tolerance + 1}.
+   */
+  private int distance(String s1, String s2) {
+    LevenshteinEvent event = new LevenshteinEvent();
+    event.begin();
+    int distance = metric.distance(s1, s2, tolerance);
+    event.end();
+    if (event.shouldCommit()) {
+      event.metric = metric.name();
+      event.firstLength = s1.length();
+      event.secondLength = s2.length();
+      event.distance = distance;
+      event.commit();
+    }
+    return distance;
+  }
+
+  /**
+   * Ищутся ли для префикса такой длины слова с опечатками.
+   */
+  public boolean isFuzzy(int prefixLength) {
+    return tolerance > 0 && prefixLength >= toleranceThreshold;
+  }
+}
@@ -0,0 +1,94 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.TextAnalyzer;
+import io.github.autocomplete.tokenizer.SimpleTokenizer;
+import io.github.autocompletedemo.dictionary.TrieFileFormat;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Сравнение памяти, которую занимает один и тот же словарь в {@code TextAnalyzer} и в
+ * {@link RadixTrieIndex}.
+ *
+ * <p>
+ * Размер библиотечной структуры снаружи не посчитать, поэтому оба варианта измеряются одинаково:
+ * разницей занятой кучи после сборки мусора до и после загрузки словаря. Результат приблизительный
+ * и имеет смысл на больших словарях.
+ *
+ * <p>
+ * Тем же способом сравниваются частоты слов в виде {@code Map<String, Integer>} (так их держал
+ * {@link Vocabulary} раньше) и в нынешнем {@link Vocabulary}, у которого слова лежат вне кучи.
+ * Индекс своих строк не держит, а читает слова из того же буфера; для сравнения отдельно измеряется
+ * {@code String[]} тех же слов - столько индекс занимал сверх словаря, пока хранил строки.
+ */
+public final class BackendMemoryReport {
+
+  /**
+   * @param mapBytes куча под {@code HashMap<String, Integer>} с теми же частотами
+   * @param vocabularyBytes куча под {@link Vocabulary}
+   * @param vocabularyOffHeapBytes буфер {@link Vocabulary} вне кучи
+   * @param trieEstimatedBytes оценка по размерам массивов индекса, без учёта сборщика мусора
+   * @param wordStringsBytes куча под {@code String[]} слов словаря
+   */
+  public record Result(int words, long mapBytes, long vocabularyBytes,
+      long vocabularyOffHeapBytes, long libraryBytes, long trieBytes, long trieEstimatedBytes,
+      long wordStringsBytes) {
+  }
+
+  private BackendMemoryReport() {
+  }
+
+  public static Result measure(File dictionary) throws IOException {
+    long before = usedHeap();
+    Map<String, Integer> map = new HashMap<>();
+    TrieFileFormat.read(dictionary, map::put);
+    long mapBytes = usedHeap() - before;
+    Reference.reachabilityFence(map);
+    map = null;
+
+    before = usedHeap();
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.loadFromFile(dictionary);
+    long vocabularyBytes = usedHeap() - before;
+    long vocabularyOffHeapBytes = vocabulary.offHeapBytes();
+
+    before = usedHeap();
+    TextAnalyzer analyzer = new TextAnalyzer(new SimpleTokenizer());
+    analyzer.loadFromFile(dictionary);
+    long libraryBytes = usedHeap() - before;
+    Reference.reachabilityFence(analyzer);
+    analyzer = null;
+
+    // Индекс строится из уже загруженного словаря, поэтому в его замер словарь не входит
+    before = usedHeap();
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+    long trieBytes = usedHeap() - before;
+
+    before = usedHeap();
+    String[] strings = new String[index.size()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = index.word(i);
+    }
+    long wordStringsBytes = usedHeap() - before;
+    Reference.reachabilityFence(strings);
+    Reference.reachabilityFence(index);
+    Reference.reachabilityFence(vocabulary);
+
+    return new Result(index.size(), mapBytes, vocabularyBytes, vocabularyOffHeapBytes,
+        libraryBytes, trieBytes, index.estimatedBytes(), wordStringsBytes);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,144 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.model.Candidate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Подсказки сразу для многих префиксов: проверка словаря, "дополнить всё" по документу, офлайн
+ * оценка качества.
+ *
+ * <p>
+ * Префиксы сортируются, повторы считаются один раз. Отсортированный список рекурсивно делится
+ * пополам в {@link ForkJoinPool}, причём точка деления сдвигается туда, где у соседей самая
+ * короткая общая основа: префиксы с общей основой остаются в одной задаче и идут подряд по одной
+ * ветке индекса, а свободные потоки забирают чужие половины. Результаты возвращаются в порядке
+ * входа.
+ */
+public class BatchCompleter {
+
+  // Меньше этого задача не делится: накладные расходы fork дороже самих поисков
+  private static final int MIN_LEAF_SIZE = 16;
+
+  private final ForkJoinPool pool;
+
+  public BatchCompleter() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public BatchCompleter(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @param source потокобезопасный источник; для согласованного результата - закреплённый на
+   *        одной версии словаря, см. {@link IndexedSuggestionSource#pinned()}
+   * @return списки подсказок в порядке {@code prefixes}; одинаковые префиксы получают один и тот
+   *         же неизменяемый список
+   */
+  public List<List<Candidate>> complete(SuggestionSource source, Collection<String> prefixes,
+      int maxSuggestions) {
+    String[] input = prefixes.toArray(new String[0]);
+    Integer[] order = new Integer[input.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.parallelSort(order, (a, b) -> input[a].compareTo(input[b]));
+
+    // Уникальные префиксы по порядку и номер уникального для каждой позиции входа
+    String[] unique = new String[input.length];
+    int[] uniqueOf = new int[input.length];
+    int uniqueCount = 0;
+    for (int i = 0; i < order.length; i++) {
+      String prefix = input[order[i]];
+      if (uniqueCount == 0 || !unique[uniqueCount - 1].equals(prefix)) {
+        unique[uniqueCount++] = prefix;
+      }
+      uniqueOf[order[i]] = uniqueCount - 1;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    List<Candidate>[] results = new List[uniqueCount];
+    int leafSize = Math.max(MIN_LEAF_SIZE, uniqueCount / (pool.getParallelism() * 8));
+    Task root = new Task(source, maxSuggestions, unique, results, 0, uniqueCount, leafSize);
+    if (uniqueCount <= leafSize) {
+      root.compute();
+    } else {
+      pool.invoke(root);
+    }
+
+    List<List<Candidate>> ordered = new ArrayList<>(input.length);
+    for (int i = 0; i < input.length; i++) {
+      ordered.add(results[uniqueOf[i]]);
+    }
+    return ordered;
+  }
+
+  private static final class Task extends RecursiveAction {
+    private final SuggestionSource source;
+    private final int maxSuggestions;
+    private final String[] prefixes;
+    private final List<Candidate>[] results;
+    private final int lo;
+    private final int hi;
+    private final int leafSize;
+
+    Task(SuggestionSource source, int maxSuggestions, String[] prefixes,
+        List<Candidate>[] results, int lo, int hi, int leafSize) {
+      this.source = source;
+      this.maxSuggestions = maxSuggestions;
+      this.prefixes = prefixes;
+      this.results = results;
+      this.lo = lo;
+      this.hi = hi;
+      this.leafSize = leafSize;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo <= leafSize) {
+        for (int i = lo; i < hi; i++) {
+          results[i] = List.copyOf(source.getAutocomplete(prefixes[i], maxSuggestions));
+        }
+        return;
+      }
+      int mid = split(prefixes, lo, hi);
+      invokeAll(new Task(source, maxSuggestions, prefixes, results, lo, mid, leafSize),
+          new Task(source, maxSuggestions, prefixes, results, mid, hi, leafSize));
+    }
+  }
+
+  /**
+   * Точка деления в средней половине диапазона, где соседние префиксы расходятся раньше всего.
+   * Так группа с общей основой делится, только если она больше половины диапазона.
+   */
+  static int split(String[] sorted, int lo, int hi) {
+    int quarter = (hi - lo) / 4;
+    int best = (lo + hi) >>> 1;
+    int bestCommon = Integer.MAX_VALUE;
+    for (int i = lo + quarter; i <= hi - quarter; i++) {
+      int common = commonPrefix(sorted[i - 1], sorted[i]);
+      // При равенстве берём точку ближе к середине
+      if (common < bestCommon || common == bestCommon
+          && Math.abs(i - ((lo + hi) >>> 1)) < Math.abs(best - ((lo + hi) >>> 1))) {
+        best = i;
+        bestCommon = common;
+      }
+    }
+    return best;
+  }
+
+  private static int commonPrefix(String a, String b) {
+    int n = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < n && a.charAt(i) == b.charAt(i)) {
+      i++;
+    }
+    return i;
+  }
+}
@@ -0,0 +1,152 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.BundledDictionary;
+import io.github.autocompletedemo.dictionary.DictionarySnapshot;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Замер холодного старта до первой подсказки. Задача {@code measureColdStart} берёт медиану пяти
+ * запусков на каждый вариант, {@code check} - один запуск, чтобы сборка показывала порядок
+ * величин и падала, если старт сломан.
+ *
+ * <p>
+ * Каждый замер - отдельная JVM, которая делает то же, что редактор после показа окна, только без
+ * JavaFX: загружает встроенный словарь в {@link DictionaryStore} и запрашивает первую подсказку.
+ * Время считается от запуска JVM. Сравниваются готовый индекс из ресурсов
+ * ({@link BundledDictionary#INDEX_RESOURCE}) с backend по умолчанию, тот же индекс с библиотечным
+ * backend (при публикации словаря загружается ещё и {@code TextAnalyzer}) и индексирование
+ * исходного словаря при запуске.
+ *
+ * <pre>
+ * ColdStartProbe [--runs N] [--output FILE]
+ * </pre>
+ */
+public final class ColdStartProbe {
+
+  private static final String INDEX = "index";
+  private static final String LIBRARY = "library";
+  private static final String TEXT = "text";
+
+  private ColdStartProbe() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 2 && args[0].equals("--child")) {
+      child(args[1]);
+      return;
+    }
+    int runs = 5;
+    Path output = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--runs" -> runs = Integer.parseInt(args[i + 1]);
+        case "--output" -> output = Path.of(args[i + 1]);
+        default -> {
+          System.err.println("Usage: ColdStartProbe [--runs N] [--output FILE]");
+          System.exit(2);
+        }
+      }
+    }
+
+    StringBuilder report = new StringBuilder();
+    report.append(String.format(Locale.ROOT,
+        "Cold start to first suggestion, median of %d JVM launches:%n", runs));
+    for (String mode : List.of(INDEX, LIBRARY, TEXT)) {
+      long[] ready = new long[runs];
+      long[] first = new long[runs];
+      String words = "";
+      for (int run = 0; run < runs; run++) {
+        String[] result = launch(mode).split(" ");
+        ready[run] = Long.parseLong(result[0]);
+        first[run] = Long.parseLong(result[1]);
+        words = result[2];
+      }
+      report.append(String.format(Locale.ROOT,
+          "  %-28s dictionary ready %4d ms, first suggestion %4d ms (%s words)%n",
+          label(mode), median(ready), median(first), words));
+    }
+    System.out.print(report);
+    if (output != null) {
+      Files.createDirectories(output.toAbsolutePath().getParent());
+      Files.writeString(output, report, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static String label(String mode) {
+    return switch (mode) {
+      case INDEX -> "precompiled index:";
+      case LIBRARY -> "precompiled index, library:";
+      default -> "indexing at start:";
+    };
+  }
+
+  /**
+   * Запускает замер в новой JVM с тем же classpath и возвращает его строку результата.
+   */
+  private static String launch(String mode) throws IOException, InterruptedException {
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+        ColdStartProbe.class.getName(), "--child", mode)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+    String line;
+    try (BufferedReader out = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      line = out.readLine();
+    }
+    int exit = process.waitFor();
+    if (exit != 0 || line == null) {
+      throw new IOException("Cold start probe (" + mode + ") failed with exit code " + exit);
+    }
+    return line;
+  }
+
+  private static void child(String mode) throws IOException {
+    AutocompleteSettings settings = AutocompleteSettings.DEFAULT;
+    boolean library = mode.equals(LIBRARY);
+    try (DictionaryStore store = new DictionaryStore(settings.toConfig(), library)) {
+      CompletableFuture<DictionarySnapshot> published = mode.equals(TEXT)
+          ? BundledDictionary.loadText(store) : BundledDictionary.loadIndex(store);
+      if (published == null) {
+        System.err.println("Dictionary resource not found for mode " + mode
+            + "; run the compileDictionaryIndex task first");
+        System.exit(1);
+      }
+      DictionarySnapshot snapshot = published.join();
+      long ready = uptime();
+      String prefix = snapshot.index().word(0).substring(0, 1);
+      List<Candidate> first = library
+          ? snapshot.library().getAutocomplete(prefix, settings.maxSuggestions())
+          : new IndexedSuggestionSource(store, settings)
+              .getAutocomplete(prefix, settings.maxSuggestions());
+      long firstSuggestion = uptime();
+      if (first.isEmpty()) {
+        System.exit(1);
+      }
+      System.out.println(ready + " " + firstSuggestion + " " + snapshot.size());
+    }
+  }
+
+  private static long uptime() {
+    return ManagementFactory.getRuntimeMXBean().getUptime();
+  }
+
+  private static long median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
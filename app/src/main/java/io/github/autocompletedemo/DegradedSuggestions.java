@@ -0,0 +1,54 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.model.Candidate;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Подсказки, найденные с пониженным усилием: поиск с опечатками остановлен бюджетом задержки или
+ * шёл с меньшим {@code tolerance}, чем в настройках (см. {@link LatencyBudget}).
+ *
+ * <p>
+ * Для вызывающего кода это обычный неизменяемый список, поэтому {@link SuggestionSource} не
+ * меняется; кто хочет отличить неполный ответ (кэш, окно), проверяет {@link #isDegraded}.
+ */
+public final class DegradedSuggestions extends AbstractList<Candidate> implements RandomAccess {
+
+  private final List<Candidate> candidates;
+  private final boolean deadlineMissed;
+  private final int tolerance;
+
+  /**
+   * @param deadlineMissed поиск остановлен сроком
+   * @param tolerance допуск, с которым шёл поиск
+   */
+  public DegradedSuggestions(List<Candidate> candidates, boolean deadlineMissed, int tolerance) {
+    this.candidates = List.copyOf(candidates);
+    this.deadlineMissed = deadlineMissed;
+    this.tolerance = tolerance;
+  }
+
+  public static boolean isDegraded(List<Candidate> candidates) {
+    return candidates instanceof DegradedSuggestions;
+  }
+
+  public boolean deadlineMissed() {
+    return deadlineMissed;
+  }
+
+  public int tolerance() {
+    return tolerance;
+  }
+
+  @Override
+  public Candidate get(int index) {
+    return candidates.get(index);
+  }
+
+  @Override
+  public int size() {
+    return candidates.size();
+  }
+}
@@ -0,0 +1,120 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.DictionarySnapshot;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+import io.github.autocompletedemo.index.Deadline;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import io.github.autocompletedemo.jfr.DictionaryLookupEvent;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Подсказки из собственного индекса приложения ({@link RadixTrieIndex}).
+ *
+ * <p>
+ * Если настройки разрешают опечатки для префикса такой длины, используется обход индекса
+ * автоматом Левенштейна (параллельно по частям, если словарь разбит), иначе - точный поиск по
+ * префиксу.
+ *
+ * <p>
+ * С {@link LatencyBudget} поиск с опечатками ограничен сроком: точные совпадения находятся всегда,
+ * похожие слова - сколько успеется, а при частых срывах срока допуск снижается. Такие ответы
+ * возвращаются как {@link DegradedSuggestions}.
+ */
+public class IndexedSuggestionSource implements SuggestionSource {
+
+  private final DictionaryStore store;
+  private volatile AutocompleteSettings settings;
+  private volatile LatencyBudget budget;
+
+  public IndexedSuggestionSource(DictionaryStore store, AutocompleteSettings settings) {
+    this.store = store;
+    this.settings = settings;
+  }
+
+  public void setSettings(AutocompleteSettings settings) {
+    this.settings = settings;
+  }
+
+  /**
+   * @param budget бюджет задержки или {@code null}, чтобы искать без срока
+   */
+  public void setLatencyBudget(LatencyBudget budget) {
+    this.budget = budget;
+  }
+
+  public LatencyBudget latencyBudget() {
+    return budget;
+  }
+
+  @Override
+  public List<Candidate> getAutocomplete(String prefix, int maxSuggestions) {
+    // Один снимок на весь запрос: фоновая запись не меняет его под ногами
+    return lookup(store.current(), settings, budget, prefix, maxSuggestions);
+  }
+
+  /**
+   * Источник, закреплённый на текущей версии словаря и текущих настройках: все ответы пакетного
+   * поиска получаются по одним и тем же данным, даже если словарь тем временем обновился.
+   */
+  public SuggestionSource pinned() {
+    DictionarySnapshot snapshot = store.current();
+    AutocompleteSettings current = settings;
+    LatencyBudget currentBudget = budget;
+    return (prefix, maxSuggestions) ->
+        lookup(snapshot, current, currentBudget, prefix, maxSuggestions);
+  }
+
+  private static List<Candidate> lookup(DictionarySnapshot snapshot, AutocompleteSettings current,
+      LatencyBudget budget, String prefix, int maxSuggestions) {
+    long start = System.nanoTime();
+    RadixTrieIndex currentIndex = snapshot.index();
+    String normalized = prefix.toLowerCase(Locale.ROOT);
+    int requested = current.isFuzzy(prefix.length()) ? current.tolerance() : 0;
+    int tolerance = requested;
+    // Срок и снижение допуска - только для поиска с опечатками, точный поиск и так быстрый
+    boolean budgeted = budget != null && requested > 0;
+    Deadline deadline = Deadline.NONE;
+    if (budgeted) {
+      deadline = budget.start();
+      tolerance = budget.tolerance(tolerance, prefix.length());
+    }
+    boolean fuzzy = tolerance > 0;
+
+    DictionaryLookupEvent event = new DictionaryLookupEvent();
+    event.begin();
+    List<Candidate> result;
+    if (!fuzzy) {
+      // Точный поиск - копирование top-k списка узла, делить его по частям незачем
+      result = currentIndex.complete(normalized, maxSuggestions, current.originalWeight());
+    } else if (snapshot.shards() != null) {
+      result = snapshot.shards().completeFuzzy(normalized, maxSuggestions, tolerance,
+          current.originalWeight(), current.similarWeight(), current.metric(), deadline);
+    } else {
+      result = currentIndex.completeFuzzy(normalized, maxSuggestions, tolerance,
+          current.originalWeight(), current.similarWeight(), current.metric(), deadline);
+    }
+    boolean reduced = tolerance < requested;
+    boolean degraded = reduced || deadline.missed();
+    if (budgeted) {
+      budget.record(deadline.missed(), reduced, System.nanoTime() - start);
+    }
+    if (degraded) {
+      result = new DegradedSuggestions(result, deadline.missed(), tolerance);
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.backend = SuggestionBackend.RADIX_TRIE.name();
+      event.prefixLength = prefix.length();
+      event.candidateCount = result.size();
+      event.tolerance = tolerance;
+      event.dictionaryVersion = snapshot.version();
+      event.shards = fuzzy && snapshot.shards() != null ? snapshot.shards().shardCount() : 1;
+      event.degraded = degraded;
+      event.commit();
+    }
+    return result;
+  }
+}
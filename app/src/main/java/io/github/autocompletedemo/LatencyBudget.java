@@ -0,0 +1,115 @@
+package io.github.autocompletedemo;
+
+import io.github.autocompletedemo.index.Deadline;
+
+import java.time.Duration;
+
+/**
+ * Бюджет задержки на один запрос подсказок с адаптивным снижением усилия.
+ *
+ * <p>
+ * Каждый запрос получает срок ({@link #start}). Если срок срывается {@value #MISSES_TO_DEGRADE}
+ * раза подряд, уровень усилия понижается на один: 1 - не больше одной опечатки для префиксов
+ * короче {@value #SHORT_PREFIX} символов, 2 - не больше одной опечатки для всех, 3 - короткие
+ * префиксы без опечаток. После {@value #FAST_TO_RECOVER} запросов подряд, уложившихся в половину
+ * бюджета, уровень повышается обратно на один.
+ *
+ * <p>
+ * Методы потокобезопасны: бюджет может быть общим для соединений сервера.
+ */
+public final class LatencyBudget {
+
+  public static final Duration DEFAULT_BUDGET = Duration.ofMillis(16);
+  static final int SHORT_PREFIX = 5;
+  static final int MAX_LEVEL = 3;
+  static final int MISSES_TO_DEGRADE = 3;
+  static final int FAST_TO_RECOVER = 50;
+
+  /**
+   * Счётчики с создания бюджета.
+   *
+   * @param queries запросов
+   * @param degraded ответов с пониженным усилием (срок или уменьшенный допуск)
+   * @param deadlineMisses запросов, остановленных сроком
+   * @param level текущий уровень усилия, 0 - полный
+   */
+  public record Stats(long queries, long degraded, long deadlineMisses, int level) {
+  }
+
+  private final long budgetNanos;
+  private volatile int level;
+  private int consecutiveMisses;
+  private int consecutiveFast;
+  private long queries;
+  private long degraded;
+  private long deadlineMisses;
+
+  public LatencyBudget(Duration budget) {
+    if (budget.isNegative() || budget.isZero()) {
+      throw new IllegalArgumentException("Invalid latency budget: " + budget);
+    }
+    this.budgetNanos = budget.toNanos();
+  }
+
+  public static LatencyBudget ofMillis(long millis) {
+    return new LatencyBudget(Duration.ofMillis(millis));
+  }
+
+  public Duration budget() {
+    return Duration.ofNanos(budgetNanos);
+  }
+
+  public Deadline start() {
+    return Deadline.after(budgetNanos);
+  }
+
+  /**
+   * Допуск для префикса длины {@code prefixLength} на текущем уровне усилия.
+   */
+  public int tolerance(int requested, int prefixLength) {
+    boolean shortPrefix = prefixLength < SHORT_PREFIX;
+    return switch (level) {
+      case 0 -> requested;
+      case 1 -> shortPrefix ? Math.min(requested, 1) : requested;
+      case 2 -> Math.min(requested, 1);
+      default -> shortPrefix ? 0 : Math.min(requested, 1);
+    };
+  }
+
+  /**
+   * Учитывает завершённый запрос и при необходимости меняет уровень усилия.
+   *
+   * @param missed поиск остановлен сроком
+   * @param reduced допуск был меньше запрошенного
+   */
+  public synchronized void record(boolean missed, boolean reduced, long elapsedNanos) {
+    queries++;
+    if (missed || reduced) {
+      degraded++;
+    }
+    if (missed) {
+      deadlineMisses++;
+      consecutiveFast = 0;
+      if (++consecutiveMisses >= MISSES_TO_DEGRADE && level < MAX_LEVEL) {
+        level++;
+        consecutiveMisses = 0;
+      }
+      return;
+    }
+    consecutiveMisses = 0;
+    if (elapsedNanos > budgetNanos / 2) {
+      consecutiveFast = 0;
+    } else if (++consecutiveFast >= FAST_TO_RECOVER && level > 0) {
+      level--;
+      consecutiveFast = 0;
+    }
+  }
+
+  public int level() {
+    return level;
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(queries, degraded, deadlineMisses, level);
+  }
+}
@@ -0,0 +1,20 @@
+package io.github.autocompletedemo;
+
+/**
+ * Точка входа приложения.
+ *
+ * <p>
+ * Если главный класс наследует {@code Application}, java-лаунчер запускает JavaFX ещё до
+ * {@code main}, и режимы {@code --server} и {@code --build-dictionary} не смогли бы работать без
+ * дисплея. Этот класс не наследует {@code Application}, поэтому JavaFX поднимается только в
+ * {@link App#main}, когда нужен редактор.
+ */
+public final class Launcher {
+
+  private Launcher() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    App.main(args);
+  }
+}
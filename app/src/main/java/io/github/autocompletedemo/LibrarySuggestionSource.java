@@ -0,0 +1,125 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.DictionarySnapshot;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+import io.github.autocompletedemo.dictionary.LibraryBackend;
+import io.github.autocompletedemo.jfr.DictionaryLookupEvent;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Подсказки библиотечного {@code AutocompleteProvider} текущей версии словаря.
+ *
+ * <p>
+ * С {@link LatencyBudget} поиск с опечатками ограничен сроком, как в
+ * {@link IndexedSuggestionSource}. Библиотеку нельзя остановить на полпути, а допуск задан её
+ * конфигурацией, поэтому уровни усилия бюджета к ней не применяются: запрос ждёт библиотеку до
+ * срока, а не дождавшись, отвечает точными совпадениями префикса из индекса той же версии как
+ * {@link DegradedSuggestions}. Пока не закончился запрос, сорвавший срок, следующие сразу
+ * отвечают точными совпадениями, чтобы брошенные поиски не копились.
+ */
+public class LibrarySuggestionSource implements SuggestionSource {
+
+  private final DictionaryStore store;
+  private final Executor lookups =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("library-lookup-", 0).factory());
+  // Поиск, сорвавший срок и ещё не закончившийся
+  private final AtomicReference<CompletableFuture<?>> overdue = new AtomicReference<>();
+  private volatile AutocompleteSettings settings;
+  private volatile LatencyBudget budget;
+
+  public LibrarySuggestionSource(DictionaryStore store, AutocompleteSettings settings) {
+    this.store = store;
+    this.settings = settings;
+  }
+
+  public void setSettings(AutocompleteSettings settings) {
+    this.settings = settings;
+  }
+
+  /**
+   * @param budget бюджет задержки или {@code null}, чтобы ждать библиотеку без срока
+   */
+  public void setLatencyBudget(LatencyBudget budget) {
+    this.budget = budget;
+  }
+
+  @Override
+  public List<Candidate> getAutocomplete(String prefix, int maxSuggestions) {
+    long start = System.nanoTime();
+    DictionarySnapshot snapshot = store.current();
+    LibraryBackend library = snapshot.library();
+    if (library == null) {
+      // Провайдер ещё не построен: словарь только что переключён на библиотечный backend
+      return List.of();
+    }
+    AutocompleteSettings current = settings;
+    LatencyBudget currentBudget = budget;
+    int tolerance = current.isFuzzy(prefix.length()) ? current.tolerance() : 0;
+
+    DictionaryLookupEvent event = new DictionaryLookupEvent();
+    event.begin();
+    List<Candidate> result;
+    boolean missed = false;
+    if (currentBudget == null || tolerance == 0) {
+      result = library.getAutocomplete(prefix, maxSuggestions);
+    } else {
+      long timeout = currentBudget.budget().toNanos() - (System.nanoTime() - start);
+      result = lookup(library, prefix, maxSuggestions, timeout);
+      missed = result == null;
+      if (missed) {
+        result = new DegradedSuggestions(snapshot.index().complete(
+            prefix.toLowerCase(Locale.ROOT), maxSuggestions, current.originalWeight()), true, 0);
+      }
+      currentBudget.record(missed, false, System.nanoTime() - start);
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.backend = SuggestionBackend.LIBRARY.name();
+      event.prefixLength = prefix.length();
+      event.candidateCount = result.size();
+      event.tolerance = missed ? 0 : tolerance;
+      event.dictionaryVersion = snapshot.version();
+      event.shards = 1;
+      event.degraded = missed;
+      event.commit();
+    }
+    return result;
+  }
+
+  /**
+   * Ответ библиотеки, если он успел к сроку, иначе {@code null}.
+   */
+  private List<Candidate> lookup(LibraryBackend library, String prefix, int maxSuggestions,
+      long timeoutNanos) {
+    CompletableFuture<?> previous = overdue.get();
+    if (previous != null && !previous.isDone()) {
+      return null;
+    }
+    CompletableFuture<List<Candidate>> lookup = CompletableFuture.supplyAsync(
+        () -> library.getAutocomplete(prefix, maxSuggestions), lookups);
+    try {
+      return lookup.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      overdue.set(lookup);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package io.github.autocompletedemo;
+
+/**
+ * Реализация, которая отвечает на запросы подсказок.
+ */
+public enum SuggestionBackend {
+  LIBRARY("AutocompleteProvider"),
+  RADIX_TRIE("Radix trie index");
+
+  private final String displayName;
+
+  SuggestionBackend(String displayName) {
+    this.displayName = displayName;
+  }
+
+  @Override
+  public String toString() {
+    return displayName;
+  }
+}
@@ -0,0 +1,151 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocomplete.model.Candidate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU-кэш подсказок перед {@link SuggestionSource}.
+ *
+ * <p>
+ * Ключ - (префикс, {@link AutocompleteConfig}, maxSuggestions). Если точного ключа нет, но в кэше
+ * лежит полный список кандидатов для более короткого префикса, ответ получается фильтрацией этого
+ * списка без обращения к источнику. Это корректно только без опечаток: при поиске с опечатками
+ * кандидаты "prog" не обязаны входить в кандидаты "pro".
+ */
+public class SuggestionCache implements SuggestionSource {
+
+  /**
+   * Счётчики кэша. {@code refinements} - попадания, полученные фильтрацией родительского префикса.
+   */
+  public record Stats(long hits, long refinements, long misses, int size) {
+
+    public double hitRate() {
+      long total = hits + refinements + misses;
+      return total == 0 ? 0.0 : (double) (hits + refinements) / total;
+    }
+  }
+
+  private record Key(String prefix, AutocompleteConfig config, int maxSuggestions) {
+  }
+
+  /**
+   * @param complete список содержит все совпадения префикса, а не только первые maxSuggestions
+   */
+  private record Entry(List<Candidate> candidates, boolean complete) {
+  }
+
+  private final SuggestionSource delegate;
+  private final Map<Key, Entry> entries;
+
+  private AutocompleteConfig config;
+  private AutocompleteSettings settings;
+  // Меняется при каждой инвалидации; результат старого поколения в кэш не попадает
+  private long epoch;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder refinements = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public SuggestionCache(SuggestionSource delegate, int capacity, AutocompleteConfig config,
+      AutocompleteSettings settings) {
+    this.delegate = delegate;
+    this.config = config;
+    this.settings = settings;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  @Override
+  public List<Candidate> getAutocomplete(String prefix, int maxSuggestions) {
+    Key key;
+    long currentEpoch;
+    boolean refinable;
+    synchronized (this) {
+      key = new Key(prefix, config, maxSuggestions);
+      currentEpoch = epoch;
+      refinable = !settings.isFuzzy(prefix.length());
+
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        hits.increment();
+        return entry.candidates();
+      }
+      if (refinable) {
+        Entry refined = refine(prefix, maxSuggestions);
+        if (refined != null) {
+          refinements.increment();
+          entries.put(key, refined);
+          return refined.candidates();
+        }
+      }
+    }
+
+    misses.increment();
+    List<Candidate> result = delegate.getAutocomplete(prefix, maxSuggestions);
+    if (DegradedSuggestions.isDegraded(result)) {
+      // Неполный ответ не кэшируется: следующий запрос может успеть больше
+      return result;
+    }
+    List<Candidate> candidates = List.copyOf(result);
+
+    synchronized (this) {
+      if (epoch == currentEpoch) {
+        entries.put(key, new Entry(candidates, refinable && candidates.size() < maxSuggestions));
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Ищет полный список для ближайшего более короткого префикса и фильтрует его.
+   */
+  private Entry refine(String prefix, int maxSuggestions) {
+    for (int length = prefix.length() - 1; length > 0; length--) {
+      Entry parent = entries.get(new Key(prefix.substring(0, length), config, maxSuggestions));
+      if (parent == null || !parent.complete()) {
+        continue;
+      }
+      List<Candidate> filtered = new ArrayList<>();
+      for (Candidate candidate : parent.candidates()) {
+        String word = candidate.word();
+        if (word.regionMatches(true, 0, prefix, 0, prefix.length())) {
+          filtered.add(candidate);
+        }
+      }
+      // Подмножество полного списка тоже полное и уже отсортировано
+      return new Entry(List.copyOf(filtered), true);
+    }
+    return null;
+  }
+
+  /**
+   * Меняет конфигурацию провайдера; записи со старой конфигурацией больше не нужны.
+   */
+  public synchronized void setConfig(AutocompleteConfig config, AutocompleteSettings settings) {
+    this.config = config;
+    this.settings = settings;
+    invalidate();
+  }
+
+  /**
+   * Сбрасывает кэш после изменения словаря.
+   */
+  public synchronized void invalidate() {
+    epoch++;
+    entries.clear();
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(hits.sum(), refinements.sum(), misses.sum(), entries.size());
+  }
+}
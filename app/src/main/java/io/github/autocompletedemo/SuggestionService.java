@@ -0,0 +1,188 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.jfr.SuggestionRequestEvent;
+import javafx.application.Platform;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Асинхронный поиск подсказок вне потока JavaFX.
+ *
+ * <p>
+ * Одновременно выполняется не больше одного поиска. Запросы, пришедшие во время поиска, не
+ * ставятся в очередь: сохраняется только последний. Устаревший поиск прерывается, а его результат
+ * отбрасывается, поэтому в UI попадает только ответ на самый свежий префикс.
+ */
+public class SuggestionService implements AutoCloseable {
+
+  private static final Duration DEFAULT_COALESCE_DELAY = Duration.ofMillis(20);
+
+  private record Request(long generation, SuggestionSource source, String prefix,
+      int maxSuggestions, Consumer<List<Candidate>> onResult) {
+  }
+
+  private final ExecutorService executor;
+  private final Executor resultExecutor;
+  private final long coalesceDelayNanos;
+
+  private volatile SuggestionSource source;
+
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicReference<Request> pending = new AtomicReference<>();
+  private final AtomicBoolean draining = new AtomicBoolean();
+
+  // Поток, выполняющий поиск, и поколение его запроса (под lock)
+  private final Object lock = new Object();
+  private Thread worker;
+  private long runningGeneration;
+
+  public SuggestionService(SuggestionSource source) {
+    this(source, Platform::runLater, DEFAULT_COALESCE_DELAY);
+  }
+
+  /**
+   * @param source источник подсказок
+   * @param resultExecutor куда доставляются результаты (для UI - {@code Platform::runLater})
+   * @param coalesceDelay сколько ждать следующего нажатия перед началом поиска
+   */
+  public SuggestionService(SuggestionSource source, Executor resultExecutor,
+      Duration coalesceDelay) {
+    this.source = source;
+    this.resultExecutor = resultExecutor;
+    this.coalesceDelayNanos = coalesceDelay.toNanos();
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  public void setSource(SuggestionSource source) {
+    this.source = source;
+    cancel();
+  }
+
+  /**
+   * Запрашивает подсказки для префикса. Метод не блокируется; {@code onResult} будет вызван через
+   * {@code resultExecutor}, только если за это время не пришёл более новый запрос.
+   */
+  public void request(String prefix, int maxSuggestions, Consumer<List<Candidate>> onResult) {
+    request(source, prefix, maxSuggestions, onResult);
+  }
+
+  /**
+   * То же, что {@link #request(String, int, Consumer)}, но через другой источник, например
+   * предсказание следующего слова. Запросы к разным источникам вытесняют друг друга так же, как
+   * запросы к одному.
+   */
+  public void request(SuggestionSource source, String prefix, int maxSuggestions,
+      Consumer<List<Candidate>> onResult) {
+    long gen = generation.incrementAndGet();
+    pending.set(new Request(gen, source, prefix, maxSuggestions, onResult));
+    interruptStale(gen);
+    scheduleDrain();
+  }
+
+  /**
+   * Отменяет ожидающий и выполняющийся запросы; их результаты не будут доставлены.
+   */
+  public void cancel() {
+    long gen = generation.incrementAndGet();
+    pending.set(null);
+    interruptStale(gen);
+  }
+
+  private void interruptStale(long latestGeneration) {
+    synchronized (lock) {
+      if (worker != null && runningGeneration != latestGeneration) {
+        worker.interrupt();
+      }
+    }
+  }
+
+  private void drain() {
+    try {
+      Request request;
+      while ((request = pending.getAndSet(null)) != null) {
+        if (coalesceDelayNanos > 0) {
+          TimeUnit.NANOSECONDS.sleep(coalesceDelayNanos);
+          if (pending.get() != null) {
+            // Пока ждали, пришёл более новый запрос
+            continue;
+          }
+        }
+        if (request.generation() != generation.get()) {
+          continue;
+        }
+        lookup(request);
+      }
+    } catch (InterruptedException e) {
+      // Сервис закрывается
+    } finally {
+      draining.set(false);
+      if (pending.get() != null) {
+        scheduleDrain();
+      }
+    }
+  }
+
+  private void scheduleDrain() {
+    if (!executor.isShutdown() && draining.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  private void lookup(Request request) {
+    synchronized (lock) {
+      Thread.interrupted();
+      worker = Thread.currentThread();
+      runningGeneration = request.generation();
+    }
+    SuggestionRequestEvent event = new SuggestionRequestEvent();
+    event.begin();
+    List<Candidate> result;
+    try {
+      result = request.source().getAutocomplete(request.prefix(), request.maxSuggestions());
+    } catch (RuntimeException e) {
+      result = List.of();
+      event.failed = true;
+    } finally {
+      synchronized (lock) {
+        worker = null;
+        event.cancelled = Thread.interrupted();
+      }
+    }
+
+    boolean stale = request.generation() != generation.get();
+    event.end();
+    if (event.shouldCommit()) {
+      event.prefixLength = request.prefix().length();
+      event.maxSuggestions = request.maxSuggestions();
+      event.candidateCount = result.size();
+      event.stale = stale;
+      event.commit();
+    }
+    if (stale) {
+      return;
+    }
+    List<Candidate> candidates = result;
+    resultExecutor.execute(() -> {
+      // Повторная проверка: новый запрос мог прийти, пока результат ждал своей очереди
+      if (request.generation() == generation.get()) {
+        request.onResult().accept(candidates);
+      }
+    });
+  }
+
+  @Override
+  public void close() {
+    cancel();
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,14 @@
+package io.github.autocompletedemo;
+
+import io.github.autocomplete.model.Candidate;
+import java.util.List;
+
+/**
+ * Источник подсказок автодополнения. Сигнатура совпадает с
+ * {@code AutocompleteProvider.getAutocomplete}, поэтому провайдер подключается ссылкой на метод.
+ */
+@FunctionalInterface
+public interface SuggestionSource {
+
+  List<Candidate> getAutocomplete(String prefix, int maxSuggestions);
+}
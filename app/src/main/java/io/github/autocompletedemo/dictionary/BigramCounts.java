@@ -0,0 +1,280 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.Footprint;
+
+import java.util.Arrays;
+
+/**
+ * Частоты пар соседних слов (предыдущее слово -> следующее) по номерам {@link WordCountTable}.
+ *
+ * <p>
+ * Пара - ключ {@code long} (номер предыдущего слова в старших 32 битах), частота - {@code int};
+ * открытая адресация с линейным пробированием по двум параллельным массивам, без объектов на
+ * пару. Память ограничена бюджетом: когда таблице пора расти, а выросшая в него не помещается,
+ * редкие контексты (предыдущие слова с наименьшей суммарной частотой) удаляются целиком.
+ *
+ * <p>
+ * Таблица помнит пары, которые менялись с последнего {@link #drainChanged}; когда их больше, чем
+ * пар в таблице, - только то, что менялось всё.
+ *
+ * <p>
+ * Класс не потокобезопасен.
+ */
+final class BigramCounts {
+
+  @FunctionalInterface
+  interface Action {
+    void accept(int previous, int next, int count);
+  }
+
+  // Ключ из двух неотрицательных номеров не бывает равен -1
+  private static final long EMPTY = -1L;
+  private static final int MIN_CAPACITY = 16;
+  private static final long SLOT_BYTES = Long.BYTES + Integer.BYTES;
+
+  private long[] keys;
+  private int[] counts;
+  private int size;
+  private long budgetBytes;
+  private long prunedContexts;
+  // Ключи пар, изменённых с последнего drainChanged, возможно с повторами
+  private long[] changed = new long[MIN_CAPACITY];
+  private int changedSize;
+  // Удалялись ли пары (очистка, бюджет) или изменённых слишком много
+  private boolean removed;
+
+  BigramCounts(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+    allocate(MIN_CAPACITY);
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    counts = new int[capacity];
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Частота пары; 0, если её нет.
+   */
+  int count(int previous, int next) {
+    int slot = slot(key(previous, next));
+    return keys[slot] == EMPTY ? 0 : counts[slot];
+  }
+
+  void add(int previous, int next, int count) {
+    if (budgetBytes < MIN_CAPACITY * SLOT_BYTES) {
+      // Бюджет меньше самой маленькой таблицы: пары не собираются
+      return;
+    }
+    long key = key(previous, next);
+    int slot = slot(key);
+    track(key);
+    if (keys[slot] != EMPTY) {
+      counts[slot] = (int) Math.min(Integer.MAX_VALUE, (long) counts[slot] + count);
+      return;
+    }
+    keys[slot] = key;
+    counts[slot] = count;
+    size++;
+    if (size * 4L > keys.length * 3L) {
+      if (keys.length * 2L * SLOT_BYTES > budgetBytes) {
+        prune(budgetBytes / 2);
+      } else {
+        rehash(keys.length * 2);
+      }
+    }
+  }
+
+  /**
+   * Прибавляет пары другой таблицы; {@code ids[i]} - номер в этом словаре слова с номером
+   * {@code i} в словаре {@code other}, отрицательный - слова нет.
+   */
+  void addAll(BigramCounts other, int[] ids) {
+    other.forEach((previous, next, count) -> {
+      if (ids[previous] >= 0 && ids[next] >= 0) {
+        add(ids[previous], ids[next], count);
+      }
+    });
+  }
+
+  void forEach(Action action) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      long key = keys[slot];
+      if (key != EMPTY) {
+        action.accept((int) (key >>> 32), (int) key, counts[slot]);
+      }
+    }
+  }
+
+  void clear() {
+    allocate(MIN_CAPACITY);
+    removed = true;
+  }
+
+  private void track(long key) {
+    if (removed) {
+      return;
+    }
+    if (changedSize == changed.length) {
+      if (changedSize >= Math.max(MIN_CAPACITY * 64, size)) {
+        // Проще пересобрать всё, чем помнить каждую пару
+        removed = true;
+        return;
+      }
+      changed = Arrays.copyOf(changed, changedSize * 2);
+    }
+    changed[changedSize++] = key;
+  }
+
+  /**
+   * Ключи изменённых пар (номер предыдущего слова в старших 32 битах) по возрастанию, без
+   * повторов; сбрасывает их. {@code null}, если пары удалялись или менялось слишком многое.
+   */
+  long[] drainChanged() {
+    long[] pairs = null;
+    if (!removed) {
+      Arrays.sort(changed, 0, changedSize);
+      int unique = 0;
+      for (int i = 0; i < changedSize; i++) {
+        if (i == 0 || changed[i] != changed[i - 1]) {
+          changed[unique++] = changed[i];
+        }
+      }
+      pairs = Arrays.copyOf(changed, unique);
+    }
+    changed = new long[MIN_CAPACITY];
+    changedSize = 0;
+    removed = false;
+    return pairs;
+  }
+
+  long budgetBytes() {
+    return budgetBytes;
+  }
+
+  /**
+   * Меняет бюджет; если таблица в него не помещается, сразу удаляет редкие контексты.
+   *
+   * @return были ли удалены пары
+   */
+  boolean setBudget(long budgetBytes) {
+    if (budgetBytes < 0) {
+      throw new IllegalArgumentException("Invalid next-word budget: " + budgetBytes);
+    }
+    this.budgetBytes = budgetBytes;
+    if (heapBytes() <= budgetBytes) {
+      return false;
+    }
+    int before = size;
+    prune(budgetBytes / 2);
+    return size != before;
+  }
+
+  /**
+   * Сколько контекстов удалено из-за бюджета за всё время.
+   */
+  long prunedContexts() {
+    return prunedContexts;
+  }
+
+  long heapBytes() {
+    return Footprint.ofLongArray(keys.length) + Footprint.ofIntArray(counts.length);
+  }
+
+  /**
+   * Удаляет контексты с суммарной частотой ниже порога, поднимая порог вдвое, пока оставшиеся
+   * пары не поместятся в {@code targetBytes} с запасом на рост.
+   */
+  private void prune(long targetBytes) {
+    int contexts = 0;
+    for (long key : keys) {
+      if (key != EMPTY) {
+        contexts = Math.max(contexts, (int) (key >>> 32) + 1);
+      }
+    }
+    long[] totals = new long[contexts];
+    int[] pairs = new int[contexts];
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != EMPTY) {
+        int previous = (int) (keys[slot] >>> 32);
+        totals[previous] += counts[slot];
+        pairs[previous]++;
+      }
+    }
+    long threshold = 1;
+    int kept = size;
+    while (kept > 0 && capacityFor(kept) * SLOT_BYTES > targetBytes) {
+      threshold *= 2;
+      kept = 0;
+      for (int context = 0; context < contexts; context++) {
+        if (totals[context] >= threshold) {
+          kept += pairs[context];
+        }
+      }
+    }
+    for (int context = 0; context < contexts; context++) {
+      if (pairs[context] > 0 && totals[context] < threshold) {
+        prunedContexts++;
+      }
+    }
+
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    allocate(Math.max(MIN_CAPACITY, capacityFor(kept)));
+    removed = true;
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      long key = oldKeys[slot];
+      if (key != EMPTY && totals[(int) (key >>> 32)] >= threshold) {
+        int target = slot(key);
+        keys[target] = key;
+        counts[target] = oldCounts[slot];
+        size++;
+      }
+    }
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    counts = new int[capacity];
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (oldKeys[slot] != EMPTY) {
+        int target = slot(oldKeys[slot]);
+        keys[target] = oldKeys[slot];
+        counts[target] = oldCounts[slot];
+      }
+    }
+  }
+
+  /**
+   * Ячейка с ключом или первая пустая ячейка на его пути.
+   */
+  private int slot(long key) {
+    long mixed = key * 0x9E3779B97F4A7C15L;
+    int mask = keys.length - 1;
+    int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+    while (keys[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static long key(int previous, int next) {
+    return (long) previous << 32 | (next & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Ёмкость, при которой {@code pairs} пар заполняют таблицу не больше чем наполовину.
+   */
+  private static int capacityFor(int pairs) {
+    return Integer.highestOneBit(Math.max(1, pairs * 2 - 1)) << 1;
+  }
+}
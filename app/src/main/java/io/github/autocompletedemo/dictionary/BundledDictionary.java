@@ -0,0 +1,80 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.RadixTrieIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Встроенный словарь приложения.
+ *
+ * <p>
+ * В ресурсах лежит исходный словарь {@value #TEXT_RESOURCE} в формате {@link TrieFileFormat} и,
+ * если приложение собрано Gradle, индекс {@value #INDEX_RESOURCE} в формате {@link SnapshotFile},
+ * скомпилированный из него при сборке (задача {@code compileDictionaryIndex} вызывает
+ * {@link #main}). С индексом запуск не строит префиксное дерево: массивы читаются из ресурса как
+ * есть. Без индекса (например, при запуске из IDE) словарь индексируется, как раньше.
+ */
+public final class BundledDictionary {
+
+  public static final String TEXT_RESOURCE = "/dict";
+  public static final String INDEX_RESOURCE = "/dict.acds";
+
+  private BundledDictionary() {
+  }
+
+  /**
+   * Загружает встроенный словарь в {@code store}: готовый индекс, если он есть, иначе исходный
+   * словарь. Читает ресурс в вызывающем потоке, поэтому не вызывается из потока JavaFX.
+   *
+   * @return публикация словаря или {@code null}, если ресурсов нет
+   */
+  public static CompletableFuture<DictionarySnapshot> load(DictionaryStore store)
+      throws IOException {
+    CompletableFuture<DictionarySnapshot> published = loadIndex(store);
+    return published != null ? published : loadText(store);
+  }
+
+  public static CompletableFuture<DictionarySnapshot> loadIndex(DictionaryStore store)
+      throws IOException {
+    try (InputStream in = BundledDictionary.class.getResourceAsStream(INDEX_RESOURCE)) {
+      return in == null ? null : store.replace(SnapshotFile.read(in));
+    }
+  }
+
+  public static CompletableFuture<DictionarySnapshot> loadText(DictionaryStore store)
+      throws IOException {
+    try (InputStream in = BundledDictionary.class.getResourceAsStream(TEXT_RESOURCE)) {
+      if (in == null) {
+        return null;
+      }
+      Vocabulary loaded = new Vocabulary();
+      TrieFileFormat.read(in, loaded::add);
+      return store.update(vocabulary -> vocabulary.addAll(loaded));
+    }
+  }
+
+  /**
+   * Компилирует словарь в индекс при сборке: {@code BundledDictionary <dict> <dict.acds>}.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: BundledDictionary <dictionary> <index output>");
+      System.exit(2);
+    }
+    long start = System.nanoTime();
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.loadFromFile(new File(args[0]));
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+    File output = new File(args[1]);
+    File parent = output.getAbsoluteFile().getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create " + parent);
+    }
+    SnapshotFile.write(output, index, true);
+    System.out.printf("Dictionary index: %d words, %d nodes, %d bytes in %d ms%n", index.size(),
+        index.nodeCount(), output.length(), (System.nanoTime() - start) / 1_000_000);
+  }
+}
@@ -0,0 +1,607 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.RadixTrieIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Автосохранение словаря: журнал изменений частот и периодические снимки.
+ *
+ * <p>
+ * В каталоге лежат снимки {@code dictionary-N.acds} ({@link SnapshotFile}) и журналы
+ * {@code dictionary-N.journal}. Снимок N - словарь до первой записи журнала N; журнал N - изменения
+ * после него. Для восстановления берётся последний снимок и по порядку проигрываются все журналы с
+ * номером не меньше его.
+ *
+ * <p>
+ * Изменения приходят от {@link Vocabulary.Listener} в потоке записи {@link DictionaryStore} и
+ * копятся в памяти. Поток {@code dictionary-journal} раз в {@code commitInterval} пишет всё
+ * накопленное одним пакетом и один раз вызывает {@code force} (групповая фиксация), поэтому
+ * сохранение стоит пропорционально объёму изменений, а не размеру словаря. Пакет - {@code int}
+ * длина, {@code int} CRC32C и записи; пакет, оборванный сбоем, при восстановлении отбрасывается.
+ * Если запись пакета не удалась, журнал обрезается до последнего записанного пакета (а если и это
+ * не удалось - продолжается в журнале следующего номера), пакет возвращается в очередь и уходит со
+ * следующей фиксацией: оборванный пакет в середине журнала остановил бы восстановление на себе.
+ *
+ * <p>
+ * Когда журнал вырастает до {@code compactBytes} или с прошлого снимка прошло
+ * {@link #COMPACT_INTERVAL}, журнал переключается на следующий номер, а поток
+ * {@code dictionary-compaction} пишет новый снимок из неизменяемого индекса и удаляет старые
+ * файлы. Набор текста при этом не ждёт.
+ */
+public final class DictionaryJournal implements AutoCloseable {
+
+  public static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofMillis(200);
+  public static final long DEFAULT_COMPACT_BYTES = 4L << 20;
+  static final Duration COMPACT_INTERVAL = Duration.ofMinutes(10);
+
+  private static final int MAGIC = 0x4143444a; // "ACDJ"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int BATCH_HEADER_SIZE = 8;
+  private static final byte ADD = 1;
+  private static final byte CLEAR = 2;
+  private static final Pattern FILE_NAME = Pattern.compile("dictionary-(\\d+)\\.(acds|journal)");
+
+  /**
+   * Пакет записей журнала, ещё не записанный в файл.
+   */
+  private record Batch(byte[] bytes, int records) {
+  }
+
+  /**
+   * @param journalBytes размер текущего журнала
+   * @param recovered записей журнала, проигранных при открытии
+   */
+  public record Stats(long generation, long records, long batches, long journalBytes,
+      long compactions, long recovered) {
+  }
+
+  private final Path directory;
+  private final DictionaryStore store;
+  private final long compactBytes;
+  private final ScheduledExecutorService committer;
+  private final ExecutorService compactor;
+  private final Recorder recorder = new Recorder();
+
+  // Накопленные записи и номер журнала, в который они пойдут; под блокировкой this
+  private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private DataOutputStream pendingData = new DataOutputStream(pending);
+  private int pendingRecords;
+  // Пакет, запись которого не удалась: идёт перед накопленным
+  private Batch unwritten;
+  private long generation;
+
+  // Только поток dictionary-journal
+  private FileChannel channel;
+  private long channelGeneration = -1;
+  private long lastCompaction = System.nanoTime();
+
+  private final AtomicReference<CompletableFuture<Void>> compaction = new AtomicReference<>();
+  private final AtomicLong records = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong journalBytes = new AtomicLong();
+  private final AtomicLong compactions = new AtomicLong();
+  private long recovered;
+
+  private DictionaryJournal(Path directory, DictionaryStore store, long compactBytes) {
+    this.directory = directory;
+    this.store = store;
+    this.compactBytes = compactBytes;
+    this.committer = Executors.newSingleThreadScheduledExecutor(task -> daemon(task,
+        "dictionary-journal"));
+    this.compactor = Executors.newSingleThreadExecutor(task -> daemon(task,
+        "dictionary-compaction"));
+  }
+
+  private static Thread daemon(Runnable task, String name) {
+    Thread thread = new Thread(task, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  public static DictionaryJournal open(Path directory, DictionaryStore store) throws IOException {
+    return open(directory, store, DEFAULT_COMMIT_INTERVAL, DEFAULT_COMPACT_BYTES);
+  }
+
+  /**
+   * Открывает каталог журнала. Если в нём есть снимок, словарь {@code store} заменяется
+   * восстановленным; иначе текущий словарь записывается первым снимком.
+   */
+  public static DictionaryJournal open(Path directory, DictionaryStore store,
+      Duration commitInterval, long compactBytes) throws IOException {
+    Files.createDirectories(directory);
+    DictionaryJournal journal = new DictionaryJournal(directory, store, compactBytes);
+    try {
+      journal.recover();
+    } catch (IOException | RuntimeException e) {
+      journal.committer.shutdownNow();
+      journal.compactor.shutdownNow();
+      throw e;
+    }
+    long interval = commitInterval.toNanos();
+    journal.committer.scheduleWithFixedDelay(journal::commitQuietly, interval, interval,
+        TimeUnit.NANOSECONDS);
+    return journal;
+  }
+
+  /**
+   * Есть ли в каталоге снимок, из которого {@link #open} восстановит словарь.
+   */
+  public static boolean exists(Path directory) throws IOException {
+    return Files.isDirectory(directory) && latestSnapshot(scan(directory)) >= 0;
+  }
+
+  private void recover() throws IOException {
+    List<long[]> files = scan(directory);
+    long snapshot = latestSnapshot(files);
+    List<Path> journals = new ArrayList<>();
+    long last = snapshot;
+    for (long[] file : files) {
+      if (file[1] == 1 && file[0] >= snapshot) {
+        journals.add(journalPath(file[0]));
+      }
+      last = Math.max(last, file[0]);
+    }
+    generation = last + 1;
+
+    RadixTrieIndex[] initial = new RadixTrieIndex[1];
+    try {
+      // Журнал нового номера создаётся до подключения: изменения могут прийти сразу
+      openChannel(generation);
+      store.attach(recorder, (vocabulary, current) -> {
+        if (snapshot < 0) {
+          initial[0] = current.index();
+          return null;
+        }
+        SnapshotFile.Contents contents = SnapshotFile.read(snapshotPath(snapshot).toFile());
+        vocabulary.replace(contents.words(), contents.counts());
+        for (Path journal : journals) {
+          recovered += replay(journal, vocabulary);
+        }
+        return recovered == 0 ? contents.index().withWords(vocabulary.words())
+            : RadixTrieIndex.build(vocabulary);
+      }).join();
+    } catch (CompletionException e) {
+      closeChannel();
+      Files.deleteIfExists(journalPath(generation));
+      if (e.getCause() instanceof UncheckedIOException io) {
+        throw io.getCause();
+      }
+      throw e;
+    }
+
+    if (initial[0] != null) {
+      // Журналы без снимка относятся к словарю, которого уже нет
+      SnapshotFile.write(snapshotPath(generation).toFile(), initial[0], true);
+      deleteBefore(generation);
+    } else if (recovered > 0) {
+      compact();
+    }
+  }
+
+  /**
+   * Проигрывает пакеты журнала до конца файла или до первого повреждённого пакета.
+   *
+   * @return число проигранных записей
+   */
+  static long replay(Path journal, Vocabulary vocabulary) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journal));
+    if (buffer.remaining() < HEADER_SIZE) {
+      // Сбой сразу после создания файла
+      return 0;
+    }
+    if (buffer.getInt() != MAGIC) {
+      throw new IOException("Not a dictionary journal: " + journal.getFileName());
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported journal version: " + version);
+    }
+    buffer.getLong();
+
+    long replayed = 0;
+    CRC32C crc = new CRC32C();
+    while (buffer.remaining() >= BATCH_HEADER_SIZE) {
+      int length = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        break;
+      }
+      crc.reset();
+      crc.update(buffer.array(), buffer.position(), length);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      ByteBuffer batch = buffer.slice(buffer.position(), length);
+      buffer.position(buffer.position() + length);
+      try {
+        replayed += replayBatch(batch, vocabulary);
+      } catch (BufferUnderflowException e) {
+        throw new IOException("Corrupted journal batch in " + journal.getFileName(), e);
+      }
+    }
+    return replayed;
+  }
+
+  private static long replayBatch(ByteBuffer batch, Vocabulary vocabulary) throws IOException {
+    long replayed = 0;
+    while (batch.hasRemaining()) {
+      byte type = batch.get();
+      if (type == ADD) {
+        int count = batch.getInt();
+        byte[] word = new byte[batch.getInt()];
+        batch.get(word);
+        vocabulary.add(new String(word, StandardCharsets.UTF_8), count);
+      } else if (type == CLEAR) {
+        vocabulary.clear();
+      } else {
+        throw new IOException("Unknown journal record: " + type);
+      }
+      replayed++;
+    }
+    return replayed;
+  }
+
+  /**
+   * Записывает изменения в память; вызывается в потоке записи словаря.
+   */
+  private final class Recorder implements Vocabulary.Listener {
+    @Override
+    public void added(String word, int count) {
+      byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+      synchronized (DictionaryJournal.this) {
+        try {
+          pendingData.writeByte(ADD);
+          pendingData.writeInt(count);
+          pendingData.writeInt(bytes.length);
+          pendingData.write(bytes);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        pendingRecords++;
+      }
+    }
+
+    @Override
+    public void cleared() {
+      synchronized (DictionaryJournal.this) {
+        // Всё накопленное до очистки уже не нужно
+        pending.reset();
+        pending.write(CLEAR);
+        pendingRecords = 1;
+      }
+    }
+  }
+
+  /**
+   * Записывает накопленные изменения в журнал, не дожидаясь очередного интервала.
+   */
+  public CompletableFuture<Void> flush() {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        commit();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, committer);
+  }
+
+  private void commitQuietly() {
+    try {
+      commit();
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Cannot write dictionary journal: " + e.getMessage());
+    }
+  }
+
+  private void commit() throws IOException {
+    Batch batch;
+    synchronized (this) {
+      // Переключение на новый журнал уже в очереди этого потока, его изменения подождут
+      if (generation != channelGeneration || pendingRecords == 0 && unwritten == null) {
+        return;
+      }
+      batch = takePending();
+    }
+    writeBatch(batch);
+    long interval = COMPACT_INTERVAL.toNanos();
+    if (journalBytes.get() >= compactBytes || System.nanoTime() - lastCompaction >= interval) {
+      compact();
+    }
+  }
+
+  private Batch takePending() {
+    byte[] bytes = pending.toByteArray();
+    int count = pendingRecords;
+    if (unwritten != null) {
+      byte[] joined = Arrays.copyOf(unwritten.bytes(), unwritten.bytes().length + bytes.length);
+      System.arraycopy(bytes, 0, joined, unwritten.bytes().length, bytes.length);
+      bytes = joined;
+      count += unwritten.records();
+      unwritten = null;
+    }
+    pending = new ByteArrayOutputStream();
+    pendingData = new DataOutputStream(pending);
+    pendingRecords = 0;
+    return new Batch(bytes, count);
+  }
+
+  /**
+   * Пишет пакет в текущий журнал. Если не удалось, убирает из файла оборванный пакет и возвращает
+   * этот пакет в очередь.
+   */
+  private void writeBatch(Batch batch) throws IOException {
+    CRC32C crc = new CRC32C();
+    crc.update(batch.bytes());
+    ByteBuffer buffer = ByteBuffer.allocate(BATCH_HEADER_SIZE + batch.bytes().length);
+    buffer.putInt(batch.bytes().length).putInt((int) crc.getValue()).put(batch.bytes()).flip();
+    long committed = channel.position();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        unwritten = batch;
+      }
+      discardTail(committed, e);
+      throw e;
+    }
+    records.addAndGet(batch.records());
+    batches.incrementAndGet();
+    journalBytes.addAndGet(buffer.limit());
+  }
+
+  /**
+   * Обрезает журнал до {@code committed}; если и это не удалось, начинает журнал следующего
+   * номера. Восстановление проигрывает оба журнала, а хвост старого отбрасывает.
+   */
+  private void discardTail(long committed, Exception failure) {
+    try {
+      channel.truncate(committed);
+      channel.position(committed);
+      channel.force(false);
+    } catch (IOException | RuntimeException e) {
+      failure.addSuppressed(e);
+      long next;
+      synchronized (this) {
+        next = ++generation;
+      }
+      try {
+        closeChannel();
+      } catch (IOException closing) {
+        failure.addSuppressed(closing);
+      }
+      try {
+        openChannel(next);
+      } catch (IOException opening) {
+        // Без журнала изменения копятся в памяти, фиксация их не пишет
+        failure.addSuppressed(opening);
+      }
+    }
+  }
+
+  /**
+   * Начинает новый журнал и пишет снимок словаря в фоне. Если снимок уже пишется, возвращает его
+   * завершение.
+   */
+  public CompletableFuture<Void> compact() {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    CompletableFuture<Void> running = compaction.compareAndExchange(null, done);
+    if (running != null) {
+      return running;
+    }
+    store.checkpoint(this::rotate).whenComplete((snapshot, error) -> {
+      if (error != null) {
+        finishCompaction(done, error);
+      }
+    });
+    return done;
+  }
+
+  /**
+   * Вызывается в потоке записи словаря: всё, что накоплено к этому моменту, идёт в старый журнал,
+   * а {@code snapshot} - ровно словарь после него.
+   */
+  private void rotate(DictionarySnapshot snapshot) {
+    CompletableFuture<Void> done = compaction.get();
+    Batch batch;
+    long previous;
+    synchronized (this) {
+      batch = pendingRecords == 0 && unwritten == null ? null : takePending();
+      previous = generation++;
+    }
+    committer.execute(() -> {
+      Exception failure = null;
+      if (batch != null) {
+        try {
+          writeBatch(batch);
+        } catch (IOException | RuntimeException e) {
+          // Пакет вернулся в очередь и уйдёт в новый журнал; снимок без него в старом не годится
+          failure = e;
+        }
+      }
+      try {
+        long next;
+        synchronized (this) {
+          next = generation;
+        }
+        if (channelGeneration != next) {
+          closeChannel();
+          openChannel(next);
+        }
+        lastCompaction = System.nanoTime();
+      } catch (IOException | RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+      if (failure != null) {
+        finishCompaction(done, failure);
+        return;
+      }
+      compactor.execute(() -> {
+        try {
+          SnapshotFile.write(snapshotPath(previous + 1).toFile(), snapshot.index(), true);
+          deleteBefore(previous + 1);
+          compactions.incrementAndGet();
+          finishCompaction(done, null);
+        } catch (IOException | RuntimeException e) {
+          finishCompaction(done, e);
+        }
+      });
+    });
+  }
+
+  private void finishCompaction(CompletableFuture<Void> done, Throwable error) {
+    compaction.compareAndSet(done, null);
+    if (error == null) {
+      done.complete(null);
+    } else {
+      System.err.println("Dictionary compaction failed: " + error.getMessage());
+      done.completeExceptionally(error);
+    }
+  }
+
+  public Stats stats() {
+    long current;
+    synchronized (this) {
+      current = generation;
+    }
+    return new Stats(current, records.get(), batches.get(), journalBytes.get(),
+        compactions.get(), recovered);
+  }
+
+  public Path directory() {
+    return directory;
+  }
+
+  /**
+   * Отключается от словаря, записывает накопленное и дожидается начатого снимка.
+   */
+  @Override
+  public void close() {
+    try {
+      store.detach().join();
+      flush().join();
+      CompletableFuture<Void> running = compaction.get();
+      if (running != null) {
+        running.exceptionally(error -> null).join();
+      }
+    } finally {
+      committer.execute(() -> {
+        try {
+          closeChannel();
+        } catch (IOException e) {
+          System.err.println("Cannot close dictionary journal: " + e.getMessage());
+        }
+      });
+      committer.shutdown();
+      compactor.shutdown();
+      try {
+        committer.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  // Файлы каталога
+
+  private void openChannel(long number) throws IOException {
+    channel = FileChannel.open(journalPath(number), StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(VERSION).putLong(number).flip();
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+    channel.force(true);
+    channelGeneration = number;
+    journalBytes.set(HEADER_SIZE);
+  }
+
+  private void closeChannel() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private Path snapshotPath(long number) {
+    return directory.resolve("dictionary-" + number + ".acds");
+  }
+
+  private Path journalPath(long number) {
+    return directory.resolve("dictionary-" + number + ".journal");
+  }
+
+  /**
+   * Удаляет снимки и журналы с номером меньше {@code number}.
+   */
+  private void deleteBefore(long number) throws IOException {
+    for (long[] file : scan(directory)) {
+      if (file[0] < number) {
+        Files.deleteIfExists(file[1] == 0 ? snapshotPath(file[0]) : journalPath(file[0]));
+      }
+    }
+  }
+
+  /**
+   * Файлы каталога по возрастанию номера: {номер, 0 - снимок или 1 - журнал}.
+   */
+  private static List<long[]> scan(Path directory) throws IOException {
+    List<long[]> files = new ArrayList<>();
+    try (Stream<Path> list = Files.list(directory)) {
+      list.forEach(path -> {
+        Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+        if (matcher.matches()) {
+          files.add(new long[] {Long.parseLong(matcher.group(1)),
+              matcher.group(2).equals("acds") ? 0 : 1});
+        }
+      });
+    }
+    files.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+    return files;
+  }
+
+  private static long latestSnapshot(List<long[]> files) {
+    long latest = -1;
+    for (long[] file : files) {
+      if (file[1] == 0) {
+        latest = Math.max(latest, file[0]);
+      }
+    }
+    return latest;
+  }
+}
@@ -0,0 +1,25 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.NextWordIndex;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import io.github.autocompletedemo.index.ShardedIndex;
+
+/**
+ * Неизменяемая версия словаря. После публикации ни индекс, ни библиотечный анализатор этой версии
+ * не меняются, поэтому читатель, взявший снимок, может пользоваться им сколько угодно долго: старая
+ * версия живёт, пока на неё есть ссылки.
+ *
+ * @param version номер версии, растёт с каждой публикацией
+ * @param index индекс приложения со словами и частотами
+ * @param library библиотечный бэкенд или {@code null}, если он выключен
+ * @param shards те же слова, разбитые на части для параллельного поиска с опечатками, или
+ *        {@code null}, если словарь не разбивается
+ * @param nextWords предсказание следующего слова
+ */
+public record DictionarySnapshot(long version, RadixTrieIndex index, LibraryBackend library,
+    ShardedIndex shards, NextWordIndex nextWords) {
+
+  public int size() {
+    return index.size();
+  }
+}
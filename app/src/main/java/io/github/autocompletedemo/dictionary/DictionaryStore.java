@@ -0,0 +1,321 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocomplete.TextAnalyzer;
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocomplete.tokenizer.SimpleTokenizer;
+import io.github.autocompletedemo.index.NextWordIndex;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import io.github.autocompletedemo.index.ShardedIndex;
+import io.github.autocompletedemo.jfr.DictionaryUpdateEvent;
+import io.github.autocompletedemo.jfr.LibraryLoadEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Живой словарь с копированием при записи.
+ *
+ * <p>
+ * Читатели получают текущую версию одним чтением {@link AtomicReference} и не блокируются.
+ * Изменения выполняются по одному в фоновом потоке записи: он меняет свой {@link Vocabulary},
+ * строит по нему новый индекс (и, если нужно, новый {@code TextAnalyzer}) и подменяет ссылку.
+ * {@link Vocabulary} доступен только потоку записи.
+ *
+ * <p>
+ * {@link #update} не перестраивает индекс целиком: индекс, части и предсказание следующего слова
+ * обновляются по изменённым словам (см. {@link RadixTrieIndex#update}); целиком они строятся
+ * заново после очистки словаря. {@code TextAnalyzer} так обновить нельзя, и при включённом
+ * библиотечном бэкенде он загружается заново для каждой изменённой версии (см.
+ * {@link LibraryBackend}).
+ */
+public class DictionaryStore implements AutoCloseable {
+
+  private final Vocabulary vocabulary = new Vocabulary();
+  private final AtomicReference<DictionarySnapshot> current;
+  private final ExecutorService writer;
+  private final List<Consumer<DictionarySnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile AutocompleteConfig libraryConfig;
+  private volatile boolean libraryEnabled;
+  private volatile int shardCount = 1;
+  private long nextVersion = 1;
+  // Загружала ли последняя операция новый TextAnalyzer (только поток записи)
+  private boolean libraryRebuilt;
+  // Обновила ли последняя операция словарь без полной перестройки (только поток записи)
+  private boolean incremental;
+
+  public DictionaryStore(AutocompleteConfig libraryConfig, boolean libraryEnabled) {
+    this.libraryConfig = libraryConfig;
+    this.libraryEnabled = libraryEnabled;
+    RadixTrieIndex empty =
+        RadixTrieIndex.build(new String[0], new int[0], RadixTrieIndex.DEFAULT_TOP_K);
+    this.current = new AtomicReference<>(
+        new DictionarySnapshot(0, empty, null, null, NextWordIndex.empty(empty)));
+    this.writer = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "dictionary-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public DictionarySnapshot current() {
+    return current.get();
+  }
+
+  /**
+   * Слушатель вызывается в потоке записи после каждой публикации.
+   */
+  public void addListener(Consumer<DictionarySnapshot> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Применяет изменение к словарю и публикует новую версию.
+   */
+  public CompletableFuture<DictionarySnapshot> update(Consumer<Vocabulary> mutation) {
+    return submit("update", () -> {
+      DictionarySnapshot previous = current.get();
+      mutation.accept(vocabulary);
+      Vocabulary.Changes changes = vocabulary.drainChanges();
+      if (changes.words() == null) {
+        return publish(RadixTrieIndex.build(vocabulary), true);
+      }
+      incremental = true;
+      RadixTrieIndex index = previous.index().update(vocabulary, changes.words());
+      NextWordIndex nextWords =
+          previous.nextWords().update(vocabulary, index, changes.bigrams());
+      // Анализатор предыдущей версии не меняется: без изменений слов он переходит в новую
+      return publish(index, index != previous.index(), nextWords);
+    });
+  }
+
+  /**
+   * Заменяет словарь готовыми данными, например из {@link SnapshotFile}; индекс не перестраивается,
+   * а переходит на слова словаря, чтобы не держать данные снимка.
+   */
+  public CompletableFuture<DictionarySnapshot> replace(SnapshotFile.Contents contents) {
+    return submit("replace", () -> {
+      vocabulary.replace(contents.words(), contents.counts());
+      vocabulary.drainChanges();
+      return publish(contents.index().withWords(vocabulary.words()), true);
+    });
+  }
+
+  /**
+   * Включает или выключает ведение {@code TextAnalyzer} вместе со словарём.
+   */
+  public void setLibraryEnabled(boolean enabled) {
+    libraryEnabled = enabled;
+    if (enabled) {
+      submit("enableLibrary", () -> {
+        DictionarySnapshot snapshot = current.get();
+        return snapshot.library() == null ? publish(snapshot.index(), true) : snapshot;
+      });
+    }
+  }
+
+  /**
+   * Новая конфигурация библиотечного провайдера. Анализатор тот же, провайдер создаётся заново,
+   * чтобы не менять объект, которым могут пользоваться читатели.
+   */
+  public void setLibraryConfig(AutocompleteConfig config) {
+    libraryConfig = config;
+    submit("libraryConfig", () -> {
+      DictionarySnapshot snapshot = current.get();
+      if (snapshot.library() == null) {
+        return snapshot;
+      }
+      return publish(snapshot.index(), false);
+    });
+  }
+
+  /**
+   * Ограничивает память под пары соседних слов (см. {@link Vocabulary#setBigramBudget}); если
+   * пришлось удалить пары, публикуется новая версия.
+   */
+  public CompletableFuture<DictionarySnapshot> setBigramBudget(long budgetBytes) {
+    return submit("bigramBudget", () -> {
+      if (!vocabulary.setBigramBudget(budgetBytes)) {
+        return current.get();
+      }
+      // Удалены пары, слова те же
+      vocabulary.drainChanges();
+      DictionarySnapshot snapshot = current.get();
+      return publish(snapshot.index(), libraryEnabled && snapshot.library() == null,
+          NextWordIndex.build(vocabulary, snapshot.index()));
+    });
+  }
+
+  public int shardCount() {
+    return shardCount;
+  }
+
+  /**
+   * На сколько частей делить словарь для параллельного поиска с опечатками (см.
+   * {@link ShardedIndex}); 1 - не делить. Текущая версия перестраивается сразу.
+   */
+  public CompletableFuture<DictionarySnapshot> setShardCount(int count) {
+    shardCount = Math.max(1, count);
+    return submit("shardCount", () -> {
+      DictionarySnapshot snapshot = current.get();
+      return publish(snapshot.index(), libraryEnabled && snapshot.library() == null);
+    });
+  }
+
+  /**
+   * Восстановление словаря в потоке записи при подключении журнала.
+   */
+  @FunctionalInterface
+  interface Recovery {
+    /**
+     * @return индекс для публикации или {@code null}, если словарь не изменился
+     */
+    RadixTrieIndex recover(Vocabulary vocabulary, DictionarySnapshot current) throws IOException;
+  }
+
+  /**
+   * Восстанавливает словарь и с этого момента сообщает все его изменения {@code listener}.
+   * Восстановление в журнал не попадает.
+   */
+  CompletableFuture<DictionarySnapshot> attach(Vocabulary.Listener listener, Recovery recovery) {
+    return submit("attachJournal", () -> {
+      vocabulary.setListener(null);
+      RadixTrieIndex index = recovery.recover(vocabulary, current.get());
+      vocabulary.drainChanges();
+      vocabulary.setListener(listener);
+      return index == null ? current.get() : publish(index, true);
+    });
+  }
+
+  CompletableFuture<DictionarySnapshot> detach() {
+    return submit("detachJournal", () -> {
+      vocabulary.setListener(null);
+      return current.get();
+    });
+  }
+
+  /**
+   * Выполняет {@code action} в потоке записи между изменениями: текущая версия содержит ровно те
+   * изменения, о которых уже сообщено слушателю.
+   */
+  CompletableFuture<DictionarySnapshot> checkpoint(Consumer<DictionarySnapshot> action) {
+    return submit("checkpoint", () -> {
+      DictionarySnapshot snapshot = current.get();
+      action.accept(snapshot);
+      return snapshot;
+    });
+  }
+
+  private CompletableFuture<DictionarySnapshot> submit(String operation, IoSupplier task) {
+    return CompletableFuture.supplyAsync(() -> {
+      DictionaryUpdateEvent event = new DictionaryUpdateEvent();
+      event.begin();
+      libraryRebuilt = false;
+      incremental = false;
+      boolean failed = true;
+      try {
+        DictionarySnapshot snapshot = task.get();
+        failed = false;
+        return snapshot;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        event.end();
+        if (event.shouldCommit()) {
+          DictionarySnapshot snapshot = current.get();
+          event.operation = operation;
+          event.dictionaryVersion = snapshot.version();
+          event.words = snapshot.size();
+          event.libraryRebuilt = libraryRebuilt;
+          event.incremental = incremental;
+          event.failed = failed;
+          event.commit();
+        }
+      }
+    }, writer);
+  }
+
+  @FunctionalInterface
+  private interface IoSupplier {
+    DictionarySnapshot get() throws IOException;
+  }
+
+  /**
+   * Собирает и публикует следующую версию. Вызывается только в потоке записи.
+   *
+   * @param rebuildLibrary заново загрузить {@code TextAnalyzer}; иначе взять анализатор текущей
+   *        версии
+   */
+  private DictionarySnapshot publish(RadixTrieIndex index, boolean rebuildLibrary)
+      throws IOException {
+    // Пары меняются вместе со словами, то есть с новым индексом
+    DictionarySnapshot previous = current.get();
+    return publish(index, rebuildLibrary, previous.index() == index
+        ? previous.nextWords() : NextWordIndex.build(vocabulary, index));
+  }
+
+  private DictionarySnapshot publish(RadixTrieIndex index, boolean rebuildLibrary,
+      NextWordIndex nextWords) throws IOException {
+    DictionarySnapshot previous = current.get();
+    LibraryBackend library = null;
+    if (libraryEnabled) {
+      libraryRebuilt = rebuildLibrary || previous.library() == null;
+      library = libraryRebuilt ? new LibraryBackend(loadAnalyzer(index), libraryConfig)
+          : previous.library().withConfig(libraryConfig);
+    }
+    ShardedIndex shards = null;
+    if (shardCount > 1) {
+      if (previous.shards() == null || previous.shards().shardCount() != shardCount) {
+        shards = ShardedIndex.build(index, shardCount, ForkJoinPool.commonPool());
+      } else {
+        // Части базы переиспользуются, пока база индекса та же
+        shards = previous.index() == index ? previous.shards() : previous.shards().update(index);
+      }
+    }
+    DictionarySnapshot next =
+        new DictionarySnapshot(nextVersion++, index, library, shards, nextWords);
+    current.set(next);
+    for (Consumer<DictionarySnapshot> listener : listeners) {
+      listener.accept(next);
+    }
+    return next;
+  }
+
+  /**
+   * {@code TextAnalyzer} не принимает частоты напрямую, поэтому весь словарь передаётся через файл
+   * в его собственном формате; текстом с повторами он вышел бы длиной в сумму частот.
+   */
+  private static TextAnalyzer loadAnalyzer(RadixTrieIndex index) throws IOException {
+    TextAnalyzer analyzer = new TextAnalyzer(new SimpleTokenizer());
+    File tempFile = File.createTempFile("dict", null);
+    try {
+      TrieFileFormat.write(index, tempFile);
+      LibraryLoadEvent event = new LibraryLoadEvent();
+      event.begin();
+      analyzer.loadFromFile(tempFile);
+      event.end();
+      if (event.shouldCommit()) {
+        event.words = index.size();
+        event.bytes = tempFile.length();
+        event.commit();
+      }
+    } finally {
+      tempFile.delete();
+    }
+    return analyzer;
+  }
+
+  @Override
+  public void close() {
+    writer.shutdownNow();
+  }
+}
@@ -0,0 +1,45 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocomplete.AutocompleteProvider;
+import io.github.autocomplete.TextAnalyzer;
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocomplete.model.Candidate;
+
+import java.util.List;
+
+/**
+ * Библиотечный бэкенд одной версии словаря: {@code TextAnalyzer} и провайдер над ним.
+ *
+ * <p>
+ * После публикации анализатор не меняется, поэтому запросы идут без блокировок, а старая версия
+ * не видит слов, добавленных после неё. {@code TextAnalyzer} нельзя скопировать и нельзя передать
+ * ему частоты, кроме как файлом, поэтому каждая версия с изменёнными словами загружает новый
+ * анализатор целиком - в потоке записи, до публикации. Это стоит O(размер словаря) на изменение;
+ * бэкенд по умолчанию - {@code RADIX_TRIE}, который обновляется по изменённым словам.
+ */
+public final class LibraryBackend {
+
+  private final TextAnalyzer analyzer;
+  private final AutocompleteProvider provider;
+
+  LibraryBackend(TextAnalyzer analyzer, AutocompleteConfig config) {
+    this.analyzer = analyzer;
+    this.provider = new AutocompleteProvider(analyzer, config);
+  }
+
+  public List<Candidate> getAutocomplete(String prefix, int maxSuggestions) {
+    return provider.getAutocomplete(prefix, maxSuggestions);
+  }
+
+  /**
+   * Тот же анализатор с новым провайдером: провайдер текущей версии не меняется, им могут
+   * пользоваться читатели.
+   */
+  LibraryBackend withConfig(AutocompleteConfig config) {
+    return new LibraryBackend(analyzer, config);
+  }
+
+  TextAnalyzer analyzer() {
+    return analyzer;
+  }
+}
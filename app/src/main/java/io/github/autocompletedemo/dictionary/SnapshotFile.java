@@ -0,0 +1,310 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import io.github.autocompletedemo.index.Utf8Words;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Бинарный снимок словаря, который открывается отображением файла в память.
+ *
+ * <p>
+ * Заголовок фиксированного размера ({@value #HEADER_SIZE} байт), числа big-endian:
+ *
+ * <pre>
+ * int  magic "ACDS"      int  version        int  flags (1 - есть индекс)
+ * int  wordCount         long offsetsPos     long stringsPos
+ * long countsPos         long indexPos       long end
+ * long crc32c            (CRC32C всех байт после заголовка)
+ * </pre>
+ *
+ * <p>
+ * Секции: {@code int[wordCount + 1]} смещений строк, UTF-8 байты слов в порядке
+ * {@link String#compareTo}, {@code int[wordCount]} частот и, если установлен флаг, узлы
+ * {@link RadixTrieIndex} в формате {@link RadixTrieIndex#writeNodes}. Порядок секций задают только
+ * их позиции в заголовке. Загрузка не токенизирует, не сортирует и не пересчитывает top-k списки:
+ * массивы копируются из отображённого файла целиком, а слова читаются прямо из него.
+ */
+public final class SnapshotFile {
+
+  private static final int MAGIC = 0x41434453; // "ACDS"
+  private static final int VERSION = 1;
+  private static final int FLAG_INDEX = 1;
+  static final int HEADER_SIZE = 64;
+
+  /**
+   * Содержимое снимка. Индекс есть всегда: если в файле его не было, он строится при загрузке.
+   *
+   * @param words слова в UTF-8 прямо в данных снимка (в отображённом файле), без строк
+   */
+  public record Contents(Utf8Words words, int[] counts, RadixTrieIndex index) {
+  }
+
+  private SnapshotFile() {
+  }
+
+  /**
+   * Пишет снимок во временный файл рядом с целевым и атомарно переименовывает его.
+   */
+  public static void write(File file, RadixTrieIndex index, boolean includeIndex)
+      throws IOException {
+    Path target = file.toPath().toAbsolutePath();
+    Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        writeTo(channel, index, includeIndex);
+      }
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Потоковая запись снимка без индекса из слов, отсортированных по {@link String#compareTo}:
+   * словарь не собирается в памяти, поэтому может быть больше кучи. Индекс строится при загрузке.
+   */
+  public static SortedWordWriter sortedWriter(File file) throws IOException {
+    return new StreamingWriter(file.toPath().toAbsolutePath());
+  }
+
+  private static void writeTo(FileChannel channel, RadixTrieIndex index, boolean includeIndex)
+      throws IOException {
+    // Одно дерево без изменений поверх: слова и узлы читаются из него по номерам
+    index = index.compact();
+    int wordCount = index.size();
+    byte[][] encoded = new byte[wordCount][];
+    for (int i = 0; i < wordCount; i++) {
+      encoded[i] = index.word(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    channel.position(HEADER_SIZE);
+    CRC32C crc = new CRC32C();
+    DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+
+    long offsetsPos = HEADER_SIZE + out.size();
+    int offset = 0;
+    out.writeInt(offset);
+    for (byte[] word : encoded) {
+      offset += word.length;
+      out.writeInt(offset);
+    }
+    long stringsPos = HEADER_SIZE + out.size();
+    for (byte[] word : encoded) {
+      out.write(word);
+    }
+    long countsPos = HEADER_SIZE + out.size();
+    for (int i = 0; i < wordCount; i++) {
+      out.writeInt(index.count(i));
+    }
+    long indexPos = 0;
+    if (includeIndex) {
+      indexPos = HEADER_SIZE + out.size();
+      index.writeNodes(out);
+    }
+    out.flush();
+    long end = channel.position();
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(VERSION).putInt(includeIndex ? FLAG_INDEX : 0).putInt(wordCount);
+    header.putLong(offsetsPos).putLong(stringsPos).putLong(countsPos).putLong(indexPos);
+    header.putLong(end).putLong(crc.getValue());
+    header.flip();
+    channel.write(header, 0);
+    channel.force(false);
+  }
+
+  /**
+   * Открывает снимок через {@link MappedByteBuffer} и проверяет версию и контрольную сумму.
+   */
+  public static Contents read(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IOException("Not a dictionary snapshot: file too short");
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Dictionary snapshot larger than 2 GB is not supported");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return read(buffer);
+    }
+  }
+
+  /**
+   * Читает снимок из потока, например из ресурса jar, который нельзя отобразить в память.
+   */
+  public static Contents read(InputStream in) throws IOException {
+    byte[] bytes = in.readAllBytes();
+    if (bytes.length < HEADER_SIZE) {
+      throw new IOException("Not a dictionary snapshot: file too short");
+    }
+    return read(ByteBuffer.wrap(bytes));
+  }
+
+  static Contents read(ByteBuffer buffer) throws IOException {
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a dictionary snapshot: bad magic");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported dictionary snapshot version: " + version);
+    }
+    int flags = buffer.getInt(8);
+    int wordCount = buffer.getInt(12);
+    int offsetsPos = position(buffer, 16);
+    int stringsPos = position(buffer, 24);
+    int countsPos = position(buffer, 32);
+    int indexPos = position(buffer, 40);
+    int end = position(buffer, 48);
+    long checksum = buffer.getLong(56);
+
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(HEADER_SIZE, end - HEADER_SIZE));
+    if (crc.getValue() != checksum) {
+      throw new IOException("Dictionary snapshot is corrupted: checksum mismatch");
+    }
+
+    int[] offsets = new int[wordCount + 1];
+    buffer.slice(offsetsPos, 4 * (wordCount + 1)).asIntBuffer().get(offsets);
+    Utf8Words words =
+        new Utf8Words(buffer.slice(stringsPos, offsets[wordCount]), offsets, wordCount);
+    if (!words.isBmp()) {
+      throw new IOException("Dictionary snapshot is corrupted: word outside the BMP");
+    }
+
+    int[] counts = new int[wordCount];
+    IntBuffer countsView = buffer.slice(countsPos, 4 * wordCount).asIntBuffer();
+    countsView.get(counts);
+
+    RadixTrieIndex index;
+    if ((flags & FLAG_INDEX) != 0) {
+      index = RadixTrieIndex.readNodes(buffer.slice(indexPos, end - indexPos), words, counts);
+    } else {
+      index = RadixTrieIndex.build(words, counts, RadixTrieIndex.DEFAULT_TOP_K);
+    }
+    return new Contents(words, counts, index);
+  }
+
+  private static int position(ByteBuffer buffer, int headerOffset) throws IOException {
+    long value = buffer.getLong(headerOffset);
+    if (value < 0 || value > buffer.limit()) {
+      throw new IOException("Dictionary snapshot is corrupted: bad section offset");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Строки пишутся сразу во временный файл снимка, смещения и частоты - в два файла рядом; при
+   * закрытии они дописываются после строк, заголовок указывает на секции, и снимок атомарно
+   * переименовывается. В памяти только буферы потоков.
+   */
+  private static final class StreamingWriter implements SortedWordWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path target;
+    private final Path temp;
+    private final Path offsetsTemp;
+    private final Path countsTemp;
+    private final FileChannel channel;
+    private final CRC32C crc = new CRC32C();
+    private final DataOutputStream out;
+    private final DataOutputStream offsets;
+    private final DataOutputStream counts;
+    private String previous = "";
+    private int wordCount;
+    private long stringBytes;
+    private boolean closed;
+
+    StreamingWriter(Path target) throws IOException {
+      this.target = target;
+      String name = target.getFileName().toString();
+      temp = Files.createTempFile(target.getParent(), name, ".tmp");
+      offsetsTemp = Files.createTempFile(target.getParent(), name, ".offsets");
+      countsTemp = Files.createTempFile(target.getParent(), name, ".counts");
+      channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+      channel.position(HEADER_SIZE);
+      out = new DataOutputStream(new CheckedOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), crc));
+      offsets = stream(offsetsTemp);
+      counts = stream(countsTemp);
+      offsets.writeInt(0);
+    }
+
+    private static DataOutputStream stream(Path file) throws IOException {
+      return new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+    }
+
+    @Override
+    public void add(String word, int count) throws IOException {
+      if (word.isEmpty() || word.compareTo(previous) <= 0) {
+        throw new IllegalArgumentException("Words must be non-empty and ascending: " + word);
+      }
+      byte[] encoded = word.getBytes(StandardCharsets.UTF_8);
+      stringBytes += encoded.length;
+      if (stringBytes > Integer.MAX_VALUE) {
+        throw new IOException("Dictionary snapshot larger than 2 GB is not supported");
+      }
+      out.write(encoded);
+      offsets.writeInt((int) stringBytes);
+      counts.writeInt(count);
+      wordCount++;
+      previous = word;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        offsets.close();
+        counts.close();
+        long offsetsPos = HEADER_SIZE + stringBytes;
+        Files.copy(offsetsTemp, out);
+        long countsPos = offsetsPos + 4L * (wordCount + 1);
+        Files.copy(countsTemp, out);
+        out.flush();
+        long end = channel.position();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(wordCount);
+        header.putLong(offsetsPos).putLong(HEADER_SIZE).putLong(countsPos).putLong(0);
+        header.putLong(end).putLong(crc.getValue());
+        header.flip();
+        channel.write(header, 0);
+        channel.force(false);
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        channel.close();
+        Files.deleteIfExists(temp);
+        Files.deleteIfExists(offsetsTemp);
+        Files.deleteIfExists(countsTemp);
+      }
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package io.github.autocompletedemo.dictionary;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Потоковая запись словаря, слова которого приходят уже отсортированными: словарь не собирается
+ * в памяти целиком, поэтому может быть больше кучи. Файл готов после {@link #close}.
+ */
+public interface SortedWordWriter extends Closeable {
+
+  /**
+   * @param word слово больше всех предыдущих по {@link String#compareTo}
+   * @throws IllegalArgumentException если порядок нарушен или слово пустое
+   */
+  void add(String word, int count) throws IOException;
+}
@@ -0,0 +1,272 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.RadixTrieIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Формат словаря, который пишет {@code TextAnalyzer.saveToFile} (и в котором лежит встроенный
+ * словарь {@code /dict}).
+ *
+ * <p>
+ * Заголовок - "TRIE" и версия (int). Дальше узлы префиксного дерева в прямом порядке: у корня
+ * {@code int count, int childCount}, у остальных узлов перед ними ещё {@code char}. Все числа -
+ * big-endian, как у {@link DataOutputStream}.
+ */
+public final class TrieFileFormat {
+
+  private static final int MAGIC = 0x54524945; // "TRIE"
+  private static final int VERSION = 1;
+
+  private TrieFileFormat() {
+  }
+
+  public static void read(File file, ObjIntConsumer<String> consumer) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      read(in, consumer);
+    }
+  }
+
+  /**
+   * Читает словарь и передаёт каждое слово с ненулевой частотой в {@code consumer}.
+   */
+  public static void read(InputStream in, ObjIntConsumer<String> consumer) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a dictionary file: bad magic");
+    }
+    int version = data.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported dictionary version: " + version);
+    }
+    readNode(data, new StringBuilder(), consumer);
+  }
+
+  private static void readNode(DataInputStream data, StringBuilder word,
+      ObjIntConsumer<String> consumer) throws IOException {
+    int count = data.readInt();
+    int childCount = data.readInt();
+    if (count > 0) {
+      consumer.accept(word.toString(), count);
+    }
+    for (int i = 0; i < childCount; i++) {
+      word.append(data.readChar());
+      readNode(data, word, consumer);
+      word.setLength(word.length() - 1);
+    }
+  }
+
+  /**
+   * Пишет слова индекса; они уже отсортированы, поэтому сортировка не нужна.
+   */
+  public static void write(RadixTrieIndex index, File file) throws IOException {
+    String[] words = new String[index.size()];
+    int[] counts = new int[index.size()];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = index.word(i);
+      counts[i] = index.count(i);
+    }
+    write(words, counts, file);
+  }
+
+  /**
+   * @param words слова, отсортированные по {@link String#compareTo}, без повторов
+   */
+  public static void write(String[] words, int[] counts, File file) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      write(words, counts, out);
+    }
+  }
+
+  public static void write(Map<String, Integer> counts, File file) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      write(counts, out);
+    }
+  }
+
+  public static void write(Map<String, Integer> counts, OutputStream out) throws IOException {
+    String[] words = counts.keySet().toArray(new String[0]);
+    Arrays.sort(words);
+    int[] wordCounts = new int[words.length];
+    for (int i = 0; i < words.length; i++) {
+      wordCounts[i] = counts.get(words[i]);
+    }
+    write(words, wordCounts, out);
+  }
+
+  /**
+   * Потоковая запись слов, отсортированных по {@link String#compareTo}, в том же формате: в памяти
+   * только путь от корня до последнего слова, так что словарь может быть больше кучи.
+   */
+  public static SortedWordWriter sortedWriter(File file) throws IOException {
+    return new StreamingWriter(FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+  }
+
+  private static void write(String[] words, int[] counts, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    writeNode(data, words, counts, 0, words.length, 0);
+    data.flush();
+  }
+
+  /**
+   * Пишет узел глубины {@code depth}; слова с этим префиксом занимают [lo, hi) в отсортированном
+   * массиве.
+   */
+  private static void writeNode(DataOutputStream data, String[] words, int[] counts, int lo,
+      int hi, int depth) throws IOException {
+    int count = 0;
+    if (lo < hi && words[lo].length() == depth) {
+      count = counts[lo];
+      lo++;
+    }
+
+    int childCount = 0;
+    for (int i = lo; i < hi; i = childEnd(words, i, hi, depth)) {
+      childCount++;
+    }
+    data.writeInt(count);
+    data.writeInt(childCount);
+
+    for (int i = lo; i < hi;) {
+      int end = childEnd(words, i, hi, depth);
+      data.writeChar(words[i].charAt(depth));
+      writeNode(data, words, counts, i, end, depth + 1);
+      i = end;
+    }
+  }
+
+  private static int childEnd(String[] words, int start, int hi, int depth) {
+    char c = words[start].charAt(depth);
+    int end = start + 1;
+    while (end < hi && words[end].charAt(depth) == c) {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * Узлы пишутся при первом слове с их префиксом, а число детей узла известно, только когда узел
+   * закрывается (приходит слово с другим префиксом). Поэтому на его месте пишется 0, а при
+   * закрытии число вписывается в буфер или, если буфер уже сброшен, прямо в файл. Сброшенными
+   * оказываются только узлы с большими поддеревьями, их немного.
+   */
+  private static final class StreamingWriter implements SortedWordWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    // Позиция начала буфера в файле
+    private long flushed;
+    // Узлы пути к последнему слову: узел глубины d - его префикс длины d
+    private long[] childCountPositions = new long[32];
+    private int[] children = new int[32];
+    private String previous = "";
+    private boolean closed;
+
+    StreamingWriter(FileChannel channel) throws IOException {
+      this.channel = channel;
+      buffer.putInt(MAGIC).putInt(VERSION);
+      openNode(0, 0);
+    }
+
+    @Override
+    public void add(String word, int count) throws IOException {
+      if (word.isEmpty() || word.compareTo(previous) <= 0) {
+        throw new IllegalArgumentException("Words must be non-empty and ascending: " + word);
+      }
+      int common = 0;
+      int limit = Math.min(previous.length(), word.length());
+      while (common < limit && previous.charAt(common) == word.charAt(common)) {
+        common++;
+      }
+      for (int depth = previous.length(); depth > common; depth--) {
+        closeNode(depth);
+      }
+      for (int depth = common + 1; depth <= word.length(); depth++) {
+        children[depth - 1]++;
+        ensure(Character.BYTES);
+        buffer.putChar(word.charAt(depth - 1));
+        openNode(depth, depth == word.length() ? count : 0);
+      }
+      previous = word;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        for (int depth = previous.length(); depth >= 0; depth--) {
+          closeNode(depth);
+        }
+        flush();
+      } finally {
+        channel.close();
+      }
+    }
+
+    private void openNode(int depth, int count) throws IOException {
+      if (depth == children.length) {
+        childCountPositions = Arrays.copyOf(childCountPositions, depth * 2);
+        children = Arrays.copyOf(children, depth * 2);
+      }
+      ensure(2 * Integer.BYTES);
+      buffer.putInt(count);
+      childCountPositions[depth] = flushed + buffer.position();
+      children[depth] = 0;
+      buffer.putInt(0);
+    }
+
+    private void closeNode(int depth) throws IOException {
+      int childCount = children[depth];
+      long position = childCountPositions[depth];
+      if (childCount == 0) {
+        return;
+      }
+      if (position >= flushed) {
+        buffer.putInt((int) (position - flushed), childCount);
+      } else {
+        ByteBuffer patch = ByteBuffer.allocate(Integer.BYTES).putInt(0, childCount);
+        while (patch.hasRemaining()) {
+          channel.write(patch, position + patch.position());
+        }
+      }
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      flushed += buffer.remaining();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+}
@@ -0,0 +1,371 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.Utf8Words;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Частоты слов словаря на стороне приложения.
+ *
+ * <p>
+ * Повторяет операции {@code TextAnalyzer} ({@code addText}, {@code loadFromFile},
+ * {@code saveToFile}, {@code clear}) и читает/пишет тот же формат файла, но, в отличие от
+ * библиотеки, даёт доступ к самим частотам. По ним строятся собственные индексы приложения.
+ * Слова выделяются {@link WordTokenizer} по правилам {@link WordBoundaries}.
+ *
+ * <p>
+ * Частоты хранятся в {@link WordCountTable}: слова в UTF-8 вне кучи, номера и частоты в
+ * примитивных массивах. На словаре в миллионы слов это избавляет от объектов {@code String},
+ * {@code Integer} и узлов {@code HashMap} на каждое слово и от долгих пауз сборщика при
+ * перезагрузке; {@link #count} не выделяет память.
+ *
+ * <p>
+ * Кроме частот слов, {@link #addText} и {@link #addUtf8Text} считают пары соседних слов одного
+ * предложения (по номерам слов, см. {@link BigramCounts}) - по ним строится предсказание
+ * следующего слова. Память под пары ограничена {@link #setBigramBudget}. Файл словаря хранит только
+ * частоты, поэтому {@link #loadFromFile} и {@link #replace} пары сбрасывают.
+ *
+ * <p>
+ * Слова только из символов BMP, как их выделяет {@link WordBoundaries}: {@link #add} и
+ * {@link #loadFromFile} остальные слова пропускают, {@link #replace} их не принимает.
+ */
+public class Vocabulary {
+
+  /**
+   * Получает каждое изменение частот, например для журнала ({@link DictionaryJournal}).
+   */
+  public interface Listener {
+    void added(String word, int count);
+
+    void cleared();
+  }
+
+  /**
+   * Получает пары соседних слов и их частоты.
+   */
+  @FunctionalInterface
+  public interface BigramAction {
+    void accept(String previous, String next, int count);
+  }
+
+  /**
+   * Получает пары соседних слов по номерам из {@link #words}.
+   */
+  @FunctionalInterface
+  public interface BigramIdAction {
+    void accept(int previous, int next, int count);
+  }
+
+  /**
+   * Что изменилось с прошлого {@link #drainChanges}.
+   *
+   * @param words номера слов с новой частотой по возрастанию; {@code null} - словарь заменён
+   *        целиком, номера выданы заново
+   * @param bigrams изменённые пары: номер предыдущего слова в старших 32 битах, следующего - в
+   *        младших, по возрастанию; {@code null} - пары удалялись
+   */
+  record Changes(int[] words, long[] bigrams) {
+  }
+
+  public static final long DEFAULT_BIGRAM_BUDGET_BYTES = 4 << 20;
+
+  private final WordCountTable counts = new WordCountTable();
+  private final BigramCounts bigrams = new BigramCounts(DEFAULT_BIGRAM_BUDGET_BYTES);
+  private Listener listener;
+  // Нормализованное слово перед поиском в таблице
+  private final StringBuilder scratch = new StringBuilder();
+  // Номер предыдущего слова текущего предложения (-1 - его нет) и где оно кончилось
+  private int previousId;
+  private int previousEnd;
+
+  public void addText(CharSequence text) {
+    addText(text, 0, text.length());
+  }
+
+  /**
+   * Добавляет слова из {@code text[start, end)}; новое слово - единственное, что выделяет память.
+   *
+   * @return число слов
+   */
+  public int addText(CharSequence text, int start, int end) {
+    previousId = -1;
+    previousEnd = start;
+    return WordTokenizer.forEachWord(text, start, end, (wordStart, wordEnd) -> {
+      int id;
+      if (listener == null && WordBoundaries.isNormalized(text, wordStart, wordEnd)) {
+        // Слово уже в нижнем регистре: ищем прямо в тексте, без копии
+        id = counts.add(text, wordStart, wordEnd, 1);
+      } else {
+        id = addWord(WordBoundaries.normalize(text, wordStart, wordEnd, scratch), 1);
+      }
+      for (int i = previousEnd; i < wordStart && previousId >= 0; i++) {
+        if (WordBoundaries.isSentenceEnd(text.charAt(i))) {
+          previousId = -1;
+        }
+      }
+      follow(id, wordEnd);
+    });
+  }
+
+  /**
+   * Добавляет слова из байтов UTF-8 {@code utf8[start, end)} (абсолютные индексы), не декодируя
+   * текст в строку.
+   *
+   * @return число слов
+   */
+  public int addUtf8Text(ByteBuffer utf8, int start, int end) {
+    previousId = -1;
+    previousEnd = start;
+    return WordTokenizer.forEachUtf8Word(utf8, start, end, (wordStart, wordEnd) -> {
+      int id;
+      if (listener == null && WordBoundaries.isNormalizedUtf8(utf8, wordStart, wordEnd)) {
+        id = counts.addUtf8(utf8, wordStart, wordEnd, 1);
+      } else {
+        id = addWord(WordBoundaries.normalizeUtf8(utf8, wordStart, wordEnd, scratch), 1);
+      }
+      // Знаки конца предложения - ASCII, байты многобайтовых символов с ними не совпадают
+      for (int i = previousEnd; i < wordStart && previousId >= 0; i++) {
+        if (WordBoundaries.isSentenceEnd((char) utf8.get(i))) {
+          previousId = -1;
+        }
+      }
+      follow(id, wordEnd);
+    });
+  }
+
+  private void follow(int id, int wordEnd) {
+    if (previousId >= 0) {
+      bigrams.add(previousId, id, 1);
+    }
+    previousId = id;
+    previousEnd = wordEnd;
+  }
+
+  /**
+   * Прибавляет частоту слова; слово с символами вне BMP пропускается.
+   */
+  public void add(CharSequence word, int count) {
+    if (WordBoundaries.isBmp(word)) {
+      addWord(word, count);
+    }
+  }
+
+  private int addWord(CharSequence word, int count) {
+    int id = counts.add(word, count);
+    if (listener != null) {
+      listener.added(word.toString(), count);
+    }
+    return id;
+  }
+
+  /**
+   * Прибавляет частоты слов и пар другого словаря.
+   */
+  public void addAll(Vocabulary other) {
+    int[] ids;
+    if (listener == null) {
+      ids = counts.addAll(other.counts);
+    } else {
+      ids = new int[other.size()];
+      for (int id = 0; id < ids.length; id++) {
+        ids[id] = addWord(other.counts.word(id), other.counts.count(id));
+      }
+    }
+    bigrams.addAll(other.bigrams, ids);
+  }
+
+  /**
+   * Прибавляет только те пары другого словаря, оба слова которых уже есть в этом.
+   */
+  public void addBigrams(Vocabulary other) {
+    int[] ids = new int[other.size()];
+    for (int id = 0; id < ids.length; id++) {
+      ids[id] = counts.id(other.counts.word(id));
+    }
+    bigrams.addAll(other.bigrams, ids);
+  }
+
+  /**
+   * Частота пары соседних слов.
+   */
+  public int bigramCount(CharSequence previous, CharSequence next) {
+    int previousWord = counts.id(previous);
+    int nextWord = counts.id(next);
+    return previousWord < 0 || nextWord < 0 ? 0 : bigrams.count(previousWord, nextWord);
+  }
+
+  /**
+   * Частота пары по номерам из {@link #words}.
+   */
+  public int bigramCount(int previous, int next) {
+    return bigrams.count(previous, next);
+  }
+
+  public int bigramCount() {
+    return bigrams.size();
+  }
+
+  /**
+   * Обходит пары по номерам слов, не создавая строк.
+   */
+  public void forEachBigramId(BigramIdAction action) {
+    bigrams.forEach(action::accept);
+  }
+
+  /**
+   * Обходит пары; строка каждого слова создаётся один раз за обход.
+   */
+  public void forEachBigram(BigramAction action) {
+    String[] words = new String[counts.size()];
+    bigrams.forEach((previous, next, count) -> {
+      if (words[previous] == null) {
+        words[previous] = counts.word(previous);
+      }
+      if (words[next] == null) {
+        words[next] = counts.word(next);
+      }
+      action.accept(words[previous], words[next], count);
+    });
+  }
+
+  public long bigramBudget() {
+    return bigrams.budgetBytes();
+  }
+
+  /**
+   * Ограничивает память под пары; 0 - не собирать пары.
+   *
+   * @return были ли удалены пары, чтобы уложиться в новый бюджет
+   */
+  public boolean setBigramBudget(long budgetBytes) {
+    return bigrams.setBudget(budgetBytes);
+  }
+
+  /**
+   * Сколько контекстов (предыдущих слов) удалено из-за бюджета.
+   */
+  public long prunedBigramContexts() {
+    return bigrams.prunedContexts();
+  }
+
+  public int count(CharSequence word) {
+    return counts.count(word);
+  }
+
+  /**
+   * Частота слова с номером {@code id} из {@link #words}.
+   */
+  public int count(int id) {
+    return counts.count(id);
+  }
+
+  public int size() {
+    return counts.size();
+  }
+
+  /**
+   * Слова по номерам прямо в буфере словаря. Вид не меняется при дальнейших изменениях словаря,
+   * поэтому его можно отдать читателям из других потоков: так индекс обходится без копии слов.
+   */
+  public Utf8Words words() {
+    return counts.words();
+  }
+
+  public void forEach(ObjIntConsumer<String> action) {
+    counts.forEach(action);
+  }
+
+  /**
+   * Заменяет содержимое словарём из файла; слова с символами вне BMP пропускаются.
+   */
+  public void loadFromFile(File file) throws IOException {
+    WordCountTable loaded = new WordCountTable();
+    TrieFileFormat.read(file, (word, count) -> {
+      if (WordBoundaries.isBmp(word)) {
+        loaded.add(word, count);
+      }
+    });
+    clear();
+    loaded.forEach(this::add);
+  }
+
+  /**
+   * Заменяет содержимое готовыми словами и частотами (например, из {@link SnapshotFile}); байты
+   * слов копируются без декодирования. Номера слов в {@link #words} после замены совпадают с
+   * номерами в {@code words}, поэтому слово вне BMP не пропускается, а отвергается.
+   *
+   * @throws IllegalArgumentException если среди слов есть символы вне BMP
+   */
+  public void replace(Utf8Words words, int[] wordCounts) {
+    if (!words.isBmp()) {
+      throw new IllegalArgumentException("Dictionary words outside the BMP are not supported");
+    }
+    counts.clear(words.size());
+    bigrams.clear();
+    if (listener != null) {
+      listener.cleared();
+    }
+    ByteBuffer bytes = words.bytes();
+    for (int i = 0; i < words.size(); i++) {
+      if (listener == null) {
+        counts.addUtf8(bytes, words.start(i), words.end(i), wordCounts[i]);
+      } else {
+        addWord(words.word(i), wordCounts[i]);
+      }
+    }
+  }
+
+  public void saveToFile(File file) throws IOException {
+    String[] words = new String[counts.size()];
+    int[] position = {0};
+    counts.forEach((word, count) -> words[position[0]++] = word);
+    Arrays.sort(words);
+    int[] wordCounts = new int[words.length];
+    for (int i = 0; i < words.length; i++) {
+      wordCounts[i] = counts.count(words[i]);
+    }
+    TrieFileFormat.write(words, wordCounts, file);
+  }
+
+  public void clear() {
+    counts.clear(0);
+    bigrams.clear();
+    if (listener != null) {
+      listener.cleared();
+    }
+  }
+
+  /**
+   * Изменения частот слов и пар с прошлого вызова; после него отсчёт начинается заново.
+   */
+  Changes drainChanges() {
+    int[] words = counts.drainChanged();
+    long[] pairs = bigrams.drainChanged();
+    return new Changes(words, words == null ? null : pairs);
+  }
+
+  /**
+   * @param listener слушатель изменений или {@code null}
+   */
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Память в куче: примитивные массивы номеров, хешей и частот слов и пар.
+   */
+  public long heapBytes() {
+    return counts.heapBytes() + bigrams.heapBytes();
+  }
+
+  /**
+   * Память вне кучи: буфер со словами в UTF-8.
+   */
+  public long offHeapBytes() {
+    return counts.offHeapBytes();
+  }
+}
@@ -0,0 +1,168 @@
+package io.github.autocompletedemo.dictionary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Правила разбиения текста на слова: слово - непрерывная последовательность букв и цифр, в словарь
+ * попадает в нижнем регистре.
+ *
+ * <p>
+ * Буквы вне BMP (суррогатные пары в UTF-16, четырёхбайтовые символы в UTF-8) словами не считаются,
+ * чтобы текст, токенизированный по {@code char} и по байтам UTF-8, давал одни и те же слова.
+ */
+public final class WordBoundaries {
+
+  private static final char CAPITAL_I_WITH_DOT = 'İ';
+  private static final char CAPITAL_SIGMA = 'Σ';
+  // Биты символов '0'-'9' и 'A'-'Z', 'a'-'z' (сдвиг на 64) в ASCII
+  private static final long ASCII_DIGITS = 0x03ff_0000_0000_0000L;
+  private static final long ASCII_LETTERS = 0x07ff_fffe_07ff_fffeL;
+
+  private WordBoundaries() {
+  }
+
+  public static boolean isWordChar(char c) {
+    if (c < 0x80) {
+      // Частый случай ASCII - без таблиц Unicode
+      return c < 0x40 ? (ASCII_DIGITS & (1L << c)) != 0 : (ASCII_LETTERS & (1L << c)) != 0;
+    }
+    return Character.isLetterOrDigit(c);
+  }
+
+  public static boolean isWordCodePoint(int codePoint) {
+    return codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT
+        && Character.isLetterOrDigit(codePoint);
+  }
+
+  /**
+   * Состоит ли слово только из символов BMP, то есть без суррогатов (пар и одиночных); другие слова
+   * в словарь не попадают.
+   */
+  public static boolean isBmp(CharSequence word) {
+    for (int i = 0; i < word.length(); i++) {
+      if (Character.isSurrogate(word.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Заканчивает ли символ предложение: пары соседних слов через него не считаются.
+   */
+  public static boolean isSentenceEnd(char c) {
+    return c == '.' || c == '!' || c == '?';
+  }
+
+  /**
+   * Слово из {@code text[start, end)} в том виде, в каком оно хранится в словаре.
+   */
+  public static String normalize(CharSequence text, int start, int end) {
+    return text.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * То же, что {@link #normalize(CharSequence, int, int)}, но в {@code out} и без выделения
+   * памяти; {@code out} очищается.
+   */
+  public static StringBuilder normalize(CharSequence text, int start, int end, StringBuilder out) {
+    out.setLength(0);
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if (c == CAPITAL_I_WITH_DOT || c == CAPITAL_SIGMA) {
+        return contextual(out, normalize(text, start, end));
+      }
+      out.append(Character.toLowerCase(c));
+    }
+    return out;
+  }
+
+  /**
+   * Уже ли слово {@code text[start, end)} в виде для словаря, то есть {@link #normalize} его не
+   * изменит.
+   */
+  public static boolean isNormalized(CharSequence text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80 ? c >= 'A' && c <= 'Z' : Character.toLowerCase(c) != c) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Слово из байтов UTF-8 {@code utf8[start, end)} (абсолютные индексы), границы которого нашёл
+   * {@link WordTokenizer}, в виде для словаря; {@code out} очищается.
+   */
+  public static StringBuilder normalizeUtf8(ByteBuffer utf8, int start, int end,
+      StringBuilder out) {
+    out.setLength(0);
+    int i = start;
+    while (i < end) {
+      int b = utf8.get(i);
+      char c = decode(utf8, i, b);
+      i += utf8Width(b);
+      if (c == CAPITAL_I_WITH_DOT || c == CAPITAL_SIGMA) {
+        return contextual(out, StandardCharsets.UTF_8.decode(utf8.slice(start, end - start))
+            .toString().toLowerCase(Locale.ROOT));
+      }
+      out.append(Character.toLowerCase(c));
+    }
+    return out;
+  }
+
+  /**
+   * То же, что {@link #isNormalized}, для слова из байтов UTF-8 {@code utf8[start, end)}.
+   */
+  public static boolean isNormalizedUtf8(ByteBuffer utf8, int start, int end) {
+    int i = start;
+    while (i < end) {
+      int b = utf8.get(i);
+      if (b >= 0) {
+        if (b >= 'A' && b <= 'Z') {
+          return false;
+        }
+        i++;
+        continue;
+      }
+      char c = decode(utf8, i, b);
+      i += utf8Width(b);
+      if (Character.toLowerCase(c) != c) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Только одно-, двух- и трёхбайтовые символы: других в словах не бывает
+
+  private static int utf8Width(int b) {
+    if (b >= 0) {
+      return 1;
+    }
+    return (b & 0xe0) == 0xc0 ? 2 : 3;
+  }
+
+  private static char decode(ByteBuffer utf8, int i, int b) {
+    if (b >= 0) {
+      return (char) b;
+    }
+    if ((b & 0xe0) == 0xc0) {
+      return (char) (((b & 0x1f) << 6) | (utf8.get(i + 1) & 0x3f));
+    }
+    return (char) (((b & 0x0f) << 12) | ((utf8.get(i + 1) & 0x3f) << 6)
+        | (utf8.get(i + 2) & 0x3f));
+  }
+
+  /**
+   * У этих букв нижний регистр зависит не только от самой буквы ("İ" даёт два символа, "Σ" в конце
+   * слова - "ς"), поэтому слово переводится целиком, как в {@link String#toLowerCase}.
+   */
+  private static StringBuilder contextual(StringBuilder out, String lowerCase) {
+    out.setLength(0);
+    return out.append(lowerCase);
+  }
+}
@@ -0,0 +1,461 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.Footprint;
+import io.github.autocompletedemo.index.Utf8Words;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Таблица частот слов без объектов на слово.
+ *
+ * <p>
+ * Слова лежат подряд в UTF-8 в direct-буфере вне кучи; слову соответствует номер, по номеру в
+ * примитивных массивах хранятся смещение в буфере, хеш и частота. Поиск - открытая адресация с
+ * линейным пробированием по {@code int[]} номеров. Запрос частоты кодирует {@link CharSequence} в
+ * UTF-8 на лету и сравнивает байты прямо в буфере, поэтому ничего не выделяет. Слова не удаляются,
+ * только все сразу через {@link #clear(int)}.
+ *
+ * <p>
+ * Таблица помнит номера слов, частоты которых менялись с последнего {@link #drainChanged}: по ним
+ * индекс обновляется без перестройки.
+ *
+ * <p>
+ * Класс не потокобезопасен.
+ */
+final class WordCountTable {
+
+  private static final int INITIAL_WORDS = 16;
+  private static final int INITIAL_ARENA = 1 << 12;
+  private static final int MAX_ARENA = Integer.MAX_VALUE - 8;
+  private static final int FNV_OFFSET = 0x811c9dc5;
+  private static final int FNV_PRIME = 0x01000193;
+
+  private ByteBuffer arena;
+  private int arenaUsed;
+  // offsets[id] - начало слова, offsets[id + 1] - его конец
+  private int[] offsets;
+  private int[] hashes;
+  private int[] counts;
+  // Номер слова + 1 в каждой ячейке; 0 - пустая ячейка
+  private int[] table;
+  private int size;
+  private final BitSet changed = new BitSet();
+  // Были ли номера выданы заново (clear) с последнего drainChanged
+  private boolean reset;
+
+  WordCountTable() {
+    this(0);
+  }
+
+  WordCountTable(int expectedWords) {
+    allocate(expectedWords);
+  }
+
+  private void allocate(int expectedWords) {
+    int words = Math.max(INITIAL_WORDS, expectedWords);
+    arena = ByteBuffer.allocateDirect(INITIAL_ARENA);
+    arenaUsed = 0;
+    offsets = new int[words + 1];
+    hashes = new int[words];
+    counts = new int[words];
+    table = new int[tableCapacity(words)];
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Частота слова; 0, если слова нет. Не выделяет память.
+   */
+  int count(CharSequence word) {
+    int id = id(word);
+    return id < 0 ? 0 : counts[id];
+  }
+
+  /**
+   * Номер слова или -1, если слова нет. Не выделяет память.
+   */
+  int id(CharSequence word) {
+    int length = word.length();
+    return table[slot(word, 0, length, hash(word, 0, length))] - 1;
+  }
+
+  int count(int id) {
+    return counts[id];
+  }
+
+  /**
+   * @return номер слова
+   */
+  int add(CharSequence word, int count) {
+    return add(word, 0, word.length(), count);
+  }
+
+  /**
+   * Добавляет слово {@code text[start, end)}, не копируя его в отдельную строку.
+   *
+   * @return номер слова
+   */
+  int add(CharSequence text, int start, int end, int count) {
+    int hash = hash(text, start, end);
+    int slot = slot(text, start, end, hash);
+    int id = table[slot] - 1;
+    if (id >= 0) {
+      counts[id] += count;
+      changed.set(id);
+      return id;
+    }
+    id = append(text, start, end, hash, count);
+    table[slot] = id + 1;
+    if (size * 4L > table.length * 3L) {
+      rehash(table.length * 2);
+    }
+    return id;
+  }
+
+  /**
+   * То же, что {@link #add}, для слова, уже записанного в UTF-8 в {@code bytes[start, end)}
+   * (абсолютные индексы); правильность UTF-8 не проверяется.
+   *
+   * @return номер слова
+   */
+  int addUtf8(ByteBuffer bytes, int start, int end, int count) {
+    int hash = FNV_OFFSET;
+    for (int i = start; i < end; i++) {
+      hash = (hash ^ bytes.get(i)) * FNV_PRIME;
+    }
+    hash ^= hash >>> 16;
+    int slot = slot(bytes, start, end, hash);
+    int id = table[slot] - 1;
+    if (id >= 0) {
+      counts[id] += count;
+      changed.set(id);
+      return id;
+    }
+    int length = end - start;
+    reserve(length);
+    arena.put(arenaUsed, bytes, start, length);
+    id = register(arenaUsed + length, hash, count);
+    table[slot] = id + 1;
+    if (size * 4L > table.length * 3L) {
+      rehash(table.length * 2);
+    }
+    return id;
+  }
+
+  /**
+   * Прибавляет частоты другой таблицы, копируя байты слов без декодирования в строки.
+   *
+   * @return номера слов {@code other} в этой таблице
+   */
+  int[] addAll(WordCountTable other) {
+    int[] ids = new int[other.size];
+    for (int id = 0; id < other.size; id++) {
+      int start = other.offsets[id];
+      int end = other.offsets[id + 1];
+      int hash = other.hashes[id];
+      int slot = slot(other.arena, start, end, hash);
+      int existing = table[slot] - 1;
+      if (existing >= 0) {
+        counts[existing] += other.counts[id];
+        changed.set(existing);
+        ids[id] = existing;
+        continue;
+      }
+      int bytes = end - start;
+      reserve(bytes);
+      arena.put(arenaUsed, other.arena, start, bytes);
+      ids[id] = register(arenaUsed + bytes, hash, other.counts[id]);
+      table[slot] = ids[id] + 1;
+      if (size * 4L > table.length * 3L) {
+        rehash(table.length * 2);
+      }
+    }
+    return ids;
+  }
+
+  String word(int id) {
+    int start = offsets[id];
+    byte[] bytes = new byte[offsets[id + 1] - start];
+    arena.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Слова по номерам без копии: таблица только дописывает буфер и смещения, а при росте и
+   * {@link #clear} заводит новые, поэтому уже выданный вид не меняется.
+   */
+  Utf8Words words() {
+    return new Utf8Words(arena, offsets, size);
+  }
+
+  void forEach(ObjIntConsumer<String> action) {
+    for (int id = 0; id < size; id++) {
+      action.accept(word(id), counts[id]);
+    }
+  }
+
+  /**
+   * Удаляет все слова и отдаёт память; {@code expectedWords} - сколько слов будет добавлено.
+   */
+  void clear(int expectedWords) {
+    allocate(expectedWords);
+    changed.clear();
+    reset = true;
+  }
+
+  /**
+   * Номера слов, частоты которых менялись (в том числе новых слов), по возрастанию; сбрасывает
+   * их. {@code null}, если с прошлого вызова таблица очищалась и старые номера недействительны.
+   */
+  int[] drainChanged() {
+    int[] ids = reset ? null : changed.stream().toArray();
+    changed.clear();
+    reset = false;
+    return ids;
+  }
+
+  long heapBytes() {
+    return Footprint.ofIntArray(offsets.length) + Footprint.ofIntArray(hashes.length)
+        + Footprint.ofIntArray(counts.length) + Footprint.ofIntArray(table.length);
+  }
+
+  long offHeapBytes() {
+    return arena.capacity();
+  }
+
+  // Хеш и сравнение по UTF-8 без промежуточного массива; одно- и двухбайтовые символы - без
+  // разбора на кодовые точки
+
+  private static int hash(CharSequence word, int start, int end) {
+    int hash = FNV_OFFSET;
+    for (int i = start; i < end;) {
+      char c = word.charAt(i);
+      if (c < 0x80) {
+        hash = (hash ^ c) * FNV_PRIME;
+        i++;
+        continue;
+      }
+      if (c < 0x800) {
+        hash = (hash ^ (byte) (0xc0 | (c >> 6))) * FNV_PRIME;
+        hash = (hash ^ (byte) (0x80 | (c & 0x3f))) * FNV_PRIME;
+        i++;
+        continue;
+      }
+      int codePoint = codePointAt(word, i, end);
+      i += Character.charCount(codePoint);
+      int width = utf8Width(codePoint);
+      for (int k = 0; k < width; k++) {
+        hash = (hash ^ utf8Byte(codePoint, width, k)) * FNV_PRIME;
+      }
+    }
+    // Перемешиваем старшие биты в младшие: по ним выбирается ячейка
+    return hash ^ (hash >>> 16);
+  }
+
+  private int slot(CharSequence word, int start, int end, int hash) {
+    int mask = table.length - 1;
+    int slot = hash & mask;
+    while (true) {
+      int id = table[slot] - 1;
+      if (id < 0 || (hashes[id] == hash && matches(id, word, start, end))) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private int slot(ByteBuffer bytes, int start, int end, int hash) {
+    int mask = table.length - 1;
+    int slot = hash & mask;
+    while (true) {
+      int id = table[slot] - 1;
+      if (id < 0 || (hashes[id] == hash && matches(id, bytes, start, end))) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean matches(int id, ByteBuffer bytes, int start, int end) {
+    int position = offsets[id];
+    if (offsets[id + 1] - position != end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (arena.get(position++) != bytes.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean matches(int id, CharSequence word, int start, int wordEnd) {
+    int position = offsets[id];
+    int end = offsets[id + 1];
+    for (int i = start; i < wordEnd;) {
+      char c = word.charAt(i);
+      if (c < 0x80) {
+        if (position == end || arena.get(position++) != c) {
+          return false;
+        }
+        i++;
+        continue;
+      }
+      if (c < 0x800) {
+        if (position + 2 > end || arena.get(position++) != (byte) (0xc0 | (c >> 6))
+            || arena.get(position++) != (byte) (0x80 | (c & 0x3f))) {
+          return false;
+        }
+        i++;
+        continue;
+      }
+      int codePoint = codePointAt(word, i, wordEnd);
+      i += Character.charCount(codePoint);
+      int width = utf8Width(codePoint);
+      if (position + width > end) {
+        return false;
+      }
+      for (int k = 0; k < width; k++) {
+        if (arena.get(position++) != utf8Byte(codePoint, width, k)) {
+          return false;
+        }
+      }
+    }
+    return position == end;
+  }
+
+  private int append(CharSequence word, int start, int end, int hash, int count) {
+    reserve(utf8Length(word, start, end));
+    int position = arenaUsed;
+    for (int i = start; i < end;) {
+      int codePoint = codePointAt(word, i, end);
+      i += Character.charCount(codePoint);
+      int width = utf8Width(codePoint);
+      for (int k = 0; k < width; k++) {
+        arena.put(position++, utf8Byte(codePoint, width, k));
+      }
+    }
+    return register(position, hash, count);
+  }
+
+  /**
+   * Место под слово в {@code bytes} байт и под его номер.
+   */
+  private void reserve(int bytes) {
+    if (arenaUsed + (long) bytes > MAX_ARENA) {
+      throw new IllegalStateException("Word storage is full: " + arenaUsed + " bytes");
+    }
+    if (arenaUsed + bytes > arena.capacity()) {
+      growArena(arenaUsed + bytes);
+    }
+    if (size == counts.length) {
+      int capacity = size + (size >> 1);
+      offsets = Arrays.copyOf(offsets, capacity + 1);
+      hashes = Arrays.copyOf(hashes, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+    }
+  }
+
+  /**
+   * Заводит номер для слова, записанного в буфер с {@code arenaUsed} до {@code end}.
+   */
+  private int register(int end, int hash, int count) {
+    int id = size++;
+    offsets[id] = arenaUsed;
+    offsets[id + 1] = end;
+    hashes[id] = hash;
+    counts[id] = count;
+    changed.set(id);
+    arenaUsed = end;
+    return id;
+  }
+
+  private void growArena(int required) {
+    long capacity = Math.max(required, arena.capacity() * 2L);
+    ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(capacity, MAX_ARENA));
+    grown.put(0, arena, 0, arenaUsed);
+    // Старый буфер освободит сборщик мусора вместе с объектом-обёрткой
+    arena = grown;
+  }
+
+  private void rehash(int capacity) {
+    int[] rehashed = new int[capacity];
+    int mask = capacity - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (rehashed[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      rehashed[slot] = id + 1;
+    }
+    table = rehashed;
+  }
+
+  private static int tableCapacity(int words) {
+    // Заполнение не больше 3/4
+    int capacity = Integer.highestOneBit(Math.max(2, words * 4 / 3 + 1) - 1) << 1;
+    return Math.max(capacity, 2 * INITIAL_WORDS);
+  }
+
+  // UTF-8; одиночный суррогат кодируется как '?', как в String.getBytes
+
+  private static int codePointAt(CharSequence s, int i, int end) {
+    char c = s.charAt(i);
+    if (!Character.isSurrogate(c)) {
+      return c;
+    }
+    if (isPair(s, i, end)) {
+      return Character.toCodePoint(c, s.charAt(i + 1));
+    }
+    return '?';
+  }
+
+  private static boolean isPair(CharSequence s, int i, int end) {
+    return Character.isHighSurrogate(s.charAt(i)) && i + 1 < end
+        && Character.isLowSurrogate(s.charAt(i + 1));
+  }
+
+  private static int utf8Width(int codePoint) {
+    if (codePoint < 0x80) {
+      return 1;
+    }
+    if (codePoint < 0x800) {
+      return 2;
+    }
+    return codePoint < 0x10000 ? 3 : 4;
+  }
+
+  private static byte utf8Byte(int codePoint, int width, int k) {
+    if (width == 1) {
+      return (byte) codePoint;
+    }
+    int shift = 6 * (width - 1 - k);
+    if (k == 0) {
+      // Первый байт: width единиц, ноль и старшие биты символа
+      int lead = 0xff00 >> width;
+      return (byte) (lead | (codePoint >> shift));
+    }
+    return (byte) (0x80 | ((codePoint >> shift) & 0x3f));
+  }
+
+  static int utf8Length(CharSequence word) {
+    return utf8Length(word, 0, word.length());
+  }
+
+  private static int utf8Length(CharSequence word, int start, int end) {
+    int bytes = 0;
+    for (int i = start; i < end;) {
+      int codePoint = codePointAt(word, i, end);
+      i += Character.charCount(codePoint);
+      bytes += utf8Width(codePoint);
+    }
+    return bytes;
+  }
+}
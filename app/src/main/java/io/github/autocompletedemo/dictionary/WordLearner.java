@@ -0,0 +1,238 @@
+package io.github.autocompletedemo.dictionary;
+
+import io.github.autocompletedemo.index.Footprint;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Обучение словаря с ограниченной памятью.
+ *
+ * <p>
+ * Слова, которых ещё нет в словаре, сначала попадают в кандидаты - структуру Space-Saving
+ * (Metwally и др.): таблица слово -> счётчик плюс куча по минимальному счётчику. Когда кандидаты
+ * занимают больше бюджета, новое слово вытесняет кандидата с наименьшим счётчиком и наследует его
+ * счётчик как погрешность; так частые слова не теряются, а опечатки и разовые слова вытесняют
+ * друг друга. Слово переходит в словарь, когда нижняя оценка его частоты (счётчик минус
+ * погрешность) достигает порога. Слова, которые уже есть в словаре, просто прибавляются.
+ *
+ * <p>
+ * Методы синхронизированы: обучение идёт в потоке записи словаря, статистику читает поток JavaFX.
+ */
+public final class WordLearner {
+
+  public static final long DEFAULT_BUDGET_BYTES = 1 << 20;
+  public static final int DEFAULT_PROMOTION_THRESHOLD = 3;
+  // Объект кандидата, узел HashMap, ячейки таблицы и кучи
+  private static final long ENTRY_OVERHEAD = 32 + 32 + 8 + 4;
+
+  /**
+   * Состояние на момент снятия.
+   *
+   * @param candidates слов-кандидатов
+   * @param usedBytes оценка памяти кандидатов
+   * @param budgetBytes бюджет памяти
+   * @param promotionThreshold частота, с которой кандидат переходит в словарь
+   * @param promoted кандидатов, перешедших в словарь
+   * @param evicted кандидатов, вытесненных из-за бюджета
+   */
+  public record Stats(int candidates, long usedBytes, long budgetBytes, int promotionThreshold,
+      long promoted, long evicted) {
+  }
+
+  private static final class Candidate {
+    final String word;
+    final long bytes;
+    long count;
+    long error;
+    int heapIndex;
+
+    Candidate(String word, long count, long error) {
+      this.word = word;
+      this.bytes = Footprint.ofString(word) + ENTRY_OVERHEAD;
+      this.count = count;
+      this.error = error;
+    }
+  }
+
+  private final Map<String, Candidate> candidates = new HashMap<>();
+  // Двоичная куча по count: в корне - кандидат, которого вытесняют первым
+  private Candidate[] heap = new Candidate[16];
+  private long usedBytes;
+  private long budgetBytes;
+  private int promotionThreshold;
+  private long promoted;
+  private long evicted;
+
+  public WordLearner() {
+    this(DEFAULT_BUDGET_BYTES, DEFAULT_PROMOTION_THRESHOLD);
+  }
+
+  public WordLearner(long budgetBytes, int promotionThreshold) {
+    configure(budgetBytes, promotionThreshold);
+  }
+
+  /**
+   * Меняет бюджет и порог; при меньшем бюджете лишние кандидаты сразу вытесняются.
+   */
+  public synchronized void configure(long budgetBytes, int promotionThreshold) {
+    if (budgetBytes < 0 || promotionThreshold < 1) {
+      throw new IllegalArgumentException(
+          "Invalid learning budget or threshold: " + budgetBytes + ", " + promotionThreshold);
+    }
+    this.budgetBytes = budgetBytes;
+    this.promotionThreshold = promotionThreshold;
+    while (usedBytes > budgetBytes) {
+      evict();
+    }
+  }
+
+  /**
+   * Переносит частоты {@code added} в {@code dictionary}: известные слова - сразу, новые - через
+   * кандидатов; пары соседних слов - если оба слова есть в словаре.
+   *
+   * @return число слов, перешедших в словарь
+   */
+  public synchronized int learn(Vocabulary added, Vocabulary dictionary) {
+    int[] promotedNow = {0};
+    added.forEach((word, count) -> {
+      if (dictionary.count(word) > 0) {
+        dictionary.add(word, count);
+        return;
+      }
+      long frequency = offer(word, count);
+      if (frequency > 0) {
+        dictionary.add(word, (int) Math.min(Integer.MAX_VALUE, frequency));
+        promotedNow[0]++;
+      }
+    });
+    // Пары - только между словами, которые уже в словаре
+    dictionary.addBigrams(added);
+    return promotedNow[0];
+  }
+
+  /**
+   * Учитывает {@code count} вхождений слова, которого нет в словаре.
+   *
+   * @return частота, с которой слово переходит в словарь, или 0, если оно остаётся кандидатом
+   */
+  synchronized long offer(String word, int count) {
+    Candidate candidate = candidates.get(word);
+    if (candidate != null) {
+      candidate.count += count;
+      siftDown(candidate.heapIndex);
+    } else {
+      long error = 0;
+      long bytes = Footprint.ofString(word) + ENTRY_OVERHEAD;
+      if (bytes > budgetBytes) {
+        return count >= promotionThreshold ? count : 0;
+      }
+      while (usedBytes + bytes > budgetBytes) {
+        // Space-Saving: новое слово могло встречаться до вытесненного не чаще, чем он
+        error = Math.max(error, evict().count);
+      }
+      candidate = new Candidate(word, error + count, error);
+      candidates.put(word, candidate);
+      usedBytes += candidate.bytes;
+      push(candidate);
+    }
+    long guaranteed = candidate.count - candidate.error;
+    if (guaranteed < promotionThreshold) {
+      return 0;
+    }
+    remove(candidate);
+    promoted++;
+    return guaranteed;
+  }
+
+  /**
+   * Частота кандидата (с погрешностью) или 0.
+   */
+  synchronized long candidateCount(String word) {
+    Candidate candidate = candidates.get(word);
+    return candidate == null ? 0 : candidate.count;
+  }
+
+  public synchronized void clear() {
+    candidates.clear();
+    Arrays.fill(heap, null);
+    usedBytes = 0;
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(candidates.size(), usedBytes, budgetBytes, promotionThreshold, promoted,
+        evicted);
+  }
+
+  private Candidate evict() {
+    Candidate lowest = heap[0];
+    remove(lowest);
+    evicted++;
+    return lowest;
+  }
+
+  private void remove(Candidate candidate) {
+    candidates.remove(candidate.word);
+    usedBytes -= candidate.bytes;
+    int index = candidate.heapIndex;
+    int last = candidates.size();
+    Candidate moved = heap[last];
+    heap[last] = null;
+    if (index != last) {
+      heap[index] = moved;
+      moved.heapIndex = index;
+      siftDown(index);
+      siftUp(moved.heapIndex);
+    }
+  }
+
+  private void push(Candidate candidate) {
+    // Кандидат уже в таблице, поэтому его место в куче - size - 1
+    int index = candidates.size() - 1;
+    if (index == heap.length) {
+      heap = Arrays.copyOf(heap, heap.length * 2);
+    }
+    heap[index] = candidate;
+    candidate.heapIndex = index;
+    siftUp(index);
+  }
+
+  private void siftUp(int index) {
+    Candidate candidate = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (heap[parent].count <= candidate.count) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(candidate, index);
+  }
+
+  private void siftDown(int index) {
+    int size = candidates.size();
+    Candidate candidate = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        child++;
+      }
+      if (candidate.count <= heap[child].count) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(candidate, index);
+  }
+
+  private void place(Candidate candidate, int index) {
+    heap[index] = candidate;
+    candidate.heapIndex = index;
+  }
+}
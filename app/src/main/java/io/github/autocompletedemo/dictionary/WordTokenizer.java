@@ -0,0 +1,172 @@
+package io.github.autocompletedemo.dictionary;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Разбиение текста на слова по правилам {@link WordBoundaries} без выделения памяти.
+ *
+ * <p>
+ * Слова сообщаются смещениями {@code [start, end)} - через {@link WordHandler} или
+ * {@link Cursor}; строку из слова, если она нужна, делает вызывающий код (например,
+ * {@link WordBoundaries#normalize(CharSequence, int, int, StringBuilder)}). Текст может быть любой
+ * {@link CharSequence}, {@link CharBuffer} или байтами UTF-8 в {@link ByteBuffer}: загрузка корпуса
+ * токенизирует файл прямо по байтам, не декодируя его в строку.
+ */
+public final class WordTokenizer {
+
+  /**
+   * Получает границы очередного слова.
+   */
+  @FunctionalInterface
+  public interface WordHandler {
+    void word(int start, int end);
+  }
+
+  private WordTokenizer() {
+  }
+
+  /**
+   * @return число слов
+   */
+  public static int forEachWord(CharSequence text, int start, int end, WordHandler handler) {
+    int found = 0;
+    int i = start;
+    while (i < end) {
+      while (i < end && !WordBoundaries.isWordChar(text.charAt(i))) {
+        i++;
+      }
+      int wordStart = i;
+      while (i < end && WordBoundaries.isWordChar(text.charAt(i))) {
+        i++;
+      }
+      if (wordStart < i) {
+        handler.word(wordStart, i);
+        found++;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Слова между {@code position} и {@code limit} буфера; смещения - от {@code position}, как у
+   * {@link CharBuffer#charAt}. Позиция буфера не меняется.
+   */
+  public static int forEachWord(CharBuffer text, WordHandler handler) {
+    return forEachWord(text, 0, text.remaining(), handler);
+  }
+
+  /**
+   * Слова в байтах UTF-8 {@code utf8[start, end)}; индексы абсолютные, позиция буфера не
+   * используется. Неверные последовательности байтов - разделители, как символ замены при
+   * декодировании.
+   *
+   * @return число слов
+   */
+  public static int forEachUtf8Word(ByteBuffer utf8, int start, int end, WordHandler handler) {
+    int found = 0;
+    int wordStart = -1;
+    int i = start;
+    while (i < end) {
+      int b = utf8.get(i);
+      int width = 1;
+      boolean word;
+      if (b >= 0) {
+        word = WordBoundaries.isWordChar((char) b);
+      } else {
+        width = (b & 0xe0) == 0xc0 ? 2 : (b & 0xf0) == 0xe0 ? 3 : (b & 0xf8) == 0xf0 ? 4 : 1;
+        int codePoint = width > 1 ? decode(utf8, i, end, b, width) : -1;
+        if (codePoint < 0) {
+          width = 1;
+        }
+        word = codePoint >= 0 && WordBoundaries.isWordCodePoint(codePoint);
+      }
+      if (word) {
+        if (wordStart < 0) {
+          wordStart = i;
+        }
+      } else if (wordStart >= 0) {
+        handler.word(wordStart, i);
+        found++;
+        wordStart = -1;
+      }
+      i += width;
+    }
+    if (wordStart >= 0) {
+      handler.word(wordStart, end);
+      found++;
+    }
+    return found;
+  }
+
+  /**
+   * Символ из последовательности UTF-8 длины {@code width} с первым байтом {@code b} или -1, если
+   * последовательность неверна.
+   */
+  private static int decode(ByteBuffer utf8, int i, int end, int b, int width) {
+    if (i + width > end) {
+      return -1;
+    }
+    int codePoint = b & (0x7f >> width);
+    for (int k = 1; k < width; k++) {
+      int next = utf8.get(i + k);
+      if ((next & 0xc0) != 0x80) {
+        return -1;
+      }
+      codePoint = (codePoint << 6) | (next & 0x3f);
+    }
+    // Избыточные формы и суррогаты декодер тоже заменяет символом замены
+    boolean overlong = codePoint < (width == 2 ? 0x80 : width == 3 ? 0x800 : 0x10000);
+    boolean surrogate = codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+    return overlong || surrogate || codePoint > Character.MAX_CODE_POINT ? -1 : codePoint;
+  }
+
+  /**
+   * Курсор по словам текста: {@link #next()} переходит к следующему слову, его границы -
+   * {@link #start()} и {@link #end()}. Один курсор можно переиспользовать через
+   * {@link #reset}.
+   */
+  public static final class Cursor {
+
+    private CharSequence text = "";
+    private int position;
+    private int limit;
+    private int start;
+    private int end;
+
+    public Cursor reset(CharSequence text, int start, int end) {
+      this.text = text;
+      this.position = start;
+      this.limit = end;
+      this.start = start;
+      this.end = start;
+      return this;
+    }
+
+    public boolean next() {
+      int i = position;
+      while (i < limit && !WordBoundaries.isWordChar(text.charAt(i))) {
+        i++;
+      }
+      if (i == limit) {
+        position = limit;
+        return false;
+      }
+      start = i;
+      while (i < limit && WordBoundaries.isWordChar(text.charAt(i))) {
+        i++;
+      }
+      end = i;
+      position = i;
+      return true;
+    }
+
+    public int start() {
+      return start;
+    }
+
+    public int end() {
+      return end;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package io.github.autocompletedemo.distance;
+
+import io.github.autocomplete.distance.Levenshtein;
+
+/**
+ * Расстояние между словами для поиска с опечатками, выбирается в настройках.
+ */
+public enum DistanceMetric {
+  LIBRARY("Levenshtein (library)"),
+  BIT_PARALLEL("Levenshtein (bit-parallel, bounded)"),
+  DAMERAU("Damerau-Levenshtein (transpositions)"),
+  KEYBOARD("Keyboard-adjacency weighted");
+
+  private final String displayName;
+
+  DistanceMetric(String displayName) {
+    this.displayName = displayName;
+  }
+
+  /**
+   * Расстояние, если оно не больше {@code max}, иначе {@code max + 1}. Для {@link #LIBRARY}
+   * далёкие пары отсекает ограниченный битовый счёт, а библиотека считает расстояние только
+   * для пар в пределах {@code max}.
+   */
+  public int distance(String a, String b, int max) {
+    return switch (this) {
+      case LIBRARY -> EditDistance.levenshtein(a, b, max) > max ? max + 1
+          : Levenshtein.distance(a, b);
+      case BIT_PARALLEL -> EditDistance.levenshtein(a, b, max);
+      case DAMERAU -> EditDistance.damerau(a, b, max);
+      case KEYBOARD -> EditDistance.keyboard(a, b, max);
+    };
+  }
+
+  @Override
+  public String toString() {
+    return displayName;
+  }
+}
@@ -0,0 +1,349 @@
+package io.github.autocompletedemo.distance;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Расстояния редактирования с ограничением: если расстояние больше {@code max}, возвращается
+ * {@code max + 1}, и счёт прекращается, как только превышение становится неизбежным.
+ *
+ * <p>
+ * Если более короткая строка не длиннее 64 символов, используется битово-параллельный алгоритм
+ * Майерса в формулировке Хюрё: столбец таблицы расстояний хранится разностями в двух {@code long},
+ * и символ второй строки обрабатывается за десяток операций над словом вместо {@code m} ячеек.
+ * Вариант Дамерау (перестановка соседних символов за одну правку, OSA) - расширение Хюрё того же
+ * алгоритма. Для длинных строк и для взвешенного по клавиатуре варианта считается только полоса
+ * таблицы шириной {@code 2 * max + 1} (Укконен).
+ *
+ * <p>
+ * Методы потокобезопасны. Таблицы масок образца берутся из небольшого пула, ячейка которого
+ * выбирается по номеру потока: {@link ThreadLocal} завёл бы отдельную таблицу каждому
+ * виртуальному потоку запроса, а пул обходится их числом по числу одновременных вызовов.
+ */
+public final class EditDistance {
+
+  /** Наибольшая длина образца для битово-параллельного счёта. */
+  public static final int MAX_PATTERN = Long.SIZE;
+
+  private static final int POOL_SIZE = 32;
+  private static final AtomicReferenceArray<Pattern> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+  private EditDistance() {
+  }
+
+  public static int levenshtein(CharSequence a, CharSequence b) {
+    return levenshtein(a, b, Math.max(a.length(), b.length()));
+  }
+
+  /**
+   * Расстояние Левенштейна, если оно не больше {@code max}, иначе {@code max + 1}.
+   */
+  public static int levenshtein(CharSequence a, CharSequence b, int max) {
+    return distance(a, b, max, false);
+  }
+
+  /**
+   * Расстояние Дамерау - Левенштейна (OSA: перестановка соседних символов - одна правка, но
+   * переставленные символы больше не правятся), если оно не больше {@code max}, иначе
+   * {@code max + 1}.
+   */
+  public static int damerau(CharSequence a, CharSequence b, int max) {
+    return distance(a, b, max, true);
+  }
+
+  /**
+   * Расстояние, в котором замена на соседнюю клавишу ({@link KeyboardLayout}) стоит полправки, а
+   * остальные правки - по одной; дробный результат округляется вверх. Если оно больше
+   * {@code max}, возвращается {@code max + 1}.
+   */
+  public static int keyboard(CharSequence a, CharSequence b, int max) {
+    if (max < 0) {
+      return 0;
+    }
+    int m = a.length();
+    int n = b.length();
+    if (Math.abs(m - n) > max) {
+      return max + 1;
+    }
+    // Каждая правка стоит не меньше полправки: далёкие пары отсекает быстрый битовый счёт
+    if (max < Integer.MAX_VALUE / 2 && distance(a, b, 2 * max, false) > 2 * max) {
+      return max + 1;
+    }
+    // Стоимости в половинах правки: вставка, удаление и обычная замена - 2, соседняя клавиша - 1
+    int limit = 2 * max;
+    int[] previous = new int[n + 1];
+    int[] current = new int[n + 1];
+    for (int j = 0; j <= n; j++) {
+      previous[j] = j <= max ? 2 * j : limit + 1;
+    }
+    for (int i = 1; i <= m; i++) {
+      char ca = a.charAt(i - 1);
+      int from = Math.max(1, i - max);
+      int to = Math.min(n, i + max);
+      current[from - 1] = from == 1 && i <= max ? 2 * i : limit + 1;
+      int rowMin = current[from - 1];
+      for (int j = from; j <= to; j++) {
+        char cb = b.charAt(j - 1);
+        int substitution = ca == cb ? 0 : KeyboardLayout.adjacent(ca, cb) ? 1 : 2;
+        int cell = Math.min(previous[j - 1] + substitution,
+            Math.min(previous[j], current[j - 1]) + 2);
+        current[j] = Math.min(cell, limit + 1);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (to < n) {
+        current[to + 1] = limit + 1;
+      }
+      if (rowMin > limit) {
+        return max + 1;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    int cost = previous[n];
+    return cost > limit ? max + 1 : (cost + 1) / 2;
+  }
+
+  private static int distance(CharSequence a, CharSequence b, int max, boolean transpositions) {
+    if (max < 0) {
+      return 0;
+    }
+    CharSequence pattern = a.length() <= b.length() ? a : b;
+    CharSequence text = pattern == a ? b : a;
+    if (text.length() - pattern.length() > max) {
+      return max + 1;
+    }
+    if (pattern.length() > MAX_PATTERN) {
+      return banded(pattern, text, max, transpositions);
+    }
+    int slot = (int) Thread.currentThread().threadId() & (POOL_SIZE - 1);
+    Pattern compiled = POOL.getAndSet(slot, null);
+    if (compiled == null) {
+      // Ячейка занята другим потоком: разовая таблица
+      compiled = new Pattern();
+    }
+    compiled.reset(pattern);
+    int distance = compiled.distance(text, max, transpositions);
+    POOL.set(slot, compiled);
+    return distance;
+  }
+
+  /**
+   * Полоса таблицы расстояний шириной {@code 2 * max + 1} с выходом, когда вся строка полосы
+   * больше {@code max}.
+   */
+  static int banded(CharSequence a, CharSequence b, int max, boolean transpositions) {
+    int m = a.length();
+    int n = b.length();
+    if (Math.abs(m - n) > max) {
+      return max + 1;
+    }
+    int over = max + 1;
+    int[] beforePrevious = new int[n + 1];
+    int[] previous = new int[n + 1];
+    int[] current = new int[n + 1];
+    for (int j = 0; j <= n; j++) {
+      previous[j] = Math.min(j, over);
+    }
+    for (int i = 1; i <= m; i++) {
+      char ca = a.charAt(i - 1);
+      int from = Math.max(1, i - max);
+      int to = Math.min(n, i + max);
+      current[from - 1] = from == 1 ? Math.min(i, over) : over;
+      int rowMin = current[from - 1];
+      for (int j = from; j <= to; j++) {
+        char cb = b.charAt(j - 1);
+        int cell = Math.min(previous[j - 1] + (ca == cb ? 0 : 1),
+            Math.min(previous[j], current[j - 1]) + 1);
+        if (transpositions && i > 1 && j > 1 && ca == b.charAt(j - 2)
+            && a.charAt(i - 2) == cb) {
+          cell = Math.min(cell, beforePrevious[j - 2] + 1);
+        }
+        current[j] = Math.min(cell, over);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (to < n) {
+        current[to + 1] = over;
+      }
+      if (rowMin > max) {
+        return over;
+      }
+      int[] swap = beforePrevious;
+      beforePrevious = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[n];
+  }
+
+  /**
+   * Образец длиной до {@link #MAX_PATTERN} символов с готовыми битовыми масками: сравнение одного
+   * образца с многими словами (поиск с опечатками по списку кандидатов) строит маски один раз.
+   */
+  public static final class Pattern {
+
+    // Открытая адресация: символ образца -> маска его позиций; не больше 64 символов на 128 ячеек
+    private static final int SLOTS = 2 * MAX_PATTERN;
+
+    private final char[] keys = new char[SLOTS];
+    private final long[] masks = new long[SLOTS];
+    private final boolean[] used = new boolean[SLOTS];
+    // Маски символов 0-127 без хеширования
+    private final long[] ascii = new long[128];
+    private String pattern = "";
+
+    private Pattern() {
+    }
+
+    /**
+     * @throws IllegalArgumentException если образец длиннее {@link #MAX_PATTERN}
+     */
+    public static Pattern compile(CharSequence pattern) {
+      Pattern compiled = new Pattern();
+      compiled.reset(pattern);
+      return compiled;
+    }
+
+    public int length() {
+      return pattern.length();
+    }
+
+    void reset(CharSequence pattern) {
+      if (pattern.length() > MAX_PATTERN) {
+        throw new IllegalArgumentException("Pattern longer than " + MAX_PATTERN + " chars");
+      }
+      boolean hashed = false;
+      for (int i = 0; i < this.pattern.length(); i++) {
+        char c = this.pattern.charAt(i);
+        if (c < ascii.length) {
+          ascii[c] = 0;
+        } else {
+          hashed = true;
+        }
+      }
+      if (hashed) {
+        Arrays.fill(used, false);
+      }
+      // Копия: изменение переданной последовательности не должно испортить маски
+      this.pattern = pattern.toString();
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = pattern.charAt(i);
+        if (c < ascii.length) {
+          ascii[c] |= 1L << i;
+        } else {
+          int slot = slot(c);
+          if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = c;
+            masks[slot] = 0;
+          }
+          masks[slot] |= 1L << i;
+        }
+      }
+    }
+
+    /**
+     * Расстояние Левенштейна от образца до {@code text} или {@code max + 1}, если оно больше.
+     */
+    public int levenshtein(CharSequence text, int max) {
+      if (max < 0) {
+        return 0;
+      }
+      if (Math.abs(text.length() - pattern.length()) > max) {
+        return max + 1;
+      }
+      return distance(text, max, false);
+    }
+
+    /**
+     * То же для расстояния Дамерау - Левенштейна (OSA).
+     */
+    public int damerau(CharSequence text, int max) {
+      if (max < 0) {
+        return 0;
+      }
+      if (Math.abs(text.length() - pattern.length()) > max) {
+        return max + 1;
+      }
+      return distance(text, max, true);
+    }
+
+    /**
+     * Расстояния до всех {@code texts} в {@code distances}; слова дальше {@code max} получают
+     * {@code max + 1}.
+     *
+     * @return сколько слов в пределах {@code max}
+     */
+    public int levenshtein(CharSequence[] texts, int max, int[] distances) {
+      int within = 0;
+      for (int i = 0; i < texts.length; i++) {
+        distances[i] = levenshtein(texts[i], max);
+        if (distances[i] <= max) {
+          within++;
+        }
+      }
+      return within;
+    }
+
+    private int distance(CharSequence text, int max, boolean transpositions) {
+      int m = pattern.length();
+      int n = text.length();
+      if (m == 0) {
+        return Math.min(n, max + 1);
+      }
+      long last = 1L << (m - 1);
+      // Вертикальные разности столбца: +1 (vp) и -1 (vn); в начале D[i][0] = i
+      long vp = m == Long.SIZE ? -1L : (1L << m) - 1;
+      long vn = 0;
+      long previousEq = 0;
+      long previousD0 = 0;
+      int score = m;
+      for (int j = 0; j < n; j++) {
+        long eq = mask(text.charAt(j));
+        long d0 = (((eq & vp) + vp) ^ vp) | eq | vn;
+        if (transpositions) {
+          // Перестановка: совпадение по диагонали через два шага (Хюрё, 2002)
+          d0 |= ((~previousD0 & eq) << 1) & previousEq;
+          previousEq = eq;
+          previousD0 = d0;
+        }
+        long hp = vn | ~(d0 | vp);
+        long hn = vp & d0;
+        if ((hp & last) != 0) {
+          score++;
+        } else if ((hn & last) != 0) {
+          score--;
+        }
+        // Каждый следующий символ текста может уменьшить результат не больше чем на 1
+        if (score - (n - j - 1) > max) {
+          return max + 1;
+        }
+        // Верхняя строка таблицы - D[0][j] = j, поэтому слева вдвигается +1
+        hp = (hp << 1) | 1;
+        hn <<= 1;
+        vp = hn | ~(d0 | hp);
+        vn = hp & d0;
+      }
+      return score <= max ? score : max + 1;
+    }
+
+    private long mask(char c) {
+      if (c < ascii.length) {
+        return ascii[c];
+      }
+      int slot = slot(c);
+      return used[slot] ? masks[slot] : 0;
+    }
+
+    /**
+     * Ячейка символа или первая свободная на его пути.
+     */
+    private int slot(char c) {
+      int slot = (c * 0x9E37) >>> 7 & (SLOTS - 1);
+      while (used[slot] && keys[slot] != c) {
+        slot = (slot + 1) & (SLOTS - 1);
+      }
+      return slot;
+    }
+  }
+}
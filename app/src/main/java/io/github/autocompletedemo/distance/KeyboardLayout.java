@@ -0,0 +1,63 @@
+package io.github.autocompletedemo.distance;
+
+/**
+ * Соседство клавиш в раскладках QWERTY и ЙЦУКЕН: опечатка в соседнюю клавишу вероятнее любой
+ * другой замены.
+ *
+ * <p>
+ * Ряды сдвинуты на полклавиши, поэтому клавиша ряда {@code r} в столбце {@code c} касается
+ * столбцов {@code c - 1} и {@code c} ряда ниже и столбцов {@code c} и {@code c + 1} ряда выше.
+ */
+public final class KeyboardLayout {
+
+  private static final String[][] LAYOUTS = {
+      {"1234567890-=", "qwertyuiop[]", "asdfghjkl;'", "zxcvbnm,./"},
+      {"1234567890-=", "йцукенгшщзхъ", "фывапролджэ", "ячсмитьбю"},
+  };
+  // Позиция символа: раскладка * 256 + ряд * 32 + столбец + 1; 0 - символа нет. Ряд цифр общий,
+  // его позиции берутся из первой раскладки
+  private static final short[] POSITIONS = new short['я' + 1];
+
+  static {
+    for (int layout = LAYOUTS.length - 1; layout >= 0; layout--) {
+      for (int row = 0; row < LAYOUTS[layout].length; row++) {
+        String keys = LAYOUTS[layout][row];
+        for (int column = 0; column < keys.length(); column++) {
+          POSITIONS[keys.charAt(column)] = (short) (layout * 256 + row * 32 + column + 1);
+        }
+      }
+    }
+  }
+
+  private KeyboardLayout() {
+  }
+
+  /**
+   * Стоят ли клавиши символов рядом (без учёта регистра); символ не соседствует сам с собой.
+   */
+  public static boolean adjacent(char a, char b) {
+    int first = position(Character.toLowerCase(a));
+    int second = position(Character.toLowerCase(b));
+    if (first == 0 || second == 0 || first == second) {
+      return false;
+    }
+    first--;
+    second--;
+    // Разные раскладки соседствуют только через общий ряд цифр
+    if (first >> 8 != second >> 8 && (first & 0xE0) != 0 && (second & 0xE0) != 0) {
+      return false;
+    }
+    int rowDelta = (second >> 5 & 7) - (first >> 5 & 7);
+    int columnDelta = (second & 31) - (first & 31);
+    return switch (rowDelta) {
+      case 0 -> Math.abs(columnDelta) == 1;
+      case 1 -> columnDelta == -1 || columnDelta == 0;
+      case -1 -> columnDelta == 0 || columnDelta == 1;
+      default -> false;
+    };
+  }
+
+  private static int position(char c) {
+    return c < POSITIONS.length ? POSITIONS[c] : 0;
+  }
+}
@@ -0,0 +1,444 @@
+package io.github.autocompletedemo.document;
+
+import io.github.autocompletedemo.dictionary.WordBoundaries;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * Текст документа в виде таблицы фрагментов (piece table) с индексом строк.
+ *
+ * <p>
+ * Исходный текст и все вставки лежат в двух буферах, которые только дописываются. Документ -
+ * последовательность фрагментов этих буферов, хранимая в декартовом дереве (treap) по неявному
+ * ключу; узел знает суммарную длину и число переводов строки своего поддерева. Позиции {@code '\n'}
+ * каждого буфера хранятся в отсортированных массивах. Поэтому замена диапазона, доступ к символу и
+ * перевод смещения в номер строки и обратно стоят O(log n) и не копируют документ.
+ *
+ * <p>
+ * Класс не потокобезопасен: его меняет и читает только поток JavaFX.
+ */
+public final class Document implements CharSequence {
+
+  private static final class Piece {
+    final boolean added;
+    final int start;
+    final int priority;
+    int length;
+    int lineBreaks;
+    Piece left;
+    Piece right;
+    int totalLength;
+    int totalLineBreaks;
+
+    Piece(boolean added, int start, int length, int lineBreaks, int priority) {
+      this.added = added;
+      this.start = start;
+      this.length = length;
+      this.lineBreaks = lineBreaks;
+      this.priority = priority;
+      this.totalLength = length;
+      this.totalLineBreaks = lineBreaks;
+    }
+  }
+
+  private String original;
+  private int[] originalBreaks;
+  private final StringBuilder added = new StringBuilder();
+  private int[] addedBreaks = new int[16];
+  private int addedBreakCount;
+
+  private final SplittableRandom random = new SplittableRandom(0x5eed);
+  private Piece root;
+
+  // Результат split: две части дерева
+  private Piece splitLeft;
+  private Piece splitRight;
+
+  public Document() {
+    this("");
+  }
+
+  public Document(String text) {
+    setText(text);
+  }
+
+  /**
+   * Заменяет весь текст; история фрагментов сбрасывается.
+   */
+  public void setText(String text) {
+    original = text;
+    originalBreaks = lineBreaks(text);
+    added.setLength(0);
+    addedBreakCount = 0;
+    root = text.isEmpty() ? null : piece(false, 0, text.length());
+  }
+
+  /**
+   * Заменяет {@code [start, end)} текстом {@code text}.
+   */
+  public void replace(int start, int end, CharSequence text) {
+    Objects.checkFromToIndex(start, end, length());
+    split(root, start);
+    Piece left = splitLeft;
+    split(splitRight, end - start);
+    Piece right = splitRight;
+
+    if (text.length() > 0) {
+      int from = added.length();
+      int breaksBefore = addedBreakCount;
+      appendAdded(text);
+      Piece last = rightmost(left);
+      if (last != null && last.added && last.start + last.length == from) {
+        // Обычный набор текста: продолжаем последний фрагмент, а не плодим новые
+        extendRightSpine(left, text.length(), addedBreakCount - breaksBefore);
+      } else {
+        left = merge(left, piece(true, from, text.length()));
+      }
+    }
+    root = merge(left, right);
+  }
+
+  @Override
+  public int length() {
+    return root == null ? 0 : root.totalLength;
+  }
+
+  @Override
+  public char charAt(int index) {
+    Objects.checkIndex(index, length());
+    Piece node = root;
+    while (true) {
+      int leftLength = totalLength(node.left);
+      if (index < leftLength) {
+        node = node.left;
+      } else {
+        index -= leftLength;
+        if (index < node.length) {
+          return buffer(node).charAt(node.start + index);
+        }
+        index -= node.length;
+        node = node.right;
+      }
+    }
+  }
+
+  @Override
+  public String subSequence(int start, int end) {
+    Objects.checkFromToIndex(start, end, length());
+    StringBuilder out = new StringBuilder(end - start);
+    appendTo(out, root, start, end);
+    return out.toString();
+  }
+
+  @Override
+  public String toString() {
+    return subSequence(0, length());
+  }
+
+  public int lineCount() {
+    return (root == null ? 0 : root.totalLineBreaks) + 1;
+  }
+
+  /**
+   * Номер строки (с нуля), в которой находится смещение {@code offset}.
+   */
+  public int lineOfOffset(int offset) {
+    Objects.checkIndex(offset, length() + 1);
+    int line = 0;
+    Piece node = root;
+    while (node != null) {
+      int leftLength = totalLength(node.left);
+      if (offset < leftLength) {
+        node = node.left;
+        continue;
+      }
+      offset -= leftLength;
+      line += totalLineBreaks(node.left);
+      if (offset < node.length) {
+        return line + countBreaks(node.added, node.start, node.start + offset);
+      }
+      offset -= node.length;
+      line += node.lineBreaks;
+      node = node.right;
+    }
+    return line;
+  }
+
+  /**
+   * Смещение первого символа строки {@code line}.
+   */
+  public int lineStart(int line) {
+    Objects.checkIndex(line, lineCount());
+    if (line == 0) {
+      return 0;
+    }
+    // Ищем перевод строки номер line - 1 (с нуля)
+    int k = line - 1;
+    int base = 0;
+    Piece node = root;
+    while (true) {
+      int leftBreaks = totalLineBreaks(node.left);
+      if (k < leftBreaks) {
+        node = node.left;
+        continue;
+      }
+      k -= leftBreaks;
+      base += totalLength(node.left);
+      if (k < node.lineBreaks) {
+        int[] breaks = node.added ? addedBreaks : originalBreaks;
+        int position = breaks[rank(node.added, node.start) + k];
+        return base + position - node.start + 1;
+      }
+      k -= node.lineBreaks;
+      base += node.length;
+      node = node.right;
+    }
+  }
+
+  /**
+   * Колонка смещения {@code offset} в его строке.
+   */
+  public int columnOfOffset(int offset) {
+    return offset - lineStart(lineOfOffset(offset));
+  }
+
+  /**
+   * Начало слова, которое заканчивается в {@code offset}; {@code offset}, если перед ним не
+   * буква и не цифра. Стоит O(log n + длина слова).
+   */
+  public int wordStart(int offset) {
+    Objects.checkIndex(offset, length() + 1);
+    if (offset == 0) {
+      return 0;
+    }
+    // Находим фрагмент с символом offset - 1 и идём назад прямо по его буферу
+    int index = offset - 1;
+    int pieceOffset = 0;
+    Piece node = root;
+    while (true) {
+      int leftLength = totalLength(node.left);
+      if (index < leftLength) {
+        node = node.left;
+      } else if (index < leftLength + node.length) {
+        pieceOffset += leftLength;
+        index -= leftLength;
+        break;
+      } else {
+        pieceOffset += leftLength + node.length;
+        index -= leftLength + node.length;
+        node = node.right;
+      }
+    }
+    CharSequence buffer = buffer(node);
+    int i = index;
+    while (i >= 0 && WordBoundaries.isWordChar(buffer.charAt(node.start + i))) {
+      i--;
+    }
+    int start = pieceOffset + i + 1;
+    if (i < 0) {
+      // Слово продолжается в предыдущих фрагментах
+      while (start > 0 && WordBoundaries.isWordChar(charAt(start - 1))) {
+        start--;
+      }
+    }
+    return start;
+  }
+
+  /**
+   * Слово, которое заканчивается в {@code offset} (пустая строка, если его нет).
+   */
+  public String wordBefore(int offset) {
+    return subSequence(wordStart(offset), offset);
+  }
+
+  /**
+   * Слово того же предложения, после которого до {@code offset} идут только разделители (не
+   * больше {@code maxGap}); пустая строка, если такого нет. Контекст для предсказания следующего
+   * слова.
+   */
+  public String previousWord(int offset, int maxGap) {
+    int end = offset;
+    while (end > 0 && offset - end < maxGap) {
+      char c = charAt(end - 1);
+      if (WordBoundaries.isWordChar(c)) {
+        return end == offset ? "" : wordBefore(end);
+      }
+      if (WordBoundaries.isSentenceEnd(c)) {
+        return "";
+      }
+      end--;
+    }
+    return "";
+  }
+
+  // Операции над деревом фрагментов
+
+  private Piece piece(boolean added, int start, int length) {
+    int breaks = countBreaks(added, start, start + length);
+    return new Piece(added, start, length, breaks, random.nextInt());
+  }
+
+  /**
+   * Делит поддерево на первые {@code offset} символов и остаток; при необходимости режет фрагмент.
+   */
+  private void split(Piece node, int offset) {
+    if (node == null) {
+      splitLeft = null;
+      splitRight = null;
+      return;
+    }
+    int leftLength = totalLength(node.left);
+    if (offset <= leftLength) {
+      split(node.left, offset);
+      node.left = splitRight;
+      update(node);
+      splitRight = node;
+    } else if (offset >= leftLength + node.length) {
+      split(node.right, offset - leftLength - node.length);
+      node.right = splitLeft;
+      update(node);
+      splitLeft = node;
+    } else {
+      int cut = offset - leftLength;
+      Piece tail = piece(node.added, node.start + cut, node.length - cut);
+      Piece right = node.right;
+      node.length = cut;
+      node.lineBreaks -= tail.lineBreaks;
+      node.right = null;
+      update(node);
+      splitLeft = node;
+      splitRight = merge(tail, right);
+    }
+  }
+
+  private Piece merge(Piece a, Piece b) {
+    if (a == null) {
+      return b;
+    }
+    if (b == null) {
+      return a;
+    }
+    if (a.priority > b.priority) {
+      a.right = merge(a.right, b);
+      update(a);
+      return a;
+    }
+    b.left = merge(a, b.left);
+    update(b);
+    return b;
+  }
+
+  private static Piece rightmost(Piece node) {
+    if (node == null) {
+      return null;
+    }
+    while (node.right != null) {
+      node = node.right;
+    }
+    return node;
+  }
+
+  /**
+   * Удлиняет самый правый фрагмент и суммы на пути к нему.
+   */
+  private static void extendRightSpine(Piece node, int length, int lineBreaks) {
+    while (node != null) {
+      node.totalLength += length;
+      node.totalLineBreaks += lineBreaks;
+      if (node.right == null) {
+        node.length += length;
+        node.lineBreaks += lineBreaks;
+      }
+      node = node.right;
+    }
+  }
+
+  private static void update(Piece node) {
+    node.totalLength = totalLength(node.left) + node.length + totalLength(node.right);
+    node.totalLineBreaks =
+        totalLineBreaks(node.left) + node.lineBreaks + totalLineBreaks(node.right);
+  }
+
+  private static int totalLength(Piece node) {
+    return node == null ? 0 : node.totalLength;
+  }
+
+  private static int totalLineBreaks(Piece node) {
+    return node == null ? 0 : node.totalLineBreaks;
+  }
+
+  private void appendTo(StringBuilder out, Piece node, int from, int to) {
+    if (node == null || from >= to) {
+      return;
+    }
+    int leftLength = totalLength(node.left);
+    if (from < leftLength) {
+      appendTo(out, node.left, from, Math.min(to, leftLength));
+    }
+    int pieceFrom = Math.max(from - leftLength, 0);
+    int pieceTo = Math.min(to - leftLength, node.length);
+    if (pieceFrom < pieceTo) {
+      out.append(buffer(node), node.start + pieceFrom, node.start + pieceTo);
+    }
+    int rightStart = leftLength + node.length;
+    if (to > rightStart) {
+      appendTo(out, node.right, Math.max(from - rightStart, 0), to - rightStart);
+    }
+  }
+
+  // Буферы и позиции переводов строки
+
+  private CharSequence buffer(Piece node) {
+    return node.added ? added : original;
+  }
+
+  private void appendAdded(CharSequence text) {
+    int base = added.length();
+    added.append(text);
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        if (addedBreakCount == addedBreaks.length) {
+          addedBreaks = Arrays.copyOf(addedBreaks, addedBreakCount * 2);
+        }
+        addedBreaks[addedBreakCount++] = base + i;
+      }
+    }
+  }
+
+  private int countBreaks(boolean inAdded, int from, int to) {
+    return rank(inAdded, to) - rank(inAdded, from);
+  }
+
+  /**
+   * Число переводов строки в буфере до позиции {@code position}.
+   */
+  private int rank(boolean inAdded, int position) {
+    int[] breaks = inAdded ? addedBreaks : originalBreaks;
+    int lo = 0;
+    int hi = inAdded ? addedBreakCount : originalBreaks.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (breaks[mid] < position) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static int[] lineBreaks(String text) {
+    int count = 0;
+    for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+      count++;
+    }
+    int[] breaks = new int[count];
+    int n = 0;
+    for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+      breaks[n++] = i;
+    }
+    return breaks;
+  }
+}
@@ -0,0 +1,233 @@
+package io.github.autocompletedemo.document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Большой текстовый файл (UTF-8), который редактируется постранично.
+ *
+ * <p>
+ * Файл отображается в память окнами до {@value #WINDOW_SIZE} байт и делится на страницы около
+ * {@code pageSize} байт; страница заканчивается после перевода строки, а если его нет - на границе
+ * символа UTF-8. Для разбиения читаются только байты у границ страниц: файл целиком не читается
+ * и не декодируется, но время открытия и память под границы линейны по числу страниц
+ * ({@code size / pageSize}). Декодируется только запрошенная страница; изменённые страницы
+ * хранятся отдельно, поверх файла. Сохранение копирует неизменённые диапазоны из файла как есть и
+ * пишет изменённые страницы во временный файл, который затем атомарно заменяет целевой.
+ */
+public class LargeFile implements AutoCloseable {
+
+  public static final long DEFAULT_THRESHOLD = 32L << 20;
+  public static final int DEFAULT_PAGE_SIZE = 256 << 10;
+  private static final int WINDOW_SIZE = 1 << 30;
+
+  private final int pageSize;
+  private final Map<Integer, String> edits = new HashMap<>();
+  private Path path;
+  private FileChannel channel;
+  private long size;
+  private long[] pageStarts;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+
+  private LargeFile(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  public static LargeFile open(Path path) throws IOException {
+    return open(path, DEFAULT_PAGE_SIZE);
+  }
+
+  public static LargeFile open(Path path, int pageSize) throws IOException {
+    LargeFile file = new LargeFile(Math.max(16, pageSize));
+    file.attach(path);
+    return file;
+  }
+
+  private void attach(Path file) throws IOException {
+    path = file.toAbsolutePath();
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    size = channel.size();
+    window = null;
+    edits.clear();
+    pageStarts = paginate();
+  }
+
+  private long[] paginate() throws IOException {
+    long[] starts = new long[(int) (size / pageSize) + 2];
+    int count = 0;
+    long start = 0;
+    starts[count++] = 0;
+    while (start < size) {
+      long end = Math.min(size, start + pageSize);
+      if (end < size) {
+        end = boundaryBefore(start, end);
+      }
+      if (count == starts.length) {
+        starts = Arrays.copyOf(starts, count * 2);
+      }
+      starts[count++] = end;
+      start = end;
+    }
+    if (count == 1) {
+      // Пустой файл - одна пустая страница
+      starts[count++] = 0;
+    }
+    return Arrays.copyOf(starts, count);
+  }
+
+  /**
+   * Конец страницы {@code [start, limit)}: сразу после последнего перевода строки, иначе на
+   * ближайшей к {@code limit} границе символа UTF-8.
+   */
+  private long boundaryBefore(long start, long limit) throws IOException {
+    ByteBuffer bytes = map(start, (int) (limit - start + 1));
+    int base = (int) (start - windowStart);
+    for (int i = (int) (limit - start) - 1; i >= 0; i--) {
+      if (bytes.get(base + i) == '\n') {
+        return start + i + 1;
+      }
+    }
+    // Строка длиннее страницы: не режем многобайтовый символ (байты продолжения 10xxxxxx)
+    int i = (int) (limit - start);
+    while (i > 1 && (bytes.get(base + i) & 0xC0) == 0x80) {
+      i--;
+    }
+    return start + i;
+  }
+
+  /**
+   * Окно отображения, которое покрывает {@code [position, position + length)}.
+   */
+  private MappedByteBuffer map(long position, int length) throws IOException {
+    long end = Math.min(size, position + length);
+    if (window == null || position < windowStart || end > windowStart + window.capacity()) {
+      windowStart = position;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+          Math.min(WINDOW_SIZE, size - position));
+    }
+    return window;
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public int pageCount() {
+    return pageStarts.length - 1;
+  }
+
+  public long pageStart(int page) {
+    return pageStarts[page];
+  }
+
+  public long pageEnd(int page) {
+    return pageStarts[page + 1];
+  }
+
+  /**
+   * Текст страницы: изменённый, если страницу правили, иначе декодированный из файла.
+   */
+  public String page(int page) throws IOException {
+    String edited = edits.get(page);
+    if (edited != null) {
+      return edited;
+    }
+    long start = pageStart(page);
+    int length = (int) (pageEnd(page) - start);
+    if (length == 0) {
+      return "";
+    }
+    ByteBuffer bytes = map(start, length).slice((int) (start - windowStart), length);
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  public void setPage(int page, String text) {
+    edits.put(page, text);
+  }
+
+  public boolean isModified() {
+    return !edits.isEmpty();
+  }
+
+  /**
+   * Сохраняет файл с правками в {@code target} и переключается на него: правки сбрасываются,
+   * страницы размечаются заново.
+   */
+  public void save(Path target) throws IOException {
+    target = target.toAbsolutePath();
+    Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        writeTo(out);
+        out.force(false);
+      }
+      // Открытый и отображённый файл Windows заменить не даёт: отпускаем его до переименования.
+      // Само отображение освобождается, когда сборщик заберёт буфер окна
+      close();
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException | RuntimeException e) {
+        // Файл не заменён: читаем его дальше, правки остаются
+        try {
+          channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException reopening) {
+          e.addSuppressed(reopening);
+        }
+        throw e;
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    attach(target);
+  }
+
+  private void writeTo(FileChannel out) throws IOException {
+    int page = 0;
+    while (page < pageCount()) {
+      String edited = edits.get(page);
+      if (edited != null) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(edited);
+        while (bytes.hasRemaining()) {
+          out.write(bytes);
+        }
+        page++;
+        continue;
+      }
+      // Подряд идущие неизменённые страницы копируются одним диапазоном
+      int last = page;
+      while (last + 1 < pageCount() && !edits.containsKey(last + 1)) {
+        last++;
+      }
+      long position = pageStart(page);
+      long end = pageEnd(last);
+      while (position < end) {
+        position += channel.transferTo(position, end - position, out);
+      }
+      page = last + 1;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    window = null;
+    channel.close();
+  }
+}
@@ -0,0 +1,61 @@
+package io.github.autocompletedemo.index;
+
+/**
+ * Срок ответа на запрос по {@link System#nanoTime}.
+ *
+ * <p>
+ * Обход индекса спрашивает {@link #expired} на каждом узле, а часы читаются раз в
+ * {@value #CHECK_INTERVAL} вопросов. Когда срок вышел, обход останавливается с тем, что уже
+ * нашёл, а {@link #missed()} запоминает, что ответ неполный. Один срок можно передать частям
+ * {@link ShardedIndex}: гонка на счётчике вопросов только сдвигает момент проверки.
+ */
+public final class Deadline {
+
+  /** Без срока. */
+  public static final Deadline NONE = new Deadline(0, false);
+
+  private static final int CHECK_INTERVAL = 64;
+
+  private final long deadlineNanos;
+  private final boolean bounded;
+  private int checks;
+  private volatile boolean missed;
+
+  private Deadline(long deadlineNanos, boolean bounded) {
+    this.deadlineNanos = deadlineNanos;
+    this.bounded = bounded;
+  }
+
+  /**
+   * Срок через {@code nanos} от текущего момента.
+   */
+  public static Deadline after(long nanos) {
+    return new Deadline(System.nanoTime() + nanos, true);
+  }
+
+  /**
+   * Вышел ли срок; первый вопрос всегда читает часы.
+   */
+  public boolean expired() {
+    if (!bounded) {
+      return false;
+    }
+    if (missed) {
+      return true;
+    }
+    if ((checks++ & (CHECK_INTERVAL - 1)) != 0) {
+      return false;
+    }
+    if (System.nanoTime() - deadlineNanos >= 0) {
+      missed = true;
+    }
+    return missed;
+  }
+
+  /**
+   * Останавливался ли поиск из-за срока.
+   */
+  public boolean missed() {
+    return missed;
+  }
+}
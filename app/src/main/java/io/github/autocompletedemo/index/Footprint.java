@@ -0,0 +1,41 @@
+package io.github.autocompletedemo.index;
+
+/**
+ * Грубая оценка размера объектов в куче для 64-битной JVM со сжатыми указателями.
+ */
+public final class Footprint {
+
+  private static final int ARRAY_HEADER = 16;
+  private static final int STRING_HEADER = 24;
+
+  private Footprint() {
+  }
+
+  public static long ofIntArray(int length) {
+    return align(ARRAY_HEADER + 4L * length);
+  }
+
+  public static long ofLongArray(int length) {
+    return align(ARRAY_HEADER + 8L * length);
+  }
+
+  public static long ofByteArray(int length) {
+    return align(ARRAY_HEADER + (long) length);
+  }
+
+  public static long ofReferenceArray(int length) {
+    return align(ARRAY_HEADER + 4L * length);
+  }
+
+  public static long ofString(String s) {
+    boolean latin1 = true;
+    for (int i = 0; i < s.length() && latin1; i++) {
+      latin1 = s.charAt(i) < 256;
+    }
+    return align(STRING_HEADER) + align(ARRAY_HEADER + (latin1 ? 1L : 2L) * s.length());
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+}
@@ -0,0 +1,35 @@
+package io.github.autocompletedemo.index;
+
+import java.util.Arrays;
+
+/**
+ * Растущий массив {@code int} без упаковки в {@code Integer}.
+ */
+final class IntArrayBuilder {
+
+  private int[] values;
+  private int size;
+
+  IntArrayBuilder(int initialCapacity) {
+    values = new int[Math.max(initialCapacity, 16)];
+  }
+
+  void add(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+    }
+    values[size++] = value;
+  }
+
+  int get(int index) {
+    return values[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
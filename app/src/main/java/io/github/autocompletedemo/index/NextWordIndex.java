@@ -0,0 +1,304 @@
+package io.github.autocompletedemo.index;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Неизменяемый индекс предсказания следующего слова по предыдущему.
+ *
+ * <p>
+ * Слова - номера в {@link Vocabulary#words}: они не меняются, пока словарь не очищен, поэтому
+ * индекс переживает добавление слов. Для каждого слова-контекста заранее отобраны top-k следующих
+ * слов: они лежат подряд в {@code int[]} (CSR: {@code offsets[id]} - начало списка слова
+ * {@code id}), частоты - один байт на слово в логарифмической шкале. Предсказание - поиск номера
+ * контекста в {@link RadixTrieIndex} той же версии и копирование его списка, от числа пар оно не
+ * зависит. {@link #update} пересобирает только списки изменённых контекстов.
+ */
+public final class NextWordIndex {
+
+  /** Сколько следующих слов хранится для каждого контекста. */
+  public static final int DEFAULT_TOP_K = 16;
+  // Частота c хранится как round(log_BASE(c)): погрешность до 4.5%, 255 уровней покрывают int
+  private static final double LEVEL_BASE = 1.09;
+  private static final double[] LEVELS = new double[256];
+
+  static {
+    for (int level = 0; level < LEVELS.length; level++) {
+      LEVELS[level] = Math.round(Math.pow(LEVEL_BASE, level));
+    }
+  }
+
+  private final RadixTrieIndex index;
+  private final Utf8Words words;
+  private final int topK;
+  // null, если пар нет
+  private final int[] offsets;
+  private final int[] next;
+  private final byte[] levels;
+
+  private NextWordIndex(RadixTrieIndex index, Utf8Words words, int topK, int[] offsets,
+      int[] next, byte[] levels) {
+    this.index = index;
+    this.words = words;
+    this.topK = topK;
+    this.offsets = offsets;
+    this.next = next;
+    this.levels = levels;
+  }
+
+  /**
+   * Индекс без пар.
+   */
+  public static NextWordIndex empty(RadixTrieIndex index) {
+    return new NextWordIndex(index, Utf8Words.EMPTY, DEFAULT_TOP_K, null, new int[0],
+        new byte[0]);
+  }
+
+  public static NextWordIndex build(Vocabulary vocabulary, RadixTrieIndex index) {
+    return build(vocabulary, index, DEFAULT_TOP_K);
+  }
+
+  /**
+   * @param index индекс, построенный по тому же {@code vocabulary}
+   */
+  public static NextWordIndex build(Vocabulary vocabulary, RadixTrieIndex index, int topK) {
+    Utf8Words words = vocabulary.words();
+    int pairs = vocabulary.bigramCount();
+    if (pairs == 0 || topK <= 0) {
+      return new NextWordIndex(index, words, topK, null, new int[0], new byte[0]);
+    }
+    int[] contexts = new int[pairs];
+    // Частота в старших 32 битах (инвертирована), номер следующего слова - в младших: сортировка
+    // по возрастанию даёт порядок по убыванию частоты
+    long[] ranked = new long[pairs];
+    int[] size = {0};
+    vocabulary.forEachBigramId((previous, following, count) -> {
+      contexts[size[0]] = previous;
+      ranked[size[0]++] = rank(following, count);
+    });
+
+    // Раскладка по контекстам подсчётом
+    int[] starts = new int[words.size() + 1];
+    for (int i = 0; i < size[0]; i++) {
+      starts[contexts[i] + 1]++;
+    }
+    for (int id = 0; id < words.size(); id++) {
+      starts[id + 1] += starts[id];
+    }
+    long[] grouped = new long[size[0]];
+    int[] fill = Arrays.copyOf(starts, words.size());
+    for (int i = 0; i < size[0]; i++) {
+      grouped[fill[contexts[i]]++] = ranked[i];
+    }
+
+    int[] offsets = new int[words.size() + 1];
+    int[] next = new int[size[0]];
+    byte[] levels = new byte[size[0]];
+    int kept = 0;
+    for (int id = 0; id < words.size(); id++) {
+      offsets[id] = kept;
+      kept = select(grouped, starts[id], starts[id + 1], topK, words, next, levels, kept);
+    }
+    offsets[words.size()] = kept;
+    return new NextWordIndex(index, words, topK, offsets, Arrays.copyOf(next, kept),
+        Arrays.copyOf(levels, kept));
+  }
+
+  /**
+   * Следующая версия после изменения пар {@code pairs} (см. {@link Vocabulary#drainChanges}):
+   * ключи - номер предыдущего слова в старших 32 битах, следующего - в младших, по возрастанию;
+   * {@code null} - пары могли удаляться.
+   *
+   * <p>
+   * Пока пары не удаляются, частоты только растут, поэтому новый top-k контекста - из его прежнего
+   * списка и изменённых пар. Сортируются только они, списки остальных контекстов копируются
+   * кусками; перебора всех пар нет.
+   *
+   * @param index индекс новой версии словаря
+   */
+  public NextWordIndex update(Vocabulary vocabulary, RadixTrieIndex index, long[] pairs) {
+    if (pairs == null || offsets == null) {
+      return build(vocabulary, index, topK);
+    }
+    Utf8Words latest = vocabulary.words();
+    if (pairs.length == 0) {
+      return new NextWordIndex(index, latest, topK, offsets, next, levels);
+    }
+    // Новые списки изменённых контекстов
+    IntArrayBuilder contexts = new IntArrayBuilder(16);
+    IntArrayBuilder freshOffsets = new IntArrayBuilder(16);
+    int[] freshNext = new int[0];
+    byte[] freshLevels = new byte[0];
+    int fresh = 0;
+    for (int i = 0; i < pairs.length;) {
+      int context = (int) (pairs[i] >>> 32);
+      int j = i;
+      while (j < pairs.length && (int) (pairs[j] >>> 32) == context) {
+        j++;
+      }
+      int from = start(context);
+      int to = start(context + 1);
+      int[] ids = new int[to - from + j - i];
+      System.arraycopy(next, from, ids, 0, to - from);
+      for (int k = i; k < j; k++) {
+        ids[to - from + k - i] = (int) pairs[k];
+      }
+      Arrays.sort(ids);
+      long[] ranked = new long[ids.length];
+      int candidates = 0;
+      for (int k = 0; k < ids.length; k++) {
+        if (k == 0 || ids[k] != ids[k - 1]) {
+          ranked[candidates++] = rank(ids[k], vocabulary.bigramCount(context, ids[k]));
+        }
+      }
+      if (fresh + topK > freshNext.length) {
+        freshNext = Arrays.copyOf(freshNext, Math.max(2 * freshNext.length, fresh + topK));
+        freshLevels = Arrays.copyOf(freshLevels, freshNext.length);
+      }
+      contexts.add(context);
+      freshOffsets.add(fresh);
+      fresh = select(ranked, 0, candidates, topK, latest, freshNext, freshLevels, fresh);
+      i = j;
+    }
+    freshOffsets.add(fresh);
+
+    int size = Math.max(offsets.length - 1, latest.size());
+    int[] mergedOffsets = new int[size + 1];
+    int[] mergedNext = new int[next.length + fresh];
+    byte[] mergedLevels = new byte[mergedNext.length];
+    int kept = 0;
+    int id = 0;
+    for (int k = 0; k <= contexts.size(); k++) {
+      // Неизменённые контексты [id, end) - одним куском
+      int end = k < contexts.size() ? contexts.get(k) : size;
+      int from = start(id);
+      int to = start(end);
+      int shift = kept - from;
+      for (int last = Math.min(end, offsets.length - 1); id < last; id++) {
+        mergedOffsets[id] = offsets[id] + shift;
+      }
+      for (; id < end; id++) {
+        mergedOffsets[id] = kept + to - from;
+      }
+      System.arraycopy(next, from, mergedNext, kept, to - from);
+      System.arraycopy(levels, from, mergedLevels, kept, to - from);
+      kept += to - from;
+      if (k < contexts.size()) {
+        mergedOffsets[id++] = kept;
+        int start = freshOffsets.get(k);
+        int length = freshOffsets.get(k + 1) - start;
+        System.arraycopy(freshNext, start, mergedNext, kept, length);
+        System.arraycopy(freshLevels, start, mergedLevels, kept, length);
+        kept += length;
+      }
+    }
+    mergedOffsets[size] = kept;
+    return new NextWordIndex(index, latest, topK, mergedOffsets, Arrays.copyOf(mergedNext, kept),
+        Arrays.copyOf(mergedLevels, kept));
+  }
+
+  /**
+   * Начало списка контекста {@code id}; у контекстов за концом {@code offsets} списки пусты.
+   */
+  private int start(int id) {
+    return offsets[Math.min(id, offsets.length - 1)];
+  }
+
+  private static long rank(int id, int count) {
+    return (long) (Integer.MAX_VALUE - count) << 32 | id;
+  }
+
+  /**
+   * Записывает top-k из {@code ranked[from, to)} одного контекста в {@code next} и
+   * {@code levels}, начиная с {@code kept}.
+   *
+   * @return новая длина списков
+   */
+  private static int select(long[] ranked, int from, int to, int topK, Utf8Words words,
+      int[] next, byte[] levels, int kept) {
+    if (to == from) {
+      return kept;
+    }
+    int limit = Math.min(to, from + topK);
+    sort(ranked, from, to, limit, words);
+    for (int i = from; i < limit; i++) {
+      next[kept] = (int) ranked[i];
+      levels[kept++] = level(Integer.MAX_VALUE - (int) (ranked[i] >>> 32));
+    }
+    return kept;
+  }
+
+  /**
+   * Сортирует пары одного контекста по убыванию частоты, а при равной частоте - по алфавиту, как
+   * у {@link RadixTrieIndex}; алфавит важен только до {@code limit}.
+   */
+  private static void sort(long[] ranked, int from, int to, int limit, Utf8Words words) {
+    Arrays.sort(ranked, from, to);
+    for (int run = from; run < limit;) {
+      int end = run + 1;
+      while (end < to && ranked[end] >>> 32 == ranked[run] >>> 32) {
+        end++;
+      }
+      if (end - run > 1) {
+        int[] ids = new int[end - run];
+        for (int i = 0; i < ids.length; i++) {
+          ids[i] = (int) ranked[run + i];
+        }
+        words.sort(ids);
+        for (int i = 0; i < ids.length; i++) {
+          ranked[run + i] = ranked[run + i] & 0xFFFFFFFF00000000L | ids[i];
+        }
+      }
+      run = end;
+    }
+  }
+
+  /**
+   * Самые частые слова после {@code previous} со счётом {@code частота * weight}.
+   *
+   * @param previous предыдущее слово в виде для словаря
+   */
+  public List<Candidate> predict(String previous, int maxSuggestions, double weight) {
+    if (offsets == null || maxSuggestions <= 0) {
+      return List.of();
+    }
+    int context = index.wordId(previous);
+    if (context < 0 || context >= offsets.length - 1) {
+      return List.of();
+    }
+    int from = offsets[context];
+    int to = Math.min(offsets[context + 1], from + maxSuggestions);
+    List<Candidate> result = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      result.add(new Candidate(words.word(next[i]), LEVELS[levels[i] & 0xFF] * weight));
+    }
+    return result;
+  }
+
+  /**
+   * Число хранимых пар (после отбора top-k).
+   */
+  public int size() {
+    return next.length;
+  }
+
+  /**
+   * Оценка занимаемой памяти без слов (они принадлежат словарю).
+   */
+  public long estimatedBytes() {
+    long bytes = Footprint.ofIntArray(next.length) + Footprint.ofByteArray(levels.length);
+    return offsets == null ? bytes : bytes + Footprint.ofIntArray(offsets.length);
+  }
+
+  static byte level(int count) {
+    if (count <= 1) {
+      return 0;
+    }
+    long level = Math.round(Math.log(count) / Math.log(LEVEL_BASE));
+    return (byte) Math.min(LEVELS.length - 1, level);
+  }
+}
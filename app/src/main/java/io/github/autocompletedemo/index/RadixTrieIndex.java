@@ -0,0 +1,1042 @@
+package io.github.autocompletedemo.index;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.distance.DistanceMetric;
+import io.github.autocompletedemo.distance.KeyboardLayout;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Неизменяемое сжатое префиксное дерево с заранее посчитанными top-k продолжениями в каждом узле.
+ *
+ * <p>
+ * Номера слов индекса идут в алфавитном порядке, поэтому поддерево любого узла - непрерывный
+ * диапазон номеров [lo, hi), а метка ребра - подстрока первого слова диапазона. Узлы лежат в
+ * параллельных массивах {@code int}, дети узла идут подряд. Поиск по префиксу - спуск на длину
+ * префикса и копирование top-k списка узла, от размера словаря он не зависит.
+ *
+ * <p>
+ * Самих слов индекс не хранит: он читает их в UTF-8 из {@link Utf8Words} - обычно из буфера
+ * {@link Vocabulary} вне кучи, - а в куче держит только номера, частоты и узлы. Строка создаётся
+ * лишь для слова, попавшего в ответ.
+ *
+ * <p>
+ * Небольшие изменения словаря не перестраивают дерево: {@link #update} собирает изменённые и новые
+ * слова в отдельный маленький индекс поверх прежнего (базы). Поиск пропускает в базе изменённые
+ * слова и сливает её ответ с ответом маленького индекса; номера, {@link #word} и {@link #count}
+ * остаются алфавитными по всему словарю. Когда изменений много, {@link #compact} сливает их с базой
+ * в новое дерево.
+ *
+ * <p>
+ * Ранжирование: по убыванию частоты, при равной частоте - по алфавиту.
+ */
+public final class RadixTrieIndex {
+
+  /** Размер top-k списка по умолчанию; совпадает с максимумом в настройках. */
+  public static final int DEFAULT_TOP_K = 50;
+  // Сколько изменённых слов держать поверх базы: не меньше этого и не больше 1/64 базы
+  private static final int MIN_OVERLAY_WORDS = 1024;
+
+  private final Utf8Words words;
+  // Номер слова в words по номеру в индексе; null - номера совпадают
+  private final int[] order;
+  private final int[] counts;
+  private final int topK;
+
+  // Узлы: диапазон слов, глубина (длина префикса узла), дети, top-k список
+  private final int[] nodeLo;
+  private final int[] nodeHi;
+  private final int[] nodeDepth;
+  private final int[] firstChild;
+  private final int[] childCount;
+  private final int[] topStart;
+  private final int[] topLength;
+  private final int[] topIds;
+
+  // Номера слов базы, изменённых после её построения, по возрастанию: поиск их пропускает;
+  // null - таких нет
+  private final int[] shadowed;
+  // Изменения поверх базы или null
+  private final Overlay overlay;
+
+  private RadixTrieIndex(Utf8Words words, int[] order, int[] counts, int topK, int[][] nodes,
+      int[] topIds) {
+    this(words, order, counts, topK, nodes, topIds, null, null);
+  }
+
+  private RadixTrieIndex(RadixTrieIndex base, int[] shadowed, Overlay overlay) {
+    this(base.words, base.order, base.counts, base.topK, new int[][] {base.nodeLo, base.nodeHi,
+        base.nodeDepth, base.firstChild, base.childCount, base.topStart, base.topLength},
+        base.topIds, shadowed, overlay);
+  }
+
+  private RadixTrieIndex(Utf8Words words, int[] order, int[] counts, int topK, int[][] nodes,
+      int[] topIds, int[] shadowed, Overlay overlay) {
+    this.words = words;
+    this.order = order;
+    this.counts = counts;
+    this.topK = topK;
+    this.nodeLo = nodes[0];
+    this.nodeHi = nodes[1];
+    this.nodeDepth = nodes[2];
+    this.firstChild = nodes[3];
+    this.childCount = nodes[4];
+    this.topStart = nodes[5];
+    this.topLength = nodes[6];
+    this.topIds = topIds;
+    this.shadowed = shadowed;
+    this.overlay = overlay;
+  }
+
+  public static RadixTrieIndex build(Vocabulary vocabulary) {
+    return build(vocabulary, DEFAULT_TOP_K);
+  }
+
+  /**
+   * Индекс над словами {@code vocabulary} без их копии: слова сортируются по номерам, частоты
+   * копируются, дальнейшие изменения словаря индекс не затрагивают.
+   */
+  public static RadixTrieIndex build(Vocabulary vocabulary, int topK) {
+    Utf8Words words = vocabulary.words();
+    int[] order = words.sortedIds();
+    int[] counts = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      counts[i] = vocabulary.count(order[i]);
+    }
+    return build(words, order, counts, topK);
+  }
+
+  /**
+   * @param words слова, отсортированные по {@link String#compareTo}, без повторов
+   * @param counts частоты слов
+   */
+  public static RadixTrieIndex build(String[] words, int[] counts, int topK) {
+    return build(Utf8Words.of(words), counts, topK);
+  }
+
+  /**
+   * @param words слова в порядке {@link String#compareTo}, без повторов
+   * @param counts частоты слов
+   */
+  public static RadixTrieIndex build(Utf8Words words, int[] counts, int topK) {
+    return build(words, null, counts, topK);
+  }
+
+  private static RadixTrieIndex build(Utf8Words words, int[] order, int[] counts, int topK) {
+    Builder builder = new Builder(words, order, counts, topK);
+    builder.build();
+    int[][] nodes = {builder.nodeLo.toArray(), builder.nodeHi.toArray(),
+        builder.nodeDepth.toArray(), builder.firstChild, builder.childCount, builder.topStart,
+        builder.topLength};
+    return new RadixTrieIndex(words, order, counts, topK, nodes, builder.topIds.toArray());
+  }
+
+  /**
+   * Индекс слов с номерами [lo, hi) этого индекса; слова не копируются.
+   */
+  RadixTrieIndex range(int lo, int hi) {
+    int[] rangeOrder = new int[hi - lo];
+    for (int id = lo; id < hi; id++) {
+      rangeOrder[id - lo] = source(id);
+    }
+    return build(words, rangeOrder, Arrays.copyOfRange(counts, lo, hi), topK);
+  }
+
+  /**
+   * То же дерево над другой копией тех же слов в том же порядке, например над словами
+   * {@link Vocabulary} после {@link Vocabulary#replace}.
+   */
+  public RadixTrieIndex withWords(Utf8Words words) {
+    if (overlay != null) {
+      return compact().withWords(words);
+    }
+    if (words.size() != size()) {
+      throw new IllegalArgumentException(
+          "Expected " + size() + " words, got " + words.size());
+    }
+    int[][] nodes = {nodeLo, nodeHi, nodeDepth, firstChild, childCount, topStart, topLength};
+    return new RadixTrieIndex(words, null, counts, topK, nodes, topIds);
+  }
+
+  /**
+   * Следующая версия после изменения частот слов {@code changed} - номеров в
+   * {@link Vocabulary#words}. Индекс должен быть построен по этому же словарю без его очистки, то
+   * есть номера его слов - номера в {@code vocabulary}.
+   *
+   * <p>
+   * Дерево не перестраивается: изменённые и новые слова (вместе с изменёнными раньше) сортируются
+   * в небольшой индекс поверх базы, стоимость - от числа изменённых слов, а не от размера словаря.
+   * Когда их больше {@code max(1024, размер базы / 64)}, изменения сливаются с базой
+   * ({@link #compact}).
+   */
+  public RadixTrieIndex update(Vocabulary vocabulary, int[] changed) {
+    if (changed.length == 0) {
+      return this;
+    }
+    RadixTrieIndex base = base();
+    Utf8Words latest = vocabulary.words();
+    // Изменённые раньше слова остаются поверх базы с новыми частотами
+    RadixTrieIndex previous = delta();
+    int[] ids = Arrays.copyOf(changed, changed.length + (previous == null ? 0 : previous.size()));
+    for (int id = changed.length; id < ids.length; id++) {
+      ids[id] = previous.source(id - changed.length);
+    }
+    Arrays.sort(ids);
+    int unique = 0;
+    for (int i = 0; i < ids.length; i++) {
+      if (i == 0 || ids[i] != ids[i - 1]) {
+        ids[unique++] = ids[i];
+      }
+    }
+    ids = Arrays.copyOf(ids, unique);
+    latest.sort(ids);
+    int[] deltaCounts = new int[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      deltaCounts[i] = vocabulary.count(ids[i]);
+    }
+    RadixTrieIndex next = base.withOverlay(build(latest, ids, deltaCounts, topK));
+    return ids.length > Math.max(MIN_OVERLAY_WORDS, base.size() >> 6) ? next.compact() : next;
+  }
+
+  /**
+   * Раскладывает слова {@code delta} по базе: какие из них в ней есть, куда встают новые.
+   */
+  private RadixTrieIndex withOverlay(RadixTrieIndex delta) {
+    int[] deltaMerged = new int[delta.size()];
+    IntArrayBuilder shadowedIds = new IntArrayBuilder(delta.size());
+    IntArrayBuilder shadowedDelta = new IntArrayBuilder(delta.size());
+    IntArrayBuilder added = new IntArrayBuilder(delta.size());
+    IntArrayBuilder addedDelta = new IntArrayBuilder(delta.size());
+    for (int k = 0; k < delta.size(); k++) {
+      // Первое слово базы не меньше слова delta: оно само или место вставки
+      int source = delta.source(k);
+      int low = 0;
+      int high = counts.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (Utf8Words.compare(words, source(mid), delta.words, source) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      deltaMerged[k] = low + added.size();
+      if (low < counts.length && Utf8Words.compare(words, source(low), delta.words, source) == 0) {
+        shadowedIds.add(low);
+        shadowedDelta.add(k);
+      } else {
+        added.add(deltaMerged[k]);
+        addedDelta.add(k);
+      }
+    }
+    Overlay next = new Overlay(this, delta, deltaMerged, added.toArray(), addedDelta.toArray(),
+        shadowedDelta.toArray());
+    return new RadixTrieIndex(this, shadowedIds.size() == 0 ? null : shadowedIds.toArray(), next);
+  }
+
+  /**
+   * Тот же словарь одним деревом: слова базы и изменённые сливаются по уже известному порядку,
+   * без сортировки. Без изменений поверх базы возвращает этот же индекс.
+   */
+  public RadixTrieIndex compact() {
+    if (overlay == null) {
+      return this;
+    }
+    RadixTrieIndex delta = overlay.delta;
+    int size = size();
+    int[] mergedOrder = new int[size];
+    int[] mergedCounts = new int[size];
+    int added = 0;
+    int changed = 0;
+    for (int id = 0; id < size; id++) {
+      if (added < overlay.added.length && overlay.added[added] == id) {
+        int k = overlay.addedDelta[added++];
+        mergedOrder[id] = delta.source(k);
+        mergedCounts[id] = delta.counts[k];
+        continue;
+      }
+      int base = id - added;
+      mergedOrder[id] = source(base);
+      if (shadowed != null && changed < shadowed.length && shadowed[changed] == base) {
+        mergedCounts[id] = delta.counts[overlay.shadowedDelta[changed++]];
+      } else {
+        mergedCounts[id] = counts[base];
+      }
+    }
+    // Буфер delta - самый новый вид словаря, в нём есть и слова базы
+    return build(delta.words, mergedOrder, mergedCounts, topK);
+  }
+
+  /**
+   * Индекс, поверх которого лежат изменения; без изменений - этот же.
+   */
+  RadixTrieIndex base() {
+    return overlay == null ? this : overlay.base;
+  }
+
+  /**
+   * Изменённые и новые слова поверх базы или {@code null}.
+   */
+  RadixTrieIndex delta() {
+    return overlay == null ? null : overlay.delta;
+  }
+
+  /**
+   * Номера изменённых слов базы по возрастанию или {@code null}.
+   */
+  int[] shadowed() {
+    return shadowed;
+  }
+
+  /**
+   * Это же дерево, поиск по которому пропускает слова {@code ids} (номера по возрастанию).
+   */
+  RadixTrieIndex withShadowed(int[] ids) {
+    RadixTrieIndex base = base();
+    return ids == null ? base : new RadixTrieIndex(base, ids, null);
+  }
+
+  /**
+   * Записывает узлы дерева (без слов и частот, они хранятся отдельно). Изменения поверх базы
+   * сначала сливаются с ней, номера слов - те же, что у {@link #word}.
+   */
+  public void writeNodes(DataOutput out) throws IOException {
+    if (overlay != null) {
+      compact().writeNodes(out);
+      return;
+    }
+    out.writeInt(topK);
+    out.writeInt(nodeLo.length);
+    for (int[] array : new int[][] {nodeLo, nodeHi, nodeDepth, firstChild, childCount, topStart,
+        topLength}) {
+      for (int value : array) {
+        out.writeInt(value);
+      }
+    }
+    out.writeInt(topIds.length);
+    for (int value : topIds) {
+      out.writeInt(value);
+    }
+  }
+
+  /**
+   * Восстанавливает индекс из данных {@link #writeNodes}, ничего не пересчитывая.
+   *
+   * @param words те же слова в том же порядке, что и при записи
+   */
+  public static RadixTrieIndex readNodes(ByteBuffer buffer, Utf8Words words, int[] counts) {
+    int topK = buffer.getInt();
+    int nodeCount = buffer.getInt();
+    int[][] nodes = new int[7][];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = readInts(buffer, nodeCount);
+    }
+    int[] topIds = readInts(buffer, buffer.getInt());
+    return new RadixTrieIndex(words, null, counts, topK, nodes, topIds);
+  }
+
+  private static int[] readInts(ByteBuffer buffer, int length) {
+    int[] values = new int[length];
+    IntBuffer view = buffer.asIntBuffer();
+    view.get(values);
+    buffer.position(buffer.position() + 4 * length);
+    return values;
+  }
+
+  public int size() {
+    return overlay == null ? counts.length : counts.length + overlay.added.length;
+  }
+
+  /**
+   * Слово с номером {@code id}; номера соответствуют алфавитному порядку.
+   */
+  public String word(int id) {
+    if (overlay == null) {
+      return baseWord(id);
+    }
+    int k = Arrays.binarySearch(overlay.added, id);
+    if (k >= 0) {
+      return overlay.delta.word(overlay.addedDelta[k]);
+    }
+    // Перед id стоят -k - 1 новых слов
+    return baseWord(id + k + 1);
+  }
+
+  public int count(int id) {
+    if (overlay == null) {
+      return counts[id];
+    }
+    int k = Arrays.binarySearch(overlay.added, id);
+    if (k >= 0) {
+      return overlay.delta.count(overlay.addedDelta[k]);
+    }
+    int base = id + k + 1;
+    int changed = shadowed == null ? -1 : Arrays.binarySearch(shadowed, base);
+    return changed >= 0 ? overlay.delta.count(overlay.shadowedDelta[changed]) : counts[base];
+  }
+
+  /**
+   * Номер слова или -1, если его нет; стоит как спуск по префиксу.
+   */
+  public int indexOf(String word) {
+    if (overlay != null) {
+      int k = overlay.delta.indexOf(word);
+      if (k >= 0) {
+        return overlay.deltaMerged[k];
+      }
+    }
+    int id = baseIndexOf(word);
+    return id < 0 || overlay == null ? id : id + overlay.addedBefore(id);
+  }
+
+  /**
+   * Номер слова в {@link Utf8Words} индекса - для индекса по {@link Vocabulary} это номер в
+   * словаре - или -1, если слова нет.
+   */
+  public int wordId(String word) {
+    int id = baseIndexOf(word);
+    if (id >= 0) {
+      return source(id);
+    }
+    return overlay == null ? -1 : overlay.delta.wordId(word);
+  }
+
+  private int baseIndexOf(String word) {
+    int node = find(word);
+    // Слова отсортированы, поэтому само слово - первое в диапазоне своего узла
+    if (node < 0 || word.length() != nodeDepth[node] || !terminal(node)) {
+      return -1;
+    }
+    return nodeLo[node];
+  }
+
+  private String baseWord(int id) {
+    return words.word(source(id));
+  }
+
+  public int nodeCount() {
+    return nodeLo.length + (overlay == null ? 0 : overlay.delta.nodeCount());
+  }
+
+  /**
+   * Сколько лучших продолжений хранится в каждом узле.
+   */
+  public int topK() {
+    return topK;
+  }
+
+  /**
+   * Подсказки для префикса со счётом {@code частота * weight}.
+   */
+  public List<Candidate> complete(String prefix, int maxSuggestions, double weight) {
+    if (shadowed != null || overlay != null) {
+      return completeWithChanges(prefix, maxSuggestions, weight);
+    }
+    int node = find(prefix);
+    if (node < 0 || maxSuggestions <= 0) {
+      return List.of();
+    }
+
+    int subtreeSize = nodeHi[node] - nodeLo[node];
+    if (maxSuggestions <= topLength[node] || topLength[node] == subtreeSize) {
+      int length = Math.min(maxSuggestions, topLength[node]);
+      List<Candidate> result = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        int id = topIds[topStart[node] + i];
+        result.add(new Candidate(baseWord(id), counts[id] * weight));
+      }
+      return result;
+    }
+    return selectFromRange(nodeLo[node], nodeHi[node], maxSuggestions, weight);
+  }
+
+  /**
+   * Ответ базы без изменённых слов, слитый с ответом индекса изменений.
+   */
+  private List<Candidate> completeWithChanges(String prefix, int maxSuggestions, double weight) {
+    if (maxSuggestions <= 0) {
+      return List.of();
+    }
+    List<Candidate> result = new ArrayList<>(2 * maxSuggestions);
+    int node = find(prefix);
+    if (node >= 0) {
+      TopKCollector collector = new TopKCollector(maxSuggestions);
+      collectSubtree(node, weight, -1, -1, -1, Deadline.NONE, collector);
+      result.addAll(toCandidates(collector));
+    }
+    if (overlay != null) {
+      result.addAll(overlay.delta.complete(prefix, maxSuggestions, weight));
+    }
+    return ShardedIndex.merge(result, maxSuggestions);
+  }
+
+  /**
+   * Поиск с опечатками обходом дерева автоматом Левенштейна.
+   *
+   * <p>
+   * Слово подходит, если какой-то его префикс отличается от {@code prefix} не больше чем на
+   * {@code tolerance} правок. Слова, начинающиеся ровно с {@code prefix}, получают счёт
+   * {@code частота * originalWeight}, остальные подошедшие - {@code частота * similarWeight}.
+   * Строка таблицы расстояний считается на каждый символ пути, ветка отсекается, как только все
+   * значения в строке превысили {@code tolerance}, поэтому обходится только полоса дерева вокруг
+   * префикса, а не весь словарь.
+   */
+  public List<Candidate> completeFuzzy(String prefix, int maxSuggestions, int tolerance,
+      double originalWeight, double similarWeight) {
+    return completeFuzzy(prefix, maxSuggestions, tolerance, originalWeight, similarWeight,
+        DistanceMetric.LIBRARY);
+  }
+
+  /**
+   * То же с выбранным расстоянием: {@link DistanceMetric#DAMERAU} считает перестановку соседних
+   * символов одной правкой, {@link DistanceMetric#KEYBOARD} - замену на соседнюю клавишу
+   * половиной правки; остальные метрики здесь - обычный Левенштейн.
+   */
+  public List<Candidate> completeFuzzy(String prefix, int maxSuggestions, int tolerance,
+      double originalWeight, double similarWeight, DistanceMetric metric) {
+    return completeFuzzy(prefix, maxSuggestions, tolerance, originalWeight, similarWeight, metric,
+        Deadline.NONE);
+  }
+
+  /**
+   * То же со сроком: точные совпадения префикса собираются всегда, а обход в поисках похожих слов
+   * останавливается, когда {@code deadline} истёк, - в ответ попадают похожие слова, найденные до
+   * этого.
+   */
+  public List<Candidate> completeFuzzy(String prefix, int maxSuggestions, int tolerance,
+      double originalWeight, double similarWeight, DistanceMetric metric, Deadline deadline) {
+    if (size() == 0 || maxSuggestions <= 0) {
+      return List.of();
+    }
+    TopKCollector collector = new TopKCollector(maxSuggestions);
+    collectFuzzy(prefix, tolerance, originalWeight, similarWeight, metric, deadline, collector);
+    if (overlay == null) {
+      return toCandidates(collector);
+    }
+    List<Candidate> result = new ArrayList<>(toCandidates(collector));
+    result.addAll(overlay.delta.completeFuzzy(prefix, maxSuggestions, tolerance, originalWeight,
+        similarWeight, metric, deadline));
+    return ShardedIndex.merge(result, maxSuggestions);
+  }
+
+  /**
+   * Поиск с опечатками в {@code collector}.
+   *
+   * @return сколько слов просмотрено при сборе ответа
+   */
+  int collectFuzzy(String prefix, int tolerance, double originalWeight, double similarWeight,
+      DistanceMetric metric, Deadline deadline, TopKCollector collector) {
+    if (counts.length == 0) {
+      return 0;
+    }
+    int visited = 0;
+    int exact = find(prefix);
+    int exactLo = -1;
+    int exactHi = -1;
+    if (exact >= 0) {
+      exactLo = nodeLo[exact];
+      exactHi = nodeHi[exact];
+      visited += collectSubtree(exact, originalWeight, -1, -1, -1, Deadline.NONE, collector);
+    }
+
+    IntArrayBuilder matched = new IntArrayBuilder(16);
+    int n = prefix.length();
+    int[][] rows = new int[n + tolerance + 2][n + 1];
+    // Взвешенный по клавиатуре вариант считает в половинах правки
+    int unit = metric == DistanceMetric.KEYBOARD ? 2 : 1;
+    for (int i = 0; i <= n; i++) {
+      rows[0][i] = i * unit;
+    }
+    if (n <= tolerance) {
+      matched.add(0);
+    } else {
+      walk(0, 0, 0, (char) 0, prefix, tolerance * unit, metric, deadline, rows, matched);
+    }
+    for (int i = 0; i < matched.size(); i++) {
+      visited += collectSubtree(matched.get(i), similarWeight, exactLo, exactHi, -1, deadline,
+          collector);
+    }
+    return visited;
+  }
+
+  /**
+   * Обход с построчным вычислением расстояния; в {@code matched} попадают узлы, всё поддерево
+   * которых находится в пределах {@code limit} (в единицах {@code rows}).
+   *
+   * @param fromBytes длина префикса родителя в байтах UTF-8
+   * @param before последний символ префикса родителя
+   */
+  private void walk(int node, int fromDepth, int fromBytes, char before, String prefix, int limit,
+      DistanceMetric metric, Deadline deadline, int[][] rows, IntArrayBuilder matched) {
+    if (deadline.expired()) {
+      return;
+    }
+    int label = words.start(source(nodeLo[node]));
+    int position = label + fromBytes;
+    char last = before;
+    int n = prefix.length();
+    boolean keyboard = metric == DistanceMetric.KEYBOARD;
+    boolean transpositions = metric == DistanceMetric.DAMERAU;
+    int unit = keyboard ? 2 : 1;
+    for (int depth = fromDepth; depth < nodeDepth[node]; depth++) {
+      int[] previous = rows[depth];
+      int[] current = rows[depth + 1];
+      char c = words.charAt(position);
+      position += Utf8Words.width(c);
+      current[0] = (depth + 1) * unit;
+      int min = current[0];
+      for (int i = 1; i <= n; i++) {
+        char p = prefix.charAt(i - 1);
+        int cost = p == c ? 0 : keyboard && KeyboardLayout.adjacent(p, c) ? 1 : unit;
+        current[i] = Math.min(previous[i - 1] + cost, Math.min(previous[i], current[i - 1]) + unit);
+        if (transpositions && depth > 0 && i > 1 && p == last && prefix.charAt(i - 2) == c) {
+          current[i] = Math.min(current[i], rows[depth - 1][i - 2] + 1);
+        }
+        min = Math.min(min, current[i]);
+      }
+      if (current[n] <= limit) {
+        matched.add(node);
+        return;
+      }
+      if (min > limit) {
+        return;
+      }
+      last = c;
+    }
+    int first = firstChild[node];
+    for (int child = first; child < first + childCount[node]; child++) {
+      walk(child, nodeDepth[node], position - label, last, prefix, limit, metric, deadline, rows,
+          matched);
+    }
+  }
+
+  /**
+   * Добавляет лучшие слова поддерева, пропуская id из [excludeLo, excludeHi) и слова не хуже
+   * {@code floor} - их уже разобрал предок (-1 - без ограничения).
+   *
+   * <p>
+   * Слова берутся из top-k списка узла, пока коллектор их принимает. Если список кончился, а в
+   * поддереве есть ещё слова (список неполный, а часть его исключена или уже разобрана), разбор
+   * продолжается в детях с последним словом списка как новым {@code floor}. Поэтому даже для
+   * корня просматриваются только слова, которые могут попасть в ответ, а не весь диапазон.
+   * Истёкший {@code deadline} останавливает разбор на очередном слове.
+   *
+   * @return сколько слов просмотрено
+   */
+  private int collectSubtree(int node, double weight, int excludeLo, int excludeHi, int floor,
+      Deadline deadline, TopKCollector collector) {
+    int lo = nodeLo[node];
+    int hi = nodeHi[node];
+    if (lo >= excludeLo && hi <= excludeHi) {
+      return 0;
+    }
+    if (weight <= 0) {
+      return collectFirst(lo, hi, weight, excludeLo, excludeHi, deadline, collector);
+    }
+
+    int start = topStart[node];
+    int length = topLength[node];
+    for (int i = 0; i < length; i++) {
+      if (deadline.expired()) {
+        return i;
+      }
+      int id = topIds[start + i];
+      if (id >= excludeLo && id < excludeHi || floor >= 0 && compareRank(id, floor) <= 0
+          || isShadowed(id)) {
+        continue;
+      }
+      double score = counts[id] * weight;
+      if (!collector.accepts(id, score)) {
+        // Список отсортирован, дальше в поддереве только хуже
+        return i + 1;
+      }
+      collector.add(id, score);
+    }
+    if (length == 0 || length == hi - lo) {
+      return length;
+    }
+
+    int last = topIds[start + length - 1];
+    int next = floor >= 0 && compareRank(last, floor) < 0 ? floor : last;
+    int visited = length;
+    if (terminal(node) && (lo < excludeLo || lo >= excludeHi)
+        && compareRank(lo, next) > 0 && !isShadowed(lo)) {
+      visited++;
+      collector.add(lo, counts[lo] * weight);
+    }
+    int first = firstChild[node];
+    for (int child = first; child < first + childCount[node] && !deadline.expired(); child++) {
+      visited += collectSubtree(child, weight, excludeLo, excludeHi, next, deadline, collector);
+    }
+    return visited;
+  }
+
+  /**
+   * При нулевом весе все счета равны и порядок задаёт алфавит, то есть номера слов: подходят
+   * первые слова диапазона. Отрицательных весов настройки не допускают.
+   */
+  private int collectFirst(int lo, int hi, double weight, int excludeLo, int excludeHi,
+      Deadline deadline, TopKCollector collector) {
+    int visited = 0;
+    for (int id = lo; id < hi && !deadline.expired(); id++) {
+      if (id >= excludeLo && id < excludeHi) {
+        id = excludeHi - 1;
+        continue;
+      }
+      if (isShadowed(id)) {
+        continue;
+      }
+      visited++;
+      double score = counts[id] * weight;
+      if (!collector.accepts(id, score)) {
+        break;
+      }
+      collector.add(id, score);
+    }
+    return visited;
+  }
+
+  private List<Candidate> toCandidates(TopKCollector collector) {
+    List<Candidate> result = new ArrayList<>(collector.size());
+    collector.drainBestFirst((id, score) -> result.add(new Candidate(baseWord(id), score)));
+    return result;
+  }
+
+  /**
+   * Спуск по дереву. Возвращает узел, префикс которого начинается с {@code prefix}, или -1.
+   */
+  int find(String prefix) {
+    if (counts.length == 0) {
+      return -1;
+    }
+    int node = 0;
+    int matched = 0;
+    // Длина совпавшего префикса в байтах UTF-8: у всех слов узла она одна и та же
+    int matchedBytes = 0;
+    while (true) {
+      int first = words.start(source(nodeLo[node]));
+      int position = first + matchedBytes;
+      int end = Math.min(prefix.length(), nodeDepth[node]);
+      for (; matched < end; matched++) {
+        char c = words.charAt(position);
+        if (c != prefix.charAt(matched)) {
+          return -1;
+        }
+        position += Utf8Words.width(c);
+      }
+      if (prefix.length() <= nodeDepth[node]) {
+        return node;
+      }
+      matchedBytes = position - first;
+      node = findChild(node, matchedBytes, prefix.charAt(matched));
+      if (node < 0) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * @param bytes длина префикса узла в байтах UTF-8
+   */
+  private int findChild(int node, int bytes, char c) {
+    int low = firstChild[node];
+    int high = low + childCount[node] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char midChar = words.charAt(words.start(source(nodeLo[mid])) + bytes);
+      if (midChar < c) {
+        low = mid + 1;
+      } else if (midChar > c) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Запасной путь, когда запрошено больше подсказок, чем хранится в узле.
+   */
+  private List<Candidate> selectFromRange(int lo, int hi, int maxSuggestions, double weight) {
+    Comparator<Integer> worstFirst = (a, b) -> compareRank(b, a);
+    PriorityQueue<Integer> best = new PriorityQueue<>(maxSuggestions + 1, worstFirst);
+    for (int id = lo; id < hi; id++) {
+      best.add(id);
+      if (best.size() > maxSuggestions) {
+        best.poll();
+      }
+    }
+    Integer[] ids = best.toArray(new Integer[0]);
+    Arrays.sort(ids, this::compareRank);
+    List<Candidate> result = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      result.add(new Candidate(baseWord(id), counts[id] * weight));
+    }
+    return result;
+  }
+
+  /**
+   * Номер слова в {@link Utf8Words} по номеру в индексе.
+   */
+  private int source(int id) {
+    return order == null ? id : order[id];
+  }
+
+  private boolean isShadowed(int id) {
+    return shadowed != null && Arrays.binarySearch(shadowed, id) >= 0;
+  }
+
+  /**
+   * Есть ли слово, равное префиксу узла. Такое слово - первое в диапазоне, и дети его не
+   * содержат; у листа префикс - само слово.
+   */
+  private boolean terminal(int node) {
+    return childCount[node] == 0 || nodeLo[firstChild[node]] != nodeLo[node];
+  }
+
+  private int compareRank(int a, int b) {
+    if (counts[a] != counts[b]) {
+      return Integer.compare(counts[b], counts[a]);
+    }
+    return Integer.compare(a, b);
+  }
+
+  /**
+   * Оценка занимаемой памяти в куче. Слова в неё не входят: они принадлежат {@link Utf8Words}.
+   */
+  public long estimatedBytes() {
+    long bytes = Footprint.ofIntArray(counts.length);
+    if (order != null) {
+      bytes += Footprint.ofIntArray(order.length);
+    }
+    bytes += 7 * Footprint.ofIntArray(nodeLo.length);
+    bytes += Footprint.ofIntArray(topIds.length);
+    if (shadowed != null) {
+      bytes += Footprint.ofIntArray(shadowed.length);
+    }
+    if (overlay != null) {
+      bytes += overlay.delta.estimatedBytes() + Footprint.ofIntArray(overlay.deltaMerged.length)
+          + 2 * Footprint.ofIntArray(overlay.added.length)
+          + Footprint.ofIntArray(overlay.shadowedDelta.length);
+    }
+    return bytes;
+  }
+
+  /**
+   * Изменённые и новые слова поверх базы. Номера delta - алфавитные среди изменённых слов.
+   */
+  private static final class Overlay {
+
+    final RadixTrieIndex base;
+    final RadixTrieIndex delta;
+    // Номер слова delta во всём словаре
+    final int[] deltaMerged;
+    // Новые слова (их нет в базе): номер во всём словаре по возрастанию и номер в delta
+    final int[] added;
+    final int[] addedDelta;
+    // Номер в delta для каждого слова из shadowed
+    final int[] shadowedDelta;
+
+    Overlay(RadixTrieIndex base, RadixTrieIndex delta, int[] deltaMerged, int[] added,
+        int[] addedDelta, int[] shadowedDelta) {
+      this.base = base;
+      this.delta = delta;
+      this.deltaMerged = deltaMerged;
+      this.added = added;
+      this.addedDelta = addedDelta;
+      this.shadowedDelta = shadowedDelta;
+    }
+
+    /**
+     * Сколько новых слов встаёт перед словом базы {@code id}.
+     */
+    int addedBefore(int id) {
+      // Место вставки k-го нового слова в базе - added[k] - k, оно не убывает
+      int low = 0;
+      int high = added.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (added[mid] - mid <= id) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  private static final class Builder {
+
+    private final Utf8Words words;
+    private final int[] order;
+    private final int[] counts;
+    private final int topK;
+
+    private final IntArrayBuilder nodeLo;
+    private final IntArrayBuilder nodeHi;
+    private final IntArrayBuilder nodeDepth;
+    // Длина префикса узла в байтах UTF-8; нужна только при построении
+    private final IntArrayBuilder nodeBytes;
+    private final IntArrayBuilder topIds;
+    private int[] firstChild;
+    private int[] childCount;
+    private int[] topStart;
+    private int[] topLength;
+
+    Builder(Utf8Words words, int[] order, int[] counts, int topK) {
+      this.words = words;
+      this.order = order;
+      this.counts = counts;
+      this.topK = topK;
+      int expectedNodes = Math.max(16, counts.length * 2);
+      nodeLo = new IntArrayBuilder(expectedNodes);
+      nodeHi = new IntArrayBuilder(expectedNodes);
+      nodeDepth = new IntArrayBuilder(expectedNodes);
+      nodeBytes = new IntArrayBuilder(expectedNodes);
+      topIds = new IntArrayBuilder(expectedNodes);
+      firstChild = new int[expectedNodes];
+      childCount = new int[expectedNodes];
+      topStart = new int[expectedNodes];
+      topLength = new int[expectedNodes];
+    }
+
+    void build() {
+      if (counts.length == 0) {
+        trim();
+        return;
+      }
+      int root = allocate(0, counts.length, 0);
+      buildNode(root);
+      trim();
+    }
+
+    /**
+     * Заводит узел для слов [lo, hi) с общим префиксом, который длиннее {@code parentBytes} байт.
+     */
+    private int allocate(int lo, int hi, int parentBytes) {
+      int node = nodeLo.size();
+      // Общий префикс первого и последнего слова - общий префикс всего диапазона; граница не
+      // должна резать многобайтовый символ
+      int first = start(lo);
+      int last = start(hi - 1);
+      int length = Math.min(end(lo) - first, end(hi - 1) - last);
+      int bytes = parentBytes;
+      while (bytes < length && words.charAt(first + bytes) == words.charAt(last + bytes)) {
+        bytes += Utf8Words.width(words.charAt(first + bytes));
+      }
+      int depth = 0;
+      for (int i = 0; i < bytes; i++) {
+        if (!words.continuation(first + i)) {
+          depth++;
+        }
+      }
+      nodeLo.add(lo);
+      nodeHi.add(hi);
+      nodeDepth.add(depth);
+      nodeBytes.add(bytes);
+      if (node == firstChild.length) {
+        int capacity = firstChild.length * 2;
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        childCount = Arrays.copyOf(childCount, capacity);
+        topStart = Arrays.copyOf(topStart, capacity);
+        topLength = Arrays.copyOf(topLength, capacity);
+      }
+      return node;
+    }
+
+    private void buildNode(int node) {
+      int lo = nodeLo.get(node);
+      int hi = nodeHi.get(node);
+      int bytes = nodeBytes.get(node);
+      boolean terminal = end(lo) - start(lo) == bytes;
+
+      // Сначала выделяем всех детей подряд, потом спускаемся в каждого
+      int first = nodeLo.size();
+      int children = 0;
+      for (int start = terminal ? lo + 1 : lo; start < hi;) {
+        char c = words.charAt(start(start) + bytes);
+        int end = start + 1;
+        while (end < hi && words.charAt(start(end) + bytes) == c) {
+          end++;
+        }
+        allocate(start, end, bytes);
+        children++;
+        start = end;
+      }
+      firstChild[node] = first;
+      childCount[node] = children;
+
+      for (int child = first; child < first + children; child++) {
+        buildNode(child);
+      }
+      mergeTop(node, terminal ? lo : -1, first, children);
+    }
+
+    /**
+     * Слияние уже отсортированных top-k списков детей и слова самого узла.
+     */
+    private void mergeTop(int node, int ownWord, int first, int children) {
+      int[] heads = new int[children];
+      boolean ownTaken = ownWord < 0;
+      int start = topIds.size();
+      int taken = 0;
+      while (taken < topK) {
+        int best = ownTaken ? -1 : ownWord;
+        int bestChild = -1;
+        for (int i = 0; i < children; i++) {
+          int child = first + i;
+          if (heads[i] < topLength[child]) {
+            int id = topIds.get(topStart[child] + heads[i]);
+            if (best < 0 || better(id, best)) {
+              best = id;
+              bestChild = i;
+            }
+          }
+        }
+        if (best < 0) {
+          break;
+        }
+        if (bestChild < 0) {
+          ownTaken = true;
+        } else {
+          heads[bestChild]++;
+        }
+        topIds.add(best);
+        taken++;
+      }
+      topStart[node] = start;
+      topLength[node] = taken;
+    }
+
+    private boolean better(int a, int b) {
+      return counts[a] > counts[b] || (counts[a] == counts[b] && a < b);
+    }
+
+    private void trim() {
+      int nodes = nodeLo.size();
+      firstChild = Arrays.copyOf(firstChild, nodes);
+      childCount = Arrays.copyOf(childCount, nodes);
+      topStart = Arrays.copyOf(topStart, nodes);
+      topLength = Arrays.copyOf(topLength, nodes);
+    }
+
+    private int start(int id) {
+      return words.start(order == null ? id : order[id]);
+    }
+
+    private int end(int id) {
+      return words.end(order == null ? id : order[id]);
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package io.github.autocompletedemo.index;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.distance.DistanceMetric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Словарь, разбитый по первым буквам на несколько {@link RadixTrieIndex} для параллельного поиска
+ * с опечатками.
+ *
+ * <p>
+ * Часть - непрерывный диапазон отсортированных слов, части равны по числу слов. Поэтому деревья
+ * частей - это почти непересекающиеся поддеревья целого индекса, и обход автоматом Левенштейна по
+ * всем частям стоит столько же, сколько по целому индексу. (При разбиении по хэшу каждая часть
+ * повторяла бы верхние уровни дерева, и суммарная работа росла бы с числом частей.) Опечатка
+ * может быть и в первой букве, поэтому запрос идёт во все части: он разворачивается в задачу на
+ * часть в {@link ForkJoinPool}. Работа по частям неравная, поэтому частей стоит делать больше,
+ * чем потоков: освободившиеся потоки забирают оставшиеся части. Top-k списки частей сливаются в
+ * общий с тем же порядком, что у одного индекса: по убыванию счёта, при равном счёте по алфавиту.
+ *
+ * <p>
+ * Части читают слова из того же {@link Utf8Words}, что и полный индекс; копируются только номера,
+ * частоты и узлы.
+ *
+ * <p>
+ * Части строятся по базе индекса (см. {@link RadixTrieIndex#update}). Пока база та же,
+ * {@link #update} их не перестраивает: каждая часть пропускает свои изменённые слова, а
+ * изменения ищутся ещё одной задачей.
+ */
+public final class ShardedIndex {
+
+  private static final Comparator<Candidate> RANKING =
+      Comparator.comparingDouble(Candidate::score).reversed().thenComparing(Candidate::word);
+
+  // База, по которой построены части, и её части без пропусков
+  private final RadixTrieIndex base;
+  private final RadixTrieIndex[] baseShards;
+  // Начало части в номерах базы
+  private final int[] bounds;
+  private final RadixTrieIndex[] shards;
+  // Изменения поверх базы или null
+  private final RadixTrieIndex delta;
+  private final ForkJoinPool pool;
+
+  private ShardedIndex(RadixTrieIndex base, RadixTrieIndex[] baseShards, int[] bounds,
+      RadixTrieIndex[] shards, RadixTrieIndex delta, ForkJoinPool pool) {
+    this.base = base;
+    this.baseShards = baseShards;
+    this.bounds = bounds;
+    this.shards = shards;
+    this.delta = delta;
+    this.pool = pool;
+  }
+
+  /**
+   * Делит слова индекса на {@code shardCount} частей и строит их параллельно.
+   */
+  public static ShardedIndex build(RadixTrieIndex index, int shardCount, ForkJoinPool pool) {
+    RadixTrieIndex base = index.base();
+    int[] bounds = new int[shardCount + 1];
+    List<ForkJoinTask<RadixTrieIndex>> tasks = new ArrayList<>(shardCount);
+    for (int s = 0; s < shardCount; s++) {
+      int lo = (int) ((long) base.size() * s / shardCount);
+      int hi = (int) ((long) base.size() * (s + 1) / shardCount);
+      bounds[s + 1] = hi;
+      tasks.add(ForkJoinTask.adapt(() -> base.range(lo, hi)));
+    }
+    RadixTrieIndex[] shards = new RadixTrieIndex[shardCount];
+    pool.invoke(ForkJoinTask.adapt(() -> {
+      ForkJoinTask.invokeAll(tasks);
+      for (int s = 0; s < shardCount; s++) {
+        shards[s] = tasks.get(s).join();
+      }
+    }));
+    return new ShardedIndex(base, shards, bounds, shards, null, pool).update(index);
+  }
+
+  /**
+   * Части для следующей версии индекса. Если база у неё та же, части не перестраиваются, иначе -
+   * то же, что {@link #build} с тем же числом частей.
+   */
+  public ShardedIndex update(RadixTrieIndex index) {
+    if (index.base() != base) {
+      return build(index, shards.length, pool);
+    }
+    int[] shadowed = index.shadowed();
+    if (shadowed == null && index.delta() == null) {
+      return delta == null && shards == baseShards ? this
+          : new ShardedIndex(base, baseShards, bounds, baseShards, null, pool);
+    }
+    RadixTrieIndex[] next = new RadixTrieIndex[baseShards.length];
+    for (int s = 0; s < next.length; s++) {
+      next[s] = baseShards[s].withShadowed(local(shadowed, bounds[s], bounds[s + 1]));
+    }
+    return new ShardedIndex(base, baseShards, bounds, next, index.delta(), pool);
+  }
+
+  /**
+   * Номера из [{@code lo}, {@code hi}) в номерах части или {@code null}, если таких нет.
+   */
+  private static int[] local(int[] ids, int lo, int hi) {
+    if (ids == null) {
+      return null;
+    }
+    int from = Arrays.binarySearch(ids, lo);
+    int to = Arrays.binarySearch(ids, hi);
+    from = from < 0 ? -from - 1 : from;
+    to = to < 0 ? -to - 1 : to;
+    if (from == to) {
+      return null;
+    }
+    int[] local = Arrays.copyOfRange(ids, from, to);
+    for (int i = 0; i < local.length; i++) {
+      local[i] -= lo;
+    }
+    return local;
+  }
+
+  public int shardCount() {
+    return shards.length;
+  }
+
+  public RadixTrieIndex shard(int index) {
+    return shards[index];
+  }
+
+  /**
+   * То же, что {@link RadixTrieIndex#completeFuzzy}, параллельно по частям.
+   */
+  public List<Candidate> completeFuzzy(String prefix, int maxSuggestions, int tolerance,
+      double originalWeight, double similarWeight) {
+    return completeFuzzy(prefix, maxSuggestions, tolerance, originalWeight, similarWeight,
+        DistanceMetric.LIBRARY);
+  }
+
+  public List<Candidate> completeFuzzy(String prefix, int maxSuggestions, int tolerance,
+      double originalWeight, double similarWeight, DistanceMetric metric) {
+    return completeFuzzy(prefix, maxSuggestions, tolerance, originalWeight, similarWeight, metric,
+        Deadline.NONE);
+  }
+
+  /**
+   * Со сроком, общим для всех частей (см. {@link RadixTrieIndex#completeFuzzy}).
+   */
+  public List<Candidate> completeFuzzy(String prefix, int maxSuggestions, int tolerance,
+      double originalWeight, double similarWeight, DistanceMetric metric, Deadline deadline) {
+    if (maxSuggestions <= 0) {
+      return List.of();
+    }
+    RecursiveTask<List<Candidate>> query = new RecursiveTask<>() {
+      @Override
+      protected List<Candidate> compute() {
+        List<RadixTrieIndex> indexes = new ArrayList<>(List.of(shards));
+        if (delta != null) {
+          indexes.add(delta);
+        }
+        List<RecursiveTask<List<Candidate>>> parts = new ArrayList<>(indexes.size());
+        for (RadixTrieIndex shard : indexes) {
+          parts.add(new RecursiveTask<>() {
+            @Override
+            protected List<Candidate> compute() {
+              return shard.completeFuzzy(prefix, maxSuggestions, tolerance, originalWeight,
+                  similarWeight, metric, deadline);
+            }
+          });
+        }
+        invokeAll(parts);
+        List<Candidate> merged = new ArrayList<>(indexes.size() * maxSuggestions);
+        for (RecursiveTask<List<Candidate>> part : parts) {
+          merged.addAll(part.join());
+        }
+        return merge(merged, maxSuggestions);
+      }
+    };
+    return pool.invoke(query);
+  }
+
+  /**
+   * Лучшие {@code maxSuggestions} из объединения top-k списков частей.
+   */
+  static List<Candidate> merge(List<Candidate> candidates, int maxSuggestions) {
+    candidates.sort(RANKING);
+    return new ArrayList<>(candidates.subList(0, Math.min(maxSuggestions, candidates.size())));
+  }
+}
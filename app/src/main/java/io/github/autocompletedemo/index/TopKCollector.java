@@ -0,0 +1,122 @@
+package io.github.autocompletedemo.index;
+
+/**
+ * Ограниченная куча лучших (слово, счёт) без упаковки.
+ *
+ * <p>
+ * Порядок: по убыванию счёта, при равном счёте - по возрастанию id (для {@link RadixTrieIndex} это
+ * алфавитный порядок). В корне кучи лежит худший из сохранённых элементов.
+ */
+public final class TopKCollector {
+
+  private final int capacity;
+  private final int[] ids;
+  private final double[] scores;
+  private int size;
+
+  public TopKCollector(int capacity) {
+    this.capacity = capacity;
+    this.ids = new int[Math.max(capacity, 1)];
+    this.scores = new double[Math.max(capacity, 1)];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  /**
+   * Попал бы элемент с таким счётом и id в коллекцию.
+   */
+  public boolean accepts(int id, double score) {
+    return size < capacity || better(id, score, ids[0], scores[0]);
+  }
+
+  public void add(int id, double score) {
+    if (capacity == 0) {
+      return;
+    }
+    if (size < capacity) {
+      ids[size] = id;
+      scores[size] = score;
+      siftUp(size++);
+    } else if (better(id, score, ids[0], scores[0])) {
+      ids[0] = id;
+      scores[0] = score;
+      siftDown(0);
+    }
+  }
+
+  /**
+   * Забирает элементы от лучшего к худшему. Коллекция после вызова пуста.
+   *
+   * @param consumer получает (id, счёт)
+   */
+  public void drainBestFirst(Consumer consumer) {
+    int count = size;
+    int[] sortedIds = new int[count];
+    double[] sortedScores = new double[count];
+    for (int i = count - 1; i >= 0; i--) {
+      sortedIds[i] = ids[0];
+      sortedScores[i] = scores[0];
+      size--;
+      ids[0] = ids[size];
+      scores[0] = scores[size];
+      siftDown(0);
+    }
+    for (int i = 0; i < count; i++) {
+      consumer.accept(sortedIds[i], sortedScores[i]);
+    }
+  }
+
+  @FunctionalInterface
+  public interface Consumer {
+    void accept(int id, double score);
+  }
+
+  private static boolean better(int id, double score, int otherId, double otherScore) {
+    return score > otherScore || (score == otherScore && id < otherId);
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (!better(ids[parent], scores[parent], ids[index], scores[index])) {
+        break;
+      }
+      swap(index, parent);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    while (true) {
+      int left = 2 * index + 1;
+      if (left >= size) {
+        return;
+      }
+      int worst = left;
+      int right = left + 1;
+      if (right < size && better(ids[left], scores[left], ids[right], scores[right])) {
+        worst = right;
+      }
+      if (!better(ids[index], scores[index], ids[worst], scores[worst])) {
+        return;
+      }
+      swap(index, worst);
+      index = worst;
+    }
+  }
+
+  private void swap(int a, int b) {
+    int id = ids[a];
+    ids[a] = ids[b];
+    ids[b] = id;
+    double score = scores[a];
+    scores[a] = scores[b];
+    scores[b] = score;
+  }
+}
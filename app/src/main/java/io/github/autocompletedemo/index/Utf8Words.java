@@ -0,0 +1,252 @@
+package io.github.autocompletedemo.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Неизменяемый список слов в UTF-8 без объекта на слово: слово {@code id} - байты
+ * [{@code offsets[id]}, {@code offsets[id + 1]}) буфера.
+ *
+ * <p>
+ * Буфер и смещения не копируются: владелец (таблица слов словаря) может дописывать их после
+ * {@code size}, но не меняет то, что уже видно. Поэтому {@link RadixTrieIndex} читает слова прямо
+ * из буфера словаря вне кучи, а строка создаётся только для слова из ответа.
+ *
+ * <p>
+ * Слова состоят из символов BMP (см. {@code WordBoundaries}, {@link #isBmp}): символ - одна
+ * последовательность из 1-3 байт, а порядок байт UTF-8 совпадает с {@link String#compareTo}.
+ */
+public final class Utf8Words {
+
+  public static final Utf8Words EMPTY = new Utf8Words(ByteBuffer.allocate(0), new int[1], 0);
+
+  private static final int INSERTION_SORT_THRESHOLD = 12;
+
+  private final ByteBuffer bytes;
+  private final int[] offsets;
+  private final int size;
+
+  /**
+   * @param offsets не меньше {@code size + 1} смещений; массив не копируется
+   */
+  public Utf8Words(ByteBuffer bytes, int[] offsets, int size) {
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.size = size;
+  }
+
+  /**
+   * Слова, уже записанные в строки, например для тестов и небольших словарей.
+   */
+  public static Utf8Words of(String... words) {
+    byte[][] encoded = new byte[words.length][];
+    int[] offsets = new int[words.length + 1];
+    for (int i = 0; i < words.length; i++) {
+      encoded[i] = words[i].getBytes(StandardCharsets.UTF_8);
+      offsets[i + 1] = offsets[i] + encoded[i].length;
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(offsets[words.length]);
+    for (byte[] word : encoded) {
+      bytes.put(word);
+    }
+    return new Utf8Words(bytes, offsets, words.length);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Начало слова в буфере.
+   */
+  public int start(int id) {
+    return offsets[id];
+  }
+
+  /**
+   * Конец слова в буфере (не включая).
+   */
+  public int end(int id) {
+    return offsets[id + 1];
+  }
+
+  /**
+   * Буфер слов только для чтения; индексы в нём - абсолютные, как у {@link #start}.
+   */
+  public ByteBuffer bytes() {
+    return bytes.asReadOnlyBuffer();
+  }
+
+  public String word(int id) {
+    byte[] word = new byte[offsets[id + 1] - offsets[id]];
+    bytes.get(offsets[id], word);
+    return new String(word, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Все ли слова из символов BMP: нет четырёхбайтовых последовательностей и закодированных
+   * суррогатов. Слова, для которых это не так, {@link #charAt} читает неверно, а их порядок байт
+   * расходится с {@link String#compareTo}.
+   */
+  public boolean isBmp() {
+    int end = offsets[size];
+    for (int i = offsets[0]; i < end; i++) {
+      int b = bytes.get(i) & 0xff;
+      // 0xed 0xa0..0xbf - суррогат U+D800..U+DFFF в три байта
+      if (b >= 0xf0 || b == 0xed && i + 1 < end && (bytes.get(i + 1) & 0xff) >= 0xa0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Символ, который начинается с байта {@code position}.
+   */
+  char charAt(int position) {
+    int lead = bytes.get(position) & 0xff;
+    if (lead < 0x80) {
+      return (char) lead;
+    }
+    if (lead < 0xe0) {
+      return (char) ((lead & 0x1f) << 6 | bytes.get(position + 1) & 0x3f);
+    }
+    return (char) ((lead & 0x0f) << 12 | (bytes.get(position + 1) & 0x3f) << 6
+        | bytes.get(position + 2) & 0x3f);
+  }
+
+  /**
+   * Сколько байт занимает символ в UTF-8.
+   */
+  static int width(char c) {
+    return c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+  }
+
+  /**
+   * Байт - продолжение многобайтового символа, а не его начало.
+   */
+  boolean continuation(int position) {
+    return (bytes.get(position) & 0xc0) == 0x80;
+  }
+
+  /**
+   * Номера слов в порядке {@link String#compareTo}.
+   *
+   * <p>
+   * Трёхчастная поразрядная быстрая сортировка: слова делятся по байту на текущей глубине, и общий
+   * префикс группы больше не сравнивается. Строк не создаёт.
+   */
+  public int[] sortedIds() {
+    int[] ids = new int[size];
+    for (int id = 0; id < size; id++) {
+      ids[id] = id;
+    }
+    sort(ids);
+    return ids;
+  }
+
+  /**
+   * Переставляет номера слов {@code ids} в порядок {@link String#compareTo}.
+   */
+  public void sort(int[] ids) {
+    sort(ids, 0, ids.length, 0);
+  }
+
+  /**
+   * Сравнивает слова двух списков, например разных видов одного буфера, в порядке
+   * {@link String#compareTo}.
+   */
+  static int compare(Utf8Words a, int aId, Utf8Words b, int bId) {
+    int aStart = a.offsets[aId];
+    int bStart = b.offsets[bId];
+    int aLength = a.offsets[aId + 1] - aStart;
+    int bLength = b.offsets[bId + 1] - bStart;
+    for (int i = 0; i < Math.min(aLength, bLength); i++) {
+      int diff = (a.bytes.get(aStart + i) & 0xff) - (b.bytes.get(bStart + i) & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return aLength - bLength;
+  }
+
+  /**
+   * Сортирует {@code ids[lo, hi)}, у которых первые {@code depth} байт совпадают.
+   */
+  private void sort(int[] ids, int lo, int hi, int depth) {
+    while (hi - lo > 1) {
+      if (hi - lo < INSERTION_SORT_THRESHOLD) {
+        insertionSort(ids, lo, hi, depth);
+        return;
+      }
+      int pivot = median(byteAt(ids[lo], depth), byteAt(ids[(lo + hi) >>> 1], depth),
+          byteAt(ids[hi - 1], depth));
+      // [lo, lt) - меньше опорного байта, [lt, i) - равны, [gt, hi) - больше
+      int lt = lo;
+      int gt = hi;
+      int i = lo;
+      while (i < gt) {
+        int value = byteAt(ids[i], depth);
+        if (value < pivot) {
+          swap(ids, lt++, i++);
+        } else if (value > pivot) {
+          swap(ids, i, --gt);
+        } else {
+          i++;
+        }
+      }
+      sort(ids, lo, lt, depth);
+      sort(ids, gt, hi, depth);
+      if (pivot < 0) {
+        // Все слова средней группы кончились на этой глубине
+        return;
+      }
+      lo = lt;
+      hi = gt;
+      depth++;
+    }
+  }
+
+  private void insertionSort(int[] ids, int lo, int hi, int depth) {
+    for (int i = lo + 1; i < hi; i++) {
+      int id = ids[i];
+      int j = i;
+      while (j > lo && compare(ids[j - 1], id, depth) > 0) {
+        ids[j] = ids[j - 1];
+        j--;
+      }
+      ids[j] = id;
+    }
+  }
+
+  private int compare(int a, int b, int depth) {
+    int aStart = offsets[a] + depth;
+    int bStart = offsets[b] + depth;
+    int length = Math.min(offsets[a + 1] - aStart, offsets[b + 1] - bStart);
+    for (int i = 0; i < length; i++) {
+      int diff = (bytes.get(aStart + i) & 0xff) - (bytes.get(bStart + i) & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return (offsets[a + 1] - aStart) - (offsets[b + 1] - bStart);
+  }
+
+  /**
+   * Байт слова без знака или -1, если слово короче.
+   */
+  private int byteAt(int id, int depth) {
+    int position = offsets[id] + depth;
+    return position < offsets[id + 1] ? bytes.get(position) & 0xff : -1;
+  }
+
+  private static int median(int a, int b, int c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  private static void swap(int[] ids, int i, int j) {
+    int id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+  }
+}
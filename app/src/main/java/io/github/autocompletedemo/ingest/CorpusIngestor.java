@@ -0,0 +1,310 @@
+package io.github.autocompletedemo.ingest;
+
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.dictionary.WordBoundaries;
+import io.github.autocompletedemo.jfr.CorpusIngestEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая параллельная загрузка текстового корпуса (UTF-8) в словарь.
+ *
+ * <p>
+ * Файл читается кусками фиксированного размера; граница куска сдвигается назад до ASCII-символа,
+ * который не может быть частью слова, поэтому ни слово, ни многобайтовый символ не разрезаются.
+ * Куски токенизируются параллельно в {@link ForkJoinPool} прямо по байтам UTF-8
+ * ({@link Vocabulary#addUtf8Text}), без декодирования в строку; каждый поток копит частоты в своём
+ * {@link Vocabulary}, в конце они сливаются попарно. Одновременно в памяти не больше
+ * {@code 2 * parallelism} кусков, и их буферы переиспользуются, так что корпус может быть больше
+ * кучи.
+ *
+ * <p>
+ * Результат - отдельный {@link Vocabulary}; живой словарь загрузка не трогает, его обновляет
+ * вызывающий код одним шагом после успешного завершения. Один экземпляр - одна загрузка.
+ */
+public class CorpusIngestor {
+
+  public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+  private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
+  private final int parallelism;
+  private final int chunkSize;
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+
+  private final AtomicLong processedBytes = new AtomicLong();
+  private final AtomicLong words = new AtomicLong();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private final ConcurrentLinkedQueue<Vocabulary> threadCounts = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Vocabulary> localCounts = ThreadLocal.withInitial(() -> {
+    Vocabulary counts = new Vocabulary();
+    threadCounts.add(counts);
+    return counts;
+  });
+
+  public CorpusIngestor() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+  }
+
+  public CorpusIngestor(int parallelism, int chunkSize) {
+    this.parallelism = Math.max(1, parallelism);
+    this.chunkSize = Math.max(1024, chunkSize);
+  }
+
+  /**
+   * Прерывает загрузку; {@code ingest} завершится с {@link CancellationException}.
+   */
+  public void cancel() {
+    cancelled.set(true);
+  }
+
+  public boolean isCancelled() {
+    return cancelled.get();
+  }
+
+  public Vocabulary ingest(Path file, Consumer<IngestProgress> progress) throws IOException {
+    CorpusIngestEvent event = new CorpusIngestEvent();
+    event.begin();
+    try {
+      return ingestFile(file, progress);
+    } finally {
+      commit(event, "file");
+    }
+  }
+
+  /**
+   * Параллельная токенизация текста, который уже в памяти.
+   */
+  public Vocabulary ingest(CharSequence text, Consumer<IngestProgress> progress) {
+    CorpusIngestEvent event = new CorpusIngestEvent();
+    event.begin();
+    try {
+      return ingestText(text, progress);
+    } finally {
+      commit(event, "text");
+    }
+  }
+
+  private void commit(CorpusIngestEvent event, String source) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.source = source;
+      event.bytes = processedBytes.get();
+      event.words = words.get();
+      event.parallelism = parallelism;
+      event.cancelled = cancelled.get();
+      event.commit();
+    }
+  }
+
+  private Vocabulary ingestFile(Path file, Consumer<IngestProgress> progress) throws IOException {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    Semaphore inFlight = new Semaphore(2 * parallelism);
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long total = channel.size();
+      long lastReport = start;
+      // Буферы кусков переиспользуются: их не больше, чем разрешений у inFlight
+      Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+      byte[] carry = new byte[0];
+      int carryLength = 0;
+      boolean eof = false;
+      while (!eof) {
+        checkCancelled();
+        acquire(inFlight);
+        ByteBuffer chunk = buffers.poll();
+        if (chunk == null) {
+          chunk = ByteBuffer.allocate(chunkSize);
+        }
+        chunk.clear().put(carry, 0, carryLength);
+        while (chunk.hasRemaining()) {
+          if (channel.read(chunk) < 0) {
+            eof = true;
+            break;
+          }
+        }
+        int limit = chunk.position();
+        int cut = eof ? limit : lastBoundary(chunk, limit);
+        carryLength = limit - cut;
+        if (carryLength > carry.length) {
+          carry = new byte[carryLength];
+        }
+        chunk.get(cut, carry, 0, carryLength);
+
+        ByteBuffer text = chunk;
+        pool.execute(() -> {
+          try {
+            if (!cancelled.get()) {
+              words.addAndGet(localCounts.get().addUtf8Text(text, 0, cut));
+              processedBytes.addAndGet(cut);
+            }
+          } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            buffers.add(text);
+            inFlight.release();
+          }
+        });
+
+        long now = System.nanoTime();
+        if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+          lastReport = now;
+          progress.accept(progress(total, start));
+        }
+      }
+      acquire(inFlight, 2 * parallelism);
+      checkFailure();
+      checkCancelled();
+      Vocabulary result = merge(pool);
+      progress.accept(progress(total, start));
+      return result;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private Vocabulary ingestText(CharSequence text, Consumer<IngestProgress> progress) {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    Semaphore inFlight = new Semaphore(2 * parallelism);
+    long start = System.nanoTime();
+    int chunkChars = chunkSize / 2;
+    try {
+      int from = 0;
+      while (from < text.length()) {
+        checkCancelled();
+        int to = Math.min(text.length(), from + chunkChars);
+        while (to < text.length() && WordBoundaries.isWordChar(text.charAt(to))) {
+          to++;
+        }
+        acquire(inFlight);
+        int chunkStart = from;
+        int chunkEnd = to;
+        pool.execute(() -> {
+          try {
+            if (!cancelled.get()) {
+              words.addAndGet(localCounts.get().addText(text, chunkStart, chunkEnd));
+              processedBytes.addAndGet(chunkEnd - chunkStart);
+            }
+          } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            inFlight.release();
+          }
+        });
+        from = to;
+      }
+      acquire(inFlight, 2 * parallelism);
+      checkFailure();
+      checkCancelled();
+      Vocabulary result = merge(pool);
+      progress.accept(progress(text.length(), start));
+      return result;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private IngestProgress progress(long total, long start) {
+    return new IngestProgress(processedBytes.get(), total, words.get(), System.nanoTime() - start);
+  }
+
+  /**
+   * Индекс сразу после последнего ASCII-разделителя в {@code bytes[0, limit)}. Байты со старшим
+   * битом входят в многобайтовые символы UTF-8, резать по ним нельзя.
+   */
+  static int lastBoundary(ByteBuffer bytes, int limit) {
+    for (int i = limit - 1; i >= 0; i--) {
+      byte b = bytes.get(i);
+      if (b >= 0 && !WordBoundaries.isWordChar((char) b)) {
+        return i + 1;
+      }
+    }
+    // Разделителя нет: слово длиннее куска, режем как есть
+    return limit;
+  }
+
+  private Vocabulary merge(ForkJoinPool pool) {
+    List<Vocabulary> parts = new ArrayList<>(threadCounts);
+    if (parts.isEmpty()) {
+      return new Vocabulary();
+    }
+    return pool.invoke(new MergeTask(parts, 0, parts.size()));
+  }
+
+  private void acquire(Semaphore semaphore) {
+    acquire(semaphore, 1);
+  }
+
+  private void acquire(Semaphore semaphore, int permits) {
+    try {
+      semaphore.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancelled.set(true);
+      throw new CancellationException("Ingestion interrupted");
+    }
+  }
+
+  private void checkCancelled() {
+    if (cancelled.get()) {
+      throw new CancellationException("Ingestion cancelled");
+    }
+  }
+
+  private void checkFailure() {
+    Throwable error = failure.get();
+    if (error instanceof RuntimeException runtime) {
+      throw runtime;
+    }
+    if (error instanceof Error fatal) {
+      throw fatal;
+    }
+  }
+
+  /**
+   * Попарное слияние словарей потоков; больший поглощает меньший.
+   */
+  private static final class MergeTask extends RecursiveTask<Vocabulary> {
+
+    private final List<Vocabulary> parts;
+    private final int lo;
+    private final int hi;
+
+    MergeTask(List<Vocabulary> parts, int lo, int hi) {
+      this.parts = parts;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected Vocabulary compute() {
+      if (hi - lo == 1) {
+        return parts.get(lo);
+      }
+      int mid = (lo + hi) >>> 1;
+      MergeTask left = new MergeTask(parts, lo, mid);
+      left.fork();
+      Vocabulary right = new MergeTask(parts, mid, hi).compute();
+      Vocabulary leftResult = left.join();
+
+      Vocabulary into = leftResult.size() >= right.size() ? leftResult : right;
+      into.addAll(into == leftResult ? right : leftResult);
+      return into;
+    }
+  }
+}
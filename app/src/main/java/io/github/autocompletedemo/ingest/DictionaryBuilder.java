@@ -0,0 +1,392 @@
+package io.github.autocompletedemo.ingest;
+
+import io.github.autocompletedemo.dictionary.SortedWordWriter;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Построение словаря из корпуса, который не помещается в память (внешняя сортировка).
+ *
+ * <p>
+ * Файлы корпуса читаются кусками и токенизируются параллельно, как в {@link CorpusIngestor}, но
+ * частоты потока не копятся до конца: когда его {@link Vocabulary} занимает больше
+ * {@code spillBytes}, поток сортирует слова и сбрасывает их на диск прогоном - файлом пар
+ * (слово, частота) по возрастанию слов - и начинает заново. Затем прогоны сливаются k-путевым
+ * слиянием через кучу в {@link SortedWordWriter}; если прогонов больше {@code fanIn}, сначала
+ * они сливаются группами в более длинные. В памяти одновременно не больше {@code parallelism}
+ * словарей по {@code spillBytes}, {@code 2 * parallelism} кусков чтения и {@code fanIn} буферов
+ * слияния.
+ *
+ * <p>
+ * Один экземпляр - одно построение.
+ */
+public final class DictionaryBuilder {
+
+  private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+  private static final int RUN_BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Итоги построения.
+   *
+   * @param inputBytes прочитано байт корпуса
+   * @param words найдено слов
+   * @param distinctWords различных слов в словаре
+   * @param runs прогонов, сброшенных при токенизации
+   * @param spilledBytes их суммарный размер
+   * @param intermediateMerges слияний групп прогонов до последнего слияния
+   * @param tokenizeNanos время токенизации со сбросом прогонов
+   * @param mergeNanos время слияния и записи словаря
+   */
+  public record Stats(long inputBytes, long words, int distinctWords, int runs, long spilledBytes,
+      int intermediateMerges, long tokenizeNanos, long mergeNanos) {
+  }
+
+  private final int parallelism;
+  private final int chunkSize;
+  private final long spillBytes;
+  private final int fanIn;
+  private final Path tempDirectory;
+
+  private final AtomicLong processedBytes = new AtomicLong();
+  private final AtomicLong words = new AtomicLong();
+  private final AtomicLong spilledBytes = new AtomicLong();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private final Queue<Path> runs = new ConcurrentLinkedQueue<>();
+  private final Queue<Vocabulary> threadCounts = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Vocabulary> localCounts = ThreadLocal.withInitial(() -> {
+    Vocabulary counts = new Vocabulary();
+    // Пары соседних слов словарю на диске не нужны
+    counts.setBigramBudget(0);
+    threadCounts.add(counts);
+    return counts;
+  });
+  private Path runDirectory;
+
+  /**
+   * @param spillBytes размер частот потока (в куче и вне её), при котором они сбрасываются
+   * @param fanIn сколько прогонов сливается за раз
+   * @param tempDirectory каталог для прогонов
+   */
+  public DictionaryBuilder(int parallelism, int chunkSize, long spillBytes, int fanIn,
+      Path tempDirectory) {
+    if (spillBytes <= 0 || fanIn < 2) {
+      throw new IllegalArgumentException(
+          "Invalid spill size or merge fan-in: " + spillBytes + ", " + fanIn);
+    }
+    this.parallelism = Math.max(1, parallelism);
+    this.chunkSize = Math.max(1024, chunkSize);
+    this.spillBytes = spillBytes;
+    this.fanIn = fanIn;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Строит словарь из {@code inputs} (текст в UTF-8) и пишет его в {@code output}; прогоны
+   * удаляются. {@code output} закрывается.
+   */
+  public Stats build(List<Path> inputs, SortedWordWriter output,
+      Consumer<IngestProgress> progress) throws IOException {
+    runDirectory = Files.createTempDirectory(tempDirectory, "dictionary-build");
+    try (output) {
+      long start = System.nanoTime();
+      tokenize(inputs, progress);
+      int runCount = runs.size();
+      long mergeStart = System.nanoTime();
+      int[] intermediateMerges = {0};
+      int distinct = merge(new ArrayDeque<>(runs), output, intermediateMerges);
+      output.close();
+      long end = System.nanoTime();
+      return new Stats(processedBytes.get(), words.get(), distinct, runCount,
+          spilledBytes.get(), intermediateMerges[0], mergeStart - start, end - mergeStart);
+    } finally {
+      try (var files = Files.list(runDirectory)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.deleteIfExists(file);
+        }
+      }
+      Files.deleteIfExists(runDirectory);
+    }
+  }
+
+  private void tokenize(List<Path> inputs, Consumer<IngestProgress> progress) throws IOException {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    Semaphore inFlight = new Semaphore(2 * parallelism);
+    long start = System.nanoTime();
+    long total = 0;
+    for (Path input : inputs) {
+      total += Files.size(input);
+    }
+    try {
+      long lastReport = start;
+      Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+      for (Path input : inputs) {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+          byte[] carry = new byte[0];
+          int carryLength = 0;
+          boolean eof = false;
+          while (!eof) {
+            checkFailure();
+            acquire(inFlight, 1);
+            ByteBuffer chunk = buffers.poll();
+            if (chunk == null) {
+              chunk = ByteBuffer.allocate(chunkSize);
+            }
+            chunk.clear().put(carry, 0, carryLength);
+            while (chunk.hasRemaining()) {
+              if (channel.read(chunk) < 0) {
+                eof = true;
+                break;
+              }
+            }
+            int limit = chunk.position();
+            int cut = eof ? limit : CorpusIngestor.lastBoundary(chunk, limit);
+            carryLength = limit - cut;
+            if (carryLength > carry.length) {
+              carry = new byte[carryLength];
+            }
+            chunk.get(cut, carry, 0, carryLength);
+
+            ByteBuffer text = chunk;
+            pool.execute(() -> {
+              try {
+                Vocabulary counts = localCounts.get();
+                words.addAndGet(counts.addUtf8Text(text, 0, cut));
+                processedBytes.addAndGet(cut);
+                if (counts.heapBytes() + counts.offHeapBytes() >= spillBytes) {
+                  spill(counts);
+                }
+              } catch (IOException e) {
+                failure.compareAndSet(null, new UncheckedIOException(e));
+              } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+              } finally {
+                buffers.add(text);
+                inFlight.release();
+              }
+            });
+
+            long now = System.nanoTime();
+            if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+              lastReport = now;
+              progress.accept(new IngestProgress(processedBytes.get(), total, words.get(),
+                  now - start));
+            }
+          }
+        }
+      }
+      acquire(inFlight, 2 * parallelism);
+      checkFailure();
+      // Все задачи завершены: остатки частот потоков сбрасываются отсюда
+      for (Vocabulary counts : threadCounts) {
+        if (counts.size() > 0) {
+          spill(counts);
+        }
+      }
+      progress.accept(new IngestProgress(processedBytes.get(), total, words.get(),
+          System.nanoTime() - start));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Сортирует слова {@code counts} в новый прогон и очищает {@code counts}.
+   */
+  private void spill(Vocabulary counts) throws IOException {
+    String[] sorted = new String[counts.size()];
+    int[] position = {0};
+    counts.forEach((word, count) -> sorted[position[0]++] = word);
+    Arrays.sort(sorted);
+    Path run = Files.createTempFile(runDirectory, "run", ".tmp");
+    try (RunWriter writer = new RunWriter(run)) {
+      for (String word : sorted) {
+        writer.add(word, counts.count(word));
+      }
+    }
+    runs.add(run);
+    spilledBytes.addAndGet(Files.size(run));
+    counts.clear();
+  }
+
+  /**
+   * Сливает прогоны группами по {@code fanIn}, пока их не станет не больше {@code fanIn}, и
+   * последним слиянием пишет словарь.
+   *
+   * @return число различных слов
+   */
+  private int merge(Deque<Path> pending, SortedWordWriter output, int[] intermediateMerges)
+      throws IOException {
+    while (pending.size() > fanIn) {
+      List<Path> group = new ArrayList<>(fanIn);
+      for (int i = 0; i < fanIn; i++) {
+        group.add(pending.pollFirst());
+      }
+      Path merged = Files.createTempFile(runDirectory, "merge", ".tmp");
+      try (RunWriter writer = new RunWriter(merged)) {
+        mergeRuns(group, writer);
+      }
+      for (Path run : group) {
+        Files.delete(run);
+      }
+      pending.addLast(merged);
+      intermediateMerges[0]++;
+    }
+    return mergeRuns(pending, output);
+  }
+
+  private static int mergeRuns(Collection<Path> group, SortedWordWriter output)
+      throws IOException {
+    PriorityQueue<RunReader> queue =
+        new PriorityQueue<>(Math.max(1, group.size()), Comparator.comparing(RunReader::word));
+    List<RunReader> readers = new ArrayList<>(group.size());
+    try {
+      for (Path run : group) {
+        RunReader reader = new RunReader(run);
+        readers.add(reader);
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+      int distinct = 0;
+      while (!queue.isEmpty()) {
+        RunReader first = queue.poll();
+        String word = first.word();
+        long count = first.count();
+        if (first.next()) {
+          queue.add(first);
+        }
+        while (!queue.isEmpty() && queue.peek().word().equals(word)) {
+          RunReader same = queue.poll();
+          count += same.count();
+          if (same.next()) {
+            queue.add(same);
+          }
+        }
+        output.add(word, (int) Math.min(Integer.MAX_VALUE, count));
+        distinct++;
+      }
+      return distinct;
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  private void acquire(Semaphore semaphore, int permits) throws IOException {
+    try {
+      semaphore.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Dictionary build interrupted", e);
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable error = failure.get();
+    if (error instanceof UncheckedIOException io) {
+      throw io.getCause();
+    }
+    if (error instanceof RuntimeException runtime) {
+      throw runtime;
+    }
+    if (error instanceof Error fatal) {
+      throw fatal;
+    }
+  }
+
+  /**
+   * Прогон на диске: записи {@code int длина, байты UTF-8, int частота}, в конце длина -1.
+   */
+  private static final class RunWriter implements SortedWordWriter {
+
+    private final DataOutputStream out;
+
+    RunWriter(Path file) throws IOException {
+      out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(file), RUN_BUFFER_SIZE));
+    }
+
+    @Override
+    public void add(String word, int count) throws IOException {
+      byte[] encoded = word.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(encoded.length);
+      out.write(encoded);
+      out.writeInt(count);
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.writeInt(-1);
+      out.close();
+    }
+  }
+
+  private static final class RunReader implements Closeable {
+
+    private final DataInputStream in;
+    private String word;
+    private int count;
+
+    RunReader(Path file) throws IOException {
+      in = new DataInputStream(
+          new BufferedInputStream(Files.newInputStream(file), RUN_BUFFER_SIZE));
+    }
+
+    /**
+     * Переходит к следующей записи.
+     *
+     * @return {@code false}, если прогон кончился
+     */
+    boolean next() throws IOException {
+      int length = in.readInt();
+      if (length < 0) {
+        return false;
+      }
+      word = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+      count = in.readInt();
+      return true;
+    }
+
+    String word() {
+      return word;
+    }
+
+    int count() {
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package io.github.autocompletedemo.ingest;
+
+import io.github.autocompletedemo.dictionary.SnapshotFile;
+import io.github.autocompletedemo.dictionary.SortedWordWriter;
+import io.github.autocompletedemo.dictionary.TrieFileFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Построение словаря без окна: {@code App --build-dictionary [options]}.
+ *
+ * <p>
+ * Корпус (файл или каталог файлов) проходит через {@link DictionaryBuilder}; память задаётся
+ * одним числом и делится между частотами потоков, кусками чтения и буферами слияния. В конце
+ * печатаются пропускная способность и пиковый RSS процесса.
+ */
+public final class DictionaryBuilderMain {
+
+  private static final String USAGE = """
+      Usage: App --build-dictionary [options]
+        --input PATH                corpus file or directory of files in UTF-8 (required)
+        --output FILE               dictionary to write (required)
+        --format trie|binary        TRIE as saved by the editor, or binary snapshot (default trie)
+        --threads N                 tokenizing threads (default: CPU count)
+        --memory-mb N               memory for counts, read chunks and merging
+                                    (default: half the maximum heap)
+        --spill-mb N                spill a thread's counts to disk at this size
+                                    (default: derived from --memory-mb)
+        --temp DIR                  directory for spill runs (default: java.io.tmpdir)
+      """;
+
+  private static final long MB = 1 << 20;
+  private static final int MIN_CHUNK_SIZE = 64 << 10;
+  // Буфер прогона при слиянии и место под его текущее слово
+  private static final long MERGE_BYTES_PER_RUN = 128 << 10;
+  private static final int MAX_FAN_IN = 512;
+
+  private final Map<String, String> options;
+
+  private DictionaryBuilderMain(Map<String, String> options) {
+    this.options = options;
+  }
+
+  public static void run(String[] args) throws IOException {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--build-dictionary")) {
+        continue;
+      }
+      if (arg.equals("--help")) {
+        System.out.print(USAGE);
+        return;
+      }
+      if (!arg.startsWith("--")) {
+        fail("Unexpected argument: " + arg);
+      }
+      if (i + 1 < args.length) {
+        options.put(arg.substring(2), args[++i]);
+      } else {
+        fail("Missing value for " + arg);
+      }
+    }
+    if (!options.containsKey("input") || !options.containsKey("output")) {
+      fail("--input and --output are required");
+    }
+    new DictionaryBuilderMain(options).build();
+  }
+
+  private static void fail(String message) {
+    System.err.print(message + "\n" + USAGE);
+    System.exit(2);
+  }
+
+  private String option(String name, String defaultValue) {
+    return options.getOrDefault(name, defaultValue);
+  }
+
+  private long longOption(String name, long defaultValue) {
+    return Long.parseLong(option(name, Long.toString(defaultValue)));
+  }
+
+  private void build() throws IOException {
+    String format = option("format", "trie");
+    if (!format.equals("trie") && !format.equals("binary")) {
+      fail("Unknown format: " + format);
+    }
+    int threads = (int) longOption("threads", Runtime.getRuntime().availableProcessors());
+    long memory = longOption("memory-mb", Runtime.getRuntime().maxMemory() / 2 / MB) * MB;
+    // Куски чтения - не больше восьмой части памяти, остальное делят частоты потоков; при сбросе
+    // поток держит ещё отсортированную копию слов, отсюда множитель 2
+    int chunkSize = (int) Math.max(MIN_CHUNK_SIZE,
+        Math.min(CorpusIngestor.DEFAULT_CHUNK_SIZE, memory / 8 / (2L * threads)));
+    long chunkBytes = 2L * threads * chunkSize;
+    long spill = options.containsKey("spill-mb") ? longOption("spill-mb", 0) * MB
+        : (memory - chunkBytes) / (2L * threads);
+    if (spill <= 0 || chunkBytes + 2L * threads * spill > memory) {
+      fail(String.format(Locale.ROOT, "%d threads with %d MB spills and %d MB read chunks do not"
+          + " fit in %d MB", threads, spill / MB, chunkBytes / MB, memory / MB));
+    }
+    int fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memory / MERGE_BYTES_PER_RUN));
+
+    List<Path> inputs = inputs(Path.of(option("input", null)));
+    Path output = Path.of(option("output", null)).toAbsolutePath();
+    Path temp = Path.of(option("temp", System.getProperty("java.io.tmpdir")));
+    System.err.printf(Locale.ROOT, "Building %s dictionary from %d files: %d threads, %d MB"
+        + " memory, %d MB spills, merge fan-in %d%n", format, inputs.size(), threads,
+        memory / MB, spill / MB, fanIn);
+
+    DictionaryBuilder builder = new DictionaryBuilder(threads, chunkSize, spill, fanIn, temp);
+    DictionaryBuilder.Stats stats;
+    if (format.equals("binary")) {
+      stats = builder.build(inputs, SnapshotFile.sortedWriter(output.toFile()),
+          DictionaryBuilderMain::report);
+    } else {
+      // TRIE пишется на месте, поэтому сначала во временный файл рядом
+      Path partial = Files.createTempFile(output.getParent(), output.getFileName().toString(),
+          ".tmp");
+      try {
+        SortedWordWriter writer = TrieFileFormat.sortedWriter(partial.toFile());
+        stats = builder.build(inputs, writer, DictionaryBuilderMain::report);
+        Files.move(partial, output, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(partial);
+      }
+    }
+
+    double tokenizeSeconds = stats.tokenizeNanos() / 1e9;
+    double totalSeconds = (stats.tokenizeNanos() + stats.mergeNanos()) / 1e9;
+    System.out.printf(Locale.ROOT, "Tokenized %.1f MB, %d words in %.1f s: %.1f MB/s,"
+        + " %.0f words/s%n", stats.inputBytes() / (double) MB, stats.words(), tokenizeSeconds,
+        stats.inputBytes() / (double) MB / tokenizeSeconds, stats.words() / tokenizeSeconds);
+    System.out.printf(Locale.ROOT, "Spilled %d runs, %.1f MB; merged in %.1f s"
+        + " (%d intermediate merges)%n", stats.runs(), stats.spilledBytes() / (double) MB,
+        stats.mergeNanos() / 1e9, stats.intermediateMerges());
+    System.out.printf(Locale.ROOT, "Wrote %s: %d words, %.1f MB; total %.1f s, %.1f MB/s%n",
+        output, stats.distinctWords(), Files.size(output) / (double) MB, totalSeconds,
+        stats.inputBytes() / (double) MB / totalSeconds);
+    System.out.println(peakMemory());
+  }
+
+  private static List<Path> inputs(Path input) throws IOException {
+    if (!Files.isDirectory(input)) {
+      return List.of(input);
+    }
+    try (Stream<Path> files = Files.walk(input)) {
+      return files.filter(Files::isRegularFile).sorted().toList();
+    }
+  }
+
+  private static void report(IngestProgress progress) {
+    System.err.printf(Locale.ROOT, "%5.1f%%  %.1f MB/s  %.0f words/s%n",
+        progress.fraction() * 100, progress.megabytesPerSecond(), progress.wordsPerSecond());
+  }
+
+  /**
+   * Пиковый RSS из {@code /proc/self/status} (Linux); в других системах - пики пулов кучи.
+   */
+  static String peakMemory() {
+    File status = new File("/proc/self/status");
+    if (status.canRead()) {
+      try {
+        for (String line : Files.readAllLines(status.toPath())) {
+          if (line.startsWith("VmHWM:")) {
+            long kilobytes = Long.parseLong(line.replaceAll("\\D", ""));
+            return String.format(Locale.ROOT, "Peak RSS: %.1f MB", kilobytes / 1024.0);
+          }
+        }
+      } catch (IOException | NumberFormatException e) {
+        // Ниже - оценка по куче
+      }
+    }
+    long heap = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        heap += pool.getPeakUsage().getUsed();
+      }
+    }
+    return String.format(Locale.ROOT, "Peak RSS unavailable; peak heap: %.1f MB",
+        heap / (double) MB);
+  }
+}
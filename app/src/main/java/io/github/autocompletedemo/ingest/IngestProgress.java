@@ -0,0 +1,24 @@
+package io.github.autocompletedemo.ingest;
+
+/**
+ * Состояние загрузки корпуса.
+ *
+ * @param processedBytes сколько байт уже токенизировано (для текста в памяти - символов)
+ * @param totalBytes размер входа в тех же единицах
+ * @param words сколько слов найдено
+ * @param elapsedNanos время с начала загрузки
+ */
+public record IngestProgress(long processedBytes, long totalBytes, long words, long elapsedNanos) {
+
+  public double fraction() {
+    return totalBytes == 0 ? 1.0 : (double) processedBytes / totalBytes;
+  }
+
+  public double megabytesPerSecond() {
+    return elapsedNanos == 0 ? 0.0 : processedBytes / 1048576.0 / (elapsedNanos / 1e9);
+  }
+
+  public double wordsPerSecond() {
+    return elapsedNanos == 0 ? 0.0 : words / (elapsedNanos / 1e9);
+  }
+}
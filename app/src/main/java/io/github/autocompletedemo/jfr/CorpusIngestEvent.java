@@ -0,0 +1,35 @@
+package io.github.autocompletedemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Загрузка корпуса {@code CorpusIngestor}: сколько прочитано и найдено до конца или отмены.
+ */
+@Name("io.github.autocompletedemo.CorpusIngest")
+@Label("Corpus Ingest")
+@Category({"Autocomplete", "Dictionary"})
+@Description("Parallel tokenization of a text corpus into a vocabulary")
+public final class CorpusIngestEvent extends jdk.jfr.Event {
+
+  @Label("Source")
+  @Description("file or text")
+  public String source;
+
+  @Label("Bytes Ingested")
+  @Description("UTF-8 bytes for files, chars for in-memory text")
+  @DataAmount
+  public long bytes;
+
+  @Label("Words Ingested")
+  public long words;
+
+  @Label("Parallelism")
+  public int parallelism;
+
+  @Label("Cancelled")
+  public boolean cancelled;
+}
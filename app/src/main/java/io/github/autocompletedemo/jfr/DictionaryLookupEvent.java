@@ -0,0 +1,40 @@
+package io.github.autocompletedemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Запрос к backend-у подсказок (мимо кэша) по одной версии словаря.
+ */
+@Name("io.github.autocompletedemo.DictionaryLookup")
+@Label("Dictionary Lookup")
+@Category({"Autocomplete", "Suggestions"})
+@Description("getAutocomplete call on the library provider or the radix trie")
+public final class DictionaryLookupEvent extends jdk.jfr.Event {
+
+  @Label("Backend")
+  public String backend;
+
+  @Label("Prefix Length")
+  public int prefixLength;
+
+  @Label("Candidate Count")
+  public int candidateCount;
+
+  @Label("Tolerance")
+  @Description("Maximum edit distance, 0 when the lookup is exact")
+  public int tolerance;
+
+  @Label("Dictionary Version")
+  public long dictionaryVersion;
+
+  @Label("Shards")
+  @Description("Parts searched in parallel, 1 when the dictionary is not split")
+  public int shards;
+
+  @Label("Degraded")
+  @Description("Fuzzy search stopped at the latency budget or ran with reduced tolerance")
+  public boolean degraded;
+}
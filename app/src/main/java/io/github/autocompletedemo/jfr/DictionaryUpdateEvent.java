@@ -0,0 +1,38 @@
+package io.github.autocompletedemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Одна операция потока записи {@code DictionaryStore}, которая публикует новую версию словаря.
+ */
+@Name("io.github.autocompletedemo.DictionaryUpdate")
+@Label("Dictionary Update")
+@Category({"Autocomplete", "Dictionary"})
+@Description("Copy-on-write dictionary mutation and publication of a new version")
+public final class DictionaryUpdateEvent extends jdk.jfr.Event {
+
+  @Label("Operation")
+  public String operation;
+
+  @Label("Dictionary Version")
+  @Description("Version published by the operation")
+  public long dictionaryVersion;
+
+  @Label("Words")
+  @Description("Distinct words in the published version")
+  public int words;
+
+  @Label("Library Rebuilt")
+  @Description("A new TextAnalyzer was loaded for the version")
+  public boolean libraryRebuilt;
+
+  @Label("Incremental")
+  @Description("The index was updated with the changed words only")
+  public boolean incremental;
+
+  @Label("Failed")
+  public boolean failed;
+}
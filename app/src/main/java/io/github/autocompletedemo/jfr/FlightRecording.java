@@ -0,0 +1,49 @@
+package io.github.autocompletedemo.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Запись JDK Flight Recorder из самого приложения: настройки {@code profile} плюс события
+ * автодополнения. Можно сбрасывать в файл сколько угодно раз, запись при этом продолжается.
+ *
+ * <p>
+ * Чтобы видеть каждое вычисление расстояния, а не только долгие, запишите JFR с настройкой
+ * {@code io.github.autocompletedemo.Levenshtein#threshold=0 ns}.
+ */
+public final class FlightRecording implements AutoCloseable {
+
+  private final Recording recording;
+
+  private FlightRecording(Recording recording) {
+    this.recording = recording;
+  }
+
+  public static FlightRecording start() throws IOException {
+    Recording recording;
+    try {
+      recording = new Recording(Configuration.getConfiguration("profile"));
+    } catch (ParseException e) {
+      throw new IOException("Cannot read the JFR profile configuration", e);
+    }
+    recording.setName("Autocomplete");
+    recording.setToDisk(true);
+    recording.start();
+    return new FlightRecording(recording);
+  }
+
+  /**
+   * Записывает всё, что накоплено с начала записи, в файл {@code .jfr}.
+   */
+  public void dump(Path file) throws IOException {
+    recording.dump(file);
+  }
+
+  @Override
+  public void close() {
+    recording.close();
+  }
+}
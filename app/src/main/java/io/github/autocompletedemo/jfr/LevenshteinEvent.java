@@ -0,0 +1,31 @@
+package io.github.autocompletedemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Одно вычисление расстояния между словами в библиотечном backend-е. Вызовов тысячи на запрос,
+ * поэтому по умолчанию записываются только долгие; порог снимается настройкой записи.
+ */
+@Name("io.github.autocompletedemo.Levenshtein")
+@Label("Levenshtein Distance")
+@Category({"Autocomplete", "Suggestions"})
+@Description("Edit distance call made by the library autocomplete provider")
+@Threshold("20 us")
+public final class LevenshteinEvent extends jdk.jfr.Event {
+
+  @Label("Metric")
+  public String metric;
+
+  @Label("First Length")
+  public int firstLength;
+
+  @Label("Second Length")
+  public int secondLength;
+
+  @Label("Distance")
+  public int distance;
+}
@@ -0,0 +1,24 @@
+package io.github.autocompletedemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Загрузка словаря в {@code TextAnalyzer} библиотеки через временный файл.
+ */
+@Name("io.github.autocompletedemo.LibraryLoad")
+@Label("TextAnalyzer Load")
+@Category({"Autocomplete", "Dictionary"})
+@Description("TextAnalyzer.loadFromFile for a new dictionary version")
+public final class LibraryLoadEvent extends jdk.jfr.Event {
+
+  @Label("Words")
+  public int words;
+
+  @Label("Bytes")
+  @DataAmount
+  public long bytes;
+}
@@ -0,0 +1,23 @@
+package io.github.autocompletedemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Обновление списка подсказок и показ всплывающего окна в потоке JavaFX.
+ */
+@Name("io.github.autocompletedemo.PopupLayout")
+@Label("Suggestion Popup Layout")
+@Category({"Autocomplete", "UI"})
+public final class PopupLayoutEvent extends jdk.jfr.Event {
+
+  @Label("Candidate Count")
+  public int candidateCount;
+
+  @Label("Was Showing")
+  public boolean wasShowing;
+
+  @Label("Shown")
+  public boolean shown;
+}
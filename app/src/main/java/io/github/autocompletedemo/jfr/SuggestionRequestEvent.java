@@ -0,0 +1,37 @@
+package io.github.autocompletedemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Один поиск подсказок в {@code SuggestionService}: от вызова источника до решения, доставлять ли
+ * результат в UI.
+ */
+@Name("io.github.autocompletedemo.SuggestionRequest")
+@Label("Suggestion Request")
+@Category({"Autocomplete", "Suggestions"})
+@Description("Background suggestion lookup for the word before the caret")
+public final class SuggestionRequestEvent extends jdk.jfr.Event {
+
+  @Label("Prefix Length")
+  public int prefixLength;
+
+  @Label("Max Suggestions")
+  public int maxSuggestions;
+
+  @Label("Candidate Count")
+  public int candidateCount;
+
+  @Label("Stale")
+  @Description("A newer request arrived, the result was discarded")
+  public boolean stale;
+
+  @Label("Cancelled")
+  @Description("The lookup thread was interrupted while the source was running")
+  public boolean cancelled;
+
+  @Label("Failed")
+  public boolean failed;
+}
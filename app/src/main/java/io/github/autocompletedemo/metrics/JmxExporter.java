@@ -0,0 +1,134 @@
+package io.github.autocompletedemo.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Публикует метрики как MBean {@value #OBJECT_NAME}. Атрибуты - показатели и перцентили задержек
+ * в микросекундах ({@code suggestion.lookup.p99} и т. п.); значения читаются при обращении.
+ */
+public class JmxExporter implements MetricsExporter {
+
+  public static final String OBJECT_NAME = "io.github.autocompletedemo:type=Metrics";
+
+  private ObjectName name;
+
+  @Override
+  public void start(Metrics metrics) {
+    try {
+      name = new ObjectName(OBJECT_NAME);
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(new MetricsMBean(metrics), name);
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register metrics MBean", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (name != null && server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      // Выключение приложения: MBean всё равно исчезнет вместе с JVM
+    }
+  }
+
+  private static final class MetricsMBean implements DynamicMBean {
+
+    private final Metrics metrics;
+
+    MetricsMBean(Metrics metrics) {
+      this.metrics = metrics;
+    }
+
+    private static Map<String, Double> attributes(MetricsSnapshot snapshot) {
+      Map<String, Double> values = new LinkedHashMap<>(snapshot.gauges());
+      snapshot.latencies().forEach((name, summary) -> {
+        values.put(name + ".count", (double) summary.count());
+        values.put(name + ".mean", summary.mean() / 1000.0);
+        values.put(name + ".p50", summary.p50() / 1000.0);
+        values.put(name + ".p95", summary.p95() / 1000.0);
+        values.put(name + ".p99", summary.p99() / 1000.0);
+        values.put(name + ".max", summary.max() / 1000.0);
+      });
+      return values;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Double value = attributes(metrics.snapshot()).get(attribute);
+      if (value == null) {
+        throw new AttributeNotFoundException(attribute);
+      }
+      return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+      Map<String, Double> values = attributes(metrics.snapshot());
+      AttributeList list = new AttributeList();
+      for (String attribute : names) {
+        Double value = values.get(attribute);
+        if (value != null) {
+          list.add(new Attribute(attribute, value));
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+        throws ReflectionException {
+      if (actionName.equals("reset")) {
+        metrics.reset();
+        return null;
+      }
+      throw new ReflectionException(new NoSuchMethodException(actionName),
+          "No such operation: " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> infos = new ArrayList<>();
+      for (String attribute : attributes(metrics.snapshot()).keySet()) {
+        infos.add(new MBeanAttributeInfo(attribute, Double.class.getName(), attribute, true,
+            false, false));
+      }
+      MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Reset latency histograms",
+          new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+      return new MBeanInfo(getClass().getName(), "Autocomplete demo metrics",
+          infos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] {reset}, null);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package io.github.autocompletedemo.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически переписывает JSON-файл со снимком метрик. Файл заменяется атомарно, так что
+ * читатель никогда не видит его наполовину записанным.
+ */
+public class JsonFileExporter implements MetricsExporter {
+
+  private static final System.Logger LOG = System.getLogger(JsonFileExporter.class.getName());
+
+  private final Path file;
+  private final Duration period;
+  private ScheduledExecutorService scheduler;
+  private Metrics metrics;
+
+  public JsonFileExporter(Path file, Duration period) {
+    this.file = file.toAbsolutePath();
+    this.period = period;
+  }
+
+  @Override
+  public void start(Metrics metrics) {
+    this.metrics = metrics;
+    scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "metrics-json");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleAtFixedRate(this::write, period.toMillis(), period.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void write() {
+    try {
+      Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try {
+        Files.writeString(temp, metrics.snapshot().toJson(), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      LOG.log(System.Logger.Level.WARNING, "Cannot write metrics to " + file, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      write();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package io.github.autocompletedemo.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек в наносекундах с логарифмическими корзинами.
+ *
+ * <p>
+ * Каждая степень двойки делится на {@value #SUB_BUCKETS} корзин, так что перцентиль вычисляется с
+ * относительной погрешностью не больше 1/{@value #SUB_BUCKETS}. Запись - несколько атомарных
+ * операций над заранее выделенным массивом, без блокировок и без выделения памяти, поэтому её
+ * можно вызывать на каждое нажатие клавиши из любого потока.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  /**
+   * Сводка на момент снятия; времена в наносекундах.
+   */
+  public record Summary(long count, long mean, long p50, long p95, long p99, long max) {
+  }
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(index(value));
+    count.increment();
+    sum.add(value);
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Наибольшее значение, которое попадает в корзину {@code index}.
+   */
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS - 1) {
+      return index;
+    }
+    int next = index + 1;
+    int exponent = next / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long lower = (long) (SUB_BUCKETS + next % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    return lower - 1;
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  public Summary summary() {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    long maximum = max.get();
+    long mean = total == 0 ? 0 : sum.sum() / total;
+    return new Summary(total, mean, quantile(counts, total, 0.50, maximum),
+        quantile(counts, total, 0.95, maximum), quantile(counts, total, 0.99, maximum), maximum);
+  }
+
+  private static long quantile(long[] counts, long total, double quantile, long maximum) {
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), maximum);
+      }
+    }
+    return maximum;
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+}
@@ -0,0 +1,52 @@
+package io.github.autocompletedemo.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Реестр метрик приложения: гистограммы задержек и числовые показатели (gauge).
+ *
+ * <p>
+ * Гистограмму получают по имени один раз при инициализации и дальше пишут в неё напрямую; реестр
+ * на горячем пути не участвует. Показатели вычисляются только при снятии {@link #snapshot()}.
+ */
+public final class Metrics {
+
+  public static final String SUGGESTION_LOOKUP = "suggestion.lookup";
+  public static final String NEXT_WORD_LOOKUP = "nextword.lookup";
+  public static final String POPUP_SHOW = "popup.show";
+  public static final String POPUP_HIDE = "popup.hide";
+  public static final String DICTIONARY_LOAD = "dictionary.load";
+
+  private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+  private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+  public LatencyHistogram histogram(String name) {
+    return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+  }
+
+  public void gauge(String name, DoubleSupplier value) {
+    gauges.put(name, value);
+  }
+
+  /**
+   * Фиксированное значение показателя, например результат последней загрузки словаря.
+   */
+  public void setGauge(String name, double value) {
+    gauges.put(name, () -> value);
+  }
+
+  public MetricsSnapshot snapshot() {
+    Map<String, LatencyHistogram.Summary> latencies = new TreeMap<>();
+    histograms.forEach((name, histogram) -> latencies.put(name, histogram.summary()));
+    Map<String, Double> values = new TreeMap<>();
+    gauges.forEach((name, gauge) -> values.put(name, gauge.getAsDouble()));
+    return new MetricsSnapshot(System.currentTimeMillis(), latencies, values);
+  }
+
+  public void reset() {
+    histograms.values().forEach(LatencyHistogram::reset);
+  }
+}
@@ -0,0 +1,44 @@
+package io.github.autocompletedemo.metrics;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Способ вывести метрики за пределы приложения: периодическая запись, регистрация в JMX и т. п.
+ */
+public interface MetricsExporter extends AutoCloseable {
+
+  /**
+   * Системное свойство со списком экспортёров через запятую, например
+   * {@code -Dautocomplete.metrics=jmx,json=metrics.json}.
+   */
+  String PROPERTY = "autocomplete.metrics";
+
+  void start(Metrics metrics);
+
+  @Override
+  void close();
+
+  /**
+   * Экспортёры, заданные строкой вида {@code jmx,json=path}; неизвестные элементы - ошибка.
+   */
+  static List<MetricsExporter> parse(String spec) {
+    List<MetricsExporter> exporters = new ArrayList<>();
+    if (spec == null || spec.isBlank()) {
+      return exporters;
+    }
+    for (String item : spec.split(",")) {
+      String name = item.strip();
+      if (name.equals("jmx")) {
+        exporters.add(new JmxExporter());
+      } else if (name.startsWith("json=")) {
+        exporters.add(new JsonFileExporter(Path.of(name.substring(5)), Duration.ofSeconds(5)));
+      } else if (!name.isEmpty()) {
+        throw new IllegalArgumentException("Unknown metrics exporter: " + name);
+      }
+    }
+    return exporters;
+  }
+}
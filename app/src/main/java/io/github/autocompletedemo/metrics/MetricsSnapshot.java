@@ -0,0 +1,49 @@
+package io.github.autocompletedemo.metrics;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Значения всех метрик на момент {@code timestampMillis}; имена в алфавитном порядке.
+ */
+public record MetricsSnapshot(long timestampMillis, Map<String, LatencyHistogram.Summary> latencies,
+    Map<String, Double> gauges) {
+
+  /**
+   * JSON с постоянным порядком полей; задержки в микросекундах.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"timestampMillis\": ").append(timestampMillis).append(",\n");
+    json.append("  \"latencyMicros\": {");
+    Iterator<Map.Entry<String, LatencyHistogram.Summary>> latency =
+        latencies.entrySet().iterator();
+    while (latency.hasNext()) {
+      Map.Entry<String, LatencyHistogram.Summary> entry = latency.next();
+      LatencyHistogram.Summary summary = entry.getValue();
+      json.append("\n    \"").append(entry.getKey()).append("\": {");
+      json.append("\"count\": ").append(summary.count());
+      json.append(", \"mean\": ").append(micros(summary.mean()));
+      json.append(", \"p50\": ").append(micros(summary.p50()));
+      json.append(", \"p95\": ").append(micros(summary.p95()));
+      json.append(", \"p99\": ").append(micros(summary.p99()));
+      json.append(", \"max\": ").append(micros(summary.max())).append('}');
+      json.append(latency.hasNext() ? "," : "\n  ");
+    }
+    json.append("},\n  \"gauges\": {");
+    Iterator<Map.Entry<String, Double>> gauge = gauges.entrySet().iterator();
+    while (gauge.hasNext()) {
+      Map.Entry<String, Double> entry = gauge.next();
+      json.append("\n    \"").append(entry.getKey()).append("\": ");
+      json.append(String.format(Locale.ROOT, "%.3f", entry.getValue()));
+      json.append(gauge.hasNext() ? "," : "\n  ");
+    }
+    json.append("}\n}\n");
+    return json.toString();
+  }
+
+  private static String micros(long nanos) {
+    return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+  }
+}
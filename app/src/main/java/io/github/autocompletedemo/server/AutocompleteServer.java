@@ -0,0 +1,383 @@
+package io.github.autocompletedemo.server;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.BatchCompleter;
+import io.github.autocompletedemo.SuggestionSource;
+import io.github.autocompletedemo.metrics.LatencyHistogram;
+import io.github.autocompletedemo.metrics.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сервер подсказок на loopback-сокете: другие редакторы на той же машине пользуются движком без
+ * JavaFX.
+ *
+ * <p>
+ * Протокол строковый, UTF-8, одна строка запроса - одна строка ответа в том же порядке:
+ *
+ * <pre>
+ * COMPLETE &lt;max&gt; &lt;prefix&gt; [&lt;prefix&gt; ...]   OK\tword=score,word=score\t...  (группа на префикс)
+ * STATS                                   OK requests=... lookups=... p50Micros=... ...
+ * PING                                    OK
+ * QUIT                                    соединение закрывается
+ * </pre>
+ *
+ * Ошибки - {@code ERR <сообщение>}, перегрузка - {@code BUSY}. Пакеты от 64 префиксов считаются
+ * параллельно через {@link BatchCompleter}.
+ *
+ * <p>
+ * Каждое соединение обслуживает свой виртуальный поток. Клиент может отправлять запросы, не
+ * дожидаясь ответов: ответы копятся в буфере и отправляются, когда прочитан весь пришедший вход.
+ * Нагрузку ограничивают две вещи. Число соединений: новые не принимаются, пока открыто
+ * {@code maxConnections}, и ждут в очереди ядра. Число одновременных поисков: соединение, которое
+ * не получило разрешение, перестаёт читать сокет, и клиента тормозит TCP; если разрешения нет
+ * дольше {@code busyTimeout}, запрос получает {@code BUSY}.
+ */
+public class AutocompleteServer implements AutoCloseable {
+
+  public static final String REQUEST = "server.request";
+  public static final int MAX_LINE_BYTES = 64 * 1024;
+  public static final int MAX_BATCH = 1024;
+  public static final int MAX_SUGGESTIONS = 1000;
+  // С какого размера пакет префиксов считается параллельно
+  private static final int PARALLEL_BATCH = 64;
+
+  private final SuggestionSource engine;
+  private final BatchCompleter batch = new BatchCompleter();
+  private final int maxConnections;
+  private final Semaphore connectionPermits;
+  private final Semaphore lookupPermits;
+  private final long busyTimeoutNanos;
+
+  private final LatencyHistogram requestLatency;
+  private final LatencyHistogram lookupLatency;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder busy = new LongAdder();
+  private final AtomicInteger connections = new AtomicInteger();
+  private final long startNanos = System.nanoTime();
+
+  private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+  private final ExecutorService connectionThreads =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("server-connection-", 0).factory());
+  private ServerSocket serverSocket;
+  private Thread acceptThread;
+
+  /**
+   * @param engine общий для всех соединений источник подсказок; должен быть потокобезопасным
+   * @param metrics куда писать задержки и показатели сервера
+   * @param maxConnections сколько соединений обслуживается одновременно
+   * @param maxConcurrentLookups сколько запросов выполняется одновременно
+   * @param busyTimeout сколько запрос ждёт свободного места, прежде чем получить {@code BUSY}
+   */
+  public AutocompleteServer(SuggestionSource engine, Metrics metrics, int maxConnections,
+      int maxConcurrentLookups, Duration busyTimeout) {
+    this.engine = engine;
+    this.maxConnections = maxConnections;
+    this.connectionPermits = new Semaphore(maxConnections);
+    this.lookupPermits = new Semaphore(maxConcurrentLookups);
+    this.busyTimeoutNanos = busyTimeout.toNanos();
+    this.requestLatency = metrics.histogram(REQUEST);
+    this.lookupLatency = metrics.histogram(Metrics.SUGGESTION_LOOKUP);
+    metrics.gauge("server.connections", connections::get);
+    metrics.gauge("server.requests", requests::sum);
+    metrics.gauge("server.lookups", lookups::sum);
+    metrics.gauge("server.busy", busy::sum);
+  }
+
+  /**
+   * Начинает принимать соединения на 127.0.0.1.
+   *
+   * @param port порт; 0 - любой свободный
+   * @return порт, на котором слушает сервер
+   */
+  public int start(int port) throws IOException {
+    serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+        maxConnections);
+    acceptThread = Thread.ofPlatform().name("server-accept").daemon(true).start(this::accept);
+    return serverSocket.getLocalPort();
+  }
+
+  public int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Ждёт, пока сервер не будет закрыт.
+   */
+  public void awaitTermination() throws InterruptedException {
+    acceptThread.join();
+    connectionThreads.close();
+  }
+
+  private void accept() {
+    try {
+      while (!serverSocket.isClosed()) {
+        // Пока все места заняты, соединения ждут в очереди ядра
+        connectionPermits.acquire();
+        Socket socket;
+        try {
+          socket = serverSocket.accept();
+        } catch (IOException e) {
+          connectionPermits.release();
+          throw e;
+        }
+        sockets.add(socket);
+        connections.incrementAndGet();
+        connectionThreads.execute(() -> {
+          try {
+            serve(socket);
+          } finally {
+            sockets.remove(socket);
+            connections.decrementAndGet();
+            connectionPermits.release();
+          }
+        });
+      }
+    } catch (IOException | InterruptedException e) {
+      // Сервер закрыт
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket;
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+      socket.setTcpNoDelay(true);
+      LineReader reader = new LineReader(in);
+      StringBuilder response = new StringBuilder();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        response.setLength(0);
+        boolean open = true;
+        if (reader.isTooLong()) {
+          response.append("ERR line longer than ").append(MAX_LINE_BYTES).append(" bytes");
+        } else {
+          open = handle(line, response);
+        }
+        out.write(response.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+        // Конвейер: пока клиент прислал ещё запросы, ответы копятся в буфере
+        if (!open || in.available() == 0) {
+          out.flush();
+        }
+        if (!open) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      // Клиент закрыл соединение
+    }
+  }
+
+  /**
+   * Обрабатывает одну строку запроса.
+   *
+   * @return {@code false}, если соединение нужно закрыть
+   */
+  private boolean handle(String line, StringBuilder response) {
+    String[] parts = line.strip().split("\\s+");
+    String command = parts[0].toUpperCase(Locale.ROOT);
+    switch (command) {
+      case "COMPLETE" -> complete(parts, response);
+      case "STATS" -> stats(response);
+      case "PING" -> response.append("OK");
+      case "QUIT" -> {
+        response.append("OK");
+        return false;
+      }
+      default -> response.append("ERR unknown command: ").append(parts[0]);
+    }
+    return true;
+  }
+
+  private void complete(String[] parts, StringBuilder response) {
+    if (parts.length < 3) {
+      response.append("ERR usage: COMPLETE <max> <prefix> [<prefix> ...]");
+      return;
+    }
+    int max;
+    try {
+      max = Integer.parseInt(parts[1]);
+    } catch (NumberFormatException e) {
+      response.append("ERR invalid max: ").append(parts[1]);
+      return;
+    }
+    if (max < 1 || max > MAX_SUGGESTIONS) {
+      response.append("ERR max must be between 1 and ").append(MAX_SUGGESTIONS);
+      return;
+    }
+    if (parts.length - 2 > MAX_BATCH) {
+      response.append("ERR more than ").append(MAX_BATCH).append(" prefixes");
+      return;
+    }
+
+    long start = System.nanoTime();
+    try {
+      if (!lookupPermits.tryAcquire(busyTimeoutNanos, TimeUnit.NANOSECONDS)) {
+        busy.increment();
+        response.append("BUSY");
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.append("BUSY");
+      return;
+    }
+    try {
+      response.append("OK");
+      List<String> prefixes = Arrays.asList(parts).subList(2, parts.length);
+      if (prefixes.size() >= PARALLEL_BATCH) {
+        for (List<Candidate> candidates : batch.complete(engine, prefixes, max)) {
+          append(response, candidates);
+        }
+        lookups.add(prefixes.size());
+      } else {
+        for (String prefix : prefixes) {
+          long lookupStart = System.nanoTime();
+          List<Candidate> candidates = engine.getAutocomplete(prefix, max);
+          lookupLatency.record(System.nanoTime() - lookupStart);
+          lookups.increment();
+          append(response, candidates);
+        }
+      }
+    } catch (RuntimeException e) {
+      response.setLength(0);
+      response.append("ERR ").append(e.getMessage());
+    } finally {
+      lookupPermits.release();
+    }
+    requests.increment();
+    requestLatency.record(System.nanoTime() - start);
+  }
+
+  private static void append(StringBuilder response, List<Candidate> candidates) {
+    response.append('\t');
+    for (int i = 0; i < candidates.size(); i++) {
+      if (i > 0) {
+        response.append(',');
+      }
+      Candidate candidate = candidates.get(i);
+      response.append(candidate.word()).append('=').append(candidate.score());
+    }
+  }
+
+  private void stats(StringBuilder response) {
+    Stats stats = stats();
+    response.append(String.format(Locale.ROOT,
+        "OK requests=%d lookups=%d busy=%d connections=%d requestsPerSecond=%.1f"
+            + " p50Micros=%.1f p99Micros=%.1f maxMicros=%.1f",
+        stats.requests(), stats.lookups(), stats.busy(), stats.connections(),
+        stats.requestsPerSecond(), stats.latency().p50() / 1e3, stats.latency().p99() / 1e3,
+        stats.latency().max() / 1e3));
+  }
+
+  /**
+   * Счётчики с момента запуска; задержки - на запрос целиком, включая все префиксы пакета.
+   */
+  public record Stats(long requests, long lookups, long busy, int connections,
+      double requestsPerSecond, LatencyHistogram.Summary latency) {
+  }
+
+  public Stats stats() {
+    long requestCount = requests.sum();
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    return new Stats(requestCount, lookups.sum(), busy.sum(), connections.get(),
+        requestCount / Math.max(seconds, 1e-9), requestLatency.summary());
+  }
+
+  @Override
+  public void close() {
+    try {
+      if (serverSocket != null) {
+        serverSocket.close();
+      }
+    } catch (IOException e) {
+      // Уже закрыт
+    }
+    if (acceptThread != null) {
+      acceptThread.interrupt();
+    }
+    for (Socket socket : sockets) {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Уже закрыт
+      }
+    }
+    connectionThreads.shutdownNow();
+  }
+
+  /**
+   * Чтение строк из байтового потока с ограничением длины: клиент не может заставить сервер
+   * буферизовать строку без конца. Остаток слишком длинной строки пропускается.
+   */
+  private static final class LineReader {
+
+    private final InputStream in;
+    private byte[] buffer = new byte[256];
+    private boolean tooLong;
+
+    LineReader(InputStream in) {
+      this.in = in;
+    }
+
+    /**
+     * Следующая строка без перевода строки; {@code null} в конце потока.
+     */
+    String readLine() throws IOException {
+      tooLong = false;
+      int length = 0;
+      int b;
+      while ((b = in.read()) != '\n') {
+        if (b < 0) {
+          return length == 0 && !tooLong ? null : decode(length);
+        }
+        if (length == MAX_LINE_BYTES) {
+          tooLong = true;
+          continue;
+        }
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_BYTES));
+        }
+        buffer[length++] = (byte) b;
+      }
+      return decode(length);
+    }
+
+    /**
+     * Была ли последняя прочитанная строка длиннее {@link #MAX_LINE_BYTES}.
+     */
+    boolean isTooLong() {
+      return tooLong;
+    }
+
+    private String decode(int length) {
+      if (length > 0 && buffer[length - 1] == '\r') {
+        length--;
+      }
+      return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+  }
+}
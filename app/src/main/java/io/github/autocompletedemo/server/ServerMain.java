@@ -0,0 +1,194 @@
+package io.github.autocompletedemo.server;
+
+import io.github.autocompletedemo.AutocompleteSettings;
+import io.github.autocompletedemo.IndexedSuggestionSource;
+import io.github.autocompletedemo.LatencyBudget;
+import io.github.autocompletedemo.LibrarySuggestionSource;
+import io.github.autocompletedemo.SuggestionBackend;
+import io.github.autocompletedemo.SuggestionSource;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+import io.github.autocompletedemo.dictionary.TrieFileFormat;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.metrics.Metrics;
+import io.github.autocompletedemo.metrics.MetricsExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запуск {@link AutocompleteServer} без окна: {@code App --server [options]}.
+ *
+ * <p>
+ * Словарь загружается один раз в тот же {@link DictionaryStore} и индекс, что и у редактора, и
+ * общий для всех соединений. Пропускная способность и задержки периодически пишутся в stderr и
+ * доступны командой {@code STATS}.
+ */
+public final class ServerMain {
+
+  private static final String USAGE = """
+      Usage: App --server [options]
+        --port N                    loopback port (default 7070, 0 = any free port)
+        --dictionary FILE           dictionary in TRIE format (default: bundled dictionary)
+        --backend library|trie      suggestion backend (default trie)
+        --shards N                  split the dictionary for parallel fuzzy search (default 1)
+        --max-connections N         connections served at once (default 256)
+        --max-concurrent N          requests executed at once (default: CPU count)
+        --busy-timeout-ms N         wait for a free slot before answering BUSY (default 1000)
+        --report-interval N         seconds between stats lines on stderr, 0 = off (default 10)
+        --tolerance N               (default 0)
+        --latency-budget-ms N       stop fuzzy search at this budget and lower tolerance while
+                                    it keeps being missed; the library backend answers exact
+                                    prefix matches instead (default 0 = off)
+        --tolerance-threshold N     (default 0)
+        --similar-weight X          (default 0.5)
+        --original-weight X         (default 1.0)
+      """;
+
+  private final Map<String, String> options;
+
+  private ServerMain(Map<String, String> options) {
+    this.options = options;
+  }
+
+  public static void run(String[] args) throws IOException, InterruptedException {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--server")) {
+        continue;
+      }
+      if (arg.equals("--help")) {
+        System.out.print(USAGE);
+        return;
+      }
+      if (!arg.startsWith("--")) {
+        System.err.print("Unexpected argument: " + arg + "\n" + USAGE);
+        System.exit(2);
+      }
+      if (i + 1 < args.length) {
+        options.put(arg.substring(2), args[++i]);
+      } else {
+        System.err.print("Missing value for " + arg + "\n" + USAGE);
+        System.exit(2);
+      }
+    }
+    new ServerMain(options).serve();
+  }
+
+  private String option(String name, String defaultValue) {
+    return options.getOrDefault(name, defaultValue);
+  }
+
+  private int intOption(String name, int defaultValue) {
+    return Integer.parseInt(option(name, Integer.toString(defaultValue)));
+  }
+
+  private void serve() throws IOException, InterruptedException {
+    SuggestionBackend backend = option("backend", "trie").equals("library")
+        ? SuggestionBackend.LIBRARY : SuggestionBackend.RADIX_TRIE;
+    AutocompleteSettings settings = new AutocompleteSettings(AutocompleteServer.MAX_SUGGESTIONS,
+        intOption("tolerance-threshold", 0), intOption("tolerance", 0),
+        Double.parseDouble(option("similar-weight", "0.5")),
+        Double.parseDouble(option("original-weight", "1.0")), backend);
+
+    Metrics metrics = new Metrics();
+    DictionaryStore store =
+        new DictionaryStore(settings.toConfig(), backend == SuggestionBackend.LIBRARY);
+    store.setShardCount(intOption("shards", 1));
+    Vocabulary vocabulary = loadDictionary();
+    long loadStart = System.nanoTime();
+    store.update(v -> v.addAll(vocabulary)).join();
+    System.err.printf(Locale.ROOT, "Dictionary loaded: %d words in %d ms"
+        + " (word counts: %d KB heap, %d KB off-heap)%n", store.current().size(),
+        (System.nanoTime() - loadStart) / 1_000_000, vocabulary.heapBytes() / 1024,
+        vocabulary.offHeapBytes() / 1024);
+
+    int budgetMillis = intOption("latency-budget-ms", 0);
+    LatencyBudget budget = budgetMillis > 0 ? LatencyBudget.ofMillis(budgetMillis) : null;
+    SuggestionSource engine;
+    if (backend == SuggestionBackend.RADIX_TRIE) {
+      IndexedSuggestionSource indexed = new IndexedSuggestionSource(store, settings);
+      indexed.setLatencyBudget(budget);
+      engine = indexed;
+    } else {
+      // Анализатор свой у каждой версии словаря: источник берёт его из текущей на каждый запрос
+      LibrarySuggestionSource library = new LibrarySuggestionSource(store, settings);
+      library.setLatencyBudget(budget);
+      engine = library;
+    }
+
+    AutocompleteServer server = new AutocompleteServer(engine, metrics,
+        intOption("max-connections", 256),
+        intOption("max-concurrent", Runtime.getRuntime().availableProcessors()),
+        Duration.ofMillis(intOption("busy-timeout-ms", 1000)));
+    List<MetricsExporter> exporters =
+        MetricsExporter.parse(System.getProperty(MetricsExporter.PROPERTY));
+    exporters.forEach(exporter -> exporter.start(metrics));
+    ScheduledExecutorService reporter = startReporter(server, intOption("report-interval", 10));
+
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      server.close();
+      reporter.shutdownNow();
+      exporters.forEach(MetricsExporter::close);
+      store.close();
+    }, "server-shutdown"));
+
+    int port = server.start(intOption("port", 7070));
+    System.err.printf("Autocomplete server listening on 127.0.0.1:%d (%s backend)%n", port,
+        backend);
+    server.awaitTermination();
+  }
+
+  private Vocabulary loadDictionary() throws IOException {
+    Vocabulary vocabulary = new Vocabulary();
+    if (options.containsKey("dictionary")) {
+      TrieFileFormat.read(new File(option("dictionary", null)), vocabulary::add);
+      return vocabulary;
+    }
+    try (InputStream in = ServerMain.class.getResourceAsStream("/dict")) {
+      if (in != null) {
+        TrieFileFormat.read(in, vocabulary::add);
+      } else {
+        System.err.println("Bundled dictionary not found, starting with an empty dictionary");
+      }
+    }
+    return vocabulary;
+  }
+
+  /**
+   * Строка в stderr раз в {@code seconds} секунд: скорость за интервал и задержки с запуска.
+   */
+  private static ScheduledExecutorService startReporter(AutocompleteServer server, int seconds) {
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "server-stats");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (seconds <= 0) {
+      return reporter;
+    }
+    long[] last = new long[2];
+    reporter.scheduleAtFixedRate(() -> {
+      AutocompleteServer.Stats stats = server.stats();
+      System.err.printf(Locale.ROOT,
+          "requests/s %.0f, lookups/s %.0f, p50 %.1f us, p99 %.1f us, max %.1f us,"
+              + " connections %d, busy %d%n",
+          (stats.requests() - last[0]) / (double) seconds,
+          (stats.lookups() - last[1]) / (double) seconds, stats.latency().p50() / 1e3,
+          stats.latency().p99() / 1e3, stats.latency().max() / 1e3, stats.connections(),
+          stats.busy());
+      last[0] = stats.requests();
+      last[1] = stats.lookups();
+    }, seconds, seconds, TimeUnit.SECONDS);
+    return reporter;
+  }
+}
@@ -2,6 +2,8 @@ module autocomplete.demo {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.desktop;
+    requires java.management;
+    requires jdk.jfr;
     requires io.github.autocomplete;
 
     exports io.github.autocompletedemo;
@@ -0,0 +1,66 @@
+package io.github.autocompletedemo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+class BatchCompleterTest {
+
+  @Test void keepsInputOrderAndComputesDuplicatesOnce() {
+    List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    SuggestionSource source = (prefix, max) -> {
+      calls.add(prefix);
+      return List.of(new Candidate(prefix + "!", prefix.length()));
+    };
+    Random random = new Random(7);
+    List<String> prefixes = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      prefixes.add(Integer.toString(random.nextInt(2000), 36));
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<List<Candidate>> results = new BatchCompleter(pool).complete(source, prefixes, 3);
+      assertEquals(prefixes.size(), results.size());
+      for (int i = 0; i < prefixes.size(); i++) {
+        assertEquals(prefixes.get(i) + "!", results.get(i).get(0).word());
+      }
+      assertEquals(Set.copyOf(prefixes).size(), calls.size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test void matchesSingleLookupsOnIndex() {
+    AutocompleteSettings settings =
+        new AutocompleteSettings(10, 2, 1, 0.5, 1.0, SuggestionBackend.RADIX_TRIE);
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      store.update(v -> v.addText("program progress project java javafx javadoc pro prod"))
+          .join();
+      IndexedSuggestionSource source = new IndexedSuggestionSource(store, settings);
+      List<String> prefixes = List.of("pro", "j", "prog", "x", "pro", "jav", "prjo");
+      List<List<Candidate>> results = new BatchCompleter().complete(source.pinned(), prefixes, 5);
+      for (int i = 0; i < prefixes.size(); i++) {
+        assertEquals(words(source.getAutocomplete(prefixes.get(i), 5)), words(results.get(i)));
+      }
+    }
+  }
+
+  @Test void splitsWhereStemsDiverge() {
+    String[] sorted = {"aa", "ab", "ac", "ad", "ba", "bb", "bc", "bd", "be", "bf", "bg", "bh"};
+    assertEquals(4, BatchCompleter.split(sorted, 0, sorted.length));
+  }
+
+  private static List<String> words(List<Candidate> candidates) {
+    return candidates.stream().map(Candidate::word).toList();
+  }
+}
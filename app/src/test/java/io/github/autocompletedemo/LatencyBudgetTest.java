@@ -0,0 +1,60 @@
+package io.github.autocompletedemo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyBudgetTest {
+
+  private static final long FAST = 1_000_000;
+
+  private static void miss(LatencyBudget budget, int times) {
+    for (int i = 0; i < times; i++) {
+      budget.record(true, false, 20_000_000);
+    }
+  }
+
+  @Test void lowersEffortAfterRepeatedMisses() {
+    LatencyBudget budget = LatencyBudget.ofMillis(16);
+    assertEquals(3, budget.tolerance(3, 2));
+
+    miss(budget, LatencyBudget.MISSES_TO_DEGRADE - 1);
+    budget.record(false, false, FAST);
+    miss(budget, LatencyBudget.MISSES_TO_DEGRADE - 1);
+    assertEquals(0, budget.level());
+
+    miss(budget, 1);
+    assertEquals(1, budget.level());
+    assertEquals(1, budget.tolerance(3, 2));
+    assertEquals(3, budget.tolerance(3, LatencyBudget.SHORT_PREFIX));
+
+    miss(budget, 2 * LatencyBudget.MISSES_TO_DEGRADE);
+    assertEquals(3, budget.level());
+    assertEquals(0, budget.tolerance(3, 2));
+    assertEquals(1, budget.tolerance(3, 8));
+
+    miss(budget, LatencyBudget.MISSES_TO_DEGRADE);
+    assertEquals(LatencyBudget.MAX_LEVEL, budget.level());
+  }
+
+  @Test void recoversAfterFastQueries() {
+    LatencyBudget budget = LatencyBudget.ofMillis(16);
+    miss(budget, LatencyBudget.MISSES_TO_DEGRADE);
+    assertEquals(1, budget.level());
+
+    for (int i = 0; i < LatencyBudget.FAST_TO_RECOVER - 1; i++) {
+      budget.record(false, true, FAST);
+    }
+    // Уложился в бюджет, но не в его половину: серия быстрых запросов начинается заново
+    budget.record(false, false, 12_000_000);
+    assertEquals(1, budget.level());
+    for (int i = 0; i < LatencyBudget.FAST_TO_RECOVER; i++) {
+      budget.record(false, false, FAST);
+    }
+    assertEquals(0, budget.level());
+
+    LatencyBudget.Stats stats = budget.stats();
+    assertEquals(LatencyBudget.MISSES_TO_DEGRADE, stats.deadlineMisses());
+    assertEquals(LatencyBudget.MISSES_TO_DEGRADE + LatencyBudget.FAST_TO_RECOVER - 1,
+        stats.degraded());
+  }
+}
@@ -0,0 +1,101 @@
+package io.github.autocompletedemo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import java.util.ArrayList;
+import java.util.List;
+
+class SuggestionCacheTest {
+
+  private static final List<String> WORDS = List.of("program", "progress", "project", "proof");
+
+  private final List<String> queries = new ArrayList<>();
+
+  private List<Candidate> lookup(String prefix, int maxSuggestions) {
+    queries.add(prefix);
+    List<Candidate> result = new ArrayList<>();
+    for (String word : WORDS) {
+      if (word.startsWith(prefix) && result.size() < maxSuggestions) {
+        result.add(new Candidate(word, 1.0));
+      }
+    }
+    return result;
+  }
+
+  private SuggestionCache cache(AutocompleteSettings settings) {
+    return new SuggestionCache(this::lookup, 16, settings.toConfig(), settings);
+  }
+
+  private static List<String> words(List<Candidate> candidates) {
+    return candidates.stream().map(Candidate::word).toList();
+  }
+
+  @Test void repeatedPrefixIsHit() {
+    SuggestionCache cache = cache(AutocompleteSettings.DEFAULT);
+    cache.getAutocomplete("pro", 10);
+    cache.getAutocomplete("pro", 10);
+
+    assertEquals(List.of("pro"), queries);
+    assertEquals(1, cache.stats().hits());
+    assertEquals(1, cache.stats().misses());
+  }
+
+  @Test void extendedPrefixIsFilteredFromParent() {
+    SuggestionCache cache = cache(AutocompleteSettings.DEFAULT);
+    cache.getAutocomplete("pro", 10);
+
+    assertEquals(List.of("program", "progress"), words(cache.getAutocomplete("prog", 10)));
+    assertEquals(List.of("pro"), queries);
+    assertEquals(1, cache.stats().refinements());
+  }
+
+  @Test void truncatedParentIsNotRefined() {
+    SuggestionCache cache = cache(AutocompleteSettings.DEFAULT);
+    cache.getAutocomplete("pro", 2);
+    cache.getAutocomplete("proj", 2);
+
+    assertEquals(List.of("pro", "proj"), queries);
+  }
+
+  @Test void fuzzySettingsDisableRefinement() {
+    SuggestionCache cache =
+        cache(new AutocompleteSettings(10, 0, 1, 0.5, 1.0, SuggestionBackend.LIBRARY));
+    cache.getAutocomplete("pro", 10);
+    cache.getAutocomplete("prog", 10);
+
+    assertEquals(List.of("pro", "prog"), queries);
+  }
+
+  @Test void invalidateDropsEntries() {
+    SuggestionCache cache = cache(AutocompleteSettings.DEFAULT);
+    cache.getAutocomplete("pro", 10);
+    cache.invalidate();
+    cache.getAutocomplete("pro", 10);
+
+    assertEquals(List.of("pro", "pro"), queries);
+    assertEquals(2, cache.stats().misses());
+  }
+
+  @Test void degradedResultIsNotCached() {
+    DegradedSource source = new DegradedSource();
+    SuggestionCache cache = new SuggestionCache(source, 16, AutocompleteSettings.DEFAULT.toConfig(),
+        AutocompleteSettings.DEFAULT);
+    assertTrue(DegradedSuggestions.isDegraded(cache.getAutocomplete("pro", 10)));
+    cache.getAutocomplete("pro", 10);
+
+    assertEquals(2, source.calls);
+    assertEquals(0, cache.stats().size());
+  }
+
+  private static final class DegradedSource implements SuggestionSource {
+    int calls;
+
+    @Override
+    public List<Candidate> getAutocomplete(String prefix, int maxSuggestions) {
+      calls++;
+      return new DegradedSuggestions(List.of(new Candidate("program", 1.0)), true, 1);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package io.github.autocompletedemo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class SuggestionServiceTest {
+
+  private static List<Candidate> echo(String prefix) {
+    return List.of(new Candidate(prefix, 1.0));
+  }
+
+  @Test void deliversResult() throws InterruptedException {
+    BlockingQueue<List<Candidate>> results = new LinkedBlockingQueue<>();
+    try (SuggestionService service =
+        new SuggestionService((prefix, max) -> echo(prefix), Runnable::run, Duration.ZERO)) {
+      service.request("pro", 10, results::add);
+      List<Candidate> result = results.poll(5, TimeUnit.SECONDS);
+      assertNotNull(result);
+      assertEquals("pro", result.get(0).word());
+    }
+  }
+
+  @Test void deliversOnlyLatestPrefix() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+    SuggestionSource source = (prefix, max) -> {
+      if (prefix.equals("p")) {
+        started.countDown();
+        // Источник, который не реагирует на прерывание
+        while (true) {
+          try {
+            release.await();
+            break;
+          } catch (InterruptedException e) {
+            // ждём дальше
+          }
+        }
+      }
+      return echo(prefix);
+    };
+    try (SuggestionService service =
+        new SuggestionService(source, Runnable::run, Duration.ZERO)) {
+      service.request("p", 10, r -> delivered.add(r.get(0).word()));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      service.request("pr", 10, r -> delivered.add(r.get(0).word()));
+      service.request("pro", 10, r -> delivered.add(r.get(0).word()));
+      release.countDown();
+
+      assertEquals("pro", delivered.poll(5, TimeUnit.SECONDS));
+      assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test void cancelDropsPendingResult() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+    SuggestionSource source = (prefix, max) -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return echo(prefix);
+    };
+    try (SuggestionService service =
+        new SuggestionService(source, Runnable::run, Duration.ZERO)) {
+      service.request("pro", 10, r -> delivered.add(r.get(0).word()));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      service.cancel();
+      release.countDown();
+
+      assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package io.github.autocompletedemo.dictionary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+class DictionaryJournalTest {
+
+  @TempDir Path directory;
+
+  private static int count(DictionaryStore store, String word) {
+    RadixTrieIndex index = store.current().index();
+    for (int i = 0; i < index.size(); i++) {
+      if (index.word(i).equals(word)) {
+        return index.count(i);
+      }
+    }
+    return 0;
+  }
+
+  private List<String> files() throws IOException {
+    try (Stream<Path> list = Files.list(directory)) {
+      return list.map(path -> path.getFileName().toString()).sorted().toList();
+    }
+  }
+
+  private DictionaryJournal open(DictionaryStore store) throws IOException {
+    return DictionaryJournal.open(directory, store, Duration.ofHours(1), 1 << 20);
+  }
+
+  @Test void recoversSnapshotAndJournal() throws IOException {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      store.update(v -> v.addText("alpha beta")).join();
+      assertFalse(DictionaryJournal.exists(directory));
+      try (DictionaryJournal journal = open(store)) {
+        assertTrue(DictionaryJournal.exists(directory));
+        store.update(v -> v.addText("beta gamma")).join();
+        store.update(v -> v.addText("gamma")).join();
+        journal.flush().join();
+        // Два обновления - один пакет
+        assertEquals(1, journal.stats().batches());
+        assertEquals(3, journal.stats().records());
+      }
+    }
+
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false);
+        DictionaryJournal journal = open(store)) {
+      assertEquals(3, journal.stats().recovered());
+      assertEquals(3, store.current().size());
+      assertEquals(2, count(store, "beta"));
+      assertEquals(2, count(store, "gamma"));
+    }
+  }
+
+  @Test void compactionReplacesJournalWithSnapshot() throws IOException {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false);
+        DictionaryJournal journal = open(store)) {
+      store.update(v -> v.addText("one two")).join();
+      journal.flush().join();
+      journal.compact().join();
+      store.update(v -> v.addText("three")).join();
+      journal.flush().join();
+
+      assertEquals(1, journal.stats().compactions());
+      assertEquals(List.of("dictionary-1.acds", "dictionary-1.journal"), files());
+    }
+
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false);
+        DictionaryJournal journal = open(store)) {
+      assertEquals(1, journal.stats().recovered());
+      assertEquals(3, store.current().size());
+    }
+  }
+
+  @Test void clearDropsEarlierRecords() throws IOException {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      store.update(v -> v.addText("old words")).join();
+      try (DictionaryJournal journal = open(store)) {
+        store.update(v -> v.addText("lost")).join();
+        store.update(Vocabulary::clear).join();
+        store.update(v -> v.addText("fresh")).join();
+        journal.flush().join();
+        assertEquals(2, journal.stats().records());
+      }
+    }
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false);
+        DictionaryJournal journal = open(store)) {
+      assertEquals(2, journal.stats().recovered());
+      assertEquals(1, store.current().size());
+      assertEquals(1, count(store, "fresh"));
+    }
+  }
+
+  @Test void ignoresTornBatch() throws IOException {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false);
+        DictionaryJournal journal = open(store)) {
+      store.update(v -> v.addText("kept")).join();
+      journal.flush().join();
+    }
+    // Пакет, запись которого оборвалась на середине
+    Files.write(directory.resolve("dictionary-0.journal"), new byte[] {0, 0, 0, 40, 1, 2, 3},
+        StandardOpenOption.APPEND);
+
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false);
+        DictionaryJournal journal = open(store)) {
+      assertEquals(1, journal.stats().recovered());
+      assertEquals(1, count(store, "kept"));
+    }
+  }
+}
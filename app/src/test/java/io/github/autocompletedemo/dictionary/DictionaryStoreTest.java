@@ -0,0 +1,118 @@
+package io.github.autocompletedemo.dictionary;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.index.NextWordIndex;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+class DictionaryStoreTest {
+
+  private static List<String> words(List<Candidate> candidates) {
+    return candidates.stream().map(Candidate::word).toList();
+  }
+
+  @Test void updatePublishesNewVersion() {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      List<Long> published = new CopyOnWriteArrayList<>();
+      store.addListener(snapshot -> published.add(snapshot.version()));
+
+      DictionarySnapshot snapshot = store.update(v -> v.addText("java javafx java")).join();
+      assertSame(snapshot, store.current());
+      assertEquals(List.of(snapshot.version()), published);
+      assertEquals(2, snapshot.size());
+      assertNull(snapshot.library());
+    }
+  }
+
+  @Test void oldSnapshotStaysUnchanged() {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      DictionarySnapshot first = store.update(v -> v.addText("program")).join();
+      DictionarySnapshot second = store.update(v -> v.addText("progress program")).join();
+
+      assertTrue(second.version() > first.version());
+      assertEquals(1, first.index().complete("pro", 10, 1.0).size());
+      assertEquals(2, second.index().complete("pro", 10, 1.0).size());
+
+      DictionarySnapshot cleared = store.update(Vocabulary::clear).join();
+      assertEquals(0, cleared.size());
+      assertEquals(2, second.size());
+    }
+  }
+
+  @Test void shardsFollowIndex() {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      store.setShardCount(3);
+      DictionarySnapshot first = store.update(v -> v.addText("java javafx jvm kotlin")).join();
+      assertEquals(3, first.shards().shardCount());
+
+      DictionarySnapshot second = store.update(v -> v.addText("scala")).join();
+      assertNotSame(first.shards(), second.shards());
+      // Новое слово ищется вместе с частями, хотя они не перестраивались
+      assertEquals(List.of("scala"),
+          words(second.shards().completeFuzzy("scalla", 10, 1, 1.0, 0.5)));
+      assertEquals(words(second.index().completeFuzzy("jvaa", 10, 1, 1.0, 0.5)),
+          words(second.shards().completeFuzzy("jvaa", 10, 1, 1.0, 0.5)));
+
+      assertNull(store.setShardCount(1).join().shards());
+    }
+  }
+
+  @Test void changedVersionGetsOwnLibraryAnalyzer() {
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), true)) {
+      DictionarySnapshot first = store.update(v -> v.addText("java javafx")).join();
+      DictionarySnapshot second = store.update(v -> v.addText("java kotlin")).join();
+      // Старая версия сохраняет свой анализатор, новая загружает свой
+      assertNotSame(first.library().analyzer(), second.library().analyzer());
+      assertEquals(List.of("java", "javafx"), words(second.index().complete("ja", 10, 1.0)));
+
+      // Без изменений слов анализатор переходит в новую версию
+      DictionarySnapshot unchanged = store.update(v -> { }).join();
+      assertSame(second.library().analyzer(), unchanged.library().analyzer());
+    }
+  }
+
+  @Test void incrementalUpdatesMatchFullRebuild() {
+    Random random = new Random(17);
+    Vocabulary expected = new Vocabulary();
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      store.setShardCount(3);
+      DictionarySnapshot snapshot = null;
+      for (int round = 0; round < 40; round++) {
+        String text = randomText(random, round == 0 ? 3000 : 1 + random.nextInt(40));
+        expected.addText(text);
+        snapshot = store.update(v -> v.addText(text)).join();
+
+        RadixTrieIndex index = RadixTrieIndex.build(expected);
+        NextWordIndex nextWords = NextWordIndex.build(expected, index);
+        assertEquals(index.size(), snapshot.size());
+        for (int i = 0; i < 20; i++) {
+          String word = index.word(random.nextInt(index.size()));
+          String prefix = word.substring(0, Math.min(word.length(), 2));
+          assertEquals(words(index.complete(prefix, 10, 1.0)),
+              words(snapshot.index().complete(prefix, 10, 1.0)), prefix);
+          assertEquals(words(index.completeFuzzy(prefix, 10, 1, 1.0, 0.5)),
+              words(snapshot.shards().completeFuzzy(prefix, 10, 1, 1.0, 0.5)), prefix);
+          assertEquals(words(nextWords.predict(word, 10, 1.0)),
+              words(snapshot.nextWords().predict(word, 10, 1.0)), word);
+        }
+      }
+    }
+  }
+
+  private static String randomText(Random random, int words) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      for (int n = 1 + random.nextInt(5); n > 0; n--) {
+        text.append((char) ('a' + random.nextInt(5)));
+      }
+      text.append(random.nextInt(8) == 0 ? ". " : " ");
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,59 @@
+package io.github.autocompletedemo.dictionary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+class SnapshotFileTest {
+
+  @TempDir Path directory;
+
+  private static RadixTrieIndex index() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText("Программа program programmer program progress java");
+    return RadixTrieIndex.build(vocabulary);
+  }
+
+  @Test void roundTripsWithIndex() throws IOException {
+    RadixTrieIndex index = index();
+    File file = directory.resolve("dict.acds").toFile();
+    SnapshotFile.write(file, index, true);
+
+    SnapshotFile.Contents contents = SnapshotFile.read(file);
+    assertEquals(index.size(), contents.words().size());
+    for (int i = 0; i < index.size(); i++) {
+      assertEquals(index.word(i), contents.words().word(i));
+      assertEquals(index.count(i), contents.counts()[i]);
+    }
+    assertEquals(index.complete("pro", 10, 1.0), contents.index().complete("pro", 10, 1.0));
+    assertEquals(index.nodeCount(), contents.index().nodeCount());
+  }
+
+  @Test void buildsIndexWhenNotStored() throws IOException {
+    RadixTrieIndex index = index();
+    File file = directory.resolve("dict.acds").toFile();
+    SnapshotFile.write(file, index, false);
+
+    assertEquals(index.complete("про", 10, 1.0),
+        SnapshotFile.read(file).index().complete("про", 10, 1.0));
+  }
+
+  @Test void detectsCorruption() throws IOException {
+    File file = directory.resolve("dict.acds").toFile();
+    SnapshotFile.write(file, index(), true);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(SnapshotFile.HEADER_SIZE + 5);
+      int value = raf.read();
+      raf.seek(SnapshotFile.HEADER_SIZE + 5);
+      raf.write(value ^ 0xff);
+    }
+
+    assertThrows(IOException.class, () -> SnapshotFile.read(file));
+  }
+}
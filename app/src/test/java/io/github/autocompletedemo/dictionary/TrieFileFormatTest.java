@@ -0,0 +1,79 @@
+package io.github.autocompletedemo.dictionary;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrieFileFormatTest {
+
+  private static Map<String, Integer> readDefaultDictionary() throws IOException {
+    Map<String, Integer> counts = new HashMap<>();
+    try (InputStream in = TrieFileFormatTest.class.getResourceAsStream("/dict")) {
+      TrieFileFormat.read(in, counts::put);
+    }
+    return counts;
+  }
+
+  @Test void readsDefaultDictionary() throws IOException {
+    Map<String, Integer> counts = readDefaultDictionary();
+
+    assertFalse(counts.isEmpty());
+    assertEquals(3, counts.get("class"));
+    assertEquals(1, counts.get("appender"));
+  }
+
+  @Test void writeThenReadRoundTrips() throws IOException {
+    Map<String, Integer> counts = readDefaultDictionary();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TrieFileFormat.write(counts, out);
+
+    Map<String, Integer> reread = new HashMap<>();
+    TrieFileFormat.read(new ByteArrayInputStream(out.toByteArray()), reread::put);
+    assertEquals(counts, reread);
+  }
+
+  @Test void sortedWriterMatchesBatchWrite(@TempDir Path directory) throws IOException {
+    // Больше буфера записи: часть чисел детей вписывается в уже сброшенную часть файла
+    Random random = new Random(3);
+    TreeMap<String, Integer> counts = new TreeMap<>(readDefaultDictionary());
+    while (counts.size() < 150_000) {
+      char[] word = new char[1 + random.nextInt(12)];
+      for (int i = 0; i < word.length; i++) {
+        word[i] = (char) (random.nextBoolean() ? 'a' + random.nextInt(6) : 'я' - random.nextInt(4));
+      }
+      counts.merge(new String(word), 1 + random.nextInt(100), Integer::sum);
+    }
+    File batch = directory.resolve("batch").toFile();
+    TrieFileFormat.write(counts, batch);
+    File streamed = directory.resolve("streamed").toFile();
+    try (SortedWordWriter writer = TrieFileFormat.sortedWriter(streamed)) {
+      for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+        writer.add(entry.getKey(), entry.getValue());
+      }
+    }
+    assertTrue(batch.length() > 1 << 20);
+    assertTrue(Arrays.equals(Files.readAllBytes(batch.toPath()),
+        Files.readAllBytes(streamed.toPath())));
+  }
+
+  @Test void sortedWriterRejectsUnsortedWords(@TempDir Path directory) throws IOException {
+    try (SortedWordWriter writer = TrieFileFormat.sortedWriter(directory.resolve("d").toFile())) {
+      writer.add("beta", 1);
+      assertThrows(IllegalArgumentException.class, () -> writer.add("alpha", 1));
+      assertThrows(IllegalArgumentException.class, () -> writer.add("beta", 1));
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package io.github.autocompletedemo.dictionary;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import io.github.autocompletedemo.index.Utf8Words;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class VocabularyTest {
+
+  @Test void countsWordsOfText() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText("Привет, мир! привет 𝄞note 𝄞note x");
+
+    assertEquals(2, vocabulary.count("привет"));
+    assertEquals(1, vocabulary.count("мир"));
+    assertEquals(1, vocabulary.count(new StringBuilder("x")));
+    assertEquals(0, vocabulary.count("при"));
+    assertEquals(0, vocabulary.count("приветы"));
+    assertEquals(4, vocabulary.size());
+    assertEquals(2, vocabulary.count("note"));
+
+    // Слова вне BMP и с одиночными суррогатами в словарь не попадают
+    vocabulary.add("𝄞", 2);
+    vocabulary.add("\uD834", 1);
+    assertEquals(0, vocabulary.count("𝄞"));
+    assertEquals(0, vocabulary.count("?"));
+    assertEquals(4, vocabulary.size());
+  }
+
+  @Test void growsAndMatchesHashMap() {
+    Vocabulary vocabulary = new Vocabulary();
+    Map<String, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 20_000; i++) {
+      String word = "w" + Integer.toString(i % 7_000, 36) + (i % 3 == 0 ? "ё" : "");
+      vocabulary.add(word, i % 5 + 1);
+      expected.merge(word, i % 5 + 1, Integer::sum);
+    }
+
+    assertEquals(expected.size(), vocabulary.size());
+    expected.forEach((word, count) -> assertEquals(count, vocabulary.count(word), word));
+    Map<String, Integer> actual = new HashMap<>();
+    vocabulary.forEach(actual::put);
+    assertEquals(expected, actual);
+    assertTrue(vocabulary.offHeapBytes() > 0);
+  }
+
+  @Test void saveLoadAndClear() throws IOException {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText("alpha beta beta gamma");
+    File file = File.createTempFile("vocabulary", null);
+    try {
+      vocabulary.saveToFile(file);
+      vocabulary.clear();
+      assertEquals(0, vocabulary.size());
+      assertEquals(0, vocabulary.count("beta"));
+
+      vocabulary.loadFromFile(file);
+      assertEquals(3, vocabulary.size());
+      assertEquals(2, vocabulary.count("beta"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test void skipsSupplementaryWordsOfLoadedDictionary() throws IOException {
+    File file = File.createTempFile("vocabulary", null);
+    try {
+      TrieFileFormat.write(new String[] {"beta", "beta𝄞", "𝄞note"}, new int[] {2, 3, 4}, file);
+      Vocabulary vocabulary = new Vocabulary();
+      vocabulary.loadFromFile(file);
+
+      assertEquals(1, vocabulary.size());
+      assertEquals(2, vocabulary.count("beta"));
+      assertEquals(List.of("beta"), RadixTrieIndex.build(vocabulary).complete("b", 10, 0).stream()
+          .map(Candidate::word).toList());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test void rejectsSupplementaryWordsOnReplace() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText("alpha");
+
+    assertThrows(IllegalArgumentException.class,
+        () -> vocabulary.replace(Utf8Words.of("beta", "𝄞note"), new int[] {1, 1}));
+    assertEquals(1, vocabulary.count("alpha"));
+  }
+
+  @Test void lookupDoesNotAllocate() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText("one two three четыре пять");
+    StringBuilder word = new StringBuilder("четыре");
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().threadId();
+
+    int sum = 0;
+    for (int i = 0; i < 10_000; i++) {
+      sum += vocabulary.count(word) + vocabulary.count("two");
+    }
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < 10_000; i++) {
+      sum += vocabulary.count(word) + vocabulary.count("two");
+    }
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+    assertEquals(40_000, sum);
+    // Запас на сам вызов getThreadAllocatedBytes
+    assertTrue(allocated < 1024, allocated + " bytes allocated");
+  }
+}
@@ -0,0 +1,58 @@
+package io.github.autocompletedemo.dictionary;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+class WordLearnerTest {
+
+  private static Vocabulary text(String text) {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText(text);
+    return vocabulary;
+  }
+
+  @Test void promotesWordsAfterThreshold() {
+    WordLearner learner = new WordLearner(1 << 20, 3);
+    Vocabulary dictionary = text("known");
+
+    assertEquals(0, learner.learn(text("known new new"), dictionary));
+    assertEquals(2, dictionary.count("known"));
+    assertEquals(0, dictionary.count("new"));
+    assertEquals(2, learner.candidateCount("new"));
+
+    assertEquals(1, learner.learn(text("new typo"), dictionary));
+    assertEquals(3, dictionary.count("new"));
+    assertEquals(0, dictionary.count("typo"));
+    assertEquals(0, learner.candidateCount("new"));
+
+    WordLearner.Stats stats = learner.stats();
+    assertEquals(1, stats.candidates());
+    assertEquals(1, stats.promoted());
+    assertTrue(stats.usedBytes() > 0);
+  }
+
+  @Test void staysWithinBudgetAndKeepsHeavyHitters() {
+    WordLearner learner = new WordLearner(4096, 50);
+    Set<String> dictionary = new HashSet<>();
+    Random random = new Random(3);
+    for (int i = 0; i < 20_000; i++) {
+      // Два частых слова среди потока разовых опечаток
+      String word = i % 10 == 0 ? "frequent" : i % 10 == 1 ? "common" : "typo" + random.nextInt();
+      if (!dictionary.contains(word) && learner.offer(word, 1) > 0) {
+        dictionary.add(word);
+      }
+    }
+    WordLearner.Stats stats = learner.stats();
+    assertTrue(stats.usedBytes() <= 4096, stats.usedBytes() + " bytes");
+    assertTrue(stats.evicted() > 0);
+    assertEquals(Set.of("frequent", "common"), dictionary);
+
+    learner.configure(0, 50);
+    assertEquals(0, learner.stats().candidates());
+    assertEquals(0, learner.stats().usedBytes());
+  }
+}
@@ -0,0 +1,89 @@
+package io.github.autocompletedemo.dictionary;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class WordTokenizerTest {
+
+  private static final String TEXT = "Привет, мир! x1 ёЖ 𝄞note İstanbul ΟΔΟΣ a\uD834b é́ end";
+
+  private static List<String> words(CharSequence text) {
+    List<String> words = new ArrayList<>();
+    StringBuilder out = new StringBuilder();
+    WordTokenizer.forEachWord(text, 0, text.length(),
+        (start, end) -> words.add(WordBoundaries.normalize(text, start, end, out).toString()));
+    return words;
+  }
+
+  @Test void splitsOnWordBoundaries() {
+    assertEquals(List.of("привет", "мир", "x1", "ёж", "note", "i̇stanbul", "οδος", "a", "b", "é",
+        "end"), words(TEXT));
+    assertEquals(List.of(), words(" ,.! "));
+  }
+
+  @Test void utf8BytesGiveSameWords() {
+    ByteBuffer utf8 = ByteBuffer.wrap(("  " + TEXT).getBytes(StandardCharsets.UTF_8));
+    List<String> words = new ArrayList<>();
+    StringBuilder out = new StringBuilder();
+    int count = WordTokenizer.forEachUtf8Word(utf8, 2, utf8.limit(),
+        (start, end) -> words.add(WordBoundaries.normalizeUtf8(utf8, start, end, out).toString()));
+
+    assertEquals(words(TEXT), words);
+    assertEquals(words.size(), count);
+
+    // Неверные байты - разделители
+    ByteBuffer broken = ByteBuffer.wrap(new byte[] {'a', (byte) 0xc0, (byte) 0xaf, 'b', (byte) 0xe0});
+    assertEquals(2, WordTokenizer.forEachUtf8Word(broken, 0, 5, (start, end) -> {
+    }));
+  }
+
+  @Test void charBufferAndCursorReportOffsets() {
+    CharBuffer buffer = CharBuffer.wrap("skip one two");
+    buffer.position(5);
+    List<String> words = new ArrayList<>();
+    WordTokenizer.forEachWord(buffer,
+        (start, end) -> words.add(buffer.subSequence(start, end).toString()));
+    assertEquals(List.of("one", "two"), words);
+
+    WordTokenizer.Cursor cursor = new WordTokenizer.Cursor().reset("a bc", 0, 4);
+    assertTrue(cursor.next());
+    assertEquals(0, cursor.start());
+    assertEquals(1, cursor.end());
+    assertTrue(cursor.next());
+    assertEquals(2, cursor.start());
+    assertEquals(4, cursor.end());
+    assertFalse(cursor.next());
+  }
+
+  @Test void repeatedWordsDoNotAllocate() {
+    Vocabulary vocabulary = new Vocabulary();
+    String text = "one two три one two три ";
+    ByteBuffer utf8 = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().threadId();
+
+    for (int i = 0; i < 10_000; i++) {
+      vocabulary.addText(text, 0, text.length());
+      vocabulary.addUtf8Text(utf8, 0, utf8.limit());
+    }
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < 10_000; i++) {
+      vocabulary.addText(text, 0, text.length());
+      vocabulary.addUtf8Text(utf8, 0, utf8.limit());
+    }
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+    assertEquals(3, vocabulary.size());
+    assertEquals(80_000, vocabulary.count("три"));
+    // Лямбда на вызов - не больше нескольких десятков байт
+    assertTrue(allocated < 20_000 * 64, allocated + " bytes allocated");
+  }
+}
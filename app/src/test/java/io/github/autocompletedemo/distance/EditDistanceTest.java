@@ -0,0 +1,129 @@
+package io.github.autocompletedemo.distance;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class EditDistanceTest {
+
+  /** Полная таблица: эталон; {@code keyboard} - стоимости в половинах правки. */
+  private static int reference(String a, String b, boolean transpositions, boolean keyboard) {
+    int unit = keyboard ? 2 : 1;
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      d[i][0] = i * unit;
+    }
+    for (int j = 0; j <= b.length(); j++) {
+      d[0][j] = j * unit;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      for (int j = 1; j <= b.length(); j++) {
+        char ca = a.charAt(i - 1);
+        char cb = b.charAt(j - 1);
+        int cost = ca == cb ? 0 : keyboard && KeyboardLayout.adjacent(ca, cb) ? 1 : unit;
+        d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + unit);
+        if (transpositions && i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+          d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+        }
+      }
+    }
+    int cost = d[a.length()][b.length()];
+    return keyboard ? (cost + 1) / 2 : cost;
+  }
+
+  private static String random(Random random, int length, String alphabet) {
+    StringBuilder word = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return word.toString();
+  }
+
+  @Test void matchesFullTable() {
+    Random random = new Random(7);
+    for (String alphabet : new String[] {"abcd", "asdfqwer", "фывапрол", "aбcдé"}) {
+      for (int k = 0; k < 3000; k++) {
+        String a = random(random, random.nextInt(random.nextBoolean() ? 10 : 90), alphabet);
+        String b = k % 3 == 0 ? a.substring(0, a.length() / 2) + random(random, 3, alphabet)
+            : random(random, random.nextInt(random.nextBoolean() ? 10 : 90), alphabet);
+        int max = random.nextInt(6);
+        int levenshtein = reference(a, b, false, false);
+        int damerau = reference(a, b, true, false);
+        int keyboard = reference(a, b, false, true);
+        String message = a + " / " + b + " / " + max;
+        assertEquals(levenshtein, EditDistance.levenshtein(a, b), message);
+        assertEquals(Math.min(levenshtein, max + 1), EditDistance.levenshtein(a, b, max), message);
+        assertEquals(Math.min(damerau, max + 1), EditDistance.damerau(a, b, max), message);
+        assertEquals(Math.min(keyboard, max + 1), EditDistance.keyboard(a, b, max), message);
+        assertEquals(Math.min(damerau, max + 1), EditDistance.banded(a, b, max, true), message);
+      }
+    }
+  }
+
+  @Test void handlesPatternBoundaries() {
+    String long64 = "x".repeat(63) + "y";
+    assertEquals(1, EditDistance.levenshtein(long64, "x".repeat(64)));
+    assertEquals(2, EditDistance.levenshtein("x".repeat(64), long64 + "z", 3));
+    assertEquals(65, EditDistance.levenshtein("", "q".repeat(65)));
+    assertEquals(3, EditDistance.levenshtein("abc", "abcdefgh", 2));
+    assertEquals(1, EditDistance.damerau("teh", "the", 1));
+    assertEquals(2, EditDistance.levenshtein("teh", "the", 1));
+
+    EditDistance.Pattern pattern = EditDistance.Pattern.compile("привет");
+    int[] distances = new int[3];
+    assertEquals(2, pattern.levenshtein(new CharSequence[] {"привте", "превед", "пока"}, 2,
+        distances));
+    assertArrayEquals(new int[] {2, 2, 3}, distances);
+    assertEquals(1, pattern.damerau("привте", 2));
+    assertThrows(IllegalArgumentException.class,
+        () -> EditDistance.Pattern.compile("z".repeat(65)));
+  }
+
+  @Test void sharesMasksAcrossVirtualThreads() throws Exception {
+    Random random = new Random(11);
+    String[] a = new String[2000];
+    String[] b = new String[a.length];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = random(random, 1 + random.nextInt(12), "abcdeф");
+      b[i] = random(random, 1 + random.nextInt(12), "abcdeф");
+    }
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < a.length; i++) {
+        String x = a[i];
+        String y = b[i];
+        results.add(executor.submit(() -> EditDistance.damerau(x, y, 3)));
+      }
+      for (int i = 0; i < a.length; i++) {
+        assertEquals(Math.min(reference(a[i], b[i], true, false), 4), results.get(i).get());
+      }
+    }
+  }
+
+  @Test void libraryMetricStopsAtMax() {
+    assertEquals(2, DistanceMetric.LIBRARY.distance("abcdef", "uvwxyz", 1));
+    assertEquals(3, DistanceMetric.LIBRARY.distance("a", "abcdef", 2));
+  }
+
+  @Test void weighsNeighbouringKeys() {
+    assertTrue(KeyboardLayout.adjacent('q', 'w'));
+    assertTrue(KeyboardLayout.adjacent('e', 'd'));
+    assertTrue(KeyboardLayout.adjacent('D', 'e'));
+    assertTrue(KeyboardLayout.adjacent('ф', 'ы'));
+    assertTrue(KeyboardLayout.adjacent('1', 'й'));
+    assertFalse(KeyboardLayout.adjacent('q', 'p'));
+    assertFalse(KeyboardLayout.adjacent('a', 'a'));
+    assertFalse(KeyboardLayout.adjacent('ф', 's'));
+
+    // Две замены на соседние клавиши - одна правка
+    assertEquals(1, EditDistance.keyboard("hello", "jrllo", 2));
+    assertEquals(2, EditDistance.levenshtein("hello", "jrllo", 2));
+    assertEquals(1, EditDistance.keyboard("hello", "hallo", 2));
+  }
+}
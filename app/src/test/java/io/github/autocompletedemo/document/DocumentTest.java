@@ -0,0 +1,66 @@
+package io.github.autocompletedemo.document;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+class DocumentTest {
+
+  @Test void typingAndDeletingMatchesStringBuilder() {
+    Random random = new Random(42);
+    Document document = new Document("hello world\nsecond line\n");
+    StringBuilder expected = new StringBuilder(document.toString());
+    String alphabet = "abc \n";
+
+    for (int step = 0; step < 2000; step++) {
+      int start = random.nextInt(expected.length() + 1);
+      int end = Math.min(expected.length(), start + random.nextInt(3));
+      StringBuilder text = new StringBuilder();
+      for (int i = random.nextInt(4); i > 0; i--) {
+        text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      document.replace(start, end, text);
+      expected.replace(start, end, text.toString());
+
+      assertEquals(expected.length(), document.length());
+      int offset = random.nextInt(expected.length() + 1);
+      assertEquals(expected.substring(0, offset).chars().filter(c -> c == '\n').count(),
+          document.lineOfOffset(offset));
+      assertEquals(expected.lastIndexOf("\n", offset - 1) + 1,
+          document.lineStart(document.lineOfOffset(offset)));
+    }
+    assertEquals(expected.toString(), document.toString());
+    assertEquals(expected.toString().split("\n", -1).length, document.lineCount());
+  }
+
+  @Test void findsWordBeforeOffset() {
+    Document document = new Document("say hel");
+    document.replace(7, 7, "lo");
+    assertEquals("hello", document.wordBefore(9));
+    assertEquals(4, document.wordStart(9));
+    assertEquals("", document.wordBefore(4));
+    assertEquals("sa", document.wordBefore(2));
+  }
+
+  @Test void findsPreviousWordOfSentence() {
+    Document document = new Document("New York, new  ");
+    assertEquals("new", document.previousWord(15, 16));
+    assertEquals("York", document.previousWord(10, 16));
+    assertEquals("", document.previousWord(13, 16));
+    assertEquals("", document.previousWord(15, 1));
+    document.replace(0, 8, "Done. ");
+    assertEquals("", document.previousWord(6, 16));
+  }
+
+  @Test void mapsOffsetsToLinesAndColumns() {
+    Document document = new Document("one\ntwo\n");
+    document.replace(8, 8, "three");
+    assertEquals(3, document.lineCount());
+    assertEquals(2, document.lineOfOffset(10));
+    assertEquals(8, document.lineStart(2));
+    assertEquals(2, document.columnOfOffset(10));
+    assertEquals(0, document.lineOfOffset(3));
+    assertEquals(1, document.lineOfOffset(4));
+  }
+}
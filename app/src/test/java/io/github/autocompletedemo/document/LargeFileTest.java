@@ -0,0 +1,93 @@
+package io.github.autocompletedemo.document;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class LargeFileTest {
+
+  @TempDir Path directory;
+
+  private Path write(String text) throws IOException {
+    Path file = directory.resolve("large.txt");
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  @Test void pagesCoverFileWithoutSplittingLinesOrCharacters() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      text.append("строка ").append(i).append('\n');
+    }
+    text.append("ЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯЯ");
+    try (LargeFile file = LargeFile.open(write(text.toString()), 64)) {
+      assertTrue(file.pageCount() > 1);
+      StringBuilder joined = new StringBuilder();
+      for (int page = 0; page < file.pageCount(); page++) {
+        String content = file.page(page);
+        assertFalse(content.contains("�"));
+        if (page < file.pageCount() - 1 && content.indexOf('\n') >= 0) {
+          assertTrue(content.endsWith("\n"));
+        }
+        joined.append(content);
+      }
+      assertEquals(text.toString(), joined.toString());
+    }
+  }
+
+  @Test void savesEditsAtomically() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      text.append("line ").append(i).append('\n');
+    }
+    Path path = write(text.toString());
+    try (LargeFile file = LargeFile.open(path, 128)) {
+      String edited = file.page(1).replace("line", "edited");
+      file.setPage(1, edited);
+      assertTrue(file.isModified());
+
+      StringBuilder expected = new StringBuilder();
+      for (int page = 0; page < file.pageCount(); page++) {
+        expected.append(file.page(page));
+      }
+      file.save(path);
+
+      assertFalse(file.isModified());
+      assertEquals(expected.toString(), Files.readString(path, StandardCharsets.UTF_8));
+      try (var files = Files.list(directory)) {
+        assertEquals(1, files.count());
+      }
+    }
+  }
+
+  @Test void keepsEditsWhenSaveFails() throws IOException {
+    Path path = write("first line\nsecond line\n");
+    Path occupied = Files.createDirectory(directory.resolve("occupied"));
+    Files.writeString(occupied.resolve("inside.txt"), "x");
+    try (LargeFile file = LargeFile.open(path, 16)) {
+      file.setPage(0, "changed\n");
+
+      assertThrows(IOException.class, () -> file.save(occupied));
+
+      assertTrue(file.isModified());
+      assertEquals(path, file.path());
+      assertEquals("changed\n", file.page(0));
+      assertEquals("second line\n", file.page(1));
+      try (var files = Files.list(directory)) {
+        assertEquals(2, files.count());
+      }
+    }
+  }
+
+  @Test void opensEmptyFile() throws IOException {
+    try (LargeFile file = LargeFile.open(write(""))) {
+      assertEquals(1, file.pageCount());
+      assertEquals("", file.page(0));
+    }
+  }
+}
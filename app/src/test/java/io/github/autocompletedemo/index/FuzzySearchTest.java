@@ -0,0 +1,178 @@
+package io.github.autocompletedemo.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.distance.DistanceMetric;
+import io.github.autocompletedemo.distance.EditDistance;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+class FuzzySearchTest {
+
+  private static int levenshtein(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  private static int distance(DistanceMetric metric, String a, String b, int tolerance) {
+    return switch (metric) {
+      case DAMERAU -> EditDistance.damerau(a, b, tolerance);
+      case KEYBOARD -> EditDistance.keyboard(a, b, tolerance);
+      default -> levenshtein(a, b);
+    };
+  }
+
+  /** Полный перебор словаря: эталон для обхода дерева. */
+  private static List<Candidate> bruteForce(Map<String, Integer> counts, String prefix, int max,
+      int tolerance, double originalWeight, double similarWeight, DistanceMetric metric) {
+    List<Candidate> all = new ArrayList<>();
+    counts.forEach((word, count) -> {
+      if (word.startsWith(prefix)) {
+        all.add(new Candidate(word, count * originalWeight));
+        return;
+      }
+      for (int end = 0; end <= word.length(); end++) {
+        if (distance(metric, prefix, word.substring(0, end), tolerance) <= tolerance) {
+          all.add(new Candidate(word, count * similarWeight));
+          return;
+        }
+      }
+    });
+    all.sort(Comparator.comparingDouble(Candidate::score).reversed()
+        .thenComparing(Candidate::word));
+    return all.subList(0, Math.min(max, all.size()));
+  }
+
+  @Test void matchesBruteForce() {
+    Random random = new Random(42);
+    Map<String, Integer> counts = new TreeMap<>();
+    Vocabulary vocabulary = new Vocabulary();
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 1 + random.nextInt(8);
+      for (int j = 0; j < length; j++) {
+        word.append((char) ('a' + random.nextInt(5)));
+      }
+      int count = 1 + random.nextInt(20);
+      if (counts.putIfAbsent(word.toString(), count) == null) {
+        vocabulary.add(word.toString(), count);
+      }
+    }
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary, 4);
+
+    for (String prefix : List.of("a", "abc", "bad", "eeca", "dcbae", "zz")) {
+      for (int tolerance = 1; tolerance <= 2; tolerance++) {
+        for (double similarWeight : new double[] {0.0, 0.5, 1.5}) {
+          assertEquals(
+              bruteForce(counts, prefix, 10, tolerance, 1.0, similarWeight,
+                  DistanceMetric.LIBRARY),
+              index.completeFuzzy(prefix, 10, tolerance, 1.0, similarWeight),
+              prefix + " / " + tolerance + " / " + similarWeight);
+        }
+        for (DistanceMetric metric : List.of(DistanceMetric.DAMERAU, DistanceMetric.KEYBOARD)) {
+          assertEquals(bruteForce(counts, prefix, 10, tolerance, 1.0, 0.5, metric),
+              index.completeFuzzy(prefix, 10, tolerance, 1.0, 0.5, metric),
+              prefix + " / " + tolerance + " / " + metric);
+        }
+      }
+    }
+  }
+
+  @Test void shortPrefixReadsOnlyTopLists() {
+    Random random = new Random(7);
+    Map<String, Integer> counts = new TreeMap<>();
+    Vocabulary vocabulary = new Vocabulary();
+    while (counts.size() < 20_000) {
+      StringBuilder word = new StringBuilder();
+      int length = 2 + random.nextInt(7);
+      for (int j = 0; j < length; j++) {
+        word.append((char) ('a' + random.nextInt(26)));
+      }
+      int count = 1 + random.nextInt(1000);
+      if (counts.putIfAbsent(word.toString(), count) == null) {
+        vocabulary.add(word.toString(), count);
+      }
+    }
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+
+    // Префикс не длиннее допуска подходит уже в корне: всё дерево - похожие слова
+    for (String prefix : List.of("", "q", "ab")) {
+      for (double similarWeight : new double[] {0.0, 0.5}) {
+        TopKCollector collector = new TopKCollector(10);
+        int visited = index.collectFuzzy(prefix, 2, 1.0, similarWeight, DistanceMetric.LIBRARY,
+            Deadline.NONE, collector);
+        assertTrue(visited <= 150, prefix + " / " + similarWeight + ": " + visited);
+        assertEquals(
+            bruteForce(counts, prefix, 10, 2, 1.0, similarWeight, DistanceMetric.LIBRARY),
+            index.completeFuzzy(prefix, 10, 2, 1.0, similarWeight));
+      }
+    }
+  }
+
+  @Test void findsWordWithTypo() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.add("program", 3);
+    vocabulary.add("java", 5);
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+
+    List<Candidate> result = index.completeFuzzy("prgo", 10, 2, 1.0, 0.5);
+    assertEquals(1, result.size());
+    assertEquals("program", result.get(0).word());
+    assertEquals(1.5, result.get(0).score());
+
+    // Перестановка "rp" - одна правка только для Дамерау
+    assertEquals(List.of(), index.completeFuzzy("rpog", 10, 1, 1.0, 0.5));
+    assertEquals("program",
+        index.completeFuzzy("rpog", 10, 1, 1.0, 0.5, DistanceMetric.DAMERAU).get(0).word());
+  }
+
+  @Test void expiredDeadlineKeepsExactMatches() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.add("program", 3);
+    vocabulary.add("progress", 2);
+    vocabulary.add("proof", 5);
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+
+    Deadline unlimited = Deadline.NONE;
+    assertEquals(index.completeFuzzy("prog", 10, 1, 1.0, 0.5),
+        index.completeFuzzy("prog", 10, 1, 1.0, 0.5, DistanceMetric.LIBRARY, unlimited));
+    assertFalse(unlimited.missed());
+
+    Deadline expired = Deadline.after(0);
+    List<Candidate> result =
+        index.completeFuzzy("prog", 10, 1, 1.0, 0.5, DistanceMetric.LIBRARY, expired);
+    assertTrue(expired.missed());
+    assertEquals(List.of("program", "progress"), result.stream().map(Candidate::word).toList());
+
+    // Префикс не длиннее допуска: похожие слова собираются из корня без обхода, срок там тоже
+    vocabulary.add("java", 20);
+    index = RadixTrieIndex.build(vocabulary);
+    assertEquals("java", index.completeFuzzy("pr", 10, 2, 1.0, 0.5).get(0).word());
+    expired = Deadline.after(0);
+    result = index.completeFuzzy("pr", 10, 2, 1.0, 0.5, DistanceMetric.LIBRARY, expired);
+    assertTrue(expired.missed());
+    assertEquals(List.of("proof", "program", "progress"),
+        result.stream().map(Candidate::word).toList());
+  }
+}
@@ -0,0 +1,103 @@
+package io.github.autocompletedemo.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import java.util.Arrays;
+import java.util.List;
+
+class NextWordIndexTest {
+
+  private static List<String> words(List<Candidate> candidates) {
+    return candidates.stream().map(Candidate::word).toList();
+  }
+
+  @Test void predictsFrequentFollowersWithinSentence() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText("New York. New York, new year! New job; new York? Old year");
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+    NextWordIndex nextWords = NextWordIndex.build(vocabulary, index);
+
+    assertEquals(3, vocabulary.bigramCount("new", "york"));
+    // Через запятую пара считается, через конец предложения - нет
+    assertEquals(1, vocabulary.bigramCount("york", "new"));
+    assertEquals(0, vocabulary.bigramCount("year", "new"));
+    assertEquals(List.of("york", "job", "year"), words(nextWords.predict("new", 10, 1.0)));
+    assertEquals(List.of("york"), words(nextWords.predict("new", 1, 1.0)));
+    assertEquals(3.0, nextWords.predict("new", 1, 1.0).get(0).score(), 0.5);
+    assertEquals(List.of("new"), words(nextWords.predict("york", 10, 1.0)));
+    assertEquals(List.of(), nextWords.predict("year", 10, 1.0));
+    assertEquals(List.of(), nextWords.predict("missing", 10, 1.0));
+  }
+
+  @Test void keepsTopKAndQuantizesCounts() {
+    Vocabulary vocabulary = new Vocabulary();
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 40; i++) {
+      text.append("the w").append(i % 20).append(". ");
+    }
+    text.append("the w7. ".repeat(1000));
+    vocabulary.addText(text);
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+    NextWordIndex nextWords = NextWordIndex.build(vocabulary, index, 4);
+
+    assertEquals(4, nextWords.size());
+    List<Candidate> predicted = nextWords.predict("the", 10, 1.0);
+    assertEquals(List.of("w7", "w0", "w1", "w10"), words(predicted));
+    assertEquals(1002.0, predicted.get(0).score(), 1002 * 0.05);
+    assertEquals(0, NextWordIndex.level(1));
+    assertTrue(NextWordIndex.level(1000) < NextWordIndex.level(1100));
+    assertTrue((NextWordIndex.level(Integer.MAX_VALUE) & 0xFF) > NextWordIndex.level(1100));
+  }
+
+  @Test void prunesRareContextsToStayWithinBudget() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.setBigramBudget(16 * 1024);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 5_000; i++) {
+      text.append("c").append(i).append(" n").append(i).append(". ");
+      text.append("hot n").append(i % 10).append(". ");
+    }
+    vocabulary.addText(text);
+
+    assertTrue(vocabulary.heapBytes() > 0);
+    assertTrue(vocabulary.bigramCount() * 12L <= 16 * 1024, "" + vocabulary.bigramCount());
+    assertTrue(vocabulary.prunedBigramContexts() > 0);
+    // Частый контекст переживает отсечение редких
+    assertEquals(500, vocabulary.bigramCount("hot", "n3"));
+
+    vocabulary.setBigramBudget(0);
+    assertEquals(0, vocabulary.bigramCount());
+  }
+
+  private static long pair(RadixTrieIndex index, String previous, String next) {
+    return (long) index.wordId(previous) << 32 | index.wordId(next);
+  }
+
+  @Test void updateRebuildsOnlyChangedContexts() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText("new york. new job. old year. old new york");
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+    NextWordIndex nextWords = NextWordIndex.build(vocabulary, index);
+
+    vocabulary.addText("new year. new year. big apple. old job");
+    RadixTrieIndex full = RadixTrieIndex.build(vocabulary);
+    long[] pairs =
+        {pair(full, "new", "year"), pair(full, "big", "apple"), pair(full, "old", "job")};
+    Arrays.sort(pairs);
+    NextWordIndex updated = nextWords.update(vocabulary, full, pairs);
+    NextWordIndex rebuilt = NextWordIndex.build(vocabulary, full);
+
+    for (String previous : List.of("new", "old", "big", "york", "apple", "missing")) {
+      assertEquals(words(rebuilt.predict(previous, 10, 1.0)),
+          words(updated.predict(previous, 10, 1.0)), previous);
+    }
+    assertEquals(List.of("year", "york", "job"), words(updated.predict("new", 10, 1.0)));
+    assertEquals(List.of("apple"), words(updated.predict("big", 10, 1.0)));
+    assertEquals(rebuilt.size(), updated.size());
+    // Старая версия не меняется
+    assertEquals(List.of("york", "job"), words(nextWords.predict("new", 10, 1.0)));
+  }
+}
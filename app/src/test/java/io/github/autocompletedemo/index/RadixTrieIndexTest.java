@@ -0,0 +1,170 @@
+package io.github.autocompletedemo.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.distance.DistanceMetric;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+class RadixTrieIndexTest {
+
+  private static Vocabulary vocabulary() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.add("pro", 1);
+    vocabulary.add("program", 5);
+    vocabulary.add("programmer", 2);
+    vocabulary.add("progress", 5);
+    vocabulary.add("project", 3);
+    vocabulary.add("java", 7);
+    return vocabulary;
+  }
+
+  private static List<String> words(List<Candidate> candidates) {
+    return candidates.stream().map(Candidate::word).toList();
+  }
+
+  @Test void ranksByCountThenAlphabetically() {
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary());
+
+    assertEquals(List.of("program", "progress", "project", "programmer", "pro"),
+        words(index.complete("pro", 10, 1.0)));
+    assertEquals(List.of("java", "program"), words(index.complete("", 2, 1.0)));
+  }
+
+  @Test void prefixEndingInsideEdge() {
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary());
+
+    assertEquals(List.of("program", "programmer"), words(index.complete("progra", 10, 1.0)));
+    assertEquals(List.of("java"), words(index.complete("ja", 10, 1.0)));
+    assertTrue(index.complete("jb", 10, 1.0).isEmpty());
+    assertTrue(index.complete("programmers", 10, 1.0).isEmpty());
+  }
+
+  @Test void scoreIsWeightedCount() {
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary());
+
+    assertEquals(3.5, index.complete("java", 1, 0.5).get(0).score());
+  }
+
+  @Test void moreSuggestionsThanTopK() {
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary(), 2);
+
+    assertEquals(List.of("program", "progress", "project", "programmer", "pro"),
+        words(index.complete("pro", 10, 1.0)));
+  }
+
+  @Test void emptyVocabulary() {
+    RadixTrieIndex index = RadixTrieIndex.build(new Vocabulary());
+
+    assertTrue(index.complete("a", 10, 1.0).isEmpty());
+  }
+
+  @Test void multiByteWordsFollowStringOrder() {
+    String[] words = {"привет", "приветствие", "при", "пример", "java", "jäger", "日本", "日本語",
+        "αβγ", "z"};
+    Vocabulary vocabulary = new Vocabulary();
+    for (int i = 0; i < words.length; i++) {
+      vocabulary.add(words[i], i + 1);
+    }
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary);
+
+    String[] sorted = words.clone();
+    Arrays.sort(sorted);
+    for (int i = 0; i < sorted.length; i++) {
+      assertEquals(sorted[i], index.word(i));
+      assertEquals(i, index.indexOf(sorted[i]));
+    }
+    assertEquals(-1, index.indexOf("прим"));
+    assertEquals(List.of("пример", "при", "приветствие", "привет"),
+        words(index.complete("при", 10, 1.0)));
+    assertEquals(List.of("日本語", "日本"), words(index.complete("日", 10, 1.0)));
+    assertEquals(List.of("пример"),
+        words(index.completeFuzzy("пирм", 5, 1, 1.0, 1.0, DistanceMetric.DAMERAU)));
+  }
+
+  @Test void heapDoesNotGrowWithWordLength() {
+    Random random = new Random(7);
+    Vocabulary plain = new Vocabulary();
+    Vocabulary padded = new Vocabulary();
+    String padding = "ааааааааааааааааааааааааааааааа";
+    while (plain.size() < 20_000) {
+      StringBuilder word = new StringBuilder();
+      for (int length = 4 + random.nextInt(8); word.length() < length;) {
+        word.append((char) ('а' + random.nextInt(32)));
+      }
+      int count = 1 + random.nextInt(100);
+      plain.add(word, count);
+      padded.add(padding + word, count);
+    }
+
+    // Слова живут в буфере словаря вне кучи: общий длинный префикс даёт то же дерево и ту же
+    // кучу индекса, а не +62 байта строки на слово, как при String[] в индексе
+    RadixTrieIndex plainIndex = RadixTrieIndex.build(plain);
+    RadixTrieIndex paddedIndex = RadixTrieIndex.build(padded);
+    assertEquals(plainIndex.nodeCount(), paddedIndex.nodeCount());
+    assertEquals(plainIndex.estimatedBytes(), paddedIndex.estimatedBytes());
+    assertEquals(plain.heapBytes(), padded.heapBytes());
+    assertTrue(padded.offHeapBytes() > plain.offHeapBytes());
+  }
+
+  @Test void incrementalUpdateMatchesFullBuild() {
+    Random random = new Random(11);
+    Vocabulary vocabulary = new Vocabulary();
+    for (int i = 0; i < 3000; i++) {
+      vocabulary.add(randomWord(random), 1 + random.nextInt(5));
+    }
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary, 8);
+    // За 60 шагов изменений больше 1024: индекс успевает слиться с базой
+    for (int round = 0; round < 60; round++) {
+      String[] changed = new String[1 + random.nextInt(60)];
+      for (int i = 0; i < changed.length; i++) {
+        changed[i] = randomWord(random);
+        vocabulary.add(changed[i], 1 + random.nextInt(5));
+      }
+      RadixTrieIndex full = RadixTrieIndex.build(vocabulary, 8);
+      int[] ids = new int[changed.length];
+      for (int i = 0; i < changed.length; i++) {
+        ids[i] = full.wordId(changed[i]);
+      }
+      index = index.update(vocabulary, ids);
+      assertSameIndex(full, index, random);
+    }
+    assertSameIndex(RadixTrieIndex.build(vocabulary, 8), index.compact(), random);
+  }
+
+  private static void assertSameIndex(RadixTrieIndex expected, RadixTrieIndex actual,
+      Random random) {
+    assertEquals(expected.size(), actual.size());
+    for (int id = 0; id < expected.size(); id++) {
+      assertEquals(expected.word(id), actual.word(id));
+      assertEquals(expected.count(id), actual.count(id));
+      assertEquals(id, actual.indexOf(expected.word(id)));
+    }
+    assertEquals(-1, actual.indexOf("zz"));
+    for (int i = 0; i < 50; i++) {
+      String prefix = randomWord(random).substring(0, 1 + random.nextInt(2));
+      int max = 1 + random.nextInt(20);
+      double weight = (1 + random.nextInt(3)) * 0.5;
+      assertEquals(render(expected.complete(prefix, max, weight)),
+          render(actual.complete(prefix, max, weight)), prefix);
+      assertEquals(render(expected.completeFuzzy(prefix, max, 1, 1.0, 0.5)),
+          render(actual.completeFuzzy(prefix, max, 1, 1.0, 0.5)), prefix + "~");
+    }
+  }
+
+  private static String randomWord(Random random) {
+    StringBuilder word = new StringBuilder();
+    for (int n = 2 + random.nextInt(6); n > 0; n--) {
+      word.append((char) ('a' + random.nextInt(6)));
+    }
+    return word.toString();
+  }
+
+  private static List<String> render(List<Candidate> candidates) {
+    return candidates.stream().map(c -> c.word() + "=" + c.score()).toList();
+  }
+}
@@ -0,0 +1,113 @@
+package io.github.autocompletedemo.index;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class ShardedIndexTest {
+
+  private static RadixTrieIndex randomIndex(Random random, int size) {
+    Vocabulary vocabulary = new Vocabulary();
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      word.setLength(0);
+      for (int n = 1 + random.nextInt(7); n > 0; n--) {
+        word.append((char) ('a' + random.nextInt(5)));
+      }
+      // Мало разных частот: много равных счётов, порядок решает алфавит
+      vocabulary.add(word.toString(), 1 + random.nextInt(4));
+    }
+    return RadixTrieIndex.build(vocabulary, 8);
+  }
+
+  @Test void shardsAreConsecutiveRangesOfEqualSize() {
+    RadixTrieIndex index = randomIndex(new Random(1), 2000);
+    ShardedIndex sharded = ShardedIndex.build(index, 5, ForkJoinPool.commonPool());
+    int id = 0;
+    for (int s = 0; s < sharded.shardCount(); s++) {
+      RadixTrieIndex shard = sharded.shard(s);
+      assertTrue(Math.abs(shard.size() - index.size() / 5) <= 1);
+      for (int i = 0; i < shard.size(); i++, id++) {
+        assertEquals(index.word(id), shard.word(i));
+        assertEquals(index.count(id), shard.count(i));
+      }
+    }
+    assertEquals(index.size(), id);
+  }
+
+  @Test void fuzzyResultsMatchSingleIndex() {
+    Random random = new Random(3);
+    RadixTrieIndex index = randomIndex(random, 3000);
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      for (int shards : new int[] {2, 7, 16}) {
+        ShardedIndex sharded = ShardedIndex.build(index, shards, pool);
+        for (int i = 0; i < 200; i++) {
+          StringBuilder prefix = new StringBuilder();
+          for (int n = 1 + random.nextInt(4); n > 0; n--) {
+            prefix.append((char) ('a' + random.nextInt(6)));
+          }
+          int max = 1 + random.nextInt(15);
+          int tolerance = random.nextInt(3);
+          double similarWeight = random.nextBoolean() ? 0.5 : 1.0;
+          List<Candidate> expected =
+              index.completeFuzzy(prefix.toString(), max, tolerance, 1.0, similarWeight);
+          List<Candidate> actual =
+              sharded.completeFuzzy(prefix.toString(), max, tolerance, 1.0, similarWeight);
+          assertEquals(render(expected), render(actual), prefix + " ~" + tolerance);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test void updateReusesShardsOfSameBase() {
+    Random random = new Random(5);
+    Vocabulary vocabulary = new Vocabulary();
+    for (int i = 0; i < 2000; i++) {
+      vocabulary.add(randomWord(random), 1 + random.nextInt(4));
+    }
+    RadixTrieIndex index = RadixTrieIndex.build(vocabulary, 8);
+    ShardedIndex sharded = ShardedIndex.build(index, 4, ForkJoinPool.commonPool());
+
+    String[] changed = new String[30];
+    for (int i = 0; i < changed.length; i++) {
+      changed[i] = randomWord(random);
+      vocabulary.add(changed[i], 1 + random.nextInt(4));
+    }
+    RadixTrieIndex full = RadixTrieIndex.build(vocabulary, 8);
+    int[] ids = new int[changed.length];
+    for (int i = 0; i < changed.length; i++) {
+      ids[i] = full.wordId(changed[i]);
+    }
+    RadixTrieIndex updated = index.update(vocabulary, ids);
+    ShardedIndex next = sharded.update(updated);
+
+    assertSame(index, updated.base());
+    for (int i = 0; i < 200; i++) {
+      String word = randomWord(random);
+      String prefix = word.substring(0, Math.min(word.length(), 1 + random.nextInt(3)));
+      int max = 1 + random.nextInt(15);
+      assertEquals(render(full.completeFuzzy(prefix, max, 1, 1.0, 0.5)),
+          render(next.completeFuzzy(prefix, max, 1, 1.0, 0.5)), prefix);
+    }
+  }
+
+  private static String randomWord(Random random) {
+    StringBuilder word = new StringBuilder();
+    for (int n = 1 + random.nextInt(7); n > 0; n--) {
+      word.append((char) ('a' + random.nextInt(5)));
+    }
+    return word.toString();
+  }
+
+  private static List<String> render(List<Candidate> candidates) {
+    return candidates.stream().map(c -> c.word() + "=" + c.score()).toList();
+  }
+}
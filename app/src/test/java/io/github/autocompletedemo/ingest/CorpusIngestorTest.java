@@ -0,0 +1,64 @@
+package io.github.autocompletedemo.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+class CorpusIngestorTest {
+
+  private static final String[] WORDS = {"алгоритм", "Java", "поток", "stream", "ёж", "x1"};
+
+  @TempDir Path directory;
+
+  private static String corpus() {
+    Random random = new Random(7);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      text.append(WORDS[random.nextInt(WORDS.length)]);
+      text.append(random.nextBoolean() ? " " : ",\n");
+    }
+    return text.toString();
+  }
+
+  private static void assertSameCounts(Vocabulary expected, Vocabulary actual) {
+    assertEquals(expected.size(), actual.size());
+    expected.forEach((word, count) -> assertEquals(count, actual.count(word), word));
+  }
+
+  @Test void fileMatchesSequentialTokenization() throws IOException {
+    String text = corpus();
+    Path file = directory.resolve("corpus.txt");
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+
+    Vocabulary expected = new Vocabulary();
+    expected.addText(text);
+    Vocabulary actual = new CorpusIngestor(4, 1024).ingest(file, progress -> {
+    });
+    assertSameCounts(expected, actual);
+  }
+
+  @Test void textMatchesSequentialTokenization() {
+    String text = corpus();
+    Vocabulary expected = new Vocabulary();
+    expected.addText(text);
+
+    assertSameCounts(expected, new CorpusIngestor(4, 2048).ingest(text, progress -> {
+    }));
+  }
+
+  @Test void cancelledIngestionThrows() {
+    CorpusIngestor ingestor = new CorpusIngestor(2, 1024);
+    ingestor.cancel();
+
+    assertThrows(CancellationException.class, () -> ingestor.ingest(corpus(), progress -> {
+    }));
+  }
+}
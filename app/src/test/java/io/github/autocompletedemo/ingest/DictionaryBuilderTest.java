@@ -0,0 +1,92 @@
+package io.github.autocompletedemo.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocompletedemo.dictionary.SnapshotFile;
+import io.github.autocompletedemo.dictionary.TrieFileFormat;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class DictionaryBuilderTest {
+
+  @TempDir Path directory;
+
+  private static String corpus(long seed) {
+    Random random = new Random(seed);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 30_000; i++) {
+      // Длинный хвост редких слов, чтобы прогоны различались
+      text.append(random.nextInt(5) == 0 ? "слово" + random.nextInt(3000)
+          : "word" + random.nextInt(40));
+      text.append(random.nextBoolean() ? " " : ".\n");
+    }
+    return text.toString();
+  }
+
+  private List<Path> writeCorpus(Vocabulary expected) throws IOException {
+    Path input = Files.createDirectory(directory.resolve("corpus"));
+    for (int i = 0; i < 3; i++) {
+      String text = corpus(i);
+      expected.addText(text);
+      Files.writeString(input.resolve("part" + i + ".txt"), text, StandardCharsets.UTF_8);
+    }
+    try (var files = Files.list(input)) {
+      return files.sorted().toList();
+    }
+  }
+
+  private DictionaryBuilder smallBuilder() {
+    // Маленькие сбросы и слияние по два: много прогонов и промежуточных слияний
+    return new DictionaryBuilder(3, 4096, 16 << 10, 2, directory);
+  }
+
+  @Test void buildsTrieFromSpilledRuns() throws IOException {
+    Vocabulary expected = new Vocabulary();
+    List<Path> inputs = writeCorpus(expected);
+    File output = directory.resolve("dictionary").toFile();
+
+    DictionaryBuilder.Stats stats = smallBuilder().build(inputs,
+        TrieFileFormat.sortedWriter(output), progress -> {
+        });
+
+    Map<String, Integer> built = new HashMap<>();
+    TrieFileFormat.read(output, built::put);
+    assertEquals(expected.size(), built.size());
+    expected.forEach((word, count) -> assertEquals(count, built.get(word), word));
+    assertEquals(expected.size(), stats.distinctWords());
+    assertTrue(stats.runs() > 2);
+    assertTrue(stats.intermediateMerges() > 0);
+    assertEquals(inputs.stream().mapToLong(path -> path.toFile().length()).sum(),
+        stats.inputBytes());
+    // Прогоны удалены
+    try (var files = Files.list(directory)) {
+      assertEquals(2, files.count());
+    }
+  }
+
+  @Test void buildsBinarySnapshot() throws IOException {
+    Vocabulary expected = new Vocabulary();
+    List<Path> inputs = writeCorpus(expected);
+    File output = directory.resolve("dictionary.acds").toFile();
+
+    smallBuilder().build(inputs, SnapshotFile.sortedWriter(output), progress -> {
+    });
+
+    SnapshotFile.Contents contents = SnapshotFile.read(output);
+    assertEquals(expected.size(), contents.words().size());
+    for (int i = 0; i < contents.words().size(); i++) {
+      assertEquals(expected.count(contents.words().word(i)), contents.counts()[i]);
+    }
+    assertEquals(expected.size(), contents.index().size());
+  }
+}
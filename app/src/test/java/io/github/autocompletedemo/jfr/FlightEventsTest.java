@@ -0,0 +1,93 @@
+package io.github.autocompletedemo.jfr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.config.AutocompleteConfig;
+import io.github.autocompletedemo.AutocompleteSettings;
+import io.github.autocompletedemo.IndexedSuggestionSource;
+import io.github.autocompletedemo.SuggestionBackend;
+import io.github.autocompletedemo.SuggestionService;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+import io.github.autocompletedemo.ingest.CorpusIngestor;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class FlightEventsTest {
+
+  @TempDir Path dir;
+
+  private List<RecordedEvent> record(Runnable action) throws IOException {
+    try (Recording recording = new Recording()) {
+      for (String name : List.of("SuggestionRequest", "DictionaryLookup", "DictionaryUpdate",
+          "CorpusIngest")) {
+        recording.enable("io.github.autocompletedemo." + name).withoutThreshold();
+      }
+      recording.start();
+      action.run();
+      recording.stop();
+      Path file = dir.resolve("events.jfr");
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file);
+    }
+  }
+
+  private static RecordedEvent only(List<RecordedEvent> events, String name) {
+    List<RecordedEvent> matching = events.stream()
+        .filter(e -> e.getEventType().getName().equals("io.github.autocompletedemo." + name))
+        .toList();
+    assertEquals(1, matching.size(), name);
+    return matching.get(0);
+  }
+
+  @Test void lookupEventsCarryPrefixAndVersion() throws IOException {
+    AutocompleteSettings settings =
+        new AutocompleteSettings(10, 0, 0, 0.5, 1.0, SuggestionBackend.RADIX_TRIE);
+    try (DictionaryStore store = new DictionaryStore(new AutocompleteConfig(), false)) {
+      List<RecordedEvent> events = record(() -> {
+        store.update(v -> v.addText("program progress java")).join();
+        CountDownLatch done = new CountDownLatch(1);
+        try (SuggestionService service = new SuggestionService(
+            new IndexedSuggestionSource(store, settings), Runnable::run, Duration.ZERO)) {
+          service.request("pro", 5, result -> done.countDown());
+          assertTrue(done.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+      });
+
+      RecordedEvent update = only(events, "DictionaryUpdate");
+      assertEquals("update", update.getString("operation"));
+      assertEquals(3, update.getInt("words"));
+      assertFalse(update.getBoolean("libraryRebuilt"));
+
+      RecordedEvent lookup = only(events, "DictionaryLookup");
+      assertEquals(3, lookup.getInt("prefixLength"));
+      assertEquals(2, lookup.getInt("candidateCount"));
+      assertEquals(update.getLong("dictionaryVersion"), lookup.getLong("dictionaryVersion"));
+
+      RecordedEvent request = only(events, "SuggestionRequest");
+      assertEquals(5, request.getInt("maxSuggestions"));
+      assertFalse(request.getBoolean("stale"));
+      assertFalse(request.getBoolean("cancelled"));
+    }
+  }
+
+  @Test void ingestEventCountsWords() throws IOException {
+    List<RecordedEvent> events =
+        record(() -> new CorpusIngestor(2, 1024).ingest("one two three two", progress -> { }));
+    RecordedEvent ingest = only(events, "CorpusIngest");
+    assertEquals("text", ingest.getString("source"));
+    assertEquals(4, ingest.getLong("words"));
+    assertEquals(17, ingest.getLong("bytes"));
+    assertFalse(ingest.getBoolean("cancelled"));
+  }
+}
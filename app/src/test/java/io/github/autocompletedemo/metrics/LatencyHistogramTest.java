@@ -0,0 +1,34 @@
+package io.github.autocompletedemo.metrics;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+  @Test void bucketsCoverValuesInOrder() {
+    int previous = -1;
+    for (long value = 0; value < 1 << 20; value = value < 64 ? value + 1 : value * 9 / 8) {
+      int index = LatencyHistogram.index(value);
+      assertTrue(index >= previous);
+      assertTrue(value <= LatencyHistogram.upperBound(index));
+      assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+      previous = index;
+    }
+  }
+
+  @Test void percentilesWithinBucketError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 10_000; i++) {
+      histogram.record(i * 1000);
+    }
+    LatencyHistogram.Summary summary = histogram.summary();
+    assertEquals(10_000, summary.count());
+    assertEquals(10_000_000, summary.max());
+    assertEquals(5_000_000, summary.p50(), 5_000_000 / 8.0);
+    assertEquals(9_900_000, summary.p99(), 9_900_000 / 8.0);
+    assertTrue(summary.p99() <= summary.max());
+
+    histogram.reset();
+    assertEquals(0, histogram.summary().count());
+  }
+}
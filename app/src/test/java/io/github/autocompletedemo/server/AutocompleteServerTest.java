@@ -0,0 +1,117 @@
+package io.github.autocompletedemo.server;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.SuggestionSource;
+import io.github.autocompletedemo.metrics.Metrics;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AutocompleteServerTest {
+
+  private static final SuggestionSource ECHO = (prefix, max) -> {
+    List<Candidate> candidates = new ArrayList<>();
+    for (int i = 0; i < Math.min(max, 2); i++) {
+      candidates.add(new Candidate(prefix + i, 1.0));
+    }
+    return candidates;
+  };
+
+  private static final class Client implements AutoCloseable {
+    final Socket socket;
+    final OutputStream out;
+    final BufferedReader in;
+
+    Client(int port) throws IOException {
+      socket = new Socket(InetAddress.getLoopbackAddress(), port);
+      socket.setSoTimeout(5000);
+      out = socket.getOutputStream();
+      in = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    void send(String text) throws IOException {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+
+  @Test void answersPipelinedAndBatchedRequestsInOrder() throws IOException {
+    try (AutocompleteServer server =
+        new AutocompleteServer(ECHO, new Metrics(), 4, 2, Duration.ofSeconds(1))) {
+      int port = server.start(0);
+      try (Client client = new Client(port)) {
+        // Все запросы уходят одним пакетом, до чтения ответов
+        client.send("PING\nCOMPLETE 1 ja pro\r\ncomplete 5 x\nBOGUS\nCOMPLETE 0 a\nQUIT\n");
+        assertEquals("OK", client.in.readLine());
+        assertEquals("OK\tja0=1.0\tpro0=1.0", client.in.readLine());
+        assertEquals("OK\tx0=1.0,x1=1.0", client.in.readLine());
+        assertEquals("ERR unknown command: BOGUS", client.in.readLine());
+        assertTrue(client.in.readLine().startsWith("ERR max"));
+        assertEquals("OK", client.in.readLine());
+        assertNull(client.in.readLine());
+      }
+      AutocompleteServer.Stats stats = server.stats();
+      assertEquals(2, stats.requests());
+      assertEquals(3, stats.lookups());
+    }
+  }
+
+  @Test void answersBusyWhenSaturated() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    SuggestionSource slow = (prefix, max) -> {
+      if (prefix.equals("slow")) {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return ECHO.getAutocomplete(prefix, max);
+    };
+    try (AutocompleteServer server =
+        new AutocompleteServer(slow, new Metrics(), 4, 1, Duration.ofMillis(50));
+        Client first = new Client(server.start(0));
+        Client second = new Client(server.port())) {
+      first.send("COMPLETE 1 slow\n");
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+
+      second.send("COMPLETE 1 fast\n");
+      assertEquals("BUSY", second.in.readLine());
+      release.countDown();
+      assertEquals("OK\tslow0=1.0", first.in.readLine());
+      second.send("COMPLETE 1 fast\n");
+      assertEquals("OK\tfast0=1.0", second.in.readLine());
+      assertEquals(1, server.stats().busy());
+    }
+  }
+
+  @Test void rejectsOverlongLineAndKeepsConnection() throws IOException {
+    try (AutocompleteServer server =
+        new AutocompleteServer(ECHO, new Metrics(), 4, 2, Duration.ofSeconds(1));
+        Client client = new Client(server.start(0))) {
+      client.send("COMPLETE 1 " + "a".repeat(2 * AutocompleteServer.MAX_LINE_BYTES) + "\nPING\n");
+      assertTrue(client.in.readLine().startsWith("ERR line longer"));
+      assertEquals("OK", client.in.readLine());
+    }
+  }
+}
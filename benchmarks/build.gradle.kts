@@ -0,0 +1,47 @@
+/*
+ * JMH benchmarks for the autocomplete hot paths.
+ *
+ * Run all suites:        ./gradlew :benchmarks:jmh
+ * Run a single suite:    ./gradlew :benchmarks:jmh -Pjmh.includes=AutocompleteBenchmark
+ * Results are written to benchmarks/build/results/jmh/results.json.
+ *
+ * Headless typing replay:  ./gradlew :benchmarks:replay --args="--sessions 4 --output replay.json"
+ */
+
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":app"))
+
+    // Autocomplete library JAR files from lib directory
+    jmh(fileTree(mapOf("dir" to "../lib", "include" to listOf("*.jar"))))
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    resultFormat = "JSON"
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    (findProperty("jmh.includes") as String?)?.let { includes = listOf(it) }
+}
+
+tasks.register<JavaExec>("replay") {
+    description = "Replays typing sessions without a window and reports per-keystroke latency."
+    group = "benchmark"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "io.github.autocompletedemo.benchmarks.KeystrokeReplay"
+}
@@ -0,0 +1,96 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocomplete.AutocompleteProvider;
+import io.github.autocomplete.TextAnalyzer;
+import io.github.autocomplete.model.Candidate;
+import io.github.autocomplete.tokenizer.SimpleTokenizer;
+import io.github.autocompletedemo.AutocompleteSettings;
+import io.github.autocompletedemo.IndexedSuggestionSource;
+import io.github.autocompletedemo.SuggestionBackend;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Один запрос подсказок - то, что происходит на каждое нажатие клавиши. Сравниваются
+ * {@link AutocompleteProvider} библиотеки и собственный индекс приложения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AutocompleteBenchmark {
+
+  private static final int PREFIXES = 1024;
+
+  @Param({"1000", "10000", "100000"})
+  public int dictionarySize;
+
+  @Param({"1", "3", "5"})
+  public int prefixLength;
+
+  @Param({"0", "1", "2"})
+  public int tolerance;
+
+  /** Веса совпадений "similar/original". */
+  @Param({"0.5/1.0", "1.0/1.0"})
+  public String weights;
+
+  private AutocompleteSettings settings;
+  private AutocompleteProvider provider;
+  private DictionaryStore store;
+  private IndexedSuggestionSource index;
+  private String[] prefixes;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Corpus corpus = Corpus.generate(dictionarySize, 42);
+    String[] weight = weights.split("/");
+    settings = new AutocompleteSettings(10, 0, tolerance, Double.parseDouble(weight[0]),
+        Double.parseDouble(weight[1]), SuggestionBackend.LIBRARY);
+
+    File dictionary = corpus.writeDictionary();
+    TextAnalyzer analyzer = new TextAnalyzer(new SimpleTokenizer());
+    analyzer.loadFromFile(dictionary);
+    provider = new AutocompleteProvider(analyzer, settings.toConfig());
+
+    store = new DictionaryStore(settings.toConfig(), false);
+    store.update(vocabulary -> vocabulary.addAll(corpus.vocabulary())).join();
+    index = new IndexedSuggestionSource(store, settings);
+
+    prefixes = corpus.prefixes(PREFIXES, prefixLength, 7);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    store.close();
+  }
+
+  private String nextPrefix() {
+    next = (next + 1) & (PREFIXES - 1);
+    return prefixes[next];
+  }
+
+  @Benchmark
+  public List<Candidate> library() {
+    return provider.getAutocomplete(nextPrefix(), settings.maxSuggestions());
+  }
+
+  @Benchmark
+  public List<Candidate> radixTrie() {
+    return index.getAutocomplete(nextPrefix(), settings.maxSuggestions());
+  }
+}
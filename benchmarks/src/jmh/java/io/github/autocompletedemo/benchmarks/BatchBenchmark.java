@@ -0,0 +1,93 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.AutocompleteSettings;
+import io.github.autocompletedemo.BatchCompleter;
+import io.github.autocompletedemo.IndexedSuggestionSource;
+import io.github.autocompletedemo.SuggestionBackend;
+import io.github.autocompletedemo.SuggestionSource;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Подсказки для пакета префиксов: цикл по {@code getAutocomplete} против {@link BatchCompleter}
+ * с разным числом потоков. Масштабирование видно по отношению {@code loop} к {@code batch}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchBenchmark {
+
+  @Param({"100000"})
+  public int dictionarySize;
+
+  @Param({"10000"})
+  public int batchSize;
+
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  @Param({"0", "1"})
+  public int tolerance;
+
+  private DictionaryStore store;
+  private SuggestionSource source;
+  private List<String> prefixes;
+  private ForkJoinPool pool;
+  private BatchCompleter completer;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Corpus corpus = Corpus.generate(dictionarySize, 42);
+    AutocompleteSettings settings =
+        new AutocompleteSettings(10, 2, tolerance, 0.5, 1.0, SuggestionBackend.RADIX_TRIE);
+    store = new DictionaryStore(settings.toConfig(), false);
+    store.update(vocabulary -> vocabulary.addAll(corpus.vocabulary())).join();
+    source = new IndexedSuggestionSource(store, settings).pinned();
+
+    // Смесь длин, как у префиксов всех слов документа
+    Random random = new Random(7);
+    prefixes = new ArrayList<>(batchSize);
+    for (int length = 1; prefixes.size() < batchSize; length = length % 6 + 1) {
+      prefixes.addAll(Arrays.asList(corpus.prefixes(1, length, random.nextLong())));
+    }
+    pool = new ForkJoinPool(parallelism);
+    completer = new BatchCompleter(pool);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+    store.close();
+  }
+
+  @Benchmark
+  public List<List<Candidate>> loop() {
+    List<List<Candidate>> results = new ArrayList<>(prefixes.size());
+    for (String prefix : prefixes) {
+      results.add(source.getAutocomplete(prefix, 10));
+    }
+    return results;
+  }
+
+  @Benchmark
+  public List<List<Candidate>> batch() {
+    return completer.complete(source, prefixes, 10);
+  }
+}
@@ -0,0 +1,139 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocompletedemo.dictionary.TrieFileFormat;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Синтетический корпус для бенчмарков: слова из слогов и частоты по закону Ципфа.
+ *
+ * <p>
+ * Всё определяется зерном генератора, поэтому бенчмарки не зависят от сети и файлов и дают
+ * воспроизводимые числа. Слова упорядочены по убыванию частоты.
+ */
+public final class Corpus {
+
+  private static final String[] SYLLABLES = {"a", "al", "an", "ar", "be", "ca", "co", "con",
+      "de", "di", "do", "e", "en", "er", "es", "fa", "ga", "he", "i", "in", "is", "ka", "la",
+      "le", "li", "lo", "ma", "me", "mi", "mo", "na", "ne", "no", "o", "on", "or", "pa", "pe",
+      "pro", "ra", "re", "ri", "ro", "sa", "se", "si", "ta", "te", "ti", "to", "tra", "u", "un",
+      "va", "ve", "vi", "za"};
+  private static final double ZIPF_EXPONENT = 1.07;
+
+  private final String[] words;
+  private final int[] counts;
+  private final double[] cumulative;
+
+  private Corpus(String[] words, int[] counts) {
+    this.words = words;
+    this.counts = counts;
+    this.cumulative = new double[words.length];
+    double sum = 0;
+    for (int i = 0; i < words.length; i++) {
+      sum += counts[i];
+      cumulative[i] = sum;
+    }
+  }
+
+  public static Corpus generate(int distinctWords, long seed) {
+    Random random = new Random(seed);
+    Set<String> unique = new LinkedHashSet<>();
+    StringBuilder word = new StringBuilder();
+    while (unique.size() < distinctWords) {
+      word.setLength(0);
+      for (int n = 1 + random.nextInt(4); n > 0; n--) {
+        word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+      }
+      unique.add(word.toString());
+    }
+    String[] words = unique.toArray(new String[0]);
+    int[] counts = new int[words.length];
+    for (int rank = 0; rank < words.length; rank++) {
+      counts[rank] = Math.max(1, (int) (1_000_000 / Math.pow(rank + 1, ZIPF_EXPONENT)));
+    }
+    return new Corpus(words, counts);
+  }
+
+  public int size() {
+    return words.length;
+  }
+
+  public String word(int rank) {
+    return words[rank];
+  }
+
+  /**
+   * Случайное слово с вероятностью, пропорциональной его частоте.
+   */
+  public String sample(Random random) {
+    double target = random.nextDouble() * cumulative[cumulative.length - 1];
+    int index = Arrays.binarySearch(cumulative, target);
+    return words[index >= 0 ? index : -index - 1];
+  }
+
+  /**
+   * Текст из {@code wordCount} слов с пунктуацией и переводами строк.
+   */
+  public String text(int wordCount, long seed) {
+    Random random = new Random(seed);
+    StringBuilder text = new StringBuilder(wordCount * 8);
+    for (int i = 0; i < wordCount; i++) {
+      text.append(sample(random));
+      int separator = random.nextInt(20);
+      if (separator == 0) {
+        text.append(".\n");
+      } else if (separator == 1) {
+        text.append(", ");
+      } else {
+        text.append(' ');
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * Префиксы длины {@code length} от слов, выбранных по частоте; слова короче пропускаются.
+   */
+  public String[] prefixes(int count, int length, long seed) {
+    Random random = new Random(seed);
+    String[] prefixes = new String[count];
+    int n = 0;
+    while (n < count) {
+      String word = sample(random);
+      if (word.length() >= length) {
+        prefixes[n++] = word.substring(0, length);
+      }
+    }
+    return prefixes;
+  }
+
+  public Vocabulary vocabulary() {
+    Vocabulary vocabulary = new Vocabulary();
+    for (int i = 0; i < words.length; i++) {
+      vocabulary.add(words[i], counts[i]);
+    }
+    return vocabulary;
+  }
+
+  /**
+   * Временный файл словаря в формате TRIE, который понимает {@code TextAnalyzer}.
+   */
+  public File writeDictionary() throws IOException {
+    Map<String, Integer> map = new HashMap<>(words.length * 2);
+    for (int i = 0; i < words.length; i++) {
+      map.put(words[i], counts[i]);
+    }
+    File file = File.createTempFile("benchmark-dict", null);
+    file.deleteOnExit();
+    TrieFileFormat.write(map, file);
+    return file;
+  }
+}
@@ -0,0 +1,147 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocomplete.distance.Levenshtein;
+import io.github.autocompletedemo.distance.DistanceMetric;
+import io.github.autocompletedemo.distance.EditDistance;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Варианты расстояния редактирования на парах "слово с опечаткой - слово словаря": текущая
+ * библиотечная реализация (как есть и с отсечением далёких пар), полная таблица,
+ * битово-параллельный счёт с ограничением, Дамерау, взвешенный по клавиатуре и сравнение одного
+ * образца с пачкой слов.
+ *
+ * <p>
+ * Две трети пар далеки друг от друга: так выглядит проверка кандидатов при поиске с опечатками,
+ * и именно на них окупается ранний выход.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DistanceBenchmark {
+
+  private static final int PAIRS = 1024;
+  private static final int BATCH = 64;
+
+  @Param({"1", "2"})
+  public int tolerance;
+
+  private String[] queries;
+  private String[] words;
+  private EditDistance.Pattern pattern;
+  private CharSequence[] batch;
+  private final int[] distances = new int[BATCH];
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Corpus corpus = Corpus.generate(10_000, 42);
+    Random random = new Random(5);
+    queries = new String[PAIRS];
+    words = new String[PAIRS];
+    for (int i = 0; i < PAIRS; i++) {
+      String word = corpus.sample(random);
+      queries[i] = typo(word, random);
+      words[i] = i % 3 == 0 ? word : corpus.sample(random);
+    }
+    pattern = EditDistance.Pattern.compile(queries[0]);
+    batch = new CharSequence[BATCH];
+    for (int i = 0; i < BATCH; i++) {
+      batch[i] = words[i];
+    }
+  }
+
+  /** Одна случайная правка: замена, вставка, удаление или перестановка. */
+  private static String typo(String word, Random random) {
+    StringBuilder typo = new StringBuilder(word);
+    int at = random.nextInt(word.length());
+    char letter = (char) ('a' + random.nextInt(26));
+    switch (random.nextInt(4)) {
+      case 0 -> typo.setCharAt(at, letter);
+      case 1 -> typo.insert(at, letter);
+      case 2 -> typo.deleteCharAt(at);
+      default -> {
+        if (at + 1 < typo.length()) {
+          typo.setCharAt(at, word.charAt(at + 1));
+          typo.setCharAt(at + 1, word.charAt(at));
+        }
+      }
+    }
+    return typo.toString();
+  }
+
+  /** Эталон: полная таблица Вагнера - Фишера двумя строками. */
+  private static int fullTable(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  @Benchmark
+  public int library() {
+    int i = next++ & (PAIRS - 1);
+    return Levenshtein.distance(queries[i], words[i]);
+  }
+
+  @Benchmark
+  public int libraryBounded() {
+    int i = next++ & (PAIRS - 1);
+    return DistanceMetric.LIBRARY.distance(queries[i], words[i], tolerance);
+  }
+
+  @Benchmark
+  public int fullTable() {
+    int i = next++ & (PAIRS - 1);
+    return fullTable(queries[i], words[i]);
+  }
+
+  @Benchmark
+  public int bitParallel() {
+    int i = next++ & (PAIRS - 1);
+    return EditDistance.levenshtein(queries[i], words[i], tolerance);
+  }
+
+  @Benchmark
+  public int damerau() {
+    int i = next++ & (PAIRS - 1);
+    return EditDistance.damerau(queries[i], words[i], tolerance);
+  }
+
+  @Benchmark
+  public int keyboard() {
+    int i = next++ & (PAIRS - 1);
+    return EditDistance.keyboard(queries[i], words[i], tolerance);
+  }
+
+  /** Один образец против пачки слов: время на одно слово. */
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public int patternBatch() {
+    return pattern.levenshtein(batch, tolerance, distances);
+  }
+}
@@ -0,0 +1,112 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocompletedemo.document.Document;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Работа редактора на каждое нажатие клавиши: слово перед курсором (getCurrentWord), строка и
+ * колонка курсора (getCaretScreenPosition) и вставка подсказки (insertSuggestion). Методы
+ * {@code copy*} повторяют прежний путь через полную копию текста и служат точкой отсчёта.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EditorBenchmark {
+
+  private static final int CARETS = 1024;
+
+  /** Размер документа в словах. */
+  @Param({"1000", "100000", "1000000"})
+  public int documentWords;
+
+  private Document document;
+  private String text;
+  private int[] carets;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    text = Corpus.generate(10_000, 42).text(documentWords, 13);
+    document = new Document(text);
+    // Курсор в конце слова, как при наборе
+    Random random = new Random(5);
+    carets = new int[CARETS];
+    for (int i = 0; i < CARETS; i++) {
+      int caret = random.nextInt(text.length());
+      while (caret < text.length() && Character.isLetterOrDigit(text.charAt(caret))) {
+        caret++;
+      }
+      carets[i] = caret;
+    }
+  }
+
+  private int nextCaret() {
+    next = (next + 1) & (CARETS - 1);
+    return carets[next];
+  }
+
+  @Benchmark
+  public String currentWord() {
+    return document.wordBefore(nextCaret());
+  }
+
+  @Benchmark
+  public int caretPosition() {
+    int caret = nextCaret();
+    int line = document.lineOfOffset(caret);
+    return line * 31 + caret - document.lineStart(line);
+  }
+
+  /**
+   * Вставка подсказки вместо слова и обратная замена, чтобы документ не рос между вызовами.
+   */
+  @Benchmark
+  public int insertSuggestion() {
+    int caret = nextCaret();
+    int start = document.wordStart(caret);
+    String word = document.subSequence(start, caret);
+    document.replace(start, caret, "suggestion");
+    document.replace(start, start + "suggestion".length(), word);
+    return document.length();
+  }
+
+  @Benchmark
+  public String copyCurrentWord() {
+    // Прежний getCurrentWord: textArea.getText() и обход назад
+    String copy = new String(text.toCharArray());
+    int caret = nextCaret();
+    int start = caret;
+    while (start > 0 && Character.isLetterOrDigit(copy.charAt(start - 1))) {
+      start--;
+    }
+    return copy.substring(start, caret);
+  }
+
+  @Benchmark
+  public int copyCaretPosition() {
+    // Прежний getCaretScreenPosition: подсчёт строк от начала текста
+    int caret = nextCaret();
+    int line = 0;
+    int column = 0;
+    for (int i = 0; i < caret; i++) {
+      if (text.charAt(i) == '\n') {
+        line++;
+        column = 0;
+      } else {
+        column++;
+      }
+    }
+    return line * 31 + column;
+  }
+}
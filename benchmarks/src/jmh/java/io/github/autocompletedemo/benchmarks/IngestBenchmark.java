@@ -0,0 +1,78 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.ingest.CorpusIngestor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Загрузка корпуса в словарь приложения: файл UTF-8 через {@link CorpusIngestor}, тот же текст из
+ * памяти и {@link Vocabulary#addText}. Корпус - около {@code textWords * 7} байт, так что MB/s -
+ * размер корпуса, делённый на время операции.
+ *
+ * <p>
+ * Кроме частот слов загрузка считает пары соседних слов для предсказания следующего слова; на
+ * этом корпусе это около половины времени операции. Сравнивая с замерами до появления пар, это
+ * нужно учитывать.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IngestBenchmark {
+
+  @Param({"1000000"})
+  public int textWords;
+
+  @Param({"1"})
+  public int parallelism;
+
+  private String text;
+  private Path file;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    text = Corpus.generate(50_000, 42).text(textWords, 11);
+    file = Files.createTempFile("benchmark-corpus", ".txt");
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public Vocabulary ingestFile() throws IOException {
+    return new CorpusIngestor(parallelism, CorpusIngestor.DEFAULT_CHUNK_SIZE).ingest(file,
+        progress -> {
+        });
+  }
+
+  @Benchmark
+  public Vocabulary ingestText() {
+    return new CorpusIngestor(parallelism, CorpusIngestor.DEFAULT_CHUNK_SIZE).ingest(text,
+        progress -> {
+        });
+  }
+
+  @Benchmark
+  public Vocabulary addText() {
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText(text);
+    return vocabulary;
+  }
+}
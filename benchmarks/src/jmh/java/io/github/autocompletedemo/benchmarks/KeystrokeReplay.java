@@ -0,0 +1,266 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocompletedemo.AutocompleteSettings;
+import io.github.autocompletedemo.IndexedSuggestionSource;
+import io.github.autocompletedemo.SuggestionBackend;
+import io.github.autocompletedemo.SuggestionCache;
+import io.github.autocompletedemo.SuggestionSource;
+import io.github.autocompletedemo.dictionary.DictionaryStore;
+import io.github.autocompletedemo.dictionary.TrieFileFormat;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Нагрузочный прогон набора текста без окна: несколько одновременных сеансов
+ * {@link TypingSession} на общем словаре, задержки каждого нажатия в перцентилях, выделение
+ * памяти на нажатие и пропускная способность. Результат - JSON с постоянным порядком полей, чтобы
+ * прогоны можно было сравнивать диффом.
+ *
+ * <pre>
+ * ./gradlew :benchmarks:replay --args="--sessions 8 --backend trie --output replay.json"
+ * </pre>
+ */
+public final class KeystrokeReplay {
+
+  private static final String USAGE = """
+      Usage: KeystrokeReplay [options]
+        --backend library|trie      suggestion backend (default trie)
+        --dictionary FILE           dictionary in TRIE format (default: synthetic)
+        --dictionary-size N         words in the synthetic dictionary (default 50000)
+        --session-file FILE         recorded text to type in every session (default: synthetic)
+        --sessions N                concurrent sessions (default 1)
+        --keystrokes N              keystrokes per session (default 20000)
+        --warmup N                  unmeasured keystrokes per session (default 5000)
+        --max-suggestions N         (default 10)
+        --tolerance N               (default 0)
+        --tolerance-threshold N     (default 0)
+        --similar-weight X          (default 0.5)
+        --original-weight X         (default 1.0)
+        --shards N                  split the dictionary for parallel fuzzy search (default 1)
+        --accept-after N            accept a suggestion once N chars are typed (default 2)
+        --no-cache                  query the backend directly, bypassing SuggestionCache
+        --seed N                    (default 1)
+        --output FILE               write JSON results (default: stdout)
+      """;
+
+  private final Map<String, String> options;
+
+  private KeystrokeReplay(Map<String, String> options) {
+    this.options = options;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("--help")) {
+        System.out.print(USAGE);
+        return;
+      }
+      if (!arg.startsWith("--")) {
+        System.err.print("Unexpected argument: " + arg + "\n" + USAGE);
+        System.exit(2);
+      }
+      if (arg.equals("--no-cache")) {
+        options.put("no-cache", "true");
+      } else if (i + 1 < args.length) {
+        options.put(arg.substring(2), args[++i]);
+      } else {
+        System.err.print("Missing value for " + arg + "\n" + USAGE);
+        System.exit(2);
+      }
+    }
+    new KeystrokeReplay(options).run();
+  }
+
+  private String option(String name, String defaultValue) {
+    return options.getOrDefault(name, defaultValue);
+  }
+
+  private int intOption(String name, int defaultValue) {
+    return Integer.parseInt(option(name, Integer.toString(defaultValue)));
+  }
+
+  private void run() throws IOException, InterruptedException, ExecutionException {
+    SuggestionBackend backend = option("backend", "trie").equals("library")
+        ? SuggestionBackend.LIBRARY : SuggestionBackend.RADIX_TRIE;
+    AutocompleteSettings settings = new AutocompleteSettings(intOption("max-suggestions", 10),
+        intOption("tolerance-threshold", 0), intOption("tolerance", 0),
+        Double.parseDouble(option("similar-weight", "0.5")),
+        Double.parseDouble(option("original-weight", "1.0")), backend);
+    int sessions = intOption("sessions", 1);
+    int keystrokes = intOption("keystrokes", 20_000);
+    int warmup = intOption("warmup", 5_000);
+    long seed = Long.parseLong(option("seed", "1"));
+    boolean cached = !options.containsKey("no-cache");
+
+    Corpus corpus = Corpus.generate(intOption("dictionary-size", 50_000), seed);
+    Vocabulary vocabulary;
+    if (options.containsKey("dictionary")) {
+      vocabulary = new Vocabulary();
+      TrieFileFormat.read(new File(option("dictionary", null)), vocabulary::add);
+    } else {
+      vocabulary = corpus.vocabulary();
+    }
+    String recorded = options.containsKey("session-file")
+        ? Files.readString(Path.of(option("session-file", null)), StandardCharsets.UTF_8)
+        : null;
+
+    try (DictionaryStore store =
+        new DictionaryStore(settings.toConfig(), backend == SuggestionBackend.LIBRARY)) {
+      store.setShardCount(intOption("shards", 1));
+      store.update(v -> v.addAll(vocabulary)).join();
+      // Общий для всех сеансов движок, как у одного процесса редактора
+      SuggestionSource engine;
+      if (backend == SuggestionBackend.RADIX_TRIE) {
+        engine = new IndexedSuggestionSource(store, settings);
+      } else {
+        engine = (prefix, max) -> store.current().library().getAutocomplete(prefix, max);
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(sessions);
+      List<Future<TypingSession.Result>> futures = new ArrayList<>();
+      List<SuggestionCache> caches = new ArrayList<>();
+      for (int i = 0; i < sessions; i++) {
+        SuggestionSource source = engine;
+        if (cached) {
+          SuggestionCache cache = new SuggestionCache(engine, 1024, settings.toConfig(), settings);
+          caches.add(cache);
+          source = cache;
+        }
+        // Текст с запасом: принятые подсказки пропускают часть символов
+        String text = recorded != null ? recorded
+            : corpus.text((warmup + keystrokes) / 3, seed * 31 + i);
+        TypingSession session =
+            new TypingSession(text, source, settings.maxSuggestions(), intOption("accept-after", 2));
+        futures.add(executor.submit(() -> {
+          session.replay(warmup);
+          return session.replay(keystrokes);
+        }));
+      }
+      List<TypingSession.Result> results = new ArrayList<>();
+      for (Future<TypingSession.Result> future : futures) {
+        results.add(future.get());
+      }
+      executor.shutdown();
+
+      report(settings, sessions, cached, results, caches);
+    }
+  }
+
+  private void report(AutocompleteSettings settings, int sessions, boolean cached,
+      List<TypingSession.Result> results, List<SuggestionCache> caches) throws IOException {
+    int total = 0;
+    // Сеансы идут параллельно: время замера - время самого долгого из них
+    long elapsedNanos = 0;
+    long lookups = 0;
+    long accepted = 0;
+    for (TypingSession.Result result : results) {
+      total += result.keystrokes();
+      lookups += result.lookups();
+      accepted += result.accepted();
+      elapsedNanos = Math.max(elapsedNanos, result.elapsedNanos());
+    }
+    long[] latencies = new long[total];
+    long[] allocations = new long[total];
+    int n = 0;
+    for (TypingSession.Result result : results) {
+      System.arraycopy(result.latencies(), 0, latencies, n, result.keystrokes());
+      System.arraycopy(result.allocations(), 0, allocations, n, result.keystrokes());
+      n += result.keystrokes();
+    }
+    Arrays.sort(latencies);
+    long allocated = 0;
+    for (long bytes : allocations) {
+      allocated += bytes;
+    }
+    long hits = 0;
+    long refinements = 0;
+    long misses = 0;
+    for (SuggestionCache cache : caches) {
+      SuggestionCache.Stats stats = cache.stats();
+      hits += stats.hits();
+      refinements += stats.refinements();
+      misses += stats.misses();
+    }
+
+    StringBuilder json = new StringBuilder();
+    json.append("{\n");
+    json.append("  \"config\": {\n");
+    field(json, 2, "backend", quote(settings.backend().name()), true);
+    field(json, 2, "sessions", sessions, true);
+    field(json, 2, "cache", cached, true);
+    field(json, 2, "maxSuggestions", settings.maxSuggestions(), true);
+    field(json, 2, "toleranceThreshold", settings.toleranceThreshold(), true);
+    field(json, 2, "tolerance", settings.tolerance(), true);
+    field(json, 2, "shards", intOption("shards", 1), true);
+    field(json, 2, "similarWeight", settings.similarWeight(), true);
+    field(json, 2, "originalWeight", settings.originalWeight(), false);
+    json.append("  },\n");
+    field(json, 1, "keystrokes", total, true);
+    field(json, 1, "lookups", lookups, true);
+    field(json, 1, "accepted", accepted, true);
+    field(json, 1, "elapsedMillis", elapsedNanos / 1_000_000, true);
+    field(json, 1, "keystrokesPerSecond",
+        Math.round(total / Math.max(1e-9, elapsedNanos / 1e9)), true);
+    json.append("  \"latencyMicros\": {\n");
+    field(json, 2, "p50", micros(percentile(latencies, 0.50)), true);
+    field(json, 2, "p95", micros(percentile(latencies, 0.95)), true);
+    field(json, 2, "p99", micros(percentile(latencies, 0.99)), true);
+    field(json, 2, "max", micros(total == 0 ? 0 : latencies[total - 1]), true);
+    field(json, 2, "mean",
+        micros(total == 0 ? 0 : Arrays.stream(latencies).sum() / total), false);
+    json.append("  },\n");
+    field(json, 1, "allocatedBytesPerKeystroke", total == 0 ? 0 : allocated / total, true);
+    json.append("  \"cache\": {\n");
+    field(json, 2, "hits", hits, true);
+    field(json, 2, "refinements", refinements, true);
+    field(json, 2, "misses", misses, false);
+    json.append("  }\n");
+    json.append("}\n");
+
+    if (options.containsKey("output")) {
+      Files.writeString(Path.of(option("output", null)), json, StandardCharsets.UTF_8);
+      System.err.println("Results written to " + option("output", null));
+    } else {
+      System.out.print(json);
+    }
+  }
+
+  static long percentile(long[] sorted, double fraction) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  private static String micros(long nanos) {
+    return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+  }
+
+  private static String quote(String value) {
+    return "\"" + value + "\"";
+  }
+
+  private static void field(StringBuilder json, int depth, String name, Object value,
+      boolean more) {
+    json.append("  ".repeat(depth)).append('"').append(name).append("\": ").append(value);
+    json.append(more ? ",\n" : "\n");
+  }
+}
@@ -0,0 +1,70 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.index.NextWordIndex;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Предсказание следующего слова после пробела против точного поиска по префиксу той же длины
+ * ответа: оба должны укладываться в один бюджет задержки нажатия.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NextWordBenchmark {
+
+  private static final int QUERIES = 1024;
+
+  @Param({"10000", "100000"})
+  public int dictionarySize;
+
+  /** Слов обучающего текста. */
+  @Param({"1000000"})
+  public int textWords;
+
+  private RadixTrieIndex index;
+  private NextWordIndex nextWords;
+  private String[] contexts;
+  private String[] prefixes;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Corpus corpus = Corpus.generate(dictionarySize, 42);
+    Vocabulary vocabulary = new Vocabulary();
+    vocabulary.addText(corpus.text(textWords, 7));
+    index = RadixTrieIndex.build(vocabulary);
+    nextWords = NextWordIndex.build(vocabulary, index);
+
+    Random random = new Random(11);
+    contexts = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      contexts[i] = corpus.sample(random);
+    }
+    prefixes = corpus.prefixes(QUERIES, 3, 13);
+  }
+
+  @Benchmark
+  public List<Candidate> predict() {
+    return nextWords.predict(contexts[next++ & (QUERIES - 1)], 10, 1.0);
+  }
+
+  @Benchmark
+  public List<Candidate> completePrefix() {
+    return index.complete(prefixes[next++ & (QUERIES - 1)], 10, 1.0);
+  }
+}
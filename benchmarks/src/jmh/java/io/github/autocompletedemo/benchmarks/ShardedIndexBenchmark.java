@@ -0,0 +1,72 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.dictionary.Vocabulary;
+import io.github.autocompletedemo.index.RadixTrieIndex;
+import io.github.autocompletedemo.index.ShardedIndex;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Один поиск с опечатками по большому словарю: целый индекс против разбитого на части.
+ * {@code shards = 1} - обычный {@link RadixTrieIndex} в вызывающем потоке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShardedIndexBenchmark {
+
+  private static final int PREFIXES = 256;
+
+  @Param({"1000000"})
+  public int dictionarySize;
+
+  @Param({"1", "2"})
+  public int tolerance;
+
+  @Param({"1", "4", "16", "64"})
+  public int shards;
+
+  private RadixTrieIndex index;
+  private ShardedIndex sharded;
+  private ForkJoinPool pool;
+  private String[] prefixes;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Corpus corpus = Corpus.generate(dictionarySize, 42);
+    Vocabulary vocabulary = corpus.vocabulary();
+    index = RadixTrieIndex.build(vocabulary);
+    pool = new ForkJoinPool();
+    if (shards > 1) {
+      sharded = ShardedIndex.build(index, shards, pool);
+    }
+    prefixes = corpus.prefixes(PREFIXES, 4, 7);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public List<Candidate> completeFuzzy() {
+    String prefix = prefixes[next++ & (PREFIXES - 1)];
+    return sharded == null
+        ? index.completeFuzzy(prefix, 10, tolerance, 1.0, 0.5)
+        : sharded.completeFuzzy(prefix, 10, tolerance, 1.0, 0.5);
+  }
+}
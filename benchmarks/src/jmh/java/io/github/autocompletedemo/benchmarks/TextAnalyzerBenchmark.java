@@ -0,0 +1,65 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocomplete.TextAnalyzer;
+import io.github.autocomplete.tokenizer.SimpleTokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Пропускная способность наполнения словаря библиотеки: загрузка файла, добавление текста и
+ * токенизация. Время - на одну операцию целиком; размер входа задан параметрами.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TextAnalyzerBenchmark {
+
+  @Param({"10000", "100000"})
+  public int dictionarySize;
+
+  @Param({"100000", "1000000"})
+  public int textWords;
+
+  private File dictionary;
+  private String text;
+  private SimpleTokenizer tokenizer;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Corpus corpus = Corpus.generate(dictionarySize, 42);
+    dictionary = corpus.writeDictionary();
+    text = corpus.text(textWords, 11);
+    tokenizer = new SimpleTokenizer();
+  }
+
+  @Benchmark
+  public TextAnalyzer loadFromFile() throws IOException {
+    TextAnalyzer analyzer = new TextAnalyzer(new SimpleTokenizer());
+    analyzer.loadFromFile(dictionary);
+    return analyzer;
+  }
+
+  @Benchmark
+  public TextAnalyzer addText() {
+    TextAnalyzer analyzer = new TextAnalyzer(new SimpleTokenizer());
+    analyzer.addText(text);
+    return analyzer;
+  }
+
+  @Benchmark
+  public void tokenize(Blackhole blackhole) {
+    blackhole.consume(tokenizer.tokenize(text));
+  }
+}
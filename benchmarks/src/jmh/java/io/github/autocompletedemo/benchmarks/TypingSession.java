@@ -0,0 +1,118 @@
+package io.github.autocompletedemo.benchmarks;
+
+import io.github.autocomplete.model.Candidate;
+import io.github.autocompletedemo.SuggestionSource;
+import io.github.autocompletedemo.dictionary.WordBoundaries;
+import io.github.autocompletedemo.document.Document;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Один сеанс набора текста без JavaFX: те же шаги, что делает редактор на нажатие клавиши.
+ *
+ * <p>
+ * Каждый символ текста - нажатие: вставка в {@link Document}, слово перед курсором и запрос
+ * подсказок. Если среди подсказок есть слово, которое набирается, оно принимается (как по Tab):
+ * слово заменяется подсказкой, остаток слова в тексте пропускается. Для каждого нажатия
+ * записываются время и число выделенных потоком байт.
+ */
+final class TypingSession {
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /**
+   * Результаты одного сеанса; массивы заполнены на {@code keystrokes} элементов.
+   */
+  record Result(long[] latencies, long[] allocations, int keystrokes, int lookups,
+      int accepted, long elapsedNanos) {
+  }
+
+  private final String text;
+  private final SuggestionSource source;
+  private final int maxSuggestions;
+  private final int minAcceptLength;
+
+  TypingSession(String text, SuggestionSource source, int maxSuggestions, int minAcceptLength) {
+    this.text = text;
+    this.source = source;
+    this.maxSuggestions = maxSuggestions;
+    this.minAcceptLength = minAcceptLength;
+  }
+
+  Result replay(int maxKeystrokes) {
+    long[] latencies = new long[maxKeystrokes];
+    long[] allocations = new long[maxKeystrokes];
+    Document document = new Document();
+    long thread = Thread.currentThread().threadId();
+    int keystrokes = 0;
+    int lookups = 0;
+    int accepted = 0;
+    int caret = 0;
+    int position = 0;
+    long sessionStart = System.nanoTime();
+
+    while (position < text.length() && keystrokes < maxKeystrokes) {
+      long allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+      long start = System.nanoTime();
+
+      document.replace(caret, caret, text.subSequence(position, position + 1));
+      caret++;
+      position++;
+      String word = document.wordBefore(caret);
+      if (!word.isEmpty()) {
+        List<Candidate> candidates = source.getAutocomplete(word, maxSuggestions);
+        lookups++;
+        // Намерение пользователя определяется по тексту без выделения памяти
+        int wordStart = position - word.length();
+        String target = word.length() >= minAcceptLength
+            ? find(candidates, wordStart, wordEnd(wordStart)) : null;
+        if (target != null && target.length() > word.length()) {
+          // Принятие подсказки - отдельное нажатие
+          latencies[keystrokes] = System.nanoTime() - start;
+          allocations[keystrokes] = THREADS.getThreadAllocatedBytes(thread) - allocatedBefore;
+          keystrokes++;
+          if (keystrokes == maxKeystrokes) {
+            break;
+          }
+          allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+          start = System.nanoTime();
+
+          int replaceFrom = document.wordStart(caret);
+          document.replace(replaceFrom, caret, target);
+          caret = replaceFrom + target.length();
+          position += target.length() - word.length();
+          accepted++;
+        }
+      }
+
+      latencies[keystrokes] = System.nanoTime() - start;
+      allocations[keystrokes] = THREADS.getThreadAllocatedBytes(thread) - allocatedBefore;
+      keystrokes++;
+    }
+    return new Result(latencies, allocations, keystrokes, lookups, accepted,
+        System.nanoTime() - sessionStart);
+  }
+
+  private int wordEnd(int start) {
+    int end = start;
+    while (end < text.length() && WordBoundaries.isWordChar(text.charAt(end))) {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * Подсказка, совпадающая со словом текста {@code [start, end)} без учёта регистра.
+   */
+  private String find(List<Candidate> candidates, int start, int end) {
+    for (Candidate candidate : candidates) {
+      String word = candidate.word();
+      if (word.length() == end - start && text.regionMatches(true, start, word, 0, word.length())) {
+        return word;
+      }
+    }
+    return null;
+  }
+}
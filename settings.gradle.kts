@@ -12,3 +12,4 @@ plugins {
 
 rootProject.name = "autocomplete-demo"
 include("app")
+include("benchmarks")